@@ -0,0 +1,157 @@
+package org.ahocorasick.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible dictionaries and texts for the benchmarks.
+ */
+final class BenchmarkData {
+
+    static final String LOWER_CASE = "abcdefghijklmnopqrstuvwxyz";
+
+    private static final String[] COMMON_WORDS = {
+            "the", "of", "and", "to", "a", "in", "is", "it", "you", "that", "he", "was", "for", "on", "are",
+            "with", "as", "his", "they", "be", "at", "one", "have", "this", "from", "or", "had", "by", "hot",
+            "word", "but", "what", "some", "we", "can", "out", "other", "were", "all", "there", "when", "up",
+            "use", "your", "how", "said", "an", "each", "she", "which", "do", "their", "time", "if", "will",
+            "way", "about", "many", "then", "them", "write", "would", "like", "so", "these", "her", "long",
+            "make", "thing", "see", "him", "two", "has", "look", "more", "day", "could", "go", "come", "did",
+            "number", "sound", "no", "most", "people", "my", "over", "know", "water", "than", "call", "first",
+            "who", "may", "down", "side", "been", "now", "find", "any", "new", "work", "part", "take", "get",
+            "place", "made", "live", "where", "after", "back", "little", "only", "round", "man", "year",
+            "came", "show", "every", "good", "me", "give", "our", "under", "name", "very", "through", "just",
+            "form", "sentence", "great", "think", "say", "help", "low", "line", "differ", "turn", "cause",
+            "much", "mean", "before", "move", "right", "boy", "old", "too", "same", "tell", "does", "set",
+            "three", "want", "air", "well", "also", "play", "small", "end", "put", "home", "read", "hand",
+            "port", "large", "spell", "add", "even", "land", "here", "must", "big", "high", "such", "follow",
+            "act", "why", "ask", "men", "change", "went", "light", "kind", "off", "need", "house", "picture",
+            "try", "us", "again", "animal", "point", "mother", "world", "near", "build", "self", "earth",
+            "father", "head", "stand", "own", "page", "should", "country", "found", "answer", "school", "grow",
+            "study", "still", "learn", "plant", "cover", "food", "sun", "four", "between", "state", "keep",
+            "eye", "never", "last", "let", "thought", "city", "tree", "cross", "farm", "hard", "start", "might",
+            "story", "saw", "far", "sea", "draw", "left", "late", "run", "while", "press", "close", "night",
+            "real", "life", "few", "north", "open", "seem", "together", "next", "white", "children", "begin",
+            "got", "walk", "example", "ease", "paper", "group", "always", "music", "those", "both", "mark",
+            "often", "letter", "until", "mile", "river", "car", "feet", "care", "second", "book", "carry",
+            "took", "science", "eat", "room", "friend", "began", "idea", "fish", "mountain", "stop", "once",
+            "base", "hear", "horse", "cut", "sure", "watch", "color", "face", "wood", "main", "enough",
+            "plain", "girl", "usual", "young", "ready", "above", "ever", "red", "list", "though", "feel",
+            "talk", "bird", "soon", "body", "dog", "family", "direct", "pose", "leave", "song", "measure",
+            "door", "product", "black", "short", "numeral", "class", "wind", "question", "happen", "complete",
+            "ship", "area", "half", "rock", "order", "fire", "south", "problem", "piece", "told", "knew",
+            "pass", "since", "top", "whole", "king", "space", "heard", "best", "hour", "better", "true",
+            "during", "hundred", "five", "remember", "step", "early", "hold", "west", "ground", "interest",
+            "reach", "fast", "verb", "sing", "listen", "six", "table", "travel", "less", "morning", "ten",
+            "simple", "several", "vowel", "toward", "war", "lay", "against", "pattern", "slow", "center",
+            "love", "person", "money", "serve", "appear", "road", "map", "rain", "rule", "govern", "pull",
+            "cold", "notice", "voice", "unit", "power", "town", "fine", "certain", "fly", "fall", "lead", "cry",
+            "dark", "machine", "note", "wait", "plan", "figure", "star", "box", "noun", "field", "rest",
+            "correct", "able", "pound", "done", "beauty", "drive", "stood", "contain", "front", "teach",
+            "week", "final", "gave", "green", "oh", "quick", "develop", "ocean", "warm", "free", "minute",
+            "strong", "special", "mind", "behind", "clear", "tail", "produce", "fact", "street", "inch",
+            "multiply", "nothing", "course", "stay", "wheel", "full", "force", "blue", "object", "decide",
+            "surface", "deep", "moon", "island", "foot", "system", "busy", "test", "record", "boat", "common",
+            "gold", "possible", "plane", "stead", "dry", "wonder", "laugh", "thousand", "ago", "ran", "check",
+            "game", "shape", "equate", "miss", "brought", "heat", "snow", "tire", "bring", "yes", "distant",
+            "fill", "east", "paint", "language", "among", "Zanzibar", "Quixote", "Xavier", "Jakarta"
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generates random keywords.
+     *
+     * @param count     The number of keywords.
+     * @param minLength The shortest keyword length.
+     * @param maxLength The longest keyword length.
+     * @param alphabet  The characters to draw from.
+     * @param seed      The random seed, so runs are comparable.
+     * @return The keywords, which may contain duplicates.
+     */
+    static List<String> keywords(final int count, final int minLength, final int maxLength,
+                                 final String alphabet, final long seed) {
+        final Random random = new Random(seed);
+        final List<String> keywords = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keywords.add(text(random, minLength + random.nextInt(maxLength - minLength + 1), alphabet));
+        }
+        return keywords;
+    }
+
+    /**
+     * Generates URLs of a few hosts, each followed by a path of random
+     * segments, so that the URLs share their prefixes and then run on for
+     * tens of characters that no other URL shares.
+     *
+     * @param count The number of URLs.
+     * @param seed  The random seed, so runs are comparable.
+     * @return The URLs, which may contain duplicates.
+     */
+    static List<String> urls(final int count, final long seed) {
+        final Random random = new Random(seed);
+        final List<String> urls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final StringBuilder sb = new StringBuilder("https://www.");
+            sb.append(COMMON_WORDS[random.nextInt(50)]).append(".com");
+            final int segments = 2 + random.nextInt(4);
+            for (int s = 0; s < segments; s++) {
+                sb.append('/').append(text(random, 4 + random.nextInt(12), LOWER_CASE));
+            }
+            urls.add(sb.append(".html").toString());
+        }
+        return urls;
+    }
+
+    /**
+     * Generates a random text.
+     *
+     * @param length   The number of characters.
+     * @param alphabet The characters to draw from.
+     * @param seed     The random seed, so runs are comparable.
+     * @return The text.
+     */
+    static String text(final int length, final String alphabet, final long seed) {
+        return text(new Random(seed), length, alphabet);
+    }
+
+    /**
+     * Generates English-like prose: common words drawn with a skewed
+     * frequency, separated by spaces and punctuation, with sentences that
+     * start in upper case.
+     *
+     * @param length The number of characters.
+     * @param seed   The random seed, so runs are comparable.
+     * @return The text.
+     */
+    static String prose(final int length, final long seed) {
+        final Random random = new Random(seed);
+        final StringBuilder sb = new StringBuilder(length + 16);
+        boolean sentenceStart = true;
+        while (sb.length() < length) {
+            // Squaring the uniform draw favours the words at the front.
+            final double draw = random.nextDouble();
+            final String word = COMMON_WORDS[(int) (draw * draw * COMMON_WORDS.length)];
+            if (sentenceStart) {
+                sb.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            } else {
+                sb.append(word);
+            }
+            final int punctuation = random.nextInt(20);
+            sentenceStart = punctuation == 0;
+            sb.append(punctuation == 0 ? ". " : punctuation == 1 ? ", " : " ");
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+    private static String text(final Random random, final int length, final String alphabet) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package org.ahocorasick.benchmark;
+
+import org.ahocorasick.trie.CaseFolding;
+import org.ahocorasick.trie.PayloadTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the scan throughput for each {@link CaseFolding} on mixed-case
+ * ASCII text. Matches are counted through a match handler, so the time is
+ * dominated by the transitions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CaseFoldingBenchmark {
+
+    private static final String MIXED_CASE = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ      ";
+
+    @Param({"NONE", "LOWER_CASE", "SIMPLE"})
+    private CaseFolding caseFolding;
+
+    @Param({"1000000"})
+    private int textLength;
+
+    private PayloadTrie<String> trie;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.<String>builder().caseFolding(caseFolding);
+        for (final String keyword : BenchmarkData.keywords(10_000, 4, 12, BenchmarkData.LOWER_CASE, 1L)) {
+            builder.addKeyword(keyword);
+        }
+        trie = builder.build();
+        text = BenchmarkData.text(textLength, MIXED_CASE, 2L);
+    }
+
+    @Benchmark
+    public int parseText() {
+        final int[] count = new int[1];
+        trie.parseText(text, (start, end, keywordId) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+}
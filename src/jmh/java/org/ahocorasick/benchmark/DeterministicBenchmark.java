@@ -0,0 +1,85 @@
+package org.ahocorasick.benchmark;
+
+import org.ahocorasick.trie.PayloadTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares scanning with failure links against the complete transition
+ * table of {@link PayloadTrie.PayloadTrieBuilder#deterministic()}.
+ * <p>
+ * The {@code random} input scans random text against a random dictionary.
+ * The {@code adversarial} input adds the keywords {@code a...ab} of every
+ * length up to 64 and scans runs of {@code a} broken by a {@code c}, so
+ * that every {@code c} walks a failure chain of 64 links.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DeterministicBenchmark {
+
+    private static final int CHAIN_LENGTH = 64;
+
+    @Param({"false", "true"})
+    private boolean deterministic;
+
+    @Param({"random", "adversarial"})
+    private String input;
+
+    @Param({"1000000"})
+    private int textLength;
+
+    private PayloadTrie<String> trie;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.builder();
+        if (deterministic) {
+            builder.deterministic();
+        }
+        for (final String keyword : BenchmarkData.keywords(10_000, 4, 12, BenchmarkData.LOWER_CASE, 1L)) {
+            builder.addKeyword(keyword);
+        }
+
+        if ("adversarial".equals(input)) {
+            final StringBuilder keyword = new StringBuilder();
+            for (int i = 0; i < CHAIN_LENGTH; i++) {
+                keyword.append('a');
+                builder.addKeyword(keyword + "b");
+            }
+            final StringBuilder sb = new StringBuilder(textLength);
+            while (sb.length() < textLength) {
+                sb.append(keyword).append('c');
+            }
+            text = sb.substring(0, textLength);
+        } else {
+            text = BenchmarkData.text(textLength, BenchmarkData.LOWER_CASE, 2L);
+        }
+
+        trie = builder.build();
+        if (deterministic && !trie.isDeterministic()) {
+            throw new IllegalStateException("The dictionary exceeds the state budget");
+        }
+    }
+
+    @Benchmark
+    public int parseText() {
+        final int[] count = new int[1];
+        trie.parseText(text, (start, end, keywordId) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+}
@@ -0,0 +1,108 @@
+package org.ahocorasick.benchmark;
+
+import org.ahocorasick.trie.Payload;
+import org.ahocorasick.trie.PayloadCodec;
+import org.ahocorasick.trie.PayloadTrie;
+import org.ahocorasick.trie.Trie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a trie from its keywords, sequentially and on the
+ * common fork/join pool, with loading the same trie from its binary form
+ * with {@link Trie#readFrom(java.io.InputStream)}, and with mapping it from
+ * a file with {@link Trie#map(Path)}. The serialized bytes are held in
+ * memory and the file stays in the page cache, so the comparison leaves out
+ * disk speed. Adding a few keywords with {@link Trie#edit()} is measured on
+ * a trie that was edited before, which has its failure links indexed.
+ * Loading the keywords from a text file with a {@link org.ahocorasick.trie.PayloadTrieLoader}
+ * sorts them and compiles them without a state graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoadBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int keywordCount;
+
+    private List<String> keywords;
+
+    private byte[] serialized;
+
+    private Path file;
+
+    private Path keywordFile;
+
+    private Trie edited;
+
+    private List<String> added;
+
+    @Setup
+    public void setUp() throws IOException {
+        keywords = BenchmarkData.keywords(keywordCount, 4, 12, BenchmarkData.LOWER_CASE, 1L);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        build().writeTo(out);
+        serialized = out.toByteArray();
+        file = Files.createTempFile("trie", ".bin");
+        Files.write(file, serialized);
+        keywordFile = Files.createTempFile("keywords", ".txt");
+        Files.write(keywordFile, keywords);
+        edited = build().edit().build();
+        added = BenchmarkData.keywords(50, 4, 12, BenchmarkData.LOWER_CASE, 2L);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+        Files.delete(keywordFile);
+    }
+
+    @Benchmark
+    public Trie build() {
+        return Trie.builder().addKeywords(keywords).build();
+    }
+
+    @Benchmark
+    public Trie buildParallel() {
+        return Trie.builder().addKeywords(keywords).buildParallel(ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public Trie readFrom() throws IOException {
+        return Trie.readFrom(new ByteArrayInputStream(serialized));
+    }
+
+    @Benchmark
+    public Trie map() throws IOException {
+        return Trie.map(file);
+    }
+
+    @Benchmark
+    public PayloadTrie<String> load() throws IOException {
+        return PayloadTrie.<String>builder()
+                .loader(line -> new Payload<>(line, null), PayloadCodec.strings())
+                .load(keywordFile);
+    }
+
+    @Benchmark
+    public Trie addKeywords() {
+        return edited.edit().addKeywords(added).build();
+    }
+}
@@ -0,0 +1,78 @@
+package org.ahocorasick.benchmark;
+
+import org.ahocorasick.interval.Interval;
+import org.ahocorasick.interval.IntervalNode;
+import org.ahocorasick.interval.Intervalable;
+import org.ahocorasick.interval.IntervalableComparatorByPosition;
+import org.ahocorasick.interval.IntervalableComparatorBySize;
+import org.ahocorasick.interval.OverlapResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.sort;
+
+/**
+ * Compares {@link OverlapResolver#longest()} with the interval tree based
+ * removal it replaced, on random matches of 1 to 12 characters spread over a
+ * text twice as long as the number of matches. The replaced removal is
+ * quadratic, so only run it for the smaller sizes, for example with
+ * {@code -p matchCount=1000,100000 -Dbenchmark=OverlapResolverBenchmark.intervalTree}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OverlapResolverBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int matchCount;
+
+    private List<Intervalable> matches;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(1L);
+        matches = new ArrayList<>(matchCount);
+        for (int i = 0; i < matchCount; i++) {
+            final int start = random.nextInt(matchCount * 2);
+            matches.add(new Interval(start, start + random.nextInt(12)));
+        }
+    }
+
+    @Benchmark
+    public List<Intervalable> resolver() {
+        return OverlapResolver.<Intervalable>longest().removeOverlaps(new ArrayList<>(matches));
+    }
+
+    @Benchmark
+    public List<Intervalable> intervalTree() {
+        final List<Intervalable> intervals = new ArrayList<>(matches);
+        final IntervalNode rootNode = new IntervalNode(intervals);
+
+        sort(intervals, new IntervalableComparatorBySize());
+        final Set<Intervalable> removeIntervals = new TreeSet<>();
+        for (final Intervalable interval : intervals) {
+            if (!removeIntervals.contains(interval)) {
+                removeIntervals.addAll(rootNode.findOverlaps(interval));
+            }
+        }
+        for (final Intervalable removeInterval : removeIntervals) {
+            intervals.remove(removeInterval);
+        }
+        sort(intervals, new IntervalableComparatorByPosition());
+
+        return intervals;
+    }
+}
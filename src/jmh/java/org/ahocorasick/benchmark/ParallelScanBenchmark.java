@@ -0,0 +1,67 @@
+package org.ahocorasick.benchmark;
+
+import org.ahocorasick.trie.PayloadEmit;
+import org.ahocorasick.trie.PayloadTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link PayloadTrie#parseTextParallel(CharSequence, ForkJoinPool)}
+ * scales with the number of threads, against the sequential
+ * {@link PayloadTrie#parseText(CharSequence)} on the same text. Pass
+ * {@code -p threads=...} to match the cores of the machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelScanBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    @Param({"10000000"})
+    private int textLength;
+
+    private PayloadTrie<String> trie;
+
+    private String text;
+
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.builder();
+        for (final String keyword : BenchmarkData.keywords(10_000, 4, 12, BenchmarkData.LOWER_CASE, 1L)) {
+            builder.addKeyword(keyword);
+        }
+        trie = builder.build();
+        text = BenchmarkData.text(textLength, BenchmarkData.LOWER_CASE, 2L);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Collection<PayloadEmit<String>> sequential() {
+        return trie.parseText(text);
+    }
+
+    @Benchmark
+    public Collection<PayloadEmit<String>> parallel() {
+        return trie.parseTextParallel(text, pool);
+    }
+}
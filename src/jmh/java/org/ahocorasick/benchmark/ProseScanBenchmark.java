@@ -0,0 +1,86 @@
+package org.ahocorasick.benchmark;
+
+import org.ahocorasick.trie.PayloadTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans English-like prose with dictionaries of decreasing sparsity, where
+ * most characters never leave the root state:
+ * <ul>
+ * <li>{@code single}: a few names that all start with {@code 'Q'};</li>
+ * <li>{@code sparse}: 100 capitalized names starting with one of five rare
+ * letters;</li>
+ * <li>{@code dense}: 1000 random lower case words, which leave little to
+ * skip.</li>
+ * </ul>
+ * Compare with {@code indexOf}, the speed of a plain search for a single
+ * character.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProseScanBenchmark {
+
+    @Param({"single", "sparse", "dense"})
+    private String dictionary;
+
+    @Param({"10000000"})
+    private int textLength;
+
+    private PayloadTrie<String> trie;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.builder();
+        switch (dictionary) {
+            case "single":
+                builder.addKeyword("Quixote").addKeyword("Quasimodo").addKeyword("Queequeg").addKeyword("Quebec");
+                break;
+            case "sparse":
+                final Random random = new Random(3L);
+                for (int i = 0; i < 100; i++) {
+                    final String rest = BenchmarkData.keywords(1, 3, 8, BenchmarkData.LOWER_CASE, random.nextLong())
+                            .get(0);
+                    builder.addKeyword("JKQXZ".charAt(random.nextInt(5)) + rest);
+                }
+                break;
+            default:
+                for (final String keyword : BenchmarkData.keywords(1000, 3, 8, BenchmarkData.LOWER_CASE, 1L)) {
+                    builder.addKeyword(keyword);
+                }
+        }
+        trie = builder.build();
+        text = BenchmarkData.prose(textLength, 2L);
+    }
+
+    @Benchmark
+    public int parseText() {
+        final int[] count = new int[1];
+        trie.parseText(text, (start, end, keywordId) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    @Benchmark
+    public int indexOf() {
+        int count = 0;
+        for (int i = text.indexOf('Q'); i >= 0; i = text.indexOf('Q', i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,73 @@
+package org.ahocorasick.benchmark;
+
+import org.ahocorasick.trie.Payload;
+import org.ahocorasick.trie.PayloadEmit;
+import org.ahocorasick.trie.ShardedTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what splitting a dictionary into shards costs and saves: building
+ * all shards, rebuilding the shard of a single keyword, and scanning a text
+ * against all shards. One shard stands for a single trie.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ShardedTrieBenchmark {
+
+    @Param({"1000000"})
+    private int keywordCount;
+
+    @Param({"1", "8", "32"})
+    private int shards;
+
+    private List<Payload<String>> keywords;
+
+    private ShardedTrie<String> trie;
+
+    private int shard;
+
+    private List<Payload<String>> shardKeywords;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        keywords = new ArrayList<>(keywordCount);
+        for (final String keyword : BenchmarkData.keywords(keywordCount, 4, 12, BenchmarkData.LOWER_CASE, 1L)) {
+            keywords.add(new Payload<>(keyword, keyword));
+        }
+        trie = build();
+        shard = trie.shardOf("keyword");
+        shardKeywords = new ArrayList<>(trie.getKeywords(shard));
+        shardKeywords.add(new Payload<>("keyword", "keyword"));
+        text = BenchmarkData.text(1_000_000, BenchmarkData.LOWER_CASE, 2L);
+    }
+
+    @Benchmark
+    public ShardedTrie<String> build() {
+        return ShardedTrie.<String>builder().shards(shards).addKeywords(keywords).build();
+    }
+
+    @Benchmark
+    public ShardedTrie<String> rebuildShard() {
+        return trie.rebuildShard(shard, shardKeywords);
+    }
+
+    @Benchmark
+    public Collection<PayloadEmit<String>> parseText() {
+        return trie.parseText(text);
+    }
+}
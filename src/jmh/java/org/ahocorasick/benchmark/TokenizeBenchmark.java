@@ -0,0 +1,65 @@
+package org.ahocorasick.benchmark;
+
+import org.ahocorasick.trie.PayloadToken;
+import org.ahocorasick.trie.PayloadTrie;
+import org.ahocorasick.trie.TokenView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PayloadTrie#tokenize(String)}, which copies every token
+ * into a string and holds all of them in a list, with the views of
+ * {@link PayloadTrie#tokenIterator(CharSequence)}. Both consume every token
+ * the same way; run with {@code -prof gc} to compare the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenizeBenchmark {
+
+    @Param({"10000000"})
+    private int textLength;
+
+    private PayloadTrie<String> trie;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.<String>builder().ignoreOverlaps();
+        for (final String keyword : BenchmarkData.keywords(2_000, 3, 6, "abcdefgh", 1L)) {
+            builder.addKeyword(keyword);
+        }
+        trie = builder.build();
+        text = BenchmarkData.text(textLength, "abcdefgh ", 2L);
+    }
+
+    @Benchmark
+    public long tokenize() {
+        long checksum = 0;
+        for (final PayloadToken<String> token : trie.tokenize(text)) {
+            checksum += token.getFragment().length() + (token.isMatch() ? 1 : 0);
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long tokenIterator() {
+        long checksum = 0;
+        final Iterator<TokenView<String>> tokens = trie.tokenIterator(text);
+        while (tokens.hasNext()) {
+            final TokenView<String> token = tokens.next();
+            checksum += token.length() + (token.isMatch() ? 1 : 0);
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,135 @@
+package org.ahocorasick.benchmark;
+
+import org.ahocorasick.trie.PayloadState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the primitive, adaptive transition layout of {@link PayloadState}
+ * with the {@code HashMap<Character, ...>} layout it replaced.
+ * <p>
+ * The build benchmarks construct the goto function of the whole dictionary.
+ * Run them with {@code -Djmh.args="-prof gc"} and compare
+ * {@code gc.alloc.rate.norm}, which approximates the heap footprint of the
+ * state graph. The walk benchmarks measure lookup throughput.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransitionBenchmark {
+
+    @Param({"1000", "100000"})
+    private int keywordCount;
+
+    private List<String> keywords;
+
+    private String text;
+
+    private PayloadState<String> primitiveRoot;
+
+    private HashMapState hashMapRoot;
+
+    @Setup
+    public void setUp() {
+        keywords = BenchmarkData.keywords(keywordCount, 4, 12, BenchmarkData.LOWER_CASE, 1L);
+        text = BenchmarkData.text(100_000, BenchmarkData.LOWER_CASE, 2L);
+        primitiveRoot = buildPrimitive();
+        hashMapRoot = buildHashMap();
+    }
+
+    @Benchmark
+    public PayloadState<String> buildPrimitive() {
+        final PayloadState<String> root = new PayloadState<>();
+        for (final String keyword : keywords) {
+            PayloadState<String> state = root;
+            for (int i = 0; i < keyword.length(); i++) {
+                state = state.addState(keyword.charAt(i));
+            }
+        }
+        return root;
+    }
+
+    @Benchmark
+    public HashMapState buildHashMap() {
+        final HashMapState root = new HashMapState();
+        for (final String keyword : keywords) {
+            HashMapState state = root;
+            for (int i = 0; i < keyword.length(); i++) {
+                state = state.addState(keyword.charAt(i));
+            }
+        }
+        return root;
+    }
+
+    @Benchmark
+    public int walkPrimitive() {
+        int depth = 0;
+        PayloadState<String> state = primitiveRoot;
+        for (int i = 0; i < text.length(); i++) {
+            PayloadState<String> next = state.nextStateIgnoreRootState(text.charAt(i));
+            if (next == null) {
+                next = primitiveRoot.nextState(text.charAt(i));
+            }
+            state = next;
+            depth += state.getDepth();
+        }
+        return depth;
+    }
+
+    @Benchmark
+    public int walkHashMap() {
+        int depth = 0;
+        HashMapState state = hashMapRoot;
+        for (int i = 0; i < text.length(); i++) {
+            HashMapState next = state.success.get(text.charAt(i));
+            if (next == null) {
+                next = hashMapRoot.success.get(text.charAt(i));
+                if (next == null) {
+                    next = hashMapRoot;
+                }
+            }
+            state = next;
+            depth += state.depth;
+        }
+        return depth;
+    }
+
+    /**
+     * The goto function as it was stored before the primitive layout.
+     */
+    public static final class HashMapState {
+
+        private final int depth;
+
+        private final Map<Character, HashMapState> success = new HashMap<>();
+
+        HashMapState() {
+            this(0);
+        }
+
+        private HashMapState(final int depth) {
+            this.depth = depth;
+        }
+
+        HashMapState addState(final Character character) {
+            HashMapState next = success.get(character);
+            if (next == null) {
+                next = new HashMapState(depth + 1);
+                success.put(character, next);
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.ahocorasick.benchmark;
+
+import org.ahocorasick.trie.Emit;
+import org.ahocorasick.trie.Trie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds and scans a dictionary of URLs, whose long keywords share only
+ * their first few characters, so most of their states form chains with a
+ * single transition each. The text is a log of URLs, a tenth of them from
+ * the dictionary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UrlBenchmark {
+
+    @Param({"100000", "300000"})
+    private int keywordCount;
+
+    private List<String> urls;
+
+    private Trie trie;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        urls = BenchmarkData.urls(keywordCount, 1L);
+        trie = build();
+
+        final Random random = new Random(2L);
+        final List<String> others = BenchmarkData.urls(100_000, 3L);
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < 1_000_000) {
+            final List<String> source = random.nextInt(10) == 0 ? urls : others;
+            sb.append(source.get(random.nextInt(source.size()))).append('\n');
+        }
+        text = sb.toString();
+    }
+
+    @Benchmark
+    public Trie build() {
+        return Trie.builder().addKeywords(urls).build();
+    }
+
+    @Benchmark
+    public Collection<Emit> parseText() {
+        return trie.parseText(text);
+    }
+}
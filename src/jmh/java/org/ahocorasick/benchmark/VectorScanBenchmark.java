@@ -0,0 +1,65 @@
+package org.ahocorasick.benchmark;
+
+import org.ahocorasick.trie.PayloadTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans English-like prose for capitalized names that start with one of a
+ * few rare letters, so that nearly all of the text is skipped at the root
+ * state. Run it twice to compare the scalar search with the vectorized one
+ * of the multi-release jar:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=VectorScan
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=VectorScan \
+ *     -Djmh.args="-f 1 -wi 3 -i 5 -jvmArgsAppend --add-modules=jdk.incubator.vector"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VectorScanBenchmark {
+
+    private static final String RARE_LETTERS = "QXZJKVYU";
+
+    @Param({"2", "4", "8"})
+    private int anchors;
+
+    @Param({"10000000"})
+    private int textLength;
+
+    private PayloadTrie<String> trie;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.builder();
+        final Random random = new Random(3L);
+        for (int i = 0; i < 100; i++) {
+            final String rest = BenchmarkData.keywords(1, 3, 8, BenchmarkData.LOWER_CASE, random.nextLong()).get(0);
+            builder.addKeyword(RARE_LETTERS.charAt(i % anchors) + rest);
+        }
+        trie = builder.build();
+        text = BenchmarkData.prose(textLength, 2L);
+    }
+
+    @Benchmark
+    public int parseText() {
+        final int[] count = new int[1];
+        trie.parseText(text, (start, end, keywordId) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+}
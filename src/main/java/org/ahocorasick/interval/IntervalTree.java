@@ -1,10 +1,6 @@
 package org.ahocorasick.interval;
 
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
-
-import static java.util.Collections.sort;
 
 public class IntervalTree {
 
@@ -14,32 +10,16 @@ public class IntervalTree {
         this.rootNode = new IntervalNode(intervals);
     }
 
+    /**
+     * Removes overlapping intervals, keeping the longest and left-most ones,
+     * and sorts the remaining intervals by their start. The tree itself is
+     * not needed for this; see {@link OverlapResolver#longest()}.
+     *
+     * @param intervals The intervals to filter in place.
+     * @return The same list, for convenience.
+     */
     public List<Intervalable> removeOverlaps(final List<Intervalable> intervals) {
-
-        // Sort the intervals on size, then left-most position
-        sort(intervals, new IntervalableComparatorBySize());
-
-        final Set<Intervalable> removeIntervals = new TreeSet<>();
-
-        for (final Intervalable interval : intervals) {
-            // If the interval was already removed, ignore it
-            if (removeIntervals.contains(interval)) {
-                continue;
-            }
-
-            // Remove all overallping intervals
-            removeIntervals.addAll(findOverlaps(interval));
-        }
-
-        // Remove all intervals that were overlapping
-        for (final Intervalable removeInterval : removeIntervals) {
-            intervals.remove(removeInterval);
-        }
-
-        // Sort the intervals, now on left-most position only
-        sort(intervals, new IntervalableComparatorByPosition());
-
-        return intervals;
+        return OverlapResolver.<Intervalable>longest().removeOverlaps(intervals);
     }
 
     public List<Intervalable> findOverlaps(final Intervalable interval) {
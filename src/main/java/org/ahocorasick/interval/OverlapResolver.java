@@ -0,0 +1,330 @@
+package org.ahocorasick.interval;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * <p>
+ * Removes overlapping intervals, deciding by a policy which interval wins a
+ * conflict. The intervals are ranked by the policy and then kept greedily:
+ * an interval is kept unless it overlaps an interval that was kept before.
+ * Intervals with the same bounds never conflict with each other.
+ * </p>
+ * <p>
+ * Unlike {@link IntervalTree#removeOverlaps(List)}, the ranking is done by
+ * sorting primitive keys, and the greedy pass looks up the kept interval
+ * that starts last before the end of an interval by a binary search over the
+ * intervals sorted by start, so the whole resolution takes
+ * {@code O(n log n)} time for {@code n} intervals and allocates a few arrays
+ * of {@code n} elements only, however far apart the intervals are.
+ * </p>
+ * <p>
+ * The remaining intervals are sorted by their start; intervals with the same
+ * start are ordered longest first and otherwise keep their relative order.
+ * </p>
+ *
+ * @param <I> The type of the intervals.
+ */
+public final class OverlapResolver<I extends Intervalable> {
+
+    private static final OverlapResolver<Intervalable> LONGEST = new OverlapResolver<>(null, null, false, true);
+
+    private static final OverlapResolver<Intervalable> LEFTMOST =
+            new OverlapResolver<>(null, Intervalable::getStart, false, false);
+
+    /**
+     * the size that longer intervals win by, or {@code null} for the number
+     * of positions they span minus one
+     */
+    private final ToIntFunction<? super I> size;
+
+    /**
+     * the key that ranks intervals before their size, or {@code null} to rank
+     * by size only
+     */
+    private final ToIntFunction<? super I> rank;
+
+    /**
+     * whether higher keys rank first
+     */
+    private final boolean descending;
+
+    /**
+     * whether only the first of several intervals with the same bounds that
+     * lose a conflict is removed, as {@link IntervalTree} did
+     */
+    private final boolean keepsRepeatedLosers;
+
+    private OverlapResolver(final ToIntFunction<? super I> size, final ToIntFunction<? super I> rank,
+                            final boolean descending, final boolean keepsRepeatedLosers) {
+        this.size = size;
+        this.rank = rank;
+        this.descending = descending;
+        this.keepsRepeatedLosers = keepsRepeatedLosers;
+    }
+
+    /**
+     * Longer intervals win, and the left-most one wins among intervals of
+     * the same length. This is the policy of
+     * {@link IntervalTree#removeOverlaps(List)}, down to its handling of
+     * intervals with the same bounds that lose a conflict: only the first of
+     * them is removed, and the others are kept.
+     *
+     * @param <I> The type of the intervals.
+     * @return The resolver.
+     */
+    @SuppressWarnings("unchecked")
+    public static <I extends Intervalable> OverlapResolver<I> longest() {
+        return (OverlapResolver<I>) LONGEST;
+    }
+
+    /**
+     * Like {@link #longest()}, but with the size of an interval given by a
+     * function instead of its bounds. Intervals whose bounds are offsets in
+     * an encoding, such as the bytes of UTF-8, win by the length of what
+     * they stand for in the text.
+     *
+     * @param size Returns the size of an interval.
+     * @param <I>  The type of the intervals.
+     * @return The resolver.
+     */
+    public static <I extends Intervalable> OverlapResolver<I> longest(final ToIntFunction<? super I> size) {
+        return new OverlapResolver<>(size, null, false, true);
+    }
+
+    /**
+     * The left-most interval wins, and the longest one wins among intervals
+     * with the same start.
+     *
+     * @param <I> The type of the intervals.
+     * @return The resolver.
+     */
+    @SuppressWarnings("unchecked")
+    public static <I extends Intervalable> OverlapResolver<I> leftmost() {
+        return (OverlapResolver<I>) LEFTMOST;
+    }
+
+    /**
+     * The interval with the highest priority wins, for example a priority
+     * carried by the payload of a match. Ties are resolved like
+     * {@link #longest()}.
+     *
+     * @param priority Returns the priority of an interval.
+     * @param <I>      The type of the intervals.
+     * @return The resolver.
+     */
+    public static <I extends Intervalable> OverlapResolver<I> highestPriority(
+            final ToIntFunction<? super I> priority) {
+        return new OverlapResolver<>(null, priority, true, false);
+    }
+
+    /**
+     * The interval whose keyword was added first wins. Ties, which only occur
+     * between matches of the same keyword, are resolved like
+     * {@link #longest()}.
+     *
+     * @param insertionOrder Returns the position of the keyword of an
+     *                       interval in the order the keywords were added.
+     * @param <I>            The type of the intervals.
+     * @return The resolver.
+     */
+    public static <I extends Intervalable> OverlapResolver<I> insertionOrder(
+            final ToIntFunction<? super I> insertionOrder) {
+        return new OverlapResolver<>(null, insertionOrder, false, false);
+    }
+
+    /**
+     * Removes the intervals that lose a conflict, in place, and sorts the
+     * remaining ones by their start.
+     *
+     * @param intervals The intervals to filter.
+     * @return The same list, for convenience.
+     */
+    @SuppressWarnings("unchecked")
+    public List<I> removeOverlaps(final List<I> intervals) {
+        final int count = intervals.size();
+        if (count < 2) {
+            return intervals;
+        }
+
+        final Intervalable[] elements = intervals.toArray(new Intervalable[0]);
+        final int[] starts = new int[count];
+        final int[] ends = new int[count];
+        final int[] sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = elements[i].getStart();
+            ends[i] = elements[i].getEnd();
+            sizes[i] = size == null ? ends[i] - starts[i] : size.applyAsInt((I) elements[i]);
+        }
+
+        // Rank by size, longest first, then by start and by original order.
+        final int[] byStart = sortedIndexes(count, i -> starts[i]);
+        final int[] startRank = ranks(byStart);
+        final int[] bySize = sortedIndexes(count, i -> -sizes[i], startRank);
+        final int[] sizeRank = ranks(bySize);
+
+        final int[] order;
+        if (rank == null) {
+            order = bySize;
+        } else {
+            final int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                final int key = rank.applyAsInt((I) elements[i]);
+                keys[i] = descending ? ~key : key;
+            }
+            order = sortedIndexes(count, i -> keys[i], sizeRank);
+        }
+
+        final int[] sortedStarts = new int[count];
+        for (int i = 0; i < count; i++) {
+            sortedStarts[i] = starts[byStart[i]];
+        }
+
+        // Keep intervals greedily. Kept intervals are disjoint unless they
+        // have the same bounds, so they are sorted by their end as well: of
+        // the kept intervals that start before the end of an interval, the
+        // one that starts last is the only one that can reach into it.
+        final boolean[] kept = new boolean[count];
+        final LastKept lastKept = new LastKept(count);
+        int keptCount = 0;
+        int lost = -1;
+        for (final int index : order) {
+            final int start = starts[index];
+            final int end = ends[index];
+            final int before = lastKept.before(lastStartAtOrBefore(sortedStarts, end));
+            final int previous = before == -1 ? -1 : byStart[before];
+
+            if (previous == -1 || ends[previous] < start) {
+                lastKept.add(startRank[index]);
+            } else if (starts[previous] != start || ends[previous] != end) {
+                // Intervals with the same bounds follow each other when ranked
+                // by size, so a repeated loser follows the first one.
+                if (!keepsRepeatedLosers || lost == -1
+                        || starts[lost] != starts[index] || ends[lost] != ends[index]) {
+                    lost = index;
+                    continue;
+                }
+            }
+            kept[index] = true;
+            keptCount++;
+        }
+
+        // Sort by start, then longest first, then by original order.
+        final long[] keys = new long[keptCount];
+        int k = 0;
+        for (int i = 0; i < count; i++) {
+            if (kept[i]) {
+                keys[k++] = (long) starts[i] << 32 | sizeRank[i];
+            }
+        }
+        Arrays.sort(keys);
+
+        intervals.clear();
+        for (final long key : keys) {
+            intervals.add((I) elements[bySize[(int) key]]);
+        }
+        return intervals;
+    }
+
+    /**
+     * Returns the position of the last of the sorted starts that is at most
+     * the given offset, or -1 if there is none.
+     */
+    private static int lastStartAtOrBefore(final int[] sortedStarts, final int offset) {
+        int low = 0;
+        int high = sortedStarts.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (sortedStarts[middle] <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Sorts indexes by a key, breaking ties by index.
+     */
+    private static int[] sortedIndexes(final int count, final IntKey key) {
+        final int[] identity = new int[count];
+        for (int i = 0; i < count; i++) {
+            identity[i] = i;
+        }
+        return sortedIndexes(count, key, identity);
+    }
+
+    /**
+     * Sorts indexes by a signed key, breaking ties by the given distinct
+     * ranks.
+     */
+    private static int[] sortedIndexes(final int count, final IntKey key, final int[] tieBreak) {
+        final long[] keys = new long[count];
+        final int[] byTieBreak = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (long) key.of(i) << 32 | tieBreak[i];
+            byTieBreak[tieBreak[i]] = i;
+        }
+        Arrays.sort(keys);
+
+        final int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = byTieBreak[(int) keys[i]];
+        }
+        return result;
+    }
+
+    private static int[] ranks(final int[] order) {
+        final int[] ranks = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            ranks[order[i]] = i;
+        }
+        return ranks;
+    }
+
+    /**
+     * A sort key for an index.
+     */
+    private interface IntKey {
+
+        int of(int index);
+    }
+
+    /**
+     * The positions of the kept intervals in the order of their starts, in a
+     * Fenwick tree that finds the last one at or before a position in
+     * {@code O(log n)} time.
+     */
+    private static final class LastKept {
+
+        /**
+         * one more than the largest position added within the range that
+         * ends at each index, or 0 if there is none
+         */
+        private final int[] tree;
+
+        private LastKept(final int count) {
+            this.tree = new int[count + 1];
+        }
+
+        private void add(final int position) {
+            for (int i = position + 1; i < tree.length; i += i & -i) {
+                tree[i] = Math.max(tree[i], position + 1);
+            }
+        }
+
+        /**
+         * Returns the last position added that is at most the given one, or
+         * -1 if there is none.
+         */
+        private int before(final int position) {
+            int result = 0;
+            for (int i = position + 1; i > 0; i -= i & -i) {
+                result = Math.max(result, tree[i]);
+            }
+            return result - 1;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.ahocorasick.trie;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * <p>
+ * The goto, failure and output functions of a {@link PayloadTrie}, as the
+ * scan loops see them. States are numbered, the root state being
+ * {@link #ROOT}, and payloads are referred to by their index.
+ * </p>
+ * <p>
+ * A {@link DoubleArrayTrie} is what a trie is built, read or mapped into;
+ * an {@link EditableAutomaton} patches one when keywords are added or
+ * removed afterwards.
+ * </p>
+ *
+ * @param <T> The type of the emitted payloads.
+ */
+abstract class Automaton<T> {
+
+    /**
+     * The state every scan starts in.
+     */
+    static final int ROOT = 0;
+
+    /**
+     * Follows the goto function from the given state, falling back on the
+     * failure function until a transition is found. The root state never
+     * fails.
+     *
+     * @param state     The current state.
+     * @param character The character read from the text, before folding.
+     * @return The next state.
+     */
+    abstract int nextState(int state, char character);
+
+    /**
+     * Tells whether a character has a transition from the root state, which
+     * is the only way for it to start a keyword.
+     *
+     * @param character The character read from the text, before folding.
+     * @return {@code false} if the root state stays the root state.
+     */
+    abstract boolean isStart(char character);
+
+    /**
+     * Finds the next character that can start a keyword. Scanning from the
+     * root state, all characters before it lead back to the root state and
+     * emit nothing, so they can be skipped.
+     *
+     * @param text The text being scanned.
+     * @param from The offset to search from.
+     * @param to   The offset to stop searching at, exclusive.
+     * @return The offset of the next character that can start a keyword, or
+     *         {@code to} if there is none.
+     */
+    abstract int skipToStart(CharSequence text, int from, int to);
+
+    /**
+     * Collects the indexes of all payloads emitted when the given state is
+     * reached, by walking its output chain, ordered by keyword.
+     *
+     * @param state  The state reached.
+     * @param buffer Receives the payload indexes, must hold at least
+     *               {@link #maxEmits()} values.
+     * @return The number of indexes written to the buffer, zero for most
+     *         states.
+     */
+    abstract int collectEmits(int state, int[] buffer);
+
+    /**
+     * Returns the payload with the given index.
+     *
+     * @param index An index obtained from {@link #collectEmits(int, int[])}.
+     * @return The payload.
+     */
+    abstract Payload<T> payload(int index);
+
+    /**
+     * Returns the keyword of the payload with the given index.
+     *
+     * @param index A payload index.
+     * @return The keyword.
+     */
+    abstract String keyword(int index);
+
+    /**
+     * Returns the length of the keyword of the payload with the given index,
+     * without creating the keyword.
+     *
+     * @param index A payload index.
+     * @return The number of characters of the keyword.
+     */
+    abstract int keywordLength(int index);
+
+    /**
+     * Returns the data of the payload with the given index.
+     *
+     * @param index A payload index.
+     * @return The data, possibly {@code null}.
+     */
+    abstract T data(int index);
+
+    /**
+     * Returns the precedence of a payload among matches that start at the
+     * same position, which follows the order the keywords were added.
+     *
+     * @param index A payload index.
+     * @return The priority, lower values taking precedence.
+     */
+    abstract int priority(int index);
+
+    /**
+     * Returns the length of the path from the root to the given state, which
+     * is the length of the longest suffix of the text read so far that can
+     * still grow into a match.
+     *
+     * @param state A state.
+     * @return The depth of the state, zero for the root.
+     */
+    abstract int depth(int state);
+
+    /**
+     * Returns the number of distinct keywords. Payload indexes range from
+     * zero up to, but excluding, this number.
+     *
+     * @return The size of the payload table.
+     */
+    abstract int payloadCount();
+
+    /**
+     * Returns the largest number of payloads a single state can emit, or
+     * more.
+     *
+     * @return The minimum buffer size for {@link #collectEmits(int, int[])}.
+     */
+    abstract int maxEmits();
+
+    /**
+     * Returns the length of the longest keyword, or more, which bounds how
+     * far back a match can start.
+     *
+     * @return The number of characters of the longest keyword.
+     */
+    abstract int maxKeywordLength();
+
+    /**
+     * Tells whether transitions are looked up in a complete transition table.
+     *
+     * @return {@code true} if {@link #determinize(int)} built a table.
+     */
+    abstract boolean isDeterministic();
+
+    /**
+     * Returns the number of bytes a complete transition table takes, one
+     * {@code int} for every state and class.
+     *
+     * @return The size of the table, whether it was built or not.
+     */
+    abstract long deterministicTableBytes();
+
+    /**
+     * Builds the complete transition function, if the automaton supports one
+     * and has no more states than the budget allows.
+     *
+     * @param stateBudget The largest number of states to build a table for.
+     * @return A deterministic automaton, or this one.
+     */
+    abstract Automaton<T> determinize(int stateBudget);
+
+    /**
+     * Writes this automaton in the layout of {@link TrieFormat}.
+     *
+     * @param out   The stream to write to.
+     * @param codec The codec for the payloads.
+     * @throws IOException if the stream cannot be written.
+     */
+    abstract void writeTo(DataOutputStream out, PayloadCodec<? super T> codec) throws IOException;
+}
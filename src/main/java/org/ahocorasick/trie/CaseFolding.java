@@ -0,0 +1,94 @@
+package org.ahocorasick.trie;
+
+/**
+ * <p>
+ * Decides which characters a trie treats as equal. Keywords and text are
+ * folded one character at a time through a table that maps every
+ * {@code char} to its folded form. The automaton only contains folded
+ * characters and looks up the table for every character it reads, so the
+ * scan never branches on the case sensitivity.
+ * </p>
+ * <p>
+ * Folding is one character to one character and does not depend on the
+ * locale. Characters whose full folding takes more than one character, such
+ * as the sharp s (U+00DF) folding to {@code "ss"}, are only equal to themselves and
+ * their simple case variants.
+ * </p>
+ */
+public enum CaseFolding {
+
+    /**
+     * Matches characters exactly.
+     */
+    NONE {
+        @Override
+        char compute(final char character) {
+            return character;
+        }
+    },
+
+    /**
+     * Maps every character to {@link Character#toLowerCase(char)}, which is
+     * what {@link PayloadTrie.PayloadTrieBuilder#ignoreCase()} has always
+     * done. The dotted capital I (U+0130) folds to a plain {@code 'i'}.
+     */
+    LOWER_CASE {
+        @Override
+        char compute(final char character) {
+            return Character.toLowerCase(character);
+        }
+    },
+
+    /**
+     * Unicode simple case folding: characters are equal if they have the
+     * same upper case and lower case forms, so the long s (U+017F) matches
+     * {@code 's'}, the final sigma (U+03C2) matches the sigma (U+03C3) and
+     * the Kelvin sign (U+212A) matches {@code 'k'}. The Turkish dotted
+     * capital I (U+0130) and dotless i (U+0131) have no simple folding and
+     * only match themselves.
+     */
+    SIMPLE {
+        @Override
+        char compute(final char character) {
+            if (character == '\u0130' || character == '\u0131') {
+                return character;
+            }
+            return Character.toLowerCase(Character.toUpperCase(character));
+        }
+    };
+
+    /**
+     * the folded form of every character, built on first use and shared by
+     * all tries
+     */
+    private volatile char[] table;
+
+    /**
+     * Folds a single character.
+     *
+     * @param character The character to fold.
+     * @return The folded character.
+     */
+    public char fold(final char character) {
+        return table()[character];
+    }
+
+    /**
+     * Returns the folded form of every character, indexed by character.
+     *
+     * @return The shared table, which must not be modified.
+     */
+    char[] table() {
+        char[] result = table;
+        if (result == null) {
+            result = new char[Character.MAX_VALUE + 1];
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                result[c] = compute((char) c);
+            }
+            table = result;
+        }
+        return result;
+    }
+
+    abstract char compute(char character);
+}
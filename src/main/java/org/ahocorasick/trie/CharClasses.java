@@ -0,0 +1,192 @@
+package org.ahocorasick.trie;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * <p>
+ * Maps every {@code char} to an equivalence class of the alphabet of an
+ * automaton. Each character that occurs in a keyword, after case folding, has
+ * a class of its own, numbered from 1 in the order of the characters; all
+ * other characters share class {@link #OTHER}, on which no transition exists.
+ * Case folding is part of the mapping, so characters that fold to the same
+ * character share its class.
+ * </p>
+ * <p>
+ * Dictionaries use few distinct characters, so the automaton is laid out
+ * over a small, dense alphabet instead of the 65536 values of a
+ * {@code char}. The mapping is a two-level table of 256 pages of 256
+ * classes; pages without keyword characters share one page of
+ * {@link #OTHER}.
+ * </p>
+ */
+final class CharClasses {
+
+    /**
+     * The class of all characters that do not occur in any keyword.
+     */
+    static final char OTHER = 0;
+
+    private static final int PAGE_BITS = 8;
+
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    /**
+     * the page shared by all pages without keyword characters
+     */
+    private static final char[] OTHER_PAGE = new char[PAGE_MASK + 1];
+
+    private final char[][] pages;
+
+    private final int size;
+
+    /**
+     * the folded keyword characters, in the order of their classes
+     */
+    private final char[] characters;
+
+    private CharClasses(final char[][] pages, final int size, final char[] characters) {
+        this.pages = pages;
+        this.size = size;
+        this.characters = characters;
+    }
+
+    /**
+     * Computes the classes of an alphabet.
+     *
+     * @param characters  The folded characters that occur in the keywords.
+     * @param caseFolding The folding that is applied to the text.
+     * @return The mapping of every character to its class.
+     */
+    static CharClasses of(final BitSet characters, final CaseFolding caseFolding) {
+        if (characters.cardinality() > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("The keywords use more than " + (int) Character.MAX_VALUE
+                    + " distinct characters");
+        }
+
+        final char[] classOfFolded = new char[Character.MAX_VALUE + 1];
+        final char[] classCharacters = new char[characters.cardinality()];
+        int next = 1;
+        for (int c = characters.nextSetBit(0); c >= 0; c = characters.nextSetBit(c + 1)) {
+            classCharacters[next - 1] = (char) c;
+            classOfFolded[c] = (char) next++;
+        }
+
+        final char[] fold = caseFolding.table();
+        final char[][] pages = new char[Character.MAX_VALUE / (PAGE_MASK + 1) + 1][];
+        for (int page = 0; page < pages.length; page++) {
+            char[] classes = null;
+            for (int offset = 0; offset <= PAGE_MASK; offset++) {
+                final char cls = classOfFolded[fold[page << PAGE_BITS | offset]];
+                if (cls != OTHER) {
+                    if (classes == null) {
+                        classes = new char[PAGE_MASK + 1];
+                    }
+                    classes[offset] = cls;
+                }
+            }
+            pages[page] = classes == null ? OTHER_PAGE : classes;
+        }
+        return new CharClasses(pages, next, classCharacters);
+    }
+
+    /**
+     * Computes the classes of an alphabet from the characters returned by
+     * {@link #characters()}.
+     *
+     * @param characters  The folded characters that occur in the keywords.
+     * @param caseFolding The folding that is applied to the text.
+     * @return The mapping of every character to its class.
+     */
+    static CharClasses of(final char[] characters, final CaseFolding caseFolding) {
+        final BitSet set = new BitSet();
+        for (final char c : characters) {
+            set.set(c);
+        }
+        return of(set, caseFolding);
+    }
+
+    /**
+     * Returns the class of a character read from the text.
+     *
+     * @param character The character, before case folding.
+     * @return The class, {@link #OTHER} if no keyword contains the character.
+     */
+    char classOf(final char character) {
+        return pages[character >>> PAGE_BITS][character & PAGE_MASK];
+    }
+
+    /**
+     * Returns the only character of a class, if the class has exactly one.
+     * Case folding gives classes several characters.
+     *
+     * @param cls A class other than {@link #OTHER}.
+     * @return The character, or -1 if the class has several.
+     */
+    int onlyCharacterOf(final char cls) {
+        int result = -1;
+        for (int page = 0; page < pages.length; page++) {
+            if (pages[page] == OTHER_PAGE) {
+                continue;
+            }
+            for (int offset = 0; offset <= PAGE_MASK; offset++) {
+                if (pages[page][offset] == cls) {
+                    if (result >= 0) {
+                        return -1;
+                    }
+                    result = page << PAGE_BITS | offset;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lists the characters, as read from the text, of some of the classes.
+     * Only the pages that contain keyword characters are searched, so this
+     * takes time in the number of those pages rather than that of all
+     * {@code char} values.
+     *
+     * @param classes Whether to list the characters of each class.
+     * @param limit   The largest number of characters to list.
+     * @return The characters in ascending order, or {@code null} if there
+     *         are more than {@code limit}.
+     */
+    char[] charactersOf(final boolean[] classes, final int limit) {
+        final char[] result = new char[limit];
+        int count = 0;
+        for (int page = 0; page < pages.length; page++) {
+            if (pages[page] == OTHER_PAGE) {
+                continue;
+            }
+            for (int offset = 0; offset <= PAGE_MASK; offset++) {
+                if (classes[pages[page][offset]]) {
+                    if (count == limit) {
+                        return null;
+                    }
+                    result[count++] = (char) (page << PAGE_BITS | offset);
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns the folded characters of the keywords, which together with the
+     * case folding determine the classes.
+     *
+     * @return The characters, the one of class 1 first.
+     */
+    char[] characters() {
+        return characters.clone();
+    }
+
+    /**
+     * Returns the number of classes, including {@link #OTHER}.
+     *
+     * @return The size of the alphabet.
+     */
+    int size() {
+        return size;
+    }
+}
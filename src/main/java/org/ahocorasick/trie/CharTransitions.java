@@ -0,0 +1,238 @@
+package org.ahocorasick.trie;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Transitions of a state, keyed by primitive {@code char}. The layout is
+ * chosen per state from the number of transitions, because most states of a
+ * trie have a single child and only states close to the root fan out:
+ * </p>
+ * <ul>
+ * <li>a single transition is stored inline;</li>
+ * <li>a few transitions are stored in a sorted {@code char[]} that is
+ * searched with a binary search;</li>
+ * <li>many transitions are stored in an open addressing table with linear
+ * probing;</li>
+ * <li>the root state, once it fans out, uses a table that is indexed directly
+ * by the character.</li>
+ * </ul>
+ * <p>
+ * Looking up a transition never allocates or boxes.
+ * </p>
+ *
+ * @param <S> The type of the states transitioned to.
+ */
+final class CharTransitions<S> {
+
+    /**
+     * the largest number of transitions kept in a sorted array
+     */
+    static final int SORTED_LIMIT = 8;
+
+    private static final int DIRECT_SIZE = Character.MAX_VALUE + 1;
+
+    /**
+     * whether the state uses a direct table once it fans out
+     */
+    private final boolean direct;
+
+    private int size;
+
+    private char singleKey;
+
+    private S singleValue;
+
+    /**
+     * sorted keys or hash table keys, depending on the size; unused by a
+     * direct table
+     */
+    private char[] keys;
+
+    /**
+     * values matching the keys, or the direct table indexed by character
+     */
+    private Object[] values;
+
+    /**
+     * Creates an empty set of transitions.
+     *
+     * @param direct Whether to switch to a direct table instead of a hash
+     *               table once the number of transitions grows, which is
+     *               intended for the root state.
+     */
+    CharTransitions(final boolean direct) {
+        this.direct = direct;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the state reached by the given character.
+     *
+     * @param key The transition character.
+     * @return The next state, or {@code null} if there is no transition.
+     */
+    @SuppressWarnings("unchecked")
+    S get(final char key) {
+        final int size = this.size;
+
+        if (size == 1) {
+            return this.singleKey == key ? this.singleValue : null;
+        }
+        if (size == 0) {
+            return null;
+        }
+        if (size <= SORTED_LIMIT) {
+            final int index = Arrays.binarySearch(this.keys, 0, size, key);
+            return index < 0 ? null : (S) this.values[index];
+        }
+        if (this.direct) {
+            return (S) this.values[key];
+        }
+        return (S) this.values[probe(this.keys, this.values, key)];
+    }
+
+    /**
+     * Adds a transition, which must not exist yet.
+     *
+     * @param key   The transition character.
+     * @param value The next state.
+     */
+    void put(final char key, final S value) {
+        if (this.size == 0) {
+            this.singleKey = key;
+            this.singleValue = value;
+        } else if (this.size == 1) {
+            this.keys = new char[4];
+            this.values = new Object[4];
+            this.keys[0] = this.singleKey;
+            this.values[0] = this.singleValue;
+            this.singleValue = null;
+            insertSorted(key, value);
+        } else if (this.size < SORTED_LIMIT) {
+            insertSorted(key, value);
+        } else if (this.size == SORTED_LIMIT) {
+            final char[] sortedKeys = this.keys;
+            final Object[] sortedValues = this.values;
+            if (this.direct) {
+                this.keys = null;
+                this.values = new Object[DIRECT_SIZE];
+            } else {
+                this.keys = new char[SORTED_LIMIT * 4];
+                this.values = new Object[SORTED_LIMIT * 4];
+            }
+            for (int i = 0; i < this.size; i++) {
+                putUnsorted(sortedKeys[i], sortedValues[i]);
+            }
+            putUnsorted(key, value);
+        } else {
+            if (!this.direct && (this.size + 1) * 4 > this.values.length * 3) {
+                rehash();
+            }
+            putUnsorted(key, value);
+        }
+        this.size++;
+    }
+
+    private void insertSorted(final char key, final S value) {
+        if (this.size == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, SORTED_LIMIT);
+            this.values = Arrays.copyOf(this.values, SORTED_LIMIT);
+        }
+        int index = this.size;
+        while (index > 0 && this.keys[index - 1] > key) {
+            this.keys[index] = this.keys[index - 1];
+            this.values[index] = this.values[index - 1];
+            index--;
+        }
+        this.keys[index] = key;
+        this.values[index] = value;
+    }
+
+    private void putUnsorted(final char key, final Object value) {
+        if (this.direct) {
+            this.values[key] = value;
+        } else {
+            final int index = probe(this.keys, this.values, key);
+            this.keys[index] = key;
+            this.values[index] = value;
+        }
+    }
+
+    private void rehash() {
+        final char[] oldKeys = this.keys;
+        final Object[] oldValues = this.values;
+        this.keys = new char[oldKeys.length * 2];
+        this.values = new Object[oldValues.length * 2];
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                putUnsorted(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of a key in an open addressing table, or the empty slot
+     * where it belongs.
+     */
+    private static int probe(final char[] keys, final Object[] values, final char key) {
+        final int mask = keys.length - 1;
+        int index = (key * 0x9E37) & mask;
+        while (values[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the transition characters in ascending order.
+     *
+     * @return A new array with one character per transition.
+     */
+    char[] keys() {
+        final char[] result = new char[this.size];
+
+        if (this.size == 1) {
+            result[0] = this.singleKey;
+        } else if (this.size <= SORTED_LIMIT) {
+            if (this.size > 0) {
+                System.arraycopy(this.keys, 0, result, 0, this.size);
+            }
+        } else {
+            int count = 0;
+            for (int i = 0; i < this.values.length; i++) {
+                if (this.values[i] != null) {
+                    result[count++] = this.direct ? (char) i : this.keys[i];
+                }
+            }
+            Arrays.sort(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the states transitioned to, ordered by transition character.
+     *
+     * @return A view that looks up every element when it is accessed.
+     */
+    List<S> values() {
+        final char[] sortedKeys = keys();
+        return new AbstractList<S>() {
+            @Override
+            public S get(final int index) {
+                return CharTransitions.this.get(sortedKeys[index]);
+            }
+
+            @Override
+            public int size() {
+                return sortedKeys.length;
+            }
+        };
+    }
+}
@@ -0,0 +1,208 @@
+package org.ahocorasick.trie;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * <p>
+ * A node of the state graph the builders insert keywords into, which stands
+ * for a whole chain of states: the states reached by the characters of its
+ * segment, one after the other. Only the last state of the chain may have
+ * more than one transition or emit keywords, so long keywords such as URLs
+ * or file paths take a single node for the part they share with no other
+ * keyword, instead of one {@link PayloadState} per character.
+ * </p>
+ * <p>
+ * A node is split when a keyword leaves or ends in the middle of its
+ * segment. The states within a segment get their own slots, failure links
+ * and output links only when the graph is compiled into a
+ * {@link DoubleArrayTrie}, which links them on the array itself.
+ * </p>
+ *
+ * @param <T> The type of the emitted payloads.
+ */
+final class CompressedState<T> {
+
+    private static final char[] ROOT_SEGMENT = new char[0];
+
+    /**
+     * the characters of the transitions from the parent node to the last
+     * state of the chain, which are empty for the root node only
+     */
+    private char[] segment;
+
+    /**
+     * the transitions from the last state of the chain, keyed by the first
+     * character of the segment of each child
+     */
+    private CharTransitions<CompressedState<T>> success;
+
+    /**
+     * the keywords that end in the last state of the chain
+     */
+    private Set<Payload<T>> emits;
+
+    /**
+     * Creates the root node of an empty graph.
+     */
+    CompressedState() {
+        this.segment = ROOT_SEGMENT;
+        this.success = new CharTransitions<>(true);
+    }
+
+    private CompressedState(final char[] segment) {
+        this.segment = segment;
+        this.success = new CharTransitions<>(false);
+    }
+
+    /**
+     * Returns the child reached by the given character, adding it with a
+     * segment of that character alone if there is none yet.
+     *
+     * @param character The folded transition character.
+     * @return The child.
+     */
+    CompressedState<T> addState(final char character) {
+        CompressedState<T> child = success.get(character);
+        if (child == null) {
+            child = new CompressedState<>(new char[]{character});
+            success.put(character, child);
+        }
+        return child;
+    }
+
+    /**
+     * Inserts a keyword below the last state of this node, which is reached
+     * by the first {@code from} characters of the keyword. The keyword is
+     * left out if the state it ends in emits the same keyword already.
+     *
+     * @param payload     The keyword and its payload.
+     * @param from        The number of characters that lead to this node.
+     * @param caseFolding The folding applied to the characters.
+     * @return Whether the keyword was inserted.
+     */
+    boolean insert(final Payload<T> payload, final int from, final CaseFolding caseFolding) {
+        return insert(payload, payload.getKeyword(), from, caseFolding);
+    }
+
+    /**
+     * Inserts a keyword below the last state of this node along the given
+     * characters instead of those of the keyword, such as the bytes of its
+     * UTF-8 encoding.
+     *
+     * @param payload     The keyword and its payload.
+     * @param keyword     The characters that lead to the state the keyword
+     *                    ends in.
+     * @param from        The number of characters that lead to this node.
+     * @param caseFolding The folding applied to the characters.
+     * @return Whether the keyword was inserted.
+     */
+    boolean insert(final Payload<T> payload, final CharSequence keyword, final int from,
+                   final CaseFolding caseFolding) {
+        CompressedState<T> current = this;
+        int position = from;
+
+        while (position < keyword.length()) {
+            final char character = caseFolding.fold(keyword.charAt(position));
+            final CompressedState<T> child = current.success.get(character);
+            if (child == null) {
+                final char[] rest = new char[keyword.length() - position];
+                for (int i = 0; i < rest.length; i++) {
+                    rest[i] = caseFolding.fold(keyword.charAt(position + i));
+                }
+                final CompressedState<T> leaf = new CompressedState<>(rest);
+                current.success.put(character, leaf);
+                current = leaf;
+                break;
+            }
+
+            int matched = 1;
+            while (matched < child.segment.length && position + matched < keyword.length()
+                    && child.segment[matched] == caseFolding.fold(keyword.charAt(position + matched))) {
+                matched++;
+            }
+            if (matched < child.segment.length) {
+                child.split(matched);
+            }
+            current = child;
+            position += matched;
+        }
+
+        return current.addEmit(payload);
+    }
+
+    /**
+     * Moves the chain after the first {@code length} characters of the
+     * segment into a child of its own, so the state they lead to becomes
+     * the last state of this node.
+     */
+    private void split(final int length) {
+        final CompressedState<T> tail = new CompressedState<>(Arrays.copyOfRange(segment, length, segment.length));
+        tail.success = this.success;
+        tail.emits = this.emits;
+
+        this.segment = Arrays.copyOf(segment, length);
+        this.success = new CharTransitions<>(false);
+        this.success.put(tail.segment[0], tail);
+        this.emits = null;
+    }
+
+    private boolean addEmit(final Payload<T> payload) {
+        if (this.emits == null) {
+            this.emits = new TreeSet<>();
+        }
+        return this.emits.add(payload);
+    }
+
+    /**
+     * Returns the characters that lead from the parent node to the last state
+     * of this node. The array must not be changed.
+     *
+     * @return The segment, which is empty for the root node.
+     */
+    char[] getSegment() {
+        return this.segment;
+    }
+
+    /**
+     * Returns the payloads emitted by the last state of this node, ordered
+     * by keyword.
+     *
+     * @return The emitted payloads.
+     */
+    Collection<Payload<T>> emit() {
+        return this.emits == null ? Collections.<Payload<T>>emptyList() : this.emits;
+    }
+
+    /**
+     * Returns the children of this node, ordered by the first character of
+     * their segments.
+     *
+     * @return A view that looks up every element when it is accessed.
+     */
+    List<CompressedState<T>> getStates() {
+        return this.success.values();
+    }
+
+    /**
+     * Counts the nodes of the graph below and including this node.
+     *
+     * @return The number of nodes.
+     */
+    int countNodes() {
+        int count = 0;
+        final Queue<CompressedState<T>> queue = new ArrayDeque<>();
+        queue.add(this);
+        while (!queue.isEmpty()) {
+            count++;
+            queue.addAll(queue.remove().getStates());
+        }
+        return count;
+    }
+}
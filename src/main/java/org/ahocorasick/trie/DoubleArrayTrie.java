@@ -0,0 +1,1612 @@
+package org.ahocorasick.trie;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Compiled form of the goto, failure and output functions of a
+ * {@link PayloadTrie}. The goto function is stored as a double-array trie
+ * over the {@link CharClasses} of the keywords: a transition from state
+ * {@code s} on a character of class {@code c} exists when
+ * {@code check[base[s] + c] == s}, in which case {@code base[s] + c} is the
+ * next state. Scanning therefore needs neither boxing nor hashing, and the
+ * whole automaton lives in a handful of primitive arrays.
+ * </p>
+ * <p>
+ * States are identified by their slot in the arrays. The root state is always
+ * slot {@link #ROOT}. Keywords are stored once in a payload table, sorted by
+ * keyword, and every state refers only to the indexes of the payloads of its
+ * own keyword. Keywords that are a proper suffix are found by following the
+ * output links, which point to the next state on the failure chain that emits
+ * anything.
+ * </p>
+ * <p>
+ * Case folding is part of the automaton: every character read is mapped to
+ * the class of its folded form before the transition is looked up, so the
+ * scan loops do not need to know whether the trie ignores case.
+ * </p>
+ * <p>
+ * Most characters of a typical text leave the root state where it is. The
+ * scan loops skip them with {@link #skipToStart(CharSequence, int, int)},
+ * which only tests whether a character can start a keyword.
+ * </p>
+ * <p>
+ * An automaton can be made deterministic with {@link #determinize(int)},
+ * which precomputes the next state of every state for every class into a
+ * flat table. A transition then costs a single lookup instead of a walk
+ * along the failure links, at the price of one {@code int} per state and
+ * class.
+ * </p>
+ * <p>
+ * The arrays are read through {@link IntTable}s, so that an automaton can
+ * also be scanned where it is in a memory-mapped file, see
+ * {@link #map(MappedInput, CaseFolding, PayloadCodec)}. Compiled and loaded
+ * automata keep their arrays on the heap and scan them directly.
+ * </p>
+ *
+ * @param <T> The type of the emitted payloads.
+ */
+class DoubleArrayTrie<T> extends Automaton<T> {
+
+    private static final int UNUSED = -1;
+
+    /**
+     * the smallest number of states of a depth linked by a single task
+     */
+    private static final int MIN_PARALLEL_STATES = 1 << 12;
+
+    /**
+     * offset added to a character to find the slot of the next state
+     */
+    private final IntTable base;
+
+    /**
+     * the parent state of a slot, or {@link #UNUSED} for free slots
+     */
+    private final IntTable check;
+
+    /**
+     * the state to fall back on when no transition exists
+     */
+    private final IntTable failure;
+
+    /**
+     * index into {@link #outputs} for every state; the entry at that index
+     * holds the number of emits, followed by their payload indexes
+     */
+    private final IntTable output;
+
+    private final IntTable outputs;
+
+    /**
+     * the next state on the failure chain with emits, or {@link #ROOT} if none
+     */
+    private final IntTable outputLink;
+
+    /**
+     * the class that is looked up for every character read
+     */
+    private final CharClasses alphabet;
+
+    /**
+     * the next state for every slot and class, at
+     * {@code slot * alphabet.size() + class}, or {@code null} if the failure
+     * links are followed while scanning
+     */
+    private final int[] delta;
+
+    /**
+     * whether the root state has a transition on a class
+     */
+    private final boolean[] starts;
+
+    /**
+     * the only character that can start a keyword, or -1 if there are
+     * several
+     */
+    private final int singleStart;
+
+    /**
+     * the vectorized search for the characters that can start a keyword, or
+     * {@code null} if there is none on this JVM or there are too many such
+     * characters
+     */
+    private final StartScanner startScanner;
+
+    /**
+     * the number of characters on the path from the root to a state
+     */
+    private final IntTable depth;
+
+    private final KeywordTable<T> keywords;
+
+    /**
+     * the position of every payload in the order the keywords were added,
+     * lower values taking precedence
+     */
+    private final IntTable priorities;
+
+    /**
+     * the largest number of payloads emitted by a single state, including the
+     * output chain
+     */
+    private final int maxEmits;
+
+    /**
+     * the length of the longest keyword
+     */
+    private final int maxKeywordLength;
+
+    private DoubleArrayTrie(
+            final IntTable base,
+            final IntTable check,
+            final IntTable failure,
+            final IntTable output,
+            final IntTable outputs,
+            final IntTable outputLink,
+            final CharClasses alphabet,
+            final int[] delta,
+            final IntTable depth,
+            final KeywordTable<T> keywords,
+            final IntTable priorities,
+            final int maxEmits) {
+        this.base = base;
+        this.check = check;
+        this.failure = failure;
+        this.output = output;
+        this.outputs = outputs;
+        this.outputLink = outputLink;
+        this.alphabet = alphabet;
+        this.delta = delta;
+        this.depth = depth;
+        this.keywords = keywords;
+        this.priorities = priorities;
+        this.maxEmits = maxEmits;
+
+        this.starts = new boolean[alphabet.size()];
+        int startCount = 0;
+        int startClass = CharClasses.OTHER;
+        for (int symbol = 1; symbol < starts.length; symbol++) {
+            final int next = base.get(ROOT) + symbol;
+            if (next < check.length() && check.get(next) == ROOT) {
+                starts[symbol] = true;
+                startCount++;
+                startClass = symbol;
+            }
+        }
+        this.singleStart = startCount == 1 ? alphabet.onlyCharacterOf((char) startClass) : -1;
+        this.startScanner = StartScanner.isAvailable()
+                ? StartScanner.create(alphabet.charactersOf(starts, StartScanner.MAX_ANCHORS))
+                : null;
+
+        int longest = 0;
+        for (int i = 0; i < keywords.size(); i++) {
+            longest = Math.max(longest, keywords.keywordLength(i));
+        }
+        this.maxKeywordLength = longest;
+    }
+
+    @Override
+    int nextState(int state, final char character) {
+        final char symbol = alphabet.classOf(character);
+        if (delta != null) {
+            return delta[state * alphabet.size() + symbol];
+        }
+
+        while (true) {
+            final int next = base.get(state) + symbol;
+
+            if (next < check.length() && check.get(next) == state) {
+                return next;
+            }
+
+            if (state == ROOT) {
+                return ROOT;
+            }
+
+            state = failure.get(state);
+        }
+    }
+
+    @Override
+    boolean isStart(final char character) {
+        return starts[alphabet.classOf(character)];
+    }
+
+    /**
+     * Finds the next character that can start a keyword. Scanning from the
+     * root state, all characters before it lead back to the root state and
+     * emit nothing, so they can be skipped. If a single character can start
+     * a keyword and the text is a string, the search is
+     * {@link String#indexOf(int, int)}, which the JVM vectorizes. Otherwise
+     * a {@link StartScanner} compares several characters at once, if the JVM
+     * offers one.
+     *
+     * @param text The text being scanned.
+     * @param from The offset to search from.
+     * @param to   The offset to stop searching at, exclusive.
+     * @return The offset of the next character that can start a keyword, or
+     *         {@code to} if there is none.
+     */
+    @Override
+    int skipToStart(final CharSequence text, final int from, final int to) {
+        if (singleStart >= 0 && to == text.length() && text instanceof String) {
+            final int index = ((String) text).indexOf(singleStart, from);
+            return index < 0 ? to : index;
+        }
+        if (startScanner != null) {
+            return startScanner.skip(text, from, to);
+        }
+
+        int position = from;
+        while (position < to && !starts[alphabet.classOf(text.charAt(position))]) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Collects the indexes of all payloads emitted when the given state is
+     * reached, by walking its output chain. The indexes are sorted, which
+     * orders the payloads by keyword.
+     *
+     * @param state  The state reached.
+     * @param buffer Receives the payload indexes, must hold at least
+     *               {@link #maxEmits()} values.
+     * @return The number of indexes written to the buffer, zero for most
+     *         states.
+     */
+    @Override
+    int collectEmits(final int state, final int[] buffer) {
+        int count = 0;
+        int current = outputs.get(output.get(state)) > 0 ? state : outputLink.get(state);
+
+        while (current != ROOT) {
+            final int offset = output.get(current);
+            final int size = outputs.get(offset);
+            for (int i = 1; i <= size; i++) {
+                insertSorted(buffer, count++, outputs.get(offset + i));
+            }
+            current = outputLink.get(current);
+        }
+
+        return count;
+    }
+
+    private static void insertSorted(final int[] buffer, int count, final int value) {
+        while (count > 0 && buffer[count - 1] > value) {
+            buffer[count] = buffer[count - 1];
+            count--;
+        }
+        buffer[count] = value;
+    }
+
+    @Override
+    Payload<T> payload(final int index) {
+        return keywords.payload(index);
+    }
+
+    /**
+     * Returns the keywords and payloads, by payload index.
+     *
+     * @return The keyword table.
+     */
+    KeywordTable<T> keywords() {
+        return keywords;
+    }
+
+    @Override
+    String keyword(final int index) {
+        return keywords.keyword(index);
+    }
+
+    @Override
+    int keywordLength(final int index) {
+        return keywords.keywordLength(index);
+    }
+
+    @Override
+    T data(final int index) {
+        return keywords.data(index);
+    }
+
+    @Override
+    int priority(final int index) {
+        return priorities.get(index);
+    }
+
+    @Override
+    int depth(final int state) {
+        return depth.get(state);
+    }
+
+    @Override
+    int payloadCount() {
+        return keywords.size();
+    }
+
+    @Override
+    int maxEmits() {
+        return maxEmits;
+    }
+
+    @Override
+    int maxKeywordLength() {
+        return maxKeywordLength;
+    }
+
+    /**
+     * Returns the number of character classes the transitions are laid out
+     * over, including the class of characters that occur in no keyword.
+     *
+     * @return The size of the alphabet.
+     */
+    int alphabetSize() {
+        return alphabet.size();
+    }
+
+    @Override
+    boolean isDeterministic() {
+        return delta != null;
+    }
+
+    /**
+     * Returns the number of bytes a complete transition table takes, one
+     * {@code int} for every slot and class.
+     *
+     * @return The size of the table, whether it was built or not.
+     */
+    @Override
+    long deterministicTableBytes() {
+        return (long) check.length() * alphabet.size() * Integer.BYTES;
+    }
+
+    /**
+     * Builds the complete transition function: the failure links are folded
+     * into direct transitions, so every character read costs exactly one
+     * lookup. States are visited by increasing depth, so the row of the
+     * failure state of a state is always complete before its own.
+     *
+     * @param stateBudget The largest number of states, counting the free
+     *                    slots of the double array, to build a table for.
+     * @return A deterministic automaton sharing the arrays of this one, or
+     *         this automaton if it has more states than the budget allows.
+     */
+    @Override
+    DoubleArrayTrie<T> determinize(final int stateBudget) {
+        final int states = check.length();
+        final int classes = alphabet.size();
+        if (delta != null || states > stateBudget || (long) states * classes > Integer.MAX_VALUE - 8) {
+            return this;
+        }
+
+        final int[] table = new int[states * classes];
+        for (final int state : slotsByDepth()) {
+            final int row = state * classes;
+            final int failureRow = failure.get(state) * classes;
+            for (int symbol = 0; symbol < classes; symbol++) {
+                final int next = base.get(state) + symbol;
+                if (symbol != CharClasses.OTHER && next < states && check.get(next) == state) {
+                    table[row + symbol] = next;
+                } else if (state != ROOT) {
+                    table[row + symbol] = table[failureRow + symbol];
+                }
+            }
+        }
+
+        return withDelta(table);
+    }
+
+    /**
+     * Creates an automaton that shares the arrays of this one and scans with
+     * the given transition table.
+     *
+     * @param table The complete transition function.
+     * @return The deterministic automaton.
+     */
+    DoubleArrayTrie<T> withDelta(final int[] table) {
+        return new DoubleArrayTrie<>(base, check, failure, output, outputs, outputLink, alphabet, table, depth,
+                keywords, priorities, maxEmits);
+    }
+
+    /**
+     * Sorts the slots in use by the depth of their state with a counting
+     * sort, the root first.
+     */
+    private int[] slotsByDepth() {
+        int maxDepth = 0;
+        int count = 0;
+        for (int slot = 0; slot < check.length(); slot++) {
+            if (slot == ROOT || check.get(slot) != UNUSED) {
+                maxDepth = Math.max(maxDepth, depth.get(slot));
+                count++;
+            }
+        }
+
+        final int[] offsets = new int[maxDepth + 2];
+        for (int slot = 0; slot < check.length(); slot++) {
+            if (slot == ROOT || check.get(slot) != UNUSED) {
+                offsets[depth.get(slot) + 1]++;
+            }
+        }
+        for (int d = 1; d < offsets.length; d++) {
+            offsets[d] += offsets[d - 1];
+        }
+
+        final int[] slots = new int[count];
+        for (int slot = 0; slot < check.length(); slot++) {
+            if (slot == ROOT || check.get(slot) != UNUSED) {
+                slots[offsets[depth.get(slot)]++] = slot;
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Returns the number of slots in the double array, which bounds the state
+     * numbers.
+     *
+     * @return The length of the base and check arrays.
+     */
+    int size() {
+        return check.length();
+    }
+
+    /**
+     * Tells whether a slot holds a state, rather than being free.
+     *
+     * @param slot A slot of the double array.
+     * @return {@code true} for the root and every slot with a parent.
+     */
+    boolean isState(final int slot) {
+        return slot == ROOT || check.get(slot) != UNUSED;
+    }
+
+    /**
+     * Returns the state a state is a transition of.
+     *
+     * @param state A state other than the root.
+     * @return The parent state.
+     */
+    int parent(final int state) {
+        return check.get(state);
+    }
+
+    /**
+     * Looks up the goto function alone, without falling back on the failure
+     * function.
+     *
+     * @param state     A state.
+     * @param character A folded character.
+     * @return The next state, or {@link #ROOT} if the state has no
+     *         transition on the character.
+     */
+    int child(final int state, final char character) {
+        final char symbol = alphabet.classOf(character);
+        final int next = base.get(state) + symbol;
+        return symbol != CharClasses.OTHER && next < check.length() && check.get(next) == state ? next : ROOT;
+    }
+
+    /**
+     * Tells whether a character has a class of its own, which is the case
+     * for the characters of the keywords the automaton was compiled from.
+     *
+     * @param character A folded character.
+     * @return {@code false} if no transition is on the character.
+     */
+    boolean hasCharacter(final char character) {
+        return alphabet.classOf(character) != CharClasses.OTHER;
+    }
+
+    /**
+     * Lists the transitions of a state in the order of their characters.
+     *
+     * @param state      A state.
+     * @param characters Receives the folded characters of the transitions,
+     *                   must hold {@link #alphabetSize()} values.
+     * @param targets    Receives the next states, in the same order.
+     * @return The number of transitions.
+     */
+    int transitions(final int state, final char[] characters, final int[] targets) {
+        final char[] classCharacters = alphabet.characters();
+        int count = 0;
+        for (int symbol = 1; symbol < alphabet.size(); symbol++) {
+            final int next = base.get(state) + symbol;
+            if (next < check.length() && check.get(next) == state) {
+                characters[count] = classCharacters[symbol - 1];
+                targets[count++] = next;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the state to fall back on from a state.
+     *
+     * @param state A state.
+     * @return The failure state, {@link #ROOT} for the root itself.
+     */
+    int failure(final int state) {
+        return failure.get(state);
+    }
+
+    /**
+     * Returns the next state on the failure chain of a state that emits
+     * anything.
+     *
+     * @param state A state.
+     * @return The output link, or {@link #ROOT} if there is none.
+     */
+    int outputLink(final int state) {
+        return outputLink.get(state);
+    }
+
+    /**
+     * Returns the number of payloads a state emits itself, leaving out its
+     * output chain.
+     *
+     * @param state A state.
+     * @return The number of payloads whose keyword ends in the state.
+     */
+    int emitCount(final int state) {
+        return outputs.get(output.get(state));
+    }
+
+    /**
+     * Returns one of the payloads a state emits itself.
+     *
+     * @param state A state.
+     * @param i     The position of the payload, below
+     *              {@link #emitCount(int)}.
+     * @return The payload index.
+     */
+    int emit(final int state, final int i) {
+        return outputs.get(output.get(state) + 1 + i);
+    }
+
+    /**
+     * Writes the arrays of this automaton in the layout of {@link TrieFormat}.
+     * The keywords are written as one block of characters, after the offset
+     * of every keyword in it; the payloads follow, written by the codec,
+     * after a bitmap of those that are not {@code null}. The transition table
+     * of a deterministic automaton is not written, since
+     * {@link #determinize(int)} fills it faster than it could be read.
+     *
+     * @param out   The stream to write to.
+     * @param codec The codec for the payloads.
+     * @throws IOException if the stream cannot be written.
+     */
+    @Override
+    void writeTo(final DataOutputStream out, final PayloadCodec<? super T> codec) throws IOException {
+        TrieFormat.writeChars(out, alphabet.characters());
+        TrieFormat.writeInts(out, base);
+        TrieFormat.writeInts(out, check);
+        TrieFormat.writeInts(out, failure);
+        TrieFormat.writeInts(out, output);
+        TrieFormat.writeInts(out, outputs);
+        TrieFormat.writeInts(out, outputLink);
+        TrieFormat.writeInts(out, depth);
+        TrieFormat.writeInts(out, priorities);
+        out.writeInt(maxEmits);
+
+        final int count = keywords.size();
+        final int[] offsets = new int[count + 1];
+        final int[] present = new int[(count + Integer.SIZE - 1) / Integer.SIZE];
+        for (int i = 0; i < count; i++) {
+            offsets[i + 1] = offsets[i] + keywords.keywordLength(i);
+            if (keywords.data(i) != null) {
+                present[i / Integer.SIZE] |= 1 << i;
+            }
+        }
+        final char[] characters = new char[offsets[count]];
+        for (int i = 0; i < count; i++) {
+            keywords.keyword(i).getChars(0, keywords.keywordLength(i), characters, offsets[i]);
+        }
+        TrieFormat.writeInts(out, IntTable.of(offsets));
+        TrieFormat.writeChars(out, characters);
+        TrieFormat.writeInts(out, IntTable.of(present));
+
+        for (int i = 0; i < count; i++) {
+            final T data = keywords.data(i);
+            if (data != null) {
+                codec.write(data, out);
+            }
+        }
+    }
+
+    /**
+     * Reads an automaton written by
+     * {@link #writeTo(DataOutputStream, PayloadCodec)} onto the heap. The
+     * arrays are used as read; only the character classes are recomputed.
+     *
+     * @param in          The stream to read from.
+     * @param caseFolding The folding the automaton was compiled with.
+     * @param codec       The codec for the payloads.
+     * @param <T>         The type of the emitted payloads.
+     * @return The automaton, never deterministic.
+     * @throws IOException if the stream cannot be read or is inconsistent.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> DoubleArrayTrie<T> readFrom(final DataInputStream in, final CaseFolding caseFolding,
+                                           final PayloadCodec<? extends T> codec) throws IOException {
+        final CharClasses alphabet = CharClasses.of(TrieFormat.readChars(in), caseFolding);
+        final int[] base = TrieFormat.readInts(in);
+        final int[] check = TrieFormat.readInts(in);
+        final int[] failure = TrieFormat.readInts(in);
+        final int[] output = TrieFormat.readInts(in);
+        final int[] outputs = TrieFormat.readInts(in);
+        final int[] outputLink = TrieFormat.readInts(in);
+        final int[] depth = TrieFormat.readInts(in);
+        final int[] priorities = TrieFormat.readInts(in);
+        final int maxEmits = in.readInt();
+        final int[] offsets = TrieFormat.readInts(in);
+        final char[] characters = TrieFormat.readChars(in);
+        final int[] present = TrieFormat.readInts(in);
+        validate(IntTable.of(base), IntTable.of(check), IntTable.of(failure), IntTable.of(output),
+                IntTable.of(outputs), IntTable.of(outputLink), IntTable.of(depth), IntTable.of(priorities), maxEmits,
+                IntTable.of(offsets), characters.length, present);
+
+        final Payload<T>[] payloads = new Payload[priorities.length];
+        for (int i = 0; i < payloads.length; i++) {
+            final String keyword = new String(characters, offsets[i], offsets[i + 1] - offsets[i]);
+            payloads[i] = new Payload<>(keyword, readData(in, codec, present, i));
+        }
+
+        return new Heap<>(base, check, failure, output, outputs, outputLink, alphabet, null, depth,
+                KeywordTable.of(payloads), priorities, maxEmits);
+    }
+
+    /**
+     * Maps an automaton written by
+     * {@link #writeTo(DataOutputStream, PayloadCodec)} from a file. The
+     * arrays and the keywords stay in the file and are read through the
+     * page cache, so they take no heap and are shared by every process that
+     * maps the same file; only the character classes and the payloads that
+     * are not {@code null} are put on the heap.
+     *
+     * @param in          The file, positioned after the header.
+     * @param caseFolding The folding the automaton was compiled with.
+     * @param codec       The codec for the payloads.
+     * @param <T>         The type of the emitted payloads.
+     * @return The automaton, never deterministic.
+     * @throws IOException if the file cannot be read or is inconsistent.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> DoubleArrayTrie<T> map(final MappedInput in, final CaseFolding caseFolding,
+                                      final PayloadCodec<? extends T> codec) throws IOException {
+        final CharClasses alphabet = CharClasses.of(TrieFormat.readChars(in), caseFolding);
+        final IntTable base = in.mapInts();
+        final IntTable check = in.mapInts();
+        final IntTable failure = in.mapInts();
+        final IntTable output = in.mapInts();
+        final IntTable outputs = in.mapInts();
+        final IntTable outputLink = in.mapInts();
+        final IntTable depth = in.mapInts();
+        final IntTable priorities = in.mapInts();
+        final int maxEmits = in.readInt();
+        final IntTable offsets = in.mapInts();
+        final CharBuffer characters = in.mapChars();
+        final int[] present = TrieFormat.readInts(in);
+        validate(base, check, failure, output, outputs, outputLink, depth, priorities, maxEmits, offsets,
+                characters.limit(), present);
+
+        T[] data = null;
+        for (int i = 0; i < priorities.length(); i++) {
+            final T value = readData(in, codec, present, i);
+            if (value != null) {
+                if (data == null) {
+                    data = (T[]) new Object[priorities.length()];
+                }
+                data[i] = value;
+            }
+        }
+
+        return new DoubleArrayTrie<>(base, check, failure, output, outputs, outputLink, alphabet, null, depth,
+                KeywordTable.of(offsets, characters, data), priorities, maxEmits);
+    }
+
+    /**
+     * Checks that the arrays read form an automaton that can be scanned: every
+     * link leads to a state, failure and output links lead to shallower
+     * states so that following them ends at the root, every state emits
+     * keywords as long as its depth, and the largest number of emits is the
+     * one the arrays give. A corrupt file thus fails to load instead of
+     * failing the scans.
+     */
+    private static void validate(final IntTable base, final IntTable check, final IntTable failure,
+                                 final IntTable output, final IntTable outputs, final IntTable outputLink,
+                                 final IntTable depth, final IntTable priorities, final int maxEmits,
+                                 final IntTable offsets, final int characters, final int[] present)
+            throws IOException {
+        final int slots = check.length();
+        final int count = priorities.length();
+        if (slots == 0 || base.length() != slots || failure.length() != slots || output.length() != slots
+                || outputLink.length() != slots || depth.length() != slots || outputs.length() == 0
+                || offsets.length() != count + 1 || present.length != (count + Integer.SIZE - 1) / Integer.SIZE) {
+            throw new IOException("Corrupt trie: the arrays differ in length");
+        }
+        for (int i = 0; i < count; i++) {
+            if (offsets.get(i) < 0 || offsets.get(i) > offsets.get(i + 1)) {
+                throw new IOException("Corrupt trie: the keyword offsets are not ascending");
+            }
+        }
+        if (offsets.get(0) != 0 || offsets.get(count) != characters) {
+            throw new IOException("Corrupt trie: the keyword offsets do not cover the keyword characters");
+        }
+
+        final BitSet seen = new BitSet(count);
+        for (int i = 0; i < count; i++) {
+            final int priority = priorities.get(i);
+            if (priority < 0 || priority >= count || seen.get(priority)) {
+                throw new IOException("Corrupt trie: the priorities are not a permutation of the keywords");
+            }
+            seen.set(priority);
+        }
+
+        validateStates(base, check, failure, output, outputs, outputLink, depth, offsets);
+
+        if (maxEmits != countMaxEmits(check, output, outputs, outputLink)) {
+            throw new IOException("Corrupt trie: the largest number of emits is " + maxEmits);
+        }
+    }
+
+    private static void validateStates(final IntTable base, final IntTable check, final IntTable failure,
+                                       final IntTable output, final IntTable outputs, final IntTable outputLink,
+                                       final IntTable depth, final IntTable offsets) throws IOException {
+        final int slots = check.length();
+        final int count = offsets.length() - 1;
+        if (depth.get(ROOT) != 0 || outputLink.get(ROOT) != ROOT) {
+            throw new IOException("Corrupt trie: the root state has a depth or an output link");
+        }
+
+        // Only one state may emit the keywords at an offset of the outputs.
+        final BitSet claimed = new BitSet();
+        for (int slot = 0; slot < slots; slot++) {
+            if (base.get(slot) < 0 || base.get(slot) >= slots) {
+                throw new IOException("Corrupt trie: the base of slot " + slot + " is out of range");
+            }
+            if (!isState(check, slot)) {
+                continue;
+            }
+
+            final int slotDepth = depth.get(slot);
+            if (slot != ROOT) {
+                final int parent = check.get(slot);
+                if (!isState(check, parent) || slotDepth < 1 || depth.get(parent) != slotDepth - 1) {
+                    throw new IOException("Corrupt trie: state " + slot + " is not one deeper than its parent");
+                }
+                final int failState = failure.get(slot);
+                final int linkState = outputLink.get(slot);
+                if (!isState(check, failState) || depth.get(failState) >= slotDepth
+                        || !isState(check, linkState) || linkState != ROOT && depth.get(linkState) >= slotDepth) {
+                    throw new IOException("Corrupt trie: the links of state " + slot + " do not lead to a suffix");
+                }
+            }
+
+            final int offset = output.get(slot);
+            if (offset < 0 || offset >= outputs.length()) {
+                throw new IOException("Corrupt trie: the emits of state " + slot + " are out of range");
+            }
+            final int emits = outputs.get(offset);
+            if (emits < 0 || emits >= outputs.length() - offset || slot == ROOT && emits != 0
+                    || emits > 0 && claimed.get(offset)) {
+                throw new IOException("Corrupt trie: the emits of state " + slot + " are out of range");
+            }
+            claimed.set(offset);
+            for (int i = 1; i <= emits; i++) {
+                final int keyword = outputs.get(offset + i);
+                if (keyword < 0 || keyword >= count || offsets.get(keyword + 1) - offsets.get(keyword) != slotDepth) {
+                    throw new IOException("Corrupt trie: state " + slot + " emits a keyword of another length");
+                }
+            }
+        }
+    }
+
+    private static boolean isState(final IntTable check, final int slot) {
+        return slot == ROOT || slot > ROOT && slot < check.length() && check.get(slot) != UNUSED;
+    }
+
+    /**
+     * Counts the emits of every state along its output chain, remembering
+     * the count of every state so every chain is followed once. The states
+     * must have been validated, so that every chain ends at the root.
+     */
+    private static int countMaxEmits(final IntTable check, final IntTable output, final IntTable outputs,
+                                     final IntTable outputLink) {
+        final int slots = check.length();
+        final int[] chainLength = new int[slots];
+        Arrays.fill(chainLength, -1);
+        chainLength[ROOT] = 0;
+        final int[] path = new int[slots];
+        int max = 0;
+
+        for (int slot = 0; slot < slots; slot++) {
+            if (!isState(check, slot)) {
+                continue;
+            }
+            int length = 0;
+            int current = slot;
+            while (chainLength[current] < 0) {
+                path[length++] = current;
+                current = outputLink.get(current);
+            }
+            int total = chainLength[current];
+            while (length > 0) {
+                current = path[--length];
+                total += outputs.get(output.get(current));
+                chainLength[current] = total;
+            }
+            max = Math.max(max, chainLength[slot]);
+        }
+        return max;
+    }
+
+    private static <T> T readData(final DataInput in, final PayloadCodec<? extends T> codec, final int[] present,
+                                  final int index) throws IOException {
+        return (present[index / Integer.SIZE] & 1 << index) != 0 ? codec.read(in) : null;
+    }
+
+    /**
+     * Compiles a graph of {@link CompressedState} nodes into a double-array
+     * trie, computing the failure and output links of every state on the
+     * array.
+     *
+     * @param rootState      The root of the graph.
+     * @param insertionOrder The position of every payload in the order the
+     *                       keywords were added.
+     * @param caseFolding    The folding the segments of the graph were
+     *                       added with, which is applied to the text.
+     * @param pool           The pool to compute the links on, or
+     *                       {@code null} to compute them on the calling
+     *                       thread.
+     * @param <T>            The type of the emitted payloads.
+     * @return The compiled automaton.
+     */
+    static <T> DoubleArrayTrie<T> compile(final CompressedState<T> rootState,
+                                          final Map<Payload<T>, Integer> insertionOrder,
+                                          final CaseFolding caseFolding, final ForkJoinPool pool) {
+        return new CompressedCompiler<>(rootState, insertionOrder, caseFolding, pool).compile();
+    }
+
+    /**
+     * Compiles distinct keywords that are sorted by keyword straight into a
+     * double-array trie, without building a state graph first. The automaton
+     * is the one {@link #compile(CompressedState, Map, CaseFolding,
+     * ForkJoinPool)} compiles from a graph of the same keywords, slot for
+     * slot.
+     *
+     * @param characters  The characters of all keywords, back to back.
+     * @param offsets     The offset of every keyword in the characters,
+     *                    followed by the total number of characters.
+     * @param data        The payload data of every keyword.
+     * @param priorities  The position of every keyword in the order the
+     *                    keywords were added.
+     * @param caseFolding The folding applied to keywords and text.
+     * @param <T>         The type of the emitted payloads.
+     * @return The compiled automaton.
+     */
+    static <T> DoubleArrayTrie<T> compile(final char[] characters, final int[] offsets, final T[] data,
+                                          final int[] priorities, final CaseFolding caseFolding) {
+        return new SortedCompiler<>(characters, offsets, data, priorities, caseFolding).compile();
+    }
+
+    /**
+     * Places states into the double array: finds a base for the transitions
+     * of every state such that all of them land on free slots. Shared by the
+     * compilers of a state graph and of sorted keywords, which place their
+     * states in the same breadth-first order and thus lay out the same array.
+     */
+    private abstract static class Layout {
+
+        /**
+         * the number of slots below the end of the array in which free slots
+         * are still searched, like the open blocks of darts-clone
+         */
+        private static final int SEARCH_WINDOW = 1 << 12;
+
+        final BitSet used = new BitSet();
+
+        int[] base = new int[1024];
+
+        int[] check = new int[1024];
+
+        private int firstFree = 1;
+
+        int length = 1;
+
+        Layout() {
+            Arrays.fill(check, UNUSED);
+            used.set(ROOT);
+        }
+
+        /**
+         * Finds the smallest base for which every transition lands on a free
+         * slot, searching only the last {@link #SEARCH_WINDOW} slots below
+         * the end of the array. Free slots further down are those that no
+         * state has fit into for a long time; probing all of them again for
+         * every state made compiling quadratic in the number of states.
+         */
+        final int findBase(final char[] transitions) {
+            final char first = transitions[0];
+            int position = used.nextClearBit(Math.max(Math.max(firstFree, length - SEARCH_WINDOW), first + 1));
+
+            while (true) {
+                final int candidate = position - first;
+                if (fits(candidate, transitions)) {
+                    updateFirstFree();
+                    return candidate;
+                }
+                position = used.nextClearBit(position + 1);
+            }
+        }
+
+        private boolean fits(final int candidate, final char[] transitions) {
+            ensureCapacity(candidate + transitions[transitions.length - 1] + 1);
+            for (final char transition : transitions) {
+                if (used.get(candidate + transition)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void updateFirstFree() {
+            firstFree = used.nextClearBit(firstFree);
+        }
+
+        private void ensureCapacity(final int required) {
+            if (required > length) {
+                length = required;
+            }
+            if (required > check.length) {
+                final int capacity = Math.max(required, check.length * 2);
+                final int oldCapacity = check.length;
+                base = Arrays.copyOf(base, capacity);
+                check = Arrays.copyOf(check, capacity);
+                Arrays.fill(check, oldCapacity, capacity, UNUSED);
+            }
+        }
+    }
+
+    /**
+     * A layout that records the depth and the emits of every state as it is
+     * placed, and computes the failure and output links on the double array
+     * itself once all states are placed, so that no state object has to
+     * hold them. States are queued as runs of ints, whose meaning is up to
+     * the compiler.
+     */
+    private abstract static class Linker extends Layout {
+
+        /**
+         * the states in breadth-first order, in which they are linked
+         */
+        final IntList states = new IntList();
+
+        /**
+         * the number of emits of every emitting state, each followed by the
+         * indexes of its keywords
+         */
+        final IntList outputs = new IntList();
+
+        /**
+         * the depth of every placed state, by slot
+         */
+        int[] depth = new int[check.length];
+
+        /**
+         * the offset of the emits of every placed state in the outputs, by
+         * slot
+         */
+        private int[] output = new int[check.length];
+
+        private int[] failure;
+
+        private int[] outputLink;
+
+        private int[] chainLength;
+
+        private int[] queue = new int[1024];
+
+        private int head;
+
+        private int tail;
+
+        Linker() {
+            // Index 0 is shared by all states that emit nothing.
+            outputs.add(0);
+        }
+
+        /**
+         * Places the transitions of a state, see {@link #findBase(char[])}.
+         *
+         * @param slot    The slot of the state.
+         * @param symbols The classes of the transition characters, ascending.
+         * @return The base of the state.
+         */
+        final int place(final int slot, final char[] symbols) {
+            final int stateBase = findBase(symbols);
+            base[slot] = stateBase;
+            if (depth.length < check.length) {
+                depth = Arrays.copyOf(depth, check.length);
+                output = Arrays.copyOf(output, check.length);
+            }
+            for (final char symbol : symbols) {
+                final int next = stateBase + symbol;
+                check[next] = slot;
+                used.set(next);
+                depth[next] = depth[slot] + 1;
+            }
+            return stateBase;
+        }
+
+        /**
+         * Starts the emits of a state, whose keyword indexes are to be added
+         * to the {@link #outputs} next.
+         */
+        final void addOutput(final int slot, final int count) {
+            output[slot] = outputs.size();
+            outputs.add(count);
+        }
+
+        /**
+         * Appends a value to the queue, moving the values still queued to the
+         * front when more than half of the queue has been taken, so it only
+         * grows with the widest level.
+         */
+        final void enqueue(final int value) {
+            if (tail == queue.length) {
+                if (head >= queue.length / 2) {
+                    System.arraycopy(queue, head, queue, 0, tail - head);
+                    tail -= head;
+                    head = 0;
+                } else {
+                    queue = Arrays.copyOf(queue, queue.length * 2);
+                }
+            }
+            queue[tail++] = value;
+        }
+
+        final int dequeue() {
+            return queue[head++];
+        }
+
+        final boolean hasQueued() {
+            return head < tail;
+        }
+
+        /**
+         * Computes the failure and output links one depth at a time, so that
+         * the links of the shallower states are known first, and creates the
+         * automaton.
+         *
+         * @param alphabet   The classes of the transition characters.
+         * @param keywords   The keywords, by index.
+         * @param priorities The priority of every keyword.
+         * @param pool       The pool to link the wider depths on, or
+         *                   {@code null} to link on the calling thread.
+         * @param <T>        The type of the emitted payloads.
+         * @return The automaton.
+         */
+        final <T> DoubleArrayTrie<T> link(final CharClasses alphabet, final KeywordTable<T> keywords,
+                                          final int[] priorities, final ForkJoinPool pool) {
+            queue = null;
+            failure = new int[length];
+            outputLink = new int[length];
+            chainLength = new int[length];
+
+            // Breadth-first order lists the states of a depth one after another.
+            int from = 0;
+            while (from < states.size()) {
+                final int level = depth[states.get(from)];
+                int to = from + 1;
+                while (to < states.size() && depth[states.get(to)] == level) {
+                    to++;
+                }
+                if (pool != null && to - from > MIN_PARALLEL_STATES) {
+                    pool.invoke(new LinkStates(from, to));
+                } else {
+                    linkStates(from, to);
+                }
+                from = to;
+            }
+
+            int maxEmits = 0;
+            for (final int emits : chainLength) {
+                maxEmits = Math.max(maxEmits, emits);
+            }
+
+            return new Heap<>(
+                    Arrays.copyOf(base, length),
+                    Arrays.copyOf(check, length),
+                    failure,
+                    Arrays.copyOf(output, length),
+                    outputs.toArray(),
+                    outputLink,
+                    alphabet,
+                    null,
+                    Arrays.copyOf(depth, length),
+                    keywords,
+                    priorities,
+                    maxEmits);
+        }
+
+        /**
+         * Links a range of states of the same depth: the failure of a state
+         * is found by following the failures of its parent until one has a
+         * transition on the same symbol.
+         */
+        private void linkStates(final int from, final int to) {
+            for (int index = from; index < to; index++) {
+                final int slot = states.get(index);
+
+                if (slot != ROOT && check[slot] != ROOT) {
+                    final int symbol = slot - base[check[slot]];
+                    int state = failure[check[slot]];
+                    while (true) {
+                        final int next = base[state] + symbol;
+                        if (next < length && check[next] == state) {
+                            failure[slot] = next;
+                            break;
+                        }
+                        if (state == ROOT) {
+                            break;
+                        }
+                        state = failure[state];
+                    }
+                    final int failState = failure[slot];
+                    outputLink[slot] = output[failState] != 0 ? failState : outputLink[failState];
+                }
+
+                chainLength[slot] = outputs.get(output[slot]) + chainLength[outputLink[slot]];
+            }
+        }
+
+        /**
+         * Links a range of states of the same depth, split among the tasks
+         * of a pool.
+         */
+        private final class LinkStates extends RecursiveAction {
+
+            private final int from;
+
+            private final int to;
+
+            private LinkStates(final int from, final int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > MIN_PARALLEL_STATES) {
+                    final int middle = (from + to) >>> 1;
+                    invokeAll(new LinkStates(from, middle), new LinkStates(middle, to));
+                } else {
+                    linkStates(from, to);
+                }
+            }
+        }
+    }
+
+    /**
+     * Places the states of a {@link CompressedState} graph into the double
+     * array in breadth-first order, after mapping the characters of its
+     * segments to their classes: every state within the segment of a node
+     * is queued with the node and its position in the segment, and gets a
+     * slot and links of its own like any other state.
+     */
+    private static final class CompressedCompiler<T> extends Linker {
+
+        private final CompressedState<T> rootState;
+
+        private final Map<Payload<T>, Integer> insertionOrder;
+
+        private final CaseFolding caseFolding;
+
+        private final ForkJoinPool pool;
+
+        private CompressedCompiler(final CompressedState<T> rootState, final Map<Payload<T>, Integer> insertionOrder,
+                                   final CaseFolding caseFolding, final ForkJoinPool pool) {
+            this.rootState = rootState;
+            this.insertionOrder = insertionOrder;
+            this.caseFolding = caseFolding;
+            this.pool = pool;
+        }
+
+        @SuppressWarnings("unchecked")
+        private DoubleArrayTrie<T> compile() {
+            final BitSet characters = new BitSet();
+            final List<Payload<T>> emitted = new ArrayList<>();
+            final Queue<CompressedState<T>> nodes = new ArrayDeque<>();
+            nodes.add(rootState);
+            while (!nodes.isEmpty()) {
+                final CompressedState<T> node = nodes.remove();
+                for (final char character : node.getSegment()) {
+                    characters.set(character);
+                }
+                emitted.addAll(node.emit());
+                nodes.addAll(node.getStates());
+            }
+            final CharClasses alphabet = CharClasses.of(characters, caseFolding);
+
+            final Payload<T>[] payloads = emitted.toArray(new Payload[0]);
+            Arrays.sort(payloads);
+            final int[] priorities = new int[payloads.length];
+            final Map<Payload<T>, Integer> indexes = new IdentityHashMap<>();
+            for (int i = 0; i < payloads.length; i++) {
+                indexes.put(payloads[i], i);
+                priorities[i] = insertionOrder.get(payloads[i]);
+            }
+
+            // Every queued state comes with its position in the segment of
+            // its node; the root is at the end of its empty segment.
+            nodes.add(rootState);
+            enqueue(ROOT);
+            enqueue(0);
+            final char[] single = new char[1];
+
+            while (hasQueued()) {
+                final CompressedState<T> node = nodes.remove();
+                final int slot = dequeue();
+                final int position = dequeue();
+                states.add(slot);
+
+                final char[] segment = node.getSegment();
+                if (position < segment.length) {
+                    single[0] = alphabet.classOf(segment[position]);
+                    nodes.add(node);
+                    enqueue(place(slot, single) + single[0]);
+                    enqueue(position + 1);
+                    continue;
+                }
+
+                final Collection<Payload<T>> emits = node.emit();
+                if (!emits.isEmpty()) {
+                    addOutput(slot, emits.size());
+                    for (final Payload<T> emit : emits) {
+                        outputs.add(indexes.get(emit));
+                    }
+                }
+
+                final List<CompressedState<T>> children = node.getStates();
+                if (children.isEmpty()) {
+                    continue;
+                }
+                final char[] symbols = new char[children.size()];
+                for (int i = 0; i < symbols.length; i++) {
+                    symbols[i] = alphabet.classOf(children.get(i).getSegment()[0]);
+                }
+                final int stateBase = place(slot, symbols);
+                for (int i = 0; i < symbols.length; i++) {
+                    nodes.add(children.get(i));
+                    enqueue(stateBase + symbols[i]);
+                    enqueue(1);
+                }
+            }
+
+            return link(alphabet, KeywordTable.of(payloads), priorities, pool);
+        }
+    }
+
+    /**
+     * Places the states of the trie of sorted keywords into the double array,
+     * in the breadth-first order of {@link CompressedCompiler}. Every state
+     * stands for a range of the keywords sorted by their folded characters,
+     * those that start with the path to the state: the children of the state
+     * split the range, and the keywords that end in the state sort before
+     * them. The failure links are then computed on the double array itself,
+     * so no state objects are allocated.
+     */
+    private static final class SortedCompiler<T> extends Linker {
+
+        private final char[] characters;
+
+        private final int[] offsets;
+
+        private final T[] data;
+
+        private final int[] priorities;
+
+        private final CaseFolding caseFolding;
+
+        private final char[] fold;
+
+        private SortedCompiler(final char[] characters, final int[] offsets, final T[] data,
+                               final int[] priorities, final CaseFolding caseFolding) {
+            this.characters = characters;
+            this.offsets = offsets;
+            this.data = data;
+            this.priorities = priorities;
+            this.caseFolding = caseFolding;
+            this.fold = caseFolding.table();
+        }
+
+        private DoubleArrayTrie<T> compile() {
+            final int count = offsets.length - 1;
+            final BitSet folded = new BitSet();
+            for (int i = 0; i < offsets[count]; i++) {
+                folded.set(fold[characters[i]]);
+            }
+            final CharClasses alphabet = CharClasses.of(folded, caseFolding);
+            final int[] order = sortByFoldedKeyword(count);
+
+            // Every queued state comes with the range of its keywords.
+            enqueue(ROOT);
+            enqueue(0);
+            enqueue(count);
+
+            char[] transitions = new char[16];
+            int[] childFroms = new int[17];
+
+            while (hasQueued()) {
+                final int slot = dequeue();
+                int from = dequeue();
+                final int to = dequeue();
+                states.add(slot);
+
+                // The keywords that end in this state sort before the others.
+                final int emitStart = from;
+                while (from < to && length(order[from]) == depth[slot]) {
+                    from++;
+                }
+                if (from > emitStart) {
+                    addOutput(slot, from - emitStart);
+                    for (int i = emitStart; i < from; i++) {
+                        outputs.add(order[i]);
+                    }
+                }
+
+                int transitionCount = 0;
+                for (int i = from; i < to; ) {
+                    final char transition = foldedCharAt(order[i], depth[slot]);
+                    if (transitionCount == transitions.length) {
+                        transitions = Arrays.copyOf(transitions, transitionCount * 2);
+                        childFroms = Arrays.copyOf(childFroms, transitionCount * 2 + 1);
+                    }
+                    transitions[transitionCount] = transition;
+                    childFroms[transitionCount++] = i;
+                    do {
+                        i++;
+                    } while (i < to && foldedCharAt(order[i], depth[slot]) == transition);
+                }
+                if (transitionCount == 0) {
+                    continue;
+                }
+                childFroms[transitionCount] = to;
+
+                final char[] symbols = new char[transitionCount];
+                for (int i = 0; i < transitionCount; i++) {
+                    symbols[i] = alphabet.classOf(transitions[i]);
+                }
+
+                final int stateBase = place(slot, symbols);
+                for (int i = 0; i < transitionCount; i++) {
+                    enqueue(stateBase + symbols[i]);
+                    enqueue(childFroms[i]);
+                    enqueue(childFroms[i + 1]);
+                }
+            }
+
+            return link(alphabet,
+                    KeywordTable.of(IntTable.of(Arrays.copyOf(offsets, count + 1)),
+                            CharBuffer.wrap(characters, 0, offsets[count]), data),
+                    priorities,
+                    null);
+        }
+
+        private int length(final int keyword) {
+            return offsets[keyword + 1] - offsets[keyword];
+        }
+
+        private char foldedCharAt(final int keyword, final int index) {
+            return fold[characters[offsets[keyword] + index]];
+        }
+
+        /**
+         * Returns the keywords ordered by their folded characters, which is
+         * the order they are sorted in already unless they are folded.
+         * Keywords that fold to the same characters keep their order.
+         */
+        private int[] sortByFoldedKeyword(final int count) {
+            final int[] order = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            if (caseFolding != CaseFolding.NONE) {
+                mergeSort(order, new int[count], 0, count);
+            }
+            return order;
+        }
+
+        private void mergeSort(final int[] order, final int[] buffer, final int from, final int to) {
+            if (to - from < 2) {
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            mergeSort(order, buffer, from, middle);
+            mergeSort(order, buffer, middle, to);
+            if (compareFolded(order[middle - 1], order[middle]) <= 0) {
+                return;
+            }
+
+            System.arraycopy(order, from, buffer, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right == to || left < middle && compareFolded(buffer[left], buffer[right]) <= 0) {
+                    order[i] = buffer[left++];
+                } else {
+                    order[i] = buffer[right++];
+                }
+            }
+        }
+
+        private int compareFolded(final int first, final int second) {
+            final int firstLength = length(first);
+            final int secondLength = length(second);
+            for (int i = 0; i < Math.min(firstLength, secondLength); i++) {
+                final char a = foldedCharAt(first, i);
+                final char b = foldedCharAt(second, i);
+                if (a != b) {
+                    return a - b;
+                }
+            }
+            return firstLength != secondLength ? firstLength - secondLength : first - second;
+        }
+    }
+
+    /**
+     * An automaton with its arrays on the heap, which every compiled or read
+     * automaton is. The scan methods are repeated here to read the arrays
+     * directly instead of through their tables, which saves a dependent load
+     * on every lookup of the failure loop.
+     */
+    private static final class Heap<T> extends DoubleArrayTrie<T> {
+
+        private final int[] base;
+
+        private final int[] check;
+
+        private final int[] failure;
+
+        private final int[] output;
+
+        private final int[] outputs;
+
+        private final int[] outputLink;
+
+        private final int[] depth;
+
+        private final int[] priorities;
+
+        private final CharClasses alphabet;
+
+        private final int[] delta;
+
+        private Heap(
+                final int[] base,
+                final int[] check,
+                final int[] failure,
+                final int[] output,
+                final int[] outputs,
+                final int[] outputLink,
+                final CharClasses alphabet,
+                final int[] delta,
+                final int[] depth,
+                final KeywordTable<T> keywords,
+                final int[] priorities,
+                final int maxEmits) {
+            super(IntTable.of(base), IntTable.of(check), IntTable.of(failure), IntTable.of(output),
+                    IntTable.of(outputs), IntTable.of(outputLink), alphabet, delta, IntTable.of(depth), keywords,
+                    IntTable.of(priorities), maxEmits);
+            this.base = base;
+            this.check = check;
+            this.failure = failure;
+            this.output = output;
+            this.outputs = outputs;
+            this.outputLink = outputLink;
+            this.depth = depth;
+            this.priorities = priorities;
+            this.alphabet = alphabet;
+            this.delta = delta;
+        }
+
+        @Override
+        int nextState(int state, final char character) {
+            final char symbol = alphabet.classOf(character);
+            if (delta != null) {
+                return delta[state * alphabet.size() + symbol];
+            }
+
+            while (true) {
+                final int next = base[state] + symbol;
+
+                if (next < check.length && check[next] == state) {
+                    return next;
+                }
+
+                if (state == ROOT) {
+                    return ROOT;
+                }
+
+                state = failure[state];
+            }
+        }
+
+        @Override
+        int collectEmits(final int state, final int[] buffer) {
+            int count = 0;
+            int current = outputs[output[state]] > 0 ? state : outputLink[state];
+
+            while (current != ROOT) {
+                final int offset = output[current];
+                final int size = outputs[offset];
+                for (int i = 1; i <= size; i++) {
+                    insertSorted(buffer, count++, outputs[offset + i]);
+                }
+                current = outputLink[current];
+            }
+
+            return count;
+        }
+
+        @Override
+        int depth(final int state) {
+            return depth[state];
+        }
+
+        @Override
+        DoubleArrayTrie<T> withDelta(final int[] table) {
+            return new Heap<>(base, check, failure, output, outputs, outputLink, alphabet, table, depth,
+                    keywords(), priorities, maxEmits());
+        }
+    }
+
+    /**
+     * Minimal growable list of primitive ints.
+     */
+    static final class IntList {
+
+        private int[] values = new int[16];
+
+        private int size;
+
+        void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(final int index) {
+            return values[index];
+        }
+
+        int removeLast() {
+            return values[--size];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,906 @@
+package org.ahocorasick.trie;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+import org.ahocorasick.trie.DoubleArrayTrie.IntList;
+
+/**
+ * <p>
+ * An automaton whose keywords are added and removed after it was compiled,
+ * by patching a {@link DoubleArrayTrie} rather than compiling the keywords
+ * again. The slots of the double array keep their numbers, and the states an
+ * edit adds are numbered after them. Transitions, failure links, output
+ * links and emits are read from the double array, except for the states
+ * whose values an edit changed.
+ * </p>
+ * <p>
+ * Adding a keyword adds the states of its prefixes that are missing. Each of
+ * them fails to the longest suffix already in the trie, found as when
+ * building, and takes over the states that failed to that same suffix and
+ * end with the new state, which are the only ones whose failure link
+ * changes. Output links only change on the failure tree below the state the
+ * keyword ends in, and only down to the states that emit keywords of their
+ * own. Removing a keyword undoes this, dropping the states that no longer
+ * lead to a keyword. An edit therefore costs time in proportion to the
+ * states whose links it changes, however large the trie.
+ * </p>
+ * <p>
+ * Finding the states that fail to a state takes the failure tree inverted,
+ * which is indexed once for every compiled automaton that is edited, in time
+ * and memory proportional to its size; automata that were edited before
+ * share the index of theirs.
+ * </p>
+ * <p>
+ * Edits are persistent. The tables are split into pages, which
+ * {@link #copy()} shares between the copy and the original; either of them
+ * copies a page before it writes to it for the first time. A copy therefore
+ * only costs the page directories, and the automaton of a built trie never
+ * changes once it is built.
+ * </p>
+ * <p>
+ * The payloads of added keywords are numbered after the existing ones. When
+ * a keyword is removed, the payload with the last index takes its index, so
+ * indexes stay dense. Emits are ordered by keyword, like those of a compiled
+ * automaton, and the priorities follow the order of the edits, so every scan
+ * finds what it would find in an automaton compiled from the same keywords,
+ * in the same order. The failure links are followed while scanning, even if
+ * the trie was built deterministic.
+ * </p>
+ *
+ * @param <T> The type of the emitted payloads.
+ */
+final class EditableAutomaton<T> extends Automaton<T> {
+
+    private static final int PAGE_BITS = 10;
+
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    private final DoubleArrayTrie<T> base;
+
+    private final CaseFolding caseFolding;
+
+    /**
+     * the folded form of every character, see {@link CaseFolding#table()}
+     */
+    private final char[] fold;
+
+    /**
+     * the transitions of the states whose transitions differ from those in
+     * the double array, and of the added states that have any
+     */
+    private final Refs<Transitions> transitions;
+
+    /**
+     * the payload indexes emitted by the states whose own emits differ from
+     * those in the double array
+     */
+    private final Refs<int[]> emits;
+
+    /**
+     * the state a state is a transition of
+     */
+    private final Ints parent;
+
+    private final Ints failure;
+
+    private final Ints outputLink;
+
+    private final Ints depth;
+
+    /**
+     * the first of the states that fail to a state, or {@link #ROOT} if none
+     * does; the root itself never fails to anything
+     */
+    private final Ints firstFailing;
+
+    /**
+     * the next and the previous state that fail to the same state as a
+     * state, or {@link #ROOT} at either end
+     */
+    private final Ints nextFailing;
+
+    private final Ints previousFailing;
+
+    /**
+     * the payloads whose index differs from the one in the double array, and
+     * those of the added keywords
+     */
+    private final Refs<Payload<T>> payloads;
+
+    private final Ints priorities;
+
+    /**
+     * the folded characters the root state has a transition on, replaced
+     * rather than changed
+     */
+    private BitSet starts;
+
+    /**
+     * the folded characters of added transitions that occur in no keyword
+     * of the double array, replaced rather than changed
+     */
+    private BitSet addedCharacters;
+
+    /**
+     * the number of slots and added states, which bounds the state numbers
+     */
+    private int size;
+
+    private int payloadCount;
+
+    /**
+     * the priority of the next keyword that is added, after all others
+     */
+    private int nextPriority;
+
+    private int maxEmits;
+
+    private int maxKeywordLength;
+
+    private EditableAutomaton(final DoubleArrayTrie<T> base, final CaseFolding caseFolding) {
+        this.base = base;
+        this.caseFolding = caseFolding;
+        this.fold = caseFolding.table();
+
+        final int slots = base.size();
+        this.transitions = new Refs<>(slots);
+        this.emits = new Refs<>(slots);
+        this.parent = new Ints(base::parent, slots, slots);
+        this.failure = new Ints(base::failure, slots, slots);
+        this.outputLink = new Ints(base::outputLink, slots, slots);
+        this.depth = new Ints(base::depth, slots, slots);
+        this.firstFailing = new Ints(null, 0, slots);
+        this.nextFailing = new Ints(null, 0, slots);
+        this.previousFailing = new Ints(null, 0, slots);
+        for (int slot = 1; slot < slots; slot++) {
+            if (base.isState(slot)) {
+                link(slot, base.failure(slot));
+            }
+        }
+
+        this.payloadCount = base.payloadCount();
+        this.payloads = new Refs<>(payloadCount);
+        this.priorities = new Ints(base::priority, payloadCount, payloadCount);
+        for (int i = 0; i < payloadCount; i++) {
+            nextPriority = Math.max(nextPriority, base.priority(i) + 1);
+        }
+
+        final char[] characters = new char[base.alphabetSize()];
+        final int[] targets = new int[characters.length];
+        this.starts = new BitSet();
+        for (int i = base.transitions(ROOT, characters, targets) - 1; i >= 0; i--) {
+            starts.set(characters[i]);
+        }
+        this.addedCharacters = new BitSet();
+        this.size = slots;
+        this.maxEmits = base.maxEmits();
+        this.maxKeywordLength = base.maxKeywordLength();
+    }
+
+    private EditableAutomaton(final EditableAutomaton<T> other) {
+        this.base = other.base;
+        this.caseFolding = other.caseFolding;
+        this.fold = other.fold;
+        this.transitions = other.transitions.share();
+        this.emits = other.emits.share();
+        this.parent = other.parent.share();
+        this.failure = other.failure.share();
+        this.outputLink = other.outputLink.share();
+        this.depth = other.depth.share();
+        this.firstFailing = other.firstFailing.share();
+        this.nextFailing = other.nextFailing.share();
+        this.previousFailing = other.previousFailing.share();
+        this.payloads = other.payloads.share();
+        this.priorities = other.priorities.share();
+        this.starts = other.starts;
+        this.addedCharacters = other.addedCharacters;
+        this.size = other.size;
+        this.payloadCount = other.payloadCount;
+        this.nextPriority = other.nextPriority;
+        this.maxEmits = other.maxEmits;
+        this.maxKeywordLength = other.maxKeywordLength;
+    }
+
+    /**
+     * Starts editing an automaton, which is left as it is.
+     *
+     * @param automaton   The automaton of a trie.
+     * @param caseFolding The folding the automaton was compiled with.
+     * @param <T>         The type of the emitted payloads.
+     * @return An automaton to edit, with the keywords of the given one.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> EditableAutomaton<T> of(final Automaton<T> automaton, final CaseFolding caseFolding) {
+        if (automaton instanceof EditableAutomaton) {
+            return ((EditableAutomaton<T>) automaton).copy();
+        }
+        return new EditableAutomaton<>((DoubleArrayTrie<T>) automaton, caseFolding);
+    }
+
+    /**
+     * Copies this automaton, sharing all pages of its tables with the copy.
+     * Edits of either one do not affect the other.
+     *
+     * @return The copy.
+     */
+    EditableAutomaton<T> copy() {
+        return new EditableAutomaton<>(this);
+    }
+
+    /**
+     * Adds a keyword, unless it was added before, in which case it keeps its
+     * payload and its priority.
+     *
+     * @param keyword The keyword, which must not be empty.
+     * @param data    The payload of the keyword.
+     * @return {@code true} if the keyword was added.
+     */
+    boolean add(final String keyword, final T data) {
+        int state = ROOT;
+        for (int i = 0; i < keyword.length(); i++) {
+            final char character = fold[keyword.charAt(i)];
+            int next = child(state, character);
+            if (next == ROOT) {
+                next = addState(state, character);
+            }
+            state = next;
+        }
+        if (indexOf(state, keyword) >= 0) {
+            return false;
+        }
+
+        final int index = payloadCount++;
+        payloads.set(index, new Payload<>(keyword, data));
+        priorities.set(index, nextPriority++);
+        final int[] own = emitsOf(state);
+        final int[] added = Arrays.copyOf(own, own.length + 1);
+        added[own.length] = index;
+        emits.set(state, added);
+        if (own.length == 0) {
+            relinkBelow(state);
+        }
+
+        // Every output chain gains at most the one payload.
+        maxEmits = Math.min(maxEmits + 1, payloadCount);
+        maxKeywordLength = Math.max(maxKeywordLength, keyword.length());
+        return true;
+    }
+
+    /**
+     * Removes a keyword, if it was added.
+     *
+     * @param keyword The keyword, exactly as it was added.
+     * @return {@code true} if the keyword was removed.
+     */
+    boolean remove(final String keyword) {
+        final int state = find(keyword);
+        final int position = state == ROOT ? -1 : indexOf(state, keyword);
+        if (position < 0) {
+            return false;
+        }
+
+        final int[] own = emitsOf(state);
+        final int index = own[position];
+        final int[] remaining = new int[own.length - 1];
+        System.arraycopy(own, 0, remaining, 0, position);
+        System.arraycopy(own, position + 1, remaining, position, remaining.length - position);
+        emits.set(state, remaining);
+        if (remaining.length == 0) {
+            relinkBelow(state);
+        }
+
+        final int last = --payloadCount;
+        if (index != last) {
+            final Payload<T> moved = payload(last);
+            payloads.set(index, moved);
+            priorities.set(index, priorities.get(last));
+            final int movedState = find(moved.getKeyword());
+            final int[] movedEmits = emitsOf(movedState).clone();
+            for (int i = 0; i < movedEmits.length; i++) {
+                if (movedEmits[i] == last) {
+                    movedEmits[i] = index;
+                }
+            }
+            emits.set(movedState, movedEmits);
+        }
+        payloads.set(last, null);
+
+        prune(state, keyword);
+        maxEmits = Math.min(maxEmits, payloadCount);
+        return true;
+    }
+
+    /**
+     * Adds a transition to a new state, which emits nothing yet, and links
+     * it into the failure tree.
+     */
+    private int addState(final int parentState, final char character) {
+        final int state = size++;
+        int failureState = ROOT;
+        if (parentState != ROOT) {
+            int trace = failure.get(parentState);
+            while (trace != ROOT && child(trace, character) == ROOT) {
+                trace = failure.get(trace);
+            }
+            failureState = child(trace, character);
+        }
+
+        parent.set(state, parentState);
+        depth.set(state, depth.get(parentState) + 1);
+        failure.set(state, failureState);
+        outputLink.set(state, emitsAnything(failureState) ? failureState : outputLink.get(failureState));
+        firstFailing.set(state, ROOT);
+
+        // Only states that failed to the same state can have the new one as
+        // their longest suffix in the trie. They keep their output links,
+        // since the new state emits nothing.
+        final IntList takenOver = new IntList();
+        for (int other = firstFailing.get(failureState); other != ROOT; other = nextFailing.get(other)) {
+            if (endsWith(other, parentState, character)) {
+                takenOver.add(other);
+            }
+        }
+        for (int i = 0; i < takenOver.size(); i++) {
+            unlink(takenOver.get(i));
+            failure.set(takenOver.get(i), state);
+            link(takenOver.get(i), state);
+        }
+        link(state, failureState);
+
+        setTransitions(parentState, transitionsOf(parentState).with(character, state));
+        if (!base.hasCharacter(character) && !addedCharacters.get(character)) {
+            addedCharacters = (BitSet) addedCharacters.clone();
+            addedCharacters.set(character);
+        }
+        return state;
+    }
+
+    /**
+     * Tells whether a state ends with the path to another state followed by
+     * a character, which is the case if its parent has the path as a suffix
+     * and it is reached on that character.
+     */
+    private boolean endsWith(final int state, final int parentState, final char character) {
+        final int stateParent = parent.get(state);
+        if (child(stateParent, character) != state) {
+            return false;
+        }
+        int trace = stateParent;
+        while (depth.get(trace) > depth.get(parentState)) {
+            trace = failure.get(trace);
+        }
+        return trace == parentState;
+    }
+
+    /**
+     * Drops the states on the path of a removed keyword that lead to no
+     * keyword anymore, from its last state upwards. The states that failed
+     * to a dropped state fail to its failure state instead; their output
+     * links stay the same, since the dropped state emitted nothing.
+     */
+    private void prune(final int state, final String keyword) {
+        int current = state;
+        while (current != ROOT && !emitsAnything(current) && transitionsOf(current).size() == 0) {
+            final int parentState = parent.get(current);
+            final char character = fold[keyword.charAt(depth.get(current) - 1)];
+            setTransitions(parentState, transitionsOf(parentState).without(character));
+
+            final int failureState = failure.get(current);
+            unlink(current);
+            final IntList failing = new IntList();
+            for (int other = firstFailing.get(current); other != ROOT; other = nextFailing.get(other)) {
+                failing.add(other);
+            }
+            for (int i = 0; i < failing.size(); i++) {
+                failure.set(failing.get(i), failureState);
+                link(failing.get(i), failureState);
+            }
+            firstFailing.set(current, ROOT);
+            current = parentState;
+        }
+    }
+
+    /**
+     * Updates the output links on the failure tree below a state whose emits
+     * changed from none to some or back. A state that emits anything ends
+     * the walk, since the states below it link to it.
+     */
+    private void relinkBelow(final int state) {
+        final IntList pending = new IntList();
+        pending.add(state);
+        while (pending.size() > 0) {
+            final int current = pending.removeLast();
+            final int link = emitsAnything(current) ? current : outputLink.get(current);
+            for (int other = firstFailing.get(current); other != ROOT; other = nextFailing.get(other)) {
+                if (outputLink.get(other) != link) {
+                    outputLink.set(other, link);
+                    if (!emitsAnything(other)) {
+                        pending.add(other);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a state to the states that fail to another.
+     */
+    private void link(final int state, final int failureState) {
+        final int first = firstFailing.get(failureState);
+        nextFailing.set(state, first);
+        previousFailing.set(state, ROOT);
+        if (first != ROOT) {
+            previousFailing.set(first, state);
+        }
+        firstFailing.set(failureState, state);
+    }
+
+    /**
+     * Removes a state from the states that fail to its failure state.
+     */
+    private void unlink(final int state) {
+        final int previous = previousFailing.get(state);
+        final int next = nextFailing.get(state);
+        if (previous == ROOT) {
+            firstFailing.set(failure.get(state), next);
+        } else {
+            nextFailing.set(previous, next);
+        }
+        if (next != ROOT) {
+            previousFailing.set(next, previous);
+        }
+    }
+
+    /**
+     * Finds the state a keyword ends in.
+     *
+     * @return The state, or {@link #ROOT} if the trie has no such path.
+     */
+    private int find(final String keyword) {
+        int state = ROOT;
+        for (int i = 0; i < keyword.length() && (state != ROOT || i == 0); i++) {
+            state = child(state, fold[keyword.charAt(i)]);
+        }
+        return state;
+    }
+
+    /**
+     * Finds the position of a keyword among the emits of a state.
+     *
+     * @return The position, or -1 if the state does not emit the keyword.
+     */
+    private int indexOf(final int state, final String keyword) {
+        final int count = emitCount(state);
+        for (int i = 0; i < count; i++) {
+            if (keyword.equals(keyword(emit(state, i)))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Looks up the goto function alone, without falling back on the failure
+     * function.
+     *
+     * @return The next state, or {@link #ROOT} if there is no transition.
+     */
+    private int child(final int state, final char character) {
+        final Transitions own = transitions.get(state);
+        if (own != null) {
+            return own.get(character);
+        }
+        return state < base.size() ? base.child(state, character) : ROOT;
+    }
+
+    private Transitions transitionsOf(final int state) {
+        final Transitions own = transitions.get(state);
+        if (own != null) {
+            return own;
+        }
+        if (state >= base.size()) {
+            return Transitions.NONE;
+        }
+        final char[] characters = new char[base.alphabetSize()];
+        final int[] targets = new int[characters.length];
+        final int count = base.transitions(state, characters, targets);
+        return new Transitions(Arrays.copyOf(characters, count), Arrays.copyOf(targets, count));
+    }
+
+    private void setTransitions(final int state, final Transitions changed) {
+        transitions.set(state, changed);
+        if (state == ROOT) {
+            starts = new BitSet();
+            for (final char character : changed.characters) {
+                starts.set(character);
+            }
+        }
+    }
+
+    private boolean emitsAnything(final int state) {
+        return emitCount(state) > 0;
+    }
+
+    private int emitCount(final int state) {
+        final int[] own = emits.get(state);
+        if (own != null) {
+            return own.length;
+        }
+        return state < base.size() ? base.emitCount(state) : 0;
+    }
+
+    private int emit(final int state, final int i) {
+        final int[] own = emits.get(state);
+        return own != null ? own[i] : base.emit(state, i);
+    }
+
+    private int[] emitsOf(final int state) {
+        final int[] own = emits.get(state);
+        if (own != null) {
+            return own;
+        }
+        final int[] result = new int[emitCount(state)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = base.emit(state, i);
+        }
+        return result;
+    }
+
+    @Override
+    int nextState(int state, final char character) {
+        final char folded = fold[character];
+        while (true) {
+            final int next = child(state, folded);
+
+            if (next != ROOT) {
+                return next;
+            }
+
+            if (state == ROOT) {
+                return ROOT;
+            }
+
+            state = failure.get(state);
+        }
+    }
+
+    @Override
+    boolean isStart(final char character) {
+        return starts.get(fold[character]);
+    }
+
+    @Override
+    int skipToStart(final CharSequence text, final int from, final int to) {
+        int position = from;
+        while (position < to && !isStart(text.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    @Override
+    int collectEmits(final int state, final int[] buffer) {
+        int count = 0;
+        int current = emitsAnything(state) ? state : outputLink.get(state);
+
+        while (current != ROOT) {
+            final int size = emitCount(current);
+            for (int i = 0; i < size; i++) {
+                insertSorted(buffer, count++, emit(current, i));
+            }
+            current = outputLink.get(current);
+        }
+
+        return count;
+    }
+
+    /**
+     * Inserts a payload index by its keyword, since the indexes of an edited
+     * automaton are not sorted.
+     */
+    private void insertSorted(final int[] buffer, int count, final int index) {
+        final String keyword = keyword(index);
+        while (count > 0 && keyword(buffer[count - 1]).compareTo(keyword) > 0) {
+            buffer[count] = buffer[count - 1];
+            count--;
+        }
+        buffer[count] = index;
+    }
+
+    @Override
+    Payload<T> payload(final int index) {
+        final Payload<T> own = payloads.get(index);
+        return own != null ? own : base.payload(index);
+    }
+
+    @Override
+    String keyword(final int index) {
+        final Payload<T> own = payloads.get(index);
+        return own != null ? own.getKeyword() : base.keyword(index);
+    }
+
+    @Override
+    int keywordLength(final int index) {
+        final Payload<T> own = payloads.get(index);
+        return own != null ? own.getKeyword().length() : base.keywordLength(index);
+    }
+
+    @Override
+    T data(final int index) {
+        final Payload<T> own = payloads.get(index);
+        return own != null ? own.getData() : base.data(index);
+    }
+
+    @Override
+    int priority(final int index) {
+        return priorities.get(index);
+    }
+
+    @Override
+    int depth(final int state) {
+        return depth.get(state);
+    }
+
+    @Override
+    int payloadCount() {
+        return payloadCount;
+    }
+
+    @Override
+    int maxEmits() {
+        return maxEmits;
+    }
+
+    @Override
+    int maxKeywordLength() {
+        return maxKeywordLength;
+    }
+
+    @Override
+    boolean isDeterministic() {
+        return false;
+    }
+
+    /**
+     * Returns the number of bytes a complete transition table would take,
+     * counting the states that were dropped and the characters that are no
+     * longer used, since both keep their numbers.
+     *
+     * @return The size of the table, which is never built.
+     */
+    @Override
+    long deterministicTableBytes() {
+        return (long) size * (base.alphabetSize() + addedCharacters.cardinality()) * Integer.BYTES;
+    }
+
+    /**
+     * Returns this automaton, which follows the failure links while scanning
+     * since a complete transition table could not be patched.
+     *
+     * @param stateBudget Ignored.
+     * @return This automaton.
+     */
+    @Override
+    Automaton<T> determinize(final int stateBudget) {
+        return this;
+    }
+
+    /**
+     * Writes the automaton compiled from the keywords, see {@link #compile()},
+     * so that it reads back like a trie built from them.
+     */
+    @Override
+    void writeTo(final DataOutputStream out, final PayloadCodec<? super T> codec) throws IOException {
+        compile().writeTo(out, codec);
+    }
+
+    /**
+     * Compiles the keywords into a double array of their own, added in the
+     * order of their priorities, which lays them out like the double array
+     * of a trie built from the same keywords.
+     *
+     * @return The compiled automaton.
+     */
+    DoubleArrayTrie<T> compile() {
+        final Integer[] order = new Integer[payloadCount];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(priorities.get(a), priorities.get(b)));
+
+        final CompressedState<T> rootState = new CompressedState<>();
+        final Map<Payload<T>, Integer> insertionOrder = new IdentityHashMap<>();
+        for (int i = 0; i < order.length; i++) {
+            final Payload<T> payload = payload(order[i]);
+            insertionOrder.put(payload, i);
+            rootState.insert(payload, 0, caseFolding);
+        }
+
+        return DoubleArrayTrie.compile(rootState, insertionOrder, caseFolding, null);
+    }
+
+    /**
+     * The transitions of a state, sorted by character. Instances are never
+     * changed, so they can be shared.
+     */
+    private static final class Transitions {
+
+        static final Transitions NONE = new Transitions(new char[0], new int[0]);
+
+        private final char[] characters;
+
+        private final int[] targets;
+
+        private Transitions(final char[] characters, final int[] targets) {
+            this.characters = characters;
+            this.targets = targets;
+        }
+
+        int size() {
+            return characters.length;
+        }
+
+        int get(final char character) {
+            final int i = Arrays.binarySearch(characters, character);
+            return i >= 0 ? targets[i] : ROOT;
+        }
+
+        Transitions with(final char character, final int target) {
+            final int i = -Arrays.binarySearch(characters, character) - 1;
+            final char[] newCharacters = new char[characters.length + 1];
+            final int[] newTargets = new int[targets.length + 1];
+            System.arraycopy(characters, 0, newCharacters, 0, i);
+            System.arraycopy(targets, 0, newTargets, 0, i);
+            newCharacters[i] = character;
+            newTargets[i] = target;
+            System.arraycopy(characters, i, newCharacters, i + 1, characters.length - i);
+            System.arraycopy(targets, i, newTargets, i + 1, targets.length - i);
+            return new Transitions(newCharacters, newTargets);
+        }
+
+        Transitions without(final char character) {
+            final int i = Arrays.binarySearch(characters, character);
+            final char[] newCharacters = new char[characters.length - 1];
+            final int[] newTargets = new int[targets.length - 1];
+            System.arraycopy(characters, 0, newCharacters, 0, i);
+            System.arraycopy(targets, 0, newTargets, 0, i);
+            System.arraycopy(characters, i + 1, newCharacters, i, newCharacters.length - i);
+            System.arraycopy(targets, i + 1, newTargets, i, newTargets.length - i);
+            return new Transitions(newCharacters, newTargets);
+        }
+    }
+
+    /**
+     * A table of {@code int} values in pages, which reads the values it was
+     * not given from the double array. A page is shared until it is written
+     * for the first time, see {@link #share()}.
+     */
+    private static final class Ints {
+
+        /**
+         * reads the values of the double array, or {@code null} if every
+         * value that is read is set first
+         */
+        private final IntUnaryOperator fallback;
+
+        /**
+         * the number of values the fallback has
+         */
+        private final int fallbackLength;
+
+        private int[][] pages;
+
+        /**
+         * whether a page was copied or created by this table, which may
+         * write to it
+         */
+        private boolean[] owned;
+
+        private Ints(final IntUnaryOperator fallback, final int fallbackLength, final int length) {
+            this.fallback = fallback;
+            this.fallbackLength = fallbackLength;
+            this.pages = new int[(length >>> PAGE_BITS) + 1][];
+            this.owned = new boolean[pages.length];
+        }
+
+        private Ints(final Ints other) {
+            this.fallback = other.fallback;
+            this.fallbackLength = other.fallbackLength;
+            this.pages = other.pages.clone();
+            this.owned = new boolean[pages.length];
+        }
+
+        int get(final int index) {
+            final int[] page = pages[index >>> PAGE_BITS];
+            if (page != null) {
+                return page[index & PAGE_MASK];
+            }
+            return index < fallbackLength ? fallback.applyAsInt(index) : 0;
+        }
+
+        void set(final int index, final int value) {
+            final int number = index >>> PAGE_BITS;
+            if (number >= pages.length) {
+                pages = Arrays.copyOf(pages, Math.max(number + 1, pages.length * 2));
+                owned = Arrays.copyOf(owned, pages.length);
+            }
+            if (!owned[number]) {
+                if (pages[number] != null) {
+                    pages[number] = pages[number].clone();
+                } else {
+                    final int[] page = new int[PAGE_MASK + 1];
+                    final int first = number << PAGE_BITS;
+                    for (int i = 0; i < page.length && first + i < fallbackLength; i++) {
+                        page[i] = fallback.applyAsInt(first + i);
+                    }
+                    pages[number] = page;
+                }
+                owned[number] = true;
+            }
+            pages[number][index & PAGE_MASK] = value;
+        }
+
+        /**
+         * Returns a copy of this table, after which neither writes to the
+         * pages they now share.
+         */
+        Ints share() {
+            Arrays.fill(owned, false);
+            return new Ints(this);
+        }
+    }
+
+    /**
+     * A table of references in pages, {@code null} where none was set, whose
+     * pages are shared like those of {@link Ints}.
+     */
+    private static final class Refs<E> {
+
+        private Object[][] pages;
+
+        private boolean[] owned;
+
+        private Refs(final int length) {
+            this.pages = new Object[(length >>> PAGE_BITS) + 1][];
+            this.owned = new boolean[pages.length];
+        }
+
+        private Refs(final Refs<E> other) {
+            this.pages = other.pages.clone();
+            this.owned = new boolean[pages.length];
+        }
+
+        @SuppressWarnings("unchecked")
+        E get(final int index) {
+            final int number = index >>> PAGE_BITS;
+            if (number >= pages.length || pages[number] == null) {
+                return null;
+            }
+            return (E) pages[number][index & PAGE_MASK];
+        }
+
+        void set(final int index, final E value) {
+            final int number = index >>> PAGE_BITS;
+            if (number >= pages.length) {
+                pages = Arrays.copyOf(pages, Math.max(number + 1, pages.length * 2));
+                owned = Arrays.copyOf(owned, pages.length);
+            }
+            if (!owned[number]) {
+                pages[number] = pages[number] == null ? new Object[PAGE_MASK + 1] : pages[number].clone();
+                owned[number] = true;
+            }
+            pages[number][index & PAGE_MASK] = value;
+        }
+
+        Refs<E> share() {
+            Arrays.fill(owned, false);
+            return new Refs<>(this);
+        }
+    }
+}
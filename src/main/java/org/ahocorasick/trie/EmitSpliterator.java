@@ -0,0 +1,53 @@
+package org.ahocorasick.trie;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator that scans for the next emit only when it is asked for one,
+ * so a stream over it stops scanning as soon as a short-circuiting operation
+ * is satisfied. The emits are encountered in the order of
+ * {@link PayloadTrie#parseText(CharSequence)}. It does not split, because a
+ * scan has to run from the start of the text.
+ *
+ * @param <T> The type of the emitted payloads.
+ */
+final class EmitSpliterator<T> implements Spliterator<PayloadEmit<T>> {
+
+    private final Matcher<T> matcher;
+
+    EmitSpliterator(final Matcher<T> matcher) {
+        this.matcher = matcher;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super PayloadEmit<T>> action) {
+        if (!matcher.find()) {
+            return false;
+        }
+        action.accept(new PayloadEmit<>(matcher.start(), matcher.end(), matcher.keyword(), matcher.payload()));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super PayloadEmit<T>> action) {
+        while (matcher.find()) {
+            action.accept(new PayloadEmit<>(matcher.start(), matcher.end(), matcher.keyword(), matcher.payload()));
+        }
+    }
+
+    @Override
+    public Spliterator<PayloadEmit<T>> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
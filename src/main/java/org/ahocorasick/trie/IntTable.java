@@ -0,0 +1,94 @@
+package org.ahocorasick.trie;
+
+import java.nio.IntBuffer;
+
+/**
+ * <p>
+ * A read-only array of {@code int} values, held either on the heap or in a
+ * buffer outside of it, such as a memory-mapped file. The arrays of a
+ * {@link DoubleArrayTrie} are tables, so the same automaton can scan either
+ * one.
+ * </p>
+ * <p>
+ * A process uses one kind of table for all of its tries as a rule, so the
+ * calls in the scan loops see a single implementation and are inlined.
+ * </p>
+ */
+abstract class IntTable {
+
+    /**
+     * Returns the value at an index.
+     *
+     * @param index The index, from zero up to {@link #length()}.
+     * @return The value.
+     */
+    abstract int get(int index);
+
+    /**
+     * Returns the number of values.
+     *
+     * @return The length of the table.
+     */
+    abstract int length();
+
+    /**
+     * Wraps an array, which must not be modified afterwards.
+     *
+     * @param values The values.
+     * @return A table over the array.
+     */
+    static IntTable of(final int[] values) {
+        return new HeapTable(values);
+    }
+
+    /**
+     * Wraps a buffer, which must not be modified afterwards.
+     *
+     * @param buffer The values, from index zero up to the limit.
+     * @return A table over the buffer.
+     */
+    static IntTable of(final IntBuffer buffer) {
+        return new BufferTable(buffer);
+    }
+
+    private static final class HeapTable extends IntTable {
+
+        private final int[] values;
+
+        private HeapTable(final int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int get(final int index) {
+            return values[index];
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+    }
+
+    private static final class BufferTable extends IntTable {
+
+        private final IntBuffer buffer;
+
+        private final int length;
+
+        private BufferTable(final IntBuffer buffer) {
+            this.buffer = buffer;
+            this.length = buffer.limit();
+        }
+
+        @Override
+        int get(final int index) {
+            return buffer.get(index);
+        }
+
+        @Override
+        int length() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.ahocorasick.trie;
+
+import org.ahocorasick.interval.Interval;
+
+/**
+ * A match that is held back while overlaps are resolved, identified by the id
+ * of its keyword instead of a keyword and payload.
+ */
+final class KeywordInterval extends Interval {
+
+    private final int keywordId;
+
+    KeywordInterval(final int start, final int end, final int keywordId) {
+        super(start, end);
+        this.keywordId = keywordId;
+    }
+
+    int getKeywordId() {
+        return this.keywordId;
+    }
+}
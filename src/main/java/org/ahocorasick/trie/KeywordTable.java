@@ -0,0 +1,159 @@
+package org.ahocorasick.trie;
+
+import java.nio.CharBuffer;
+
+/**
+ * <p>
+ * The keywords and payloads of a {@link DoubleArrayTrie}, by payload index.
+ * They are held either as {@link Payload} objects on the heap or as one
+ * block of characters outside of it, such as a memory-mapped file, from
+ * which a keyword is copied only when it is asked for.
+ * </p>
+ * <p>
+ * The scan loops only need the lengths of the keywords, which neither
+ * representation has to allocate for.
+ * </p>
+ *
+ * @param <T> The type of the payloads.
+ */
+abstract class KeywordTable<T> {
+
+    /**
+     * Returns the number of keywords.
+     *
+     * @return The number of payload indexes.
+     */
+    abstract int size();
+
+    /**
+     * Returns a keyword.
+     *
+     * @param index A payload index.
+     * @return The keyword as it was added.
+     */
+    abstract String keyword(int index);
+
+    /**
+     * Returns the length of a keyword.
+     *
+     * @param index A payload index.
+     * @return The number of characters of the keyword.
+     */
+    abstract int keywordLength(int index);
+
+    /**
+     * Returns the payload data of a keyword.
+     *
+     * @param index A payload index.
+     * @return The data, possibly {@code null}.
+     */
+    abstract T data(int index);
+
+    /**
+     * Returns a keyword together with its data.
+     *
+     * @param index A payload index.
+     * @return The payload.
+     */
+    abstract Payload<T> payload(int index);
+
+    /**
+     * Wraps payloads that are sorted by keyword.
+     *
+     * @param payloads The payloads, which must not be modified afterwards.
+     * @param <T>      The type of the payloads.
+     * @return A table over the payloads.
+     */
+    static <T> KeywordTable<T> of(final Payload<T>[] payloads) {
+        return new HeapKeywords<>(payloads);
+    }
+
+    /**
+     * Wraps keywords that are stored back to back.
+     *
+     * @param offsets    The offset of every keyword in the characters,
+     *                   followed by the total number of characters.
+     * @param characters The characters of all keywords.
+     * @param data       The payload data of every keyword, or {@code null}
+     *                   if all of them are {@code null}.
+     * @param <T>        The type of the payloads.
+     * @return A table over the keywords.
+     */
+    static <T> KeywordTable<T> of(final IntTable offsets, final CharBuffer characters, final T[] data) {
+        return new PackedKeywords<>(offsets, characters, data);
+    }
+
+    private static final class HeapKeywords<T> extends KeywordTable<T> {
+
+        private final Payload<T>[] payloads;
+
+        private HeapKeywords(final Payload<T>[] payloads) {
+            this.payloads = payloads;
+        }
+
+        @Override
+        int size() {
+            return payloads.length;
+        }
+
+        @Override
+        String keyword(final int index) {
+            return payloads[index].getKeyword();
+        }
+
+        @Override
+        int keywordLength(final int index) {
+            return payloads[index].getKeyword().length();
+        }
+
+        @Override
+        T data(final int index) {
+            return payloads[index].getData();
+        }
+
+        @Override
+        Payload<T> payload(final int index) {
+            return payloads[index];
+        }
+    }
+
+    private static final class PackedKeywords<T> extends KeywordTable<T> {
+
+        private final IntTable offsets;
+
+        private final CharBuffer characters;
+
+        private final T[] data;
+
+        private PackedKeywords(final IntTable offsets, final CharBuffer characters, final T[] data) {
+            this.offsets = offsets;
+            this.characters = characters;
+            this.data = data;
+        }
+
+        @Override
+        int size() {
+            return offsets.length() - 1;
+        }
+
+        @Override
+        String keyword(final int index) {
+            return characters.subSequence(offsets.get(index), offsets.get(index + 1)).toString();
+        }
+
+        @Override
+        int keywordLength(final int index) {
+            return offsets.get(index + 1) - offsets.get(index);
+        }
+
+        @Override
+        T data(final int index) {
+            return data == null ? null : data[index];
+        }
+
+        @Override
+        Payload<T> payload(final int index) {
+            return new Payload<>(keyword(index), data(index));
+        }
+    }
+}
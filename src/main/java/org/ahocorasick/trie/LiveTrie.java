@@ -0,0 +1,150 @@
+package org.ahocorasick.trie;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * Holds the current version of a trie whose keywords change while it is in
+ * use, such as a {@link Trie} or a {@link PayloadTrie}. Scanning threads
+ * call {@link #get()} for every scan, which costs a single volatile read and
+ * never blocks; new versions are built in the background with
+ * {@link #rebuild(Supplier, Executor)} and swapped in atomically.
+ * </p>
+ * <p>
+ * A scan keeps the version it started with until it ends, since tries are
+ * immutable: replacing the current version neither waits for the scans in
+ * flight nor disturbs them. The old version is garbage collected once the
+ * last of them is done.
+ * </p>
+ * <pre>{@code
+ * LiveTrie<Trie> keywords = new LiveTrie<>(Trie.builder().addKeywords(initial).build());
+ *
+ * // on the scanning threads
+ * Collection<Emit> emits = keywords.get().parseText(text);
+ *
+ * // whenever the keywords change
+ * keywords.rebuild(() -> Trie.builder().addKeywords(latest).build());
+ * }</pre>
+ * <p>
+ * Versions are ordered by the time they were requested, not the time they
+ * are finished: a rebuild that finishes after a later rebuild or
+ * {@link #set(Object)} is discarded, so a slow build never replaces the
+ * newer keywords of a fast one.
+ * </p>
+ *
+ * @param <S> The type of the trie, which must be immutable.
+ */
+public final class LiveTrie<S> {
+
+    /**
+     * the number of versions requested so far, which orders the versions
+     */
+    private final AtomicLong requested = new AtomicLong();
+
+    private final AtomicReference<Version<S>> current;
+
+    /**
+     * Creates a holder for the first version of a trie.
+     *
+     * @param trie The trie to scan until it is replaced.
+     * @throws NullPointerException if the trie is null.
+     */
+    public LiveTrie(final S trie) {
+        this.current = new AtomicReference<>(new Version<>(0, Objects.requireNonNull(trie, "trie")));
+    }
+
+    /**
+     * Returns the current version of the trie. Call this once per scan and
+     * scan the returned trie, rather than keeping it, so that every scan
+     * picks up the latest version.
+     *
+     * @return The current trie.
+     */
+    public S get() {
+        return current.get().trie;
+    }
+
+    /**
+     * Returns the number of the current version, which starts at zero and
+     * grows with every version that is requested, including those that are
+     * discarded.
+     *
+     * @return The version number of {@link #get()}.
+     */
+    public long version() {
+        return current.get().number;
+    }
+
+    /**
+     * Replaces the current trie right away. Rebuilds that were started
+     * before and are still running are discarded when they finish.
+     *
+     * @param trie The new trie.
+     * @throws NullPointerException if the trie is null.
+     */
+    public void set(final S trie) {
+        publish(new Version<>(requested.incrementAndGet(), Objects.requireNonNull(trie, "trie")));
+    }
+
+    /**
+     * Builds a new version of the trie on the common fork/join pool, see
+     * {@link #rebuild(Supplier, Executor)}.
+     *
+     * @param build Builds the new trie.
+     * @return The result of the rebuild.
+     */
+    public CompletableFuture<S> rebuild(final Supplier<? extends S> build) {
+        return rebuild(build, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds a new version of the trie on an executor and makes it the
+     * current version once it is built, unless a version that was requested
+     * later is current by then. The current version stays in use while the
+     * new one is built, and if the build fails.
+     *
+     * @param build    Builds the new trie.
+     * @param executor The executor to build on.
+     * @return Completes with the trie that was built, once it was published
+     *         or discarded, or exceptionally if the build failed.
+     */
+    public CompletableFuture<S> rebuild(final Supplier<? extends S> build, final Executor executor) {
+        final long number = requested.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            final S trie = Objects.requireNonNull(build.get(), "The build returned no trie");
+            publish(new Version<>(number, trie));
+            return trie;
+        }, executor);
+    }
+
+    /**
+     * Makes a version current unless a later one already is.
+     */
+    private void publish(final Version<S> version) {
+        Version<S> previous = current.get();
+        while (previous.number < version.number && !current.compareAndSet(previous, version)) {
+            previous = current.get();
+        }
+    }
+
+    /**
+     * A trie together with the number of the request that built it.
+     */
+    private static final class Version<S> {
+
+        private final long number;
+
+        private final S trie;
+
+        private Version(final long number, final S trie) {
+            this.number = number;
+            this.trie = trie;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.ahocorasick.trie;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>
+ * Reads a file in the layout of {@link TrieFormat}, mapping its large
+ * arrays into memory instead of reading them. Small values are read through
+ * a buffer, like from a {@link DataInputStream}; the arrays become read-only
+ * {@link java.nio.MappedByteBuffer}s over the page cache, which stay valid
+ * after the channel is closed.
+ * </p>
+ * <p>
+ * A single mapping holds at most 2 GiB, so every array is mapped on its own
+ * and may hold up to 512 Mi values.
+ * </p>
+ */
+final class MappedInput implements DataInput {
+
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * the position in the file of the end of the buffered bytes
+     */
+    private long bufferEnd;
+
+    MappedInput(final FileChannel channel, final long position) {
+        this.channel = channel;
+        this.bufferEnd = position;
+        this.buffer.limit(0);
+    }
+
+    /**
+     * Maps an array of {@code int} values written by
+     * {@link TrieFormat#writeInts(java.io.DataOutputStream, IntTable)}.
+     *
+     * @return A table over the mapped values.
+     * @throws IOException if the file is too short or cannot be mapped.
+     */
+    IntTable mapInts() throws IOException {
+        final int length = TrieFormat.readLength(this);
+        return IntTable.of(map((long) length * Integer.BYTES).asIntBuffer());
+    }
+
+    /**
+     * Maps an array of characters written by
+     * {@link TrieFormat#writeChars(java.io.DataOutputStream, char[])}.
+     *
+     * @return A buffer over the mapped characters.
+     * @throws IOException if the file is too short or cannot be mapped.
+     */
+    CharBuffer mapChars() throws IOException {
+        final int length = TrieFormat.readLength(this);
+        return map((long) length * Character.BYTES).asCharBuffer();
+    }
+
+    private ByteBuffer map(final long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("An array of " + size + " bytes is too large to map");
+        }
+        final long position = position();
+        if (position + size > channel.size()) {
+            throw new EOFException();
+        }
+        final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        bufferEnd = position + size;
+        buffer.limit(0);
+        return mapped;
+    }
+
+    private long position() {
+        return bufferEnd - buffer.remaining();
+    }
+
+    private void require(final int count) throws IOException {
+        if (buffer.remaining() >= count) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < count) {
+            final int read = channel.read(buffer, bufferEnd);
+            if (read < 0) {
+                buffer.flip();
+                throw new EOFException();
+            }
+            bufferEnd += read;
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void readFully(final byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(final byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            require(1);
+            final int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public int skipBytes(final int n) throws IOException {
+        final int skipped = (int) Math.max(0, Math.min(n, channel.size() - position()));
+        if (skipped <= buffer.remaining()) {
+            buffer.position(buffer.position() + skipped);
+        } else {
+            bufferEnd = position() + skipped;
+            buffer.limit(0);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        require(Byte.BYTES);
+        return buffer.get();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xff;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        require(Short.BYTES);
+        return buffer.getShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xffff;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        require(Character.BYTES);
+        return buffer.getChar();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Not supported, like the deprecated method of {@link DataInputStream}.
+     *
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public String readLine() {
+        throw new UnsupportedOperationException("readLine");
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+}
@@ -0,0 +1,78 @@
+package org.ahocorasick.trie;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import org.ahocorasick.interval.Intervalable;
+
+/**
+ * Decides which matches are reported when matches overlap.
+ */
+public enum MatchKind {
+
+    /**
+     * Reports every match, unless overlaps are ignored, in which case the
+     * longest matches are kept and the left-most one wins among matches of
+     * equal length. Overlaps are removed after the text has been scanned.
+     */
+    STANDARD,
+
+    /**
+     * Reports non-overlapping matches: of all matches that start at the
+     * left-most position, the longest one wins, and the scan continues after
+     * its end. Resolved while the text is scanned, in linear time.
+     */
+    LEFTMOST_LONGEST,
+
+    /**
+     * Reports non-overlapping matches: of all matches that start at the
+     * left-most position, the one whose keyword was added first wins, and the
+     * scan continues after its end. Resolved while the text is scanned, in
+     * linear time.
+     */
+    LEFTMOST_FIRST;
+
+    /**
+     * Tells whether a match is preferred over the current candidate, both of
+     * which start at the same position.
+     *
+     * @param end               The end of the match.
+     * @param priority          The priority of the keyword of the match.
+     * @param candidateEnd      The end of the candidate.
+     * @param candidatePriority The priority of the keyword of the candidate.
+     * @return true if the match should replace the candidate.
+     */
+    boolean prefers(final int end, final int priority, final int candidateEnd, final int candidatePriority) {
+        return this == LEFTMOST_LONGEST ? end > candidateEnd : priority < candidatePriority;
+    }
+
+    /**
+     * Removes the matches that the left-most semantics of this kind would not
+     * report, for matches that were collected without resolving them during
+     * the scan. The remaining matches are sorted by their start.
+     *
+     * @param intervals The matches to filter in place.
+     * @param priority  Returns the priority of the keyword of a match.
+     * @param <I>       The type of the matches.
+     */
+    <I extends Intervalable> void removeOverlaps(final List<I> intervals, final ToIntFunction<? super I> priority) {
+        final Comparator<I> byStart = Comparator.comparingInt(Intervalable::getStart);
+        intervals.sort(this == LEFTMOST_LONGEST
+                ? byStart.thenComparing(Comparator.comparingInt((I interval) -> interval.getEnd()).reversed())
+                : byStart.thenComparingInt(priority));
+
+        final List<I> kept = new ArrayList<>(intervals.size());
+        int lastEnd = Integer.MIN_VALUE;
+        for (final I interval : intervals) {
+            if (interval.getStart() > lastEnd) {
+                kept.add(interval);
+                lastEnd = interval.getEnd();
+            }
+        }
+
+        intervals.clear();
+        intervals.addAll(kept);
+    }
+}
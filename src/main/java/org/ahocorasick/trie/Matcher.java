@@ -0,0 +1,349 @@
+package org.ahocorasick.trie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ahocorasick.interval.Intervalable;
+import org.ahocorasick.interval.OverlapResolver;
+
+/**
+ * <p>
+ * Finds the matches in a text one at a time, in the spirit of
+ * {@link java.util.regex.Matcher}. Every call to {@link #find()} advances the
+ * scan just far enough to report the next match, so callers can stop at any
+ * point without scanning the rest of the text.
+ * </p>
+ * <p>
+ * The matches found are those of {@link PayloadTrie#parseText(CharSequence)},
+ * in the same order. Unlike {@link java.util.regex.Matcher#end()},
+ * {@link #end()} is the offset of the last character of the match, like
+ * {@link Emit#getEnd()}.
+ * </p>
+ * <p>
+ * A matcher allocates nothing while it scans, unless overlaps are ignored
+ * with {@link MatchKind#STANDARD}: then the matches that may overlap each
+ * other are collected before the first of them is reported. The left-most
+ * match kinds are resolved while scanning and need no buffer. Use
+ * {@link #reset(CharSequence)} to reuse one instance for many texts. A
+ * matcher is not thread-safe.
+ * </p>
+ *
+ * @param <T> The type of the payloads of the trie.
+ */
+public class Matcher<T> {
+
+    private final TrieConfig trieConfig;
+
+    private final Automaton<T> automaton;
+
+    private final boolean stopOnHit;
+
+    private final int[] emitBuffer;
+
+    /**
+     * the matches that may overlap each other, when overlaps are ignored
+     */
+    private final List<Intervalable> group;
+
+    private int groupIndex;
+
+    private int groupEnd;
+
+    private CharSequence text;
+
+    /**
+     * the offset of the last character fed to the automaton
+     */
+    private int position;
+
+    private int currentState;
+
+    private int emitCount;
+
+    private int emitIndex;
+
+    private int matchStart;
+
+    private int matchEnd;
+
+    private int matchKeywordId;
+
+    private boolean stopped;
+
+    Matcher(final TrieConfig trieConfig, final Automaton<T> automaton, final CharSequence text) {
+        this(trieConfig, automaton, text, trieConfig.isStopOnHit());
+    }
+
+    /**
+     * Creates a matcher that stops after the first match only if asked to,
+     * for callers that decide themselves which match counts as a hit.
+     */
+    Matcher(final TrieConfig trieConfig, final Automaton<T> automaton, final CharSequence text,
+            final boolean stopOnHit) {
+        this.trieConfig = trieConfig;
+        this.automaton = automaton;
+        this.stopOnHit = stopOnHit;
+        this.emitBuffer = new int[automaton.maxEmits()];
+        this.group = trieConfig.isAllowOverlaps() || trieConfig.getMatchKind() != MatchKind.STANDARD
+                ? null
+                : new ArrayList<>();
+        reset(text);
+    }
+
+    /**
+     * Restarts the scan at the beginning of the current text.
+     *
+     * @return This matcher.
+     */
+    public Matcher<T> reset() {
+        this.position = -1;
+        this.currentState = Automaton.ROOT;
+        this.emitCount = 0;
+        this.emitIndex = 0;
+        this.matchKeywordId = -1;
+        this.stopped = false;
+        if (this.group != null) {
+            this.group.clear();
+            this.groupIndex = 0;
+        }
+        return this;
+    }
+
+    /**
+     * Restarts the scan at the beginning of a new text.
+     *
+     * @param text The character sequence to scan.
+     * @return This matcher.
+     */
+    public Matcher<T> reset(final CharSequence text) {
+        this.text = text;
+        return reset();
+    }
+
+    /**
+     * Scans for the next match.
+     *
+     * @return {@code true} if a match was found, whose details are then
+     *         available through {@link #start()}, {@link #end()},
+     *         {@link #keyword()} and {@link #payload()}.
+     */
+    public boolean find() {
+        if (this.stopped) {
+            this.matchKeywordId = -1;
+            return false;
+        }
+        if (this.trieConfig.getMatchKind() != MatchKind.STANDARD) {
+            this.stopped = this.stopOnHit;
+            return nextLeftmostMatch(this.trieConfig.getMatchKind());
+        }
+        if (this.stopOnHit) {
+            this.stopped = true;
+            return nextMatch(false);
+        }
+        return this.group == null ? nextMatch(false) : nextResolvedMatch();
+    }
+
+    /**
+     * Returns the offset of the first character of the current match.
+     *
+     * @return The start of the match.
+     * @throws IllegalStateException if there is no current match.
+     */
+    public int start() {
+        checkMatch();
+        return this.matchStart;
+    }
+
+    /**
+     * Returns the offset of the last character of the current match.
+     *
+     * @return The end of the match, inclusive.
+     * @throws IllegalStateException if there is no current match.
+     */
+    public int end() {
+        checkMatch();
+        return this.matchEnd;
+    }
+
+    /**
+     * Returns the id of the keyword of the current match, as reported to a
+     * {@link org.ahocorasick.trie.handler.MatchHandler}.
+     *
+     * @return The keyword id.
+     * @throws IllegalStateException if there is no current match.
+     */
+    public int keywordId() {
+        checkMatch();
+        return this.matchKeywordId;
+    }
+
+    /**
+     * Returns the keyword of the current match, as it was added.
+     *
+     * @return The keyword.
+     * @throws IllegalStateException if there is no current match.
+     */
+    public String keyword() {
+        return this.automaton.keyword(keywordId());
+    }
+
+    /**
+     * Returns the payload of the keyword of the current match.
+     *
+     * @return The payload, which may be {@code null}.
+     * @throws IllegalStateException if there is no current match.
+     */
+    public T payload() {
+        return this.automaton.data(keywordId());
+    }
+
+    private void checkMatch() {
+        if (this.matchKeywordId < 0) {
+            throw new IllegalStateException("No match available");
+        }
+    }
+
+    /**
+     * Advances to the next match that passes the whole-word checks.
+     *
+     * @param grouping Whether to pause before a character that cannot start a
+     *                 match overlapping the current group anymore.
+     */
+    private boolean nextMatch(final boolean grouping) {
+        final CharSequence text = this.text;
+
+        while (true) {
+            while (this.emitIndex < this.emitCount) {
+                final int keywordId = this.emitBuffer[this.emitIndex++];
+                final int start = this.position - this.automaton.keywordLength(keywordId) + 1;
+                if (isWholeMatch(start)) {
+                    this.matchStart = start;
+                    this.matchEnd = this.position;
+                    this.matchKeywordId = keywordId;
+                    return true;
+                }
+            }
+
+            if (this.position + 1 >= text.length()
+                    || grouping && !this.group.isEmpty()
+                    && this.position + 2 - this.automaton.maxKeywordLength() > this.groupEnd) {
+                this.matchKeywordId = -1;
+                return false;
+            }
+
+            advance();
+        }
+    }
+
+    /**
+     * <p>
+     * Advances to the next left-most match. The best match found so far is
+     * kept as a candidate until no match that starts at or before it can
+     * follow anymore, which is the case once the longest suffix of the text
+     * read that can still grow into a match, the depth of the current state,
+     * starts after the candidate.
+     * </p>
+     * <p>
+     * The scan then restarts from the root right after the candidate, so
+     * matches that overlap it are never seen and nothing has to be buffered.
+     * Only the characters read since the end of the candidate are read
+     * again, which are fewer than the length of the longest keyword.
+     * </p>
+     */
+    private boolean nextLeftmostMatch(final MatchKind matchKind) {
+        final int length = this.text.length();
+        boolean hasCandidate = false;
+        int candidateStart = 0;
+        int candidateEnd = 0;
+        int candidateKeywordId = 0;
+
+        while (true) {
+            while (this.emitIndex < this.emitCount) {
+                final int keywordId = this.emitBuffer[this.emitIndex++];
+                final int start = this.position - this.automaton.keywordLength(keywordId) + 1;
+                if (isWholeMatch(start) && (!hasCandidate || start < candidateStart
+                        || start == candidateStart && matchKind.prefers(this.position,
+                        this.automaton.priority(keywordId), candidateEnd,
+                        this.automaton.priority(candidateKeywordId)))) {
+                    hasCandidate = true;
+                    candidateStart = start;
+                    candidateEnd = this.position;
+                    candidateKeywordId = keywordId;
+                }
+            }
+
+            if (hasCandidate && (this.position + 1 >= length
+                    || this.position - this.automaton.depth(this.currentState) + 1 > candidateStart)) {
+                this.matchStart = candidateStart;
+                this.matchEnd = candidateEnd;
+                this.matchKeywordId = candidateKeywordId;
+                this.position = candidateEnd;
+                this.currentState = Automaton.ROOT;
+                this.emitCount = 0;
+                this.emitIndex = 0;
+                return true;
+            }
+
+            if (this.position + 1 >= length) {
+                this.matchKeywordId = -1;
+                return false;
+            }
+
+            advance();
+        }
+    }
+
+    private void advance() {
+        this.position++;
+        if (this.currentState == Automaton.ROOT) {
+            final int length = this.text.length();
+            final int start = this.automaton.skipToStart(this.text, this.position, length);
+            if (start == length) {
+                // Nothing left can start a keyword.
+                this.position = length - 1;
+                this.emitCount = 0;
+                this.emitIndex = 0;
+                return;
+            }
+            this.position = start;
+        }
+        this.currentState = this.automaton.nextState(this.currentState, this.text.charAt(this.position));
+        this.emitCount = this.automaton.collectEmits(this.currentState, this.emitBuffer);
+        this.emitIndex = 0;
+    }
+
+    private boolean isWholeMatch(final int start) {
+        return !(this.trieConfig.isOnlyWholeWords()
+                && PayloadTrie.isPartialMatch(this.text, start, this.position))
+                && !(this.trieConfig.isOnlyWholeWordsWhiteSpaceSeparated()
+                && PayloadTrie.isPartialMatchWhiteSpaceSeparated(this.text, start, this.position));
+    }
+
+    /**
+     * Collects the next group of matches that may overlap each other,
+     * removes the overlaps like {@link PayloadTrie#parseText(CharSequence)}
+     * does and reports the remaining matches one at a time.
+     */
+    private boolean nextResolvedMatch() {
+        if (this.groupIndex == this.group.size()) {
+            this.group.clear();
+            this.groupIndex = 0;
+            while (nextMatch(true)) {
+                if (this.group.isEmpty() || this.matchEnd > this.groupEnd) {
+                    this.groupEnd = this.matchEnd;
+                }
+                this.group.add(new KeywordInterval(this.matchStart, this.matchEnd, this.matchKeywordId));
+            }
+            if (this.group.isEmpty()) {
+                return false;
+            }
+            OverlapResolver.<Intervalable>longest().removeOverlaps(this.group);
+        }
+
+        final KeywordInterval match = (KeywordInterval) this.group.get(this.groupIndex++);
+        this.matchStart = match.getStart();
+        this.matchEnd = match.getEnd();
+        this.matchKeywordId = match.getKeywordId();
+        return true;
+    }
+}
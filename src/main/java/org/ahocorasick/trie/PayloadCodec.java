@@ -0,0 +1,58 @@
+package org.ahocorasick.trie;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts payloads to and from bytes when a trie is written with
+ * {@link PayloadTrie#writeTo(java.io.OutputStream, PayloadCodec)} and read
+ * with {@link PayloadTrie#readFrom(java.io.InputStream, PayloadCodec)}. The
+ * codec is never called for {@code null} payloads, which the format records
+ * itself.
+ *
+ * @param <T> The type of the payloads.
+ */
+public interface PayloadCodec<T> {
+
+    /**
+     * Writes a payload.
+     *
+     * @param payload The payload, not {@code null}.
+     * @param out     The output to write to.
+     * @throws IOException if the output cannot be written.
+     */
+    void write(T payload, DataOutput out) throws IOException;
+
+    /**
+     * Reads a payload written by {@link #write(Object, DataOutput)}, leaving
+     * the input positioned after it.
+     *
+     * @param in The input to read from.
+     * @return The payload.
+     * @throws IOException if the input cannot be read.
+     */
+    T read(DataInput in) throws IOException;
+
+    /**
+     * Returns a codec for string payloads of any length, written as UTF-8.
+     *
+     * @return The codec.
+     */
+    static PayloadCodec<String> strings() {
+        return new PayloadCodec<String>() {
+            @Override
+            public void write(final String payload, final DataOutput out) throws IOException {
+                final byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            @Override
+            public String read(final DataInput in) throws IOException {
+                return new String(TrieFormat.readBytes(in), StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
@@ -41,7 +41,7 @@ public class PayloadState<T> {
      * referred to in the white paper as the 'goto' structure. From a state it is
      * possible to go to other states, depending on the character passed.
      */
-    private final Map<Character, PayloadState<T>> success = new HashMap<>();
+    private final CharTransitions<PayloadState<T>> success;
 
     /**
      * if no matching states are found, the failure state will be returned
@@ -61,9 +61,10 @@ public class PayloadState<T> {
     public PayloadState(final int depth) {
         this.depth = depth;
         this.rootState = depth == 0 ? this : null;
+        this.success = new CharTransitions<>(depth == 0);
     }
 
-    private PayloadState<T> nextState(final Character character, final boolean ignoreRootState) {
+    private PayloadState<T> nextState(final char character, final boolean ignoreRootState) {
         PayloadState<T> nextState = this.success.get(character);
 
         if (!ignoreRootState && nextState == null && this.rootState != null) {
@@ -73,15 +74,15 @@ public class PayloadState<T> {
         return nextState;
     }
 
-    public PayloadState<T> nextState(final Character character) {
+    public PayloadState<T> nextState(final char character) {
         return nextState(character, false);
     }
 
-    public PayloadState<T> nextStateIgnoreRootState(Character character) {
+    public PayloadState<T> nextStateIgnoreRootState(final char character) {
         return nextState(character, true);
     }
 
-    public PayloadState<T> addState(Character character) {
+    public PayloadState<T> addState(final char character) {
         PayloadState<T> nextState = nextStateIgnoreRootState(character);
         if (nextState == null) {
             nextState = new PayloadState<>(this.depth + 1);
@@ -139,6 +140,19 @@ public class PayloadState<T> {
     }
 
     public Collection<Character> getTransitions() {
-        return this.success.keySet();
+        final List<Character> transitions = new ArrayList<>(this.success.size());
+        for (final char transition : this.success.keys()) {
+            transitions.add(transition);
+        }
+        return transitions;
+    }
+
+    /**
+     * Returns the characters of all transitions without boxing them.
+     *
+     * @return The transition characters in ascending order.
+     */
+    char[] getTransitionCharacters() {
+        return this.success.keys();
     }
 }
\ No newline at end of file
@@ -2,17 +2,35 @@ package org.ahocorasick.trie;
 
 import static java.lang.Character.isWhitespace;
 
-import java.util.LinkedList;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingDeque;
-
-import org.ahocorasick.interval.IntervalTree;
-import org.ahocorasick.interval.Intervalable;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.ahocorasick.interval.OverlapResolver;
 import org.ahocorasick.trie.handler.DefaultPayloadEmitHandler;
+import org.ahocorasick.trie.handler.MatchHandler;
 import org.ahocorasick.trie.handler.PayloadEmitHandler;
 import org.ahocorasick.trie.handler.StatefulPayloadEmitHandler;
+import org.ahocorasick.trie.handler.StreamMatchHandler;
 
 /**
  * A trie implementation that carries a payload. See {@link Trie} for
@@ -22,57 +40,58 @@ import org.ahocorasick.trie.handler.StatefulPayloadEmitHandler;
  * The payload trie adds the possibility to specify emitted payloads for each
  * added keyword.
  * </p>
+ * <p>
+ * A built trie is immutable: all of its fields are final and nothing is
+ * written while scanning, every scan keeping its state in objects of its
+ * own. It can therefore be scanned concurrently from any number of threads,
+ * and is safely published to them even through a data race, as long as its
+ * payloads are themselves immutable. To replace a trie while it is being
+ * scanned, see {@link LiveTrie}.
+ * </p>
  *
  * @author Daniel Beck
  * @param <T> The type of the supplied of the payload.
  */
 public class PayloadTrie<T> {
 
-    private final TrieConfig trieConfig;
-
-    private final PayloadState<T> rootState;
+    /**
+     * the smallest number of characters scanned by a single task of
+     * {@link #parseTextParallel(CharSequence, ForkJoinPool)}
+     */
+    private static final int MIN_PARALLEL_CHUNK = 1 << 16;
 
-    protected PayloadTrie(final TrieConfig trieConfig) {
-        this.trieConfig = trieConfig;
-        this.rootState = new PayloadState<>();
-    }
+    /**
+     * the smallest number of keywords inserted by a single task of
+     * {@link PayloadTrieBuilder#buildParallel(ForkJoinPool)}
+     */
+    private static final int MIN_PARALLEL_KEYWORDS = 1 << 12;
 
     /**
-     * Used by the builder to add a text search keyword with an emit payload.
-     *
-     * @param keyword The search term to add to the list of search terms.
-     * @param emit    the payload to emit for this search term.
-     * @throws NullPointerException if the keyword is null.
+     * the number of states up to which {@link PayloadTrieBuilder#deterministic()}
+     * builds a complete transition table
      */
-    private void addKeyword(String keyword, T emit) {
-        if (keyword.isEmpty()) {
-            return;
-        }
+    static final int DEFAULT_DETERMINISTIC_STATE_BUDGET = 1 << 20;
 
-        addState(keyword).addEmit(new Payload<>(keyword, emit));
-    }
+    private final TrieConfig trieConfig;
 
     /**
-     * Used by the builder to add a text search keyword.
-     *
-     * @param keyword The search term to add to the list of search terms.
-     * @throws NullPointerException if the keyword is null.
+     * the compiled automaton that is used for scanning
      */
-    private void addKeyword(String keyword) {
-        if (keyword.isEmpty()) {
-            return;
-        }
+    private final Automaton<T> automaton;
 
-        addState(keyword).addEmit(new Payload<>(keyword, null));
+    /**
+     * Creates a trie without keywords.
+     *
+     * @param trieConfig The configuration, which must not change afterwards.
+     */
+    protected PayloadTrie(final TrieConfig trieConfig) {
+        this(trieConfig, DoubleArrayTrie.compile(new CompressedState<>(), Collections.emptyMap(),
+                trieConfig.getCaseFolding(), null));
     }
 
-    private PayloadState<T> addState(final String keyword) {
-        PayloadState<T> state = getRootState();
-        for (final Character character : keyword.toCharArray()) {
-            Character adjustedChar = isCaseInsensitive() ? Character.toLowerCase(character) : character;
-            state = state.addState(adjustedChar);
-        }
-        return state;
+    PayloadTrie(final TrieConfig trieConfig, final Automaton<T> automaton) {
+        this.trieConfig = trieConfig;
+        this.automaton = automaton;
     }
 
     /**
@@ -82,8 +101,8 @@ public class PayloadTrie<T> {
      * @return the emitted outputs
      */
     public Collection<PayloadToken<T>> tokenize(final String text) {
-        final Collection<PayloadToken<T>> tokens = new LinkedList<>();
         final Collection<PayloadEmit<T>> collectedEmits = parseText(text);
+        final Collection<PayloadToken<T>> tokens = new ArrayList<>(collectedEmits.size() * 2 + 1);
         int lastCollectedPosition = -1;
 
         for (final PayloadEmit<T> emit : collectedEmits) {
@@ -102,6 +121,20 @@ public class PayloadTrie<T> {
         return tokens;
     }
 
+    /**
+     * Tokenizes the specified text lazily: the tokens are those of
+     * {@link #tokenize(String)}, in the same order, but each one is a view
+     * into the text that copies no characters, and the text is scanned only
+     * as far as needed for the next token.
+     *
+     * @param text The character sequence to tokenize; it must not change
+     *             while the tokens are in use.
+     * @return An iterator over the tokens.
+     */
+    public Iterator<TokenView<T>> tokenIterator(final CharSequence text) {
+        return new TokenIterator<>(text, automaton, matcher(text));
+    }
+
     private PayloadToken<T> createFragment(final PayloadEmit<T> emit, final String text, final int lastCollectedPosition) {
         return new PayloadFragmentToken<>(
             text.substring( lastCollectedPosition + 1,
@@ -138,14 +171,23 @@ public class PayloadTrie<T> {
 
         final List<PayloadEmit<T>> collectedEmits = emitHandler.getEmits();
 
-        if (!trieConfig.isAllowOverlaps()) {
-            IntervalTree intervalTree = new IntervalTree((List<Intervalable>) (List<?>) collectedEmits);
-            intervalTree.removeOverlaps((List<Intervalable>) (List<?>) collectedEmits);
+        if (!trieConfig.isAllowOverlaps() && trieConfig.getMatchKind() == MatchKind.STANDARD) {
+            removeOverlaps(collectedEmits);
         }
 
         return collectedEmits;
     }
 
+    /**
+     * Removes overlapping emits, keeping the longest and left-most ones.
+     *
+     * @param emits The emits to filter in place.
+     * @param <T>   The type of the emitted payloads.
+     */
+    static <T> void removeOverlaps(final List<PayloadEmit<T>> emits) {
+        OverlapResolver.<PayloadEmit<T>>longest().removeOverlaps(emits);
+    }
+
     /**
      * Returns true if the text contains one of the search terms; otherwise,
      * returns false.
@@ -166,21 +208,171 @@ public class PayloadTrie<T> {
      * @param emitHandler The handler that will be used to parse the text.
      */
     public void parseText(final CharSequence text, final PayloadEmitHandler<T> emitHandler) {
-        PayloadState<T> currentState = getRootState();
+        parseText(text, (start, end, keywordId) -> emitHandler.emit(
+                new PayloadEmit<>(start, end, getKeyword(keywordId), getPayload(keywordId))));
+    }
 
-        for (int position = 0; position < text.length(); position++) {
-            char character = text.charAt( position);
+    /**
+     * Scans the specified text and reports every match to the given handler
+     * as primitive values. Apart from a small buffer per call, nothing is
+     * allocated while scanning, regardless of the number of matches. Overlaps
+     * are reported as they are found, like with a {@link PayloadEmitHandler}.
+     *
+     * @param text         The character sequence to scan.
+     * @param matchHandler The handler that receives the matches; the keyword
+     *                     and payload of a match are available through
+     *                     {@link #getKeyword(int)} and {@link #getPayload(int)}.
+     */
+    public void parseText(final CharSequence text, final MatchHandler matchHandler) {
+        if (trieConfig.getMatchKind() == MatchKind.STANDARD) {
+            parseRange(text, 0, text.length(), matchHandler);
+            return;
+        }
 
-            if (trieConfig.isCaseInsensitive()) {
-                character = Character.toLowerCase(character);
+        // Left-most matches are resolved while scanning, see Matcher. Only a
+        // match the handler accepts counts as a hit.
+        final Matcher<T> matcher = new Matcher<>(trieConfig, automaton, text, false);
+        while (matcher.find()) {
+            if (matchHandler.onMatch(matcher.start(), matcher.end(), matcher.keywordId())
+                    && trieConfig.isStopOnHit()) {
+                return;
             }
+        }
+    }
 
-            currentState = getState(currentState, character);
-            final Collection<Payload<T>> payloads = currentState.emit();
-            if (processEmits(text, position, payloads, emitHandler) && trieConfig.isStopOnHit()) {
-                return;
+    /**
+     * Scans the matches that end within a range of the text. Scanning starts
+     * up to the length of the longest keyword minus one before the range,
+     * which is enough to reach the same state as a scan from the start of the
+     * text, so ranges can be scanned independently of each other.
+     *
+     * @return true if the scan stopped on a hit.
+     */
+    private boolean parseRange(final CharSequence text, final int from, final int to,
+                               final MatchHandler matchHandler) {
+        final int[] emitBuffer = new int[automaton.maxEmits()];
+        int currentState = Automaton.ROOT;
+
+        for (int position = Math.max(0, from - automaton.maxKeywordLength() + 1); position < to; position++) {
+            if (currentState == Automaton.ROOT) {
+                position = automaton.skipToStart(text, position, to);
+                if (position == to) {
+                    break;
+                }
             }
+
+            currentState = automaton.nextState(currentState, text.charAt(position));
+            if (position >= from && processEmits(text, position, currentState, emitBuffer, matchHandler)
+                    && trieConfig.isStopOnHit()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * <p>
+     * Tokenizes the specified text on the threads of a fork/join pool and
+     * returns the emitted outputs. The result is identical to
+     * {@link #parseText(CharSequence)}, for every configuration.
+     * </p>
+     * <p>
+     * The text is split into chunks that are scanned concurrently. Each chunk
+     * is scanned from the length of the longest keyword minus one characters
+     * before its start, and keeps only the matches that end within the chunk,
+     * so matches that straddle two chunks are found exactly once. Overlaps
+     * are removed after the chunks have been merged. Texts shorter than a
+     * single chunk, and texts scanned for left-most matches, whose resolution
+     * depends on all preceding matches, are scanned on the calling thread.
+     * </p>
+     *
+     * @param text The character sequence to tokenize. It is read from
+     *             several threads, so it must not change during the scan.
+     * @param pool The pool to scan on.
+     * @return A collection of emits.
+     */
+    public Collection<PayloadEmit<T>> parseTextParallel(final CharSequence text, final ForkJoinPool pool) {
+        final int chunkSize = Math.max(MIN_PARALLEL_CHUNK, text.length() / (pool.getParallelism() * 4) + 1);
+        if (text.length() <= chunkSize || trieConfig.getMatchKind() != MatchKind.STANDARD) {
+            return parseText(text);
         }
+
+        final List<PayloadEmit<T>> collectedEmits = pool.invoke(new ParallelScan(text, 0, text.length(), chunkSize));
+
+        if (!trieConfig.isAllowOverlaps()) {
+            removeOverlaps(collectedEmits);
+        }
+
+        return collectedEmits;
+    }
+
+    /**
+     * Returns the number of distinct keywords. Keyword ids range from zero up
+     * to, but excluding, this number.
+     *
+     * @return The number of keywords in this trie.
+     */
+    public int getKeywordCount() {
+        return automaton.payloadCount();
+    }
+
+    /**
+     * Tells whether this trie scans with a complete transition table, which
+     * {@link PayloadTrieBuilder#deterministic(int)} only builds within its
+     * state budget.
+     *
+     * @return {@code true} if every character costs a single table lookup.
+     */
+    public boolean isDeterministic() {
+        return automaton.isDeterministic();
+    }
+
+    /**
+     * Returns the memory a complete transition table takes for this trie:
+     * four bytes for every state and every distinct character of the
+     * keywords, plus one for the characters that occur in no keyword. The
+     * size is reported whether the table was built or not, so it can be
+     * compared with the budget.
+     *
+     * @return The size of the transition table in bytes.
+     */
+    public long getDeterministicTableBytes() {
+        return automaton.deterministicTableBytes();
+    }
+
+    /**
+     * Returns the keyword with the given id. Ids are assigned when the trie is
+     * built, densely and in keyword order. An edited trie numbers the keywords
+     * it added after the others, and gives the id of a keyword it removed to
+     * the keyword with the last id.
+     *
+     * @param keywordId The id reported to a {@link MatchHandler}.
+     * @return The keyword as it was added.
+     */
+    public String getKeyword(final int keywordId) {
+        return automaton.keyword(keywordId);
+    }
+
+    /**
+     * Returns the payload of the keyword with the given id.
+     *
+     * @param keywordId The id reported to a {@link MatchHandler}.
+     * @return The payload added with the keyword, possibly {@code null}.
+     */
+    public T getPayload(final int keywordId) {
+        return automaton.data(keywordId);
+    }
+
+    /**
+     * Returns the priority of the keyword with the given id, which orders the
+     * keywords by the time they were added, see {@link MatchKind#LEFTMOST_FIRST}.
+     *
+     * @param keywordId The id reported to a {@link MatchHandler}.
+     * @return The priority, lower for keywords added earlier.
+     */
+    int getPriority(final int keywordId) {
+        return automaton.priority(keywordId);
     }
 
     /**
@@ -193,37 +385,35 @@ public class PayloadTrie<T> {
         assert text != null;
 
         if (!trieConfig.isAllowOverlaps()) {
-            // Slow path. Needs to find all the matches to detect overlaps.
-            final Collection<PayloadEmit<T>> parseText = parseText(text);
+            // Only scans until the first match cannot be overlapped anymore.
+            final Matcher<T> matcher = matcher(text);
 
-            if (parseText != null && !parseText.isEmpty()) {
-                return parseText.iterator().next();
+            if (matcher.find()) {
+                return new PayloadEmit<>(matcher.start(), matcher.end(), matcher.keyword(), matcher.payload());
             }
         } else {
             // Fast path. Returns first match found.
-            PayloadState<T> currentState = getRootState();
+            final int[] emitBuffer = new int[automaton.maxEmits()];
+            int currentState = Automaton.ROOT;
 
-            for (int position = 0; position < text.length(); position++) {
-                char character = text.charAt( position);
+            final int length = text.length();
 
-                if (trieConfig.isCaseInsensitive()) {
-                    character = Character.toLowerCase(character);
+            for (int position = 0; position < length; position++) {
+                if (currentState == Automaton.ROOT) {
+                    position = automaton.skipToStart(text, position, length);
+                    if (position == length) {
+                        break;
+                    }
                 }
 
-                currentState = getState(currentState, character);
-                Collection<Payload<T>> payloads = currentState.emit();
-
-                if (payloads != null && !payloads.isEmpty()) {
-                    for (final Payload<T> payload : payloads) {
-                        final PayloadEmit<T> emit = new PayloadEmit<>(position - payload.getKeyword().length() + 1, position,
-                                payload.getKeyword(), payload.getData());
-                        if (trieConfig.isOnlyWholeWords()) {
-                            if (!isPartialMatch(text, emit)) {
-                                return emit;
-                            }
-                        } else {
-                            return emit;
-                        }
+                currentState = automaton.nextState(currentState, text.charAt(position));
+                final int emitCount = automaton.collectEmits(currentState, emitBuffer);
+
+                for (int i = 0; i < emitCount; i++) {
+                    final int keywordId = emitBuffer[i];
+                    final int start = position - automaton.keywordLength(keywordId) + 1;
+                    if (!trieConfig.isOnlyWholeWords() || !isPartialMatch(text, start, position)) {
+                        return new PayloadEmit<>(start, position, getKeyword(keywordId), getPayload(keywordId));
                     }
                 }
             }
@@ -232,81 +422,248 @@ public class PayloadTrie<T> {
         return null;
     }
 
-    private boolean isPartialMatch(final CharSequence searchText, final PayloadEmit<T> emit) {
-        return (emit.getStart() != 0 && Character.isAlphabetic(searchText.charAt(emit.getStart() - 1)))
-                || (emit.getEnd() + 1 != searchText.length() && Character.isAlphabetic(searchText.charAt(emit.getEnd() + 1)));
+    static boolean isPartialMatch(final CharSequence searchText, final int start, final int end) {
+        return (start != 0 && Character.isAlphabetic(searchText.charAt(start - 1)))
+                || (end + 1 != searchText.length() && Character.isAlphabetic(searchText.charAt(end + 1)));
     }
 
-    private boolean isPartialMatchWhiteSpaceSeparated(final CharSequence searchText, final PayloadEmit<T> emit) {
+    static boolean isPartialMatchWhiteSpaceSeparated(final CharSequence searchText, final int start, final int end) {
         final long size = searchText.length();
-        return (emit.getStart() != 0 && !isWhitespace(searchText.charAt(emit.getStart() - 1)))
-                || (emit.getEnd() + 1 != size && !isWhitespace(searchText.charAt(emit.getEnd() + 1)));
+        return (start != 0 && !isWhitespace(searchText.charAt(start - 1)))
+                || (end + 1 != size && !isWhitespace(searchText.charAt(end + 1)));
     }
 
-    private PayloadState<T> getState(PayloadState<T> currentState, final Character character) {
-        PayloadState<T> newCurrentState = currentState.nextState(character);
-
-        while (newCurrentState == null) {
-            currentState = currentState.failure();
-            newCurrentState = currentState.nextState(character);
+    private boolean processEmits(final CharSequence text, final int position, final int state, final int[] emitBuffer,
+            final MatchHandler matchHandler) {
+        boolean emitted = false;
+        final int emitCount = automaton.collectEmits(state, emitBuffer);
+        for (int i = 0; i < emitCount; i++) {
+            final int keywordId = emitBuffer[i];
+            final int start = position - automaton.keywordLength(keywordId) + 1;
+            if (!(trieConfig.isOnlyWholeWords() && isPartialMatch(text, start, position)) &&
+                    !(trieConfig.isOnlyWholeWordsWhiteSpaceSeparated() && isPartialMatchWhiteSpaceSeparated(text, start, position))) {
+                emitted = matchHandler.onMatch(start, position, keywordId) || emitted;
+                if (emitted && trieConfig.isStopOnHit()) {
+                    break;
+                }
+            }
         }
 
-        return newCurrentState;
+        return emitted;
     }
 
-    private void constructFailureStates() {
-        final Queue<PayloadState<T>> queue = new LinkedBlockingDeque<>();
-        final PayloadState<T> startState = getRootState();
+    /**
+     * <p>
+     * Writes the compiled automaton and the configuration of this trie in a
+     * compact, versioned binary format, from which
+     * {@link #readFrom(InputStream, PayloadCodec)} loads an identical trie
+     * without building it again. The failure links, outputs and keywords are
+     * written as they are; only the payloads need a codec.
+     * </p>
+     * <p>
+     * The stream is flushed but not closed.
+     * </p>
+     *
+     * @param out   The stream to write to.
+     * @param codec The codec for the payloads that are not {@code null}.
+     * @throws IOException if the stream cannot be written.
+     */
+    public void writeTo(final OutputStream out, final PayloadCodec<? super T> codec) throws IOException {
+        final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        TrieFormat.writeHeader(data, trieConfig);
+        automaton.writeTo(data, codec);
+        data.flush();
+    }
 
-        // First, set the fail state of all depth 1 states to the root state
-        for (PayloadState<T> depthOneState : startState.getStates()) {
-            depthOneState.setFailure(startState);
-            queue.add(depthOneState);
+    /**
+     * <p>
+     * Loads a trie written by {@link #writeTo(OutputStream, PayloadCodec)}.
+     * Loading reads the arrays of the automaton in bulk and rebuilds
+     * nothing but the character classes and, for a deterministic trie, its
+     * transition table, so it takes a fraction of the time of
+     * {@link PayloadTrieBuilder#build()}.
+     * </p>
+     * <p>
+     * The stream is read up to the end of the trie and no further, so that
+     * other data may follow it. Wrap unbuffered streams, such as a
+     * {@link java.io.FileInputStream}, in a
+     * {@link java.io.BufferedInputStream}.
+     * </p>
+     *
+     * @param in    The stream to read from.
+     * @param codec The codec the payloads were written with.
+     * @param <T>   The type of the emitted payloads.
+     * @return The trie.
+     * @throws IOException if the stream cannot be read, does not hold a trie
+     *                     or holds one of another format version.
+     */
+    public static <T> PayloadTrie<T> readFrom(final InputStream in, final PayloadCodec<? extends T> codec)
+            throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        final TrieConfig trieConfig = TrieFormat.readHeader(data);
+        DoubleArrayTrie<T> automaton = DoubleArrayTrie.readFrom(data, trieConfig.getCaseFolding(), codec);
+        if (trieConfig.isDeterministic()) {
+            automaton = automaton.determinize(trieConfig.getDeterministicStateBudget());
         }
+        return new PayloadTrie<>(trieConfig, automaton);
+    }
 
-        // Second, determine the fail state for all depth > 1 state
-        while (!queue.isEmpty()) {
-            final PayloadState<T> currentState = queue.remove();
-
-            for (final Character transition : currentState.getTransitions()) {
-                PayloadState<T> targetState = currentState.nextState(transition);
-                queue.add(targetState);
+    /**
+     * <p>
+     * Maps a trie written by {@link #writeTo(OutputStream, PayloadCodec)} to
+     * a file into memory instead of loading it onto the heap. The arrays of
+     * the automaton and the keywords stay in the file and are scanned where
+     * they are, through the page cache of the operating system: they take no
+     * heap, are never scanned by the garbage collector, and are shared by all
+     * processes that map the same file. Only the payloads that are not
+     * {@code null} are read onto the heap.
+     * </p>
+     * <p>
+     * A mapped trie supports everything a built one does, but it follows
+     * failure links even if it was written by a deterministic trie, since a
+     * complete transition table would have to be built on the heap. Keywords
+     * are copied out of the file whenever they are asked for, so prefer
+     * {@link #parseText(CharSequence, MatchHandler)} for scans with many
+     * matches. The file must not be modified while it is mapped. Its arrays
+     * are checked once here, like those of {@link #readFrom(InputStream,
+     * PayloadCodec)}, so a corrupt file fails to map rather than failing a
+     * scan.
+     * </p>
+     *
+     * @param file  The file to map.
+     * @param codec The codec the payloads were written with.
+     * @param <T>   The type of the emitted payloads.
+     * @return The trie.
+     * @throws IOException if the file cannot be read, does not hold a trie
+     *                     or holds one of another format version.
+     */
+    public static <T> PayloadTrie<T> map(final Path file, final PayloadCodec<? extends T> codec)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedInput in = new MappedInput(channel, 0);
+            final TrieConfig trieConfig = TrieFormat.readHeader(in);
+            return new PayloadTrie<>(trieConfig, DoubleArrayTrie.map(in, trieConfig.getCaseFolding(), codec));
+        }
+    }
 
-                PayloadState<T> traceFailureState = currentState.failure();
-                while (traceFailureState.nextState(transition) == null) {
-                    traceFailureState = traceFailureState.failure();
-                }
+    /**
+     * Returns the emits of the specified text as a lazy stream. The text is
+     * scanned while the stream is consumed, so short-circuiting operations
+     * such as {@link Stream#limit(long)} or {@link Stream#findFirst()} stop
+     * the scan as soon as they are satisfied. The emits are the same as those
+     * of {@link #parseText(CharSequence)}, in the same order.
+     *
+     * @param text The character sequence to scan; it must not change while
+     *             the stream is consumed.
+     * @return A sequential stream of emits.
+     */
+    public Stream<PayloadEmit<T>> stream(final CharSequence text) {
+        return StreamSupport.stream(new EmitSpliterator<>(matcher(text)), false);
+    }
 
-                final PayloadState<T> newFailureState = traceFailureState.nextState(transition);
-                targetState.setFailure(newFailureState);
-                targetState.addEmit(newFailureState.emit());
-            }
-        }
+    /**
+     * Creates a matcher that finds the matches in the given text one at a
+     * time. Reset the matcher with a new text to scan many texts without
+     * allocating.
+     *
+     * @param text The character sequence to scan.
+     * @return A new matcher positioned before the first match.
+     */
+    public Matcher<T> matcher(final CharSequence text) {
+        return new Matcher<>(trieConfig, automaton, text);
     }
 
-    private boolean processEmits(final CharSequence text, final int position, final Collection<Payload<T>> payloads, final PayloadEmitHandler<T> emitHandler) {
-        boolean emitted = false;
-        for (final Payload<T> payload : payloads) {
-            final PayloadEmit<T> payloadEmit = new PayloadEmit<>(position - payload.getKeyword().length() + 1,
-                    position, payload.getKeyword(), payload.getData());
-            if (!(trieConfig.isOnlyWholeWords() && isPartialMatch(text, payloadEmit)) &&
-                    !(trieConfig.isOnlyWholeWordsWhiteSpaceSeparated() && isPartialMatchWhiteSpaceSeparated(text, payloadEmit))) {
-                emitted = emitHandler.emit(payloadEmit) || emitted;
-                if (emitted && trieConfig.isStopOnHit()) {
-                    break;
-                }
-            }
-        }
+    /**
+     * Creates a matcher for text that arrives in chunks. Every stream needs
+     * its own matcher, but the matchers of one trie may be used concurrently.
+     *
+     * @param matchHandler The handler that receives the matches, with offsets
+     *                     counted from the start of the stream; keywords and
+     *                     payloads are available through
+     *                     {@link #getKeyword(int)} and {@link #getPayload(int)}.
+     * @return A new matcher positioned at the start of a stream.
+     */
+    public StreamingMatcher<T> streamingMatcher(final StreamMatchHandler matchHandler) {
+        return new StreamingMatcher<>(trieConfig, automaton, matchHandler);
+    }
 
-        return emitted;
+    /**
+     * Builds a variant of this trie that scans UTF-8 encoded bytes instead of
+     * characters, for the same keywords and configuration. Building it takes
+     * about as long as building this trie, so keep the result around.
+     *
+     * @return A trie for scanning UTF-8 bytes without decoding them.
+     */
+    public Utf8PayloadTrie<T> toUtf8() {
+        return new Utf8PayloadTrie<>(trieConfig, automaton);
     }
 
-    private boolean isCaseInsensitive() {
-        return trieConfig.isCaseInsensitive();
+    /**
+     * <p>
+     * Starts editing the keywords of this trie, which is left as it is. The
+     * editor adds and removes keywords by patching the automaton of this
+     * trie rather than building it again, at a cost that depends on the
+     * states whose links change rather than on the size of the trie, see
+     * {@link PayloadTrieEditor}.
+     * </p>
+     * <p>
+     * Editing a trie that was built, read or mapped first indexes its
+     * failure links, which takes a fraction of the time it took to build
+     * it, and twelve bytes for every state of the double array; editing a
+     * trie that was edited before reuses its index.
+     * </p>
+     *
+     * @return An editor with the keywords and configuration of this trie.
+     */
+    public PayloadTrieEditor<T> edit() {
+        return new PayloadTrieEditor<>(trieConfig, EditableAutomaton.of(automaton, trieConfig.getCaseFolding()));
     }
 
-    private PayloadState<T> getRootState() {
-        return this.rootState;
+    /**
+     * Scans a range of the text, splitting it in halves until the halves fit
+     * into a chunk, and concatenates the emits of the halves in order.
+     */
+    private final class ParallelScan extends RecursiveTask<List<PayloadEmit<T>>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+
+        private final int from;
+
+        private final int to;
+
+        private final int chunkSize;
+
+        private ParallelScan(final CharSequence text, final int from, final int to, final int chunkSize) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected List<PayloadEmit<T>> compute() {
+            if (to - from <= chunkSize) {
+                final List<PayloadEmit<T>> emits = new ArrayList<>();
+                parseRange(text, from, to, (start, end, keywordId) ->
+                        emits.add(new PayloadEmit<>(start, end, getKeyword(keywordId), getPayload(keywordId))));
+                return emits;
+            }
+
+            final int middle = (from + to) >>> 1;
+            final ParallelScan right = new ParallelScan(text, middle, to, chunkSize);
+            right.fork();
+            final List<PayloadEmit<T>> emits = new ParallelScan(text, from, middle, chunkSize).compute();
+
+            if (trieConfig.isStopOnHit() && !emits.isEmpty()) {
+                right.cancel(false);
+                return emits;
+            }
+
+            emits.addAll(right.join());
+            return emits;
+        }
     }
 
     /**
@@ -326,14 +683,29 @@ public class PayloadTrie<T> {
      */
     public static class PayloadTrieBuilder<T> {
 
-        private final TrieConfig trieConfig = new TrieConfig();
+        private final TrieConfig trieConfig;
 
-        private final PayloadTrie<T> trie = new PayloadTrie<>(trieConfig);
+        /**
+         * the keywords in the order they were added, which are inserted into
+         * the state graph when the trie is built
+         */
+        private final List<Payload<T>> keywords = new ArrayList<>();
 
         /**
          * Default (empty) constructor.
          */
         private PayloadTrieBuilder() {
+            this(new TrieConfig());
+        }
+
+        /**
+         * Creates a builder with the given settings, which it changes when
+         * it is configured.
+         *
+         * @param trieConfig The settings to start from.
+         */
+        PayloadTrieBuilder(final TrieConfig trieConfig) {
+            this.trieConfig = trieConfig;
         }
 
         /**
@@ -349,6 +721,56 @@ public class PayloadTrie<T> {
             return this;
         }
 
+        /**
+         * Configure which characters the Trie treats as equal, for example
+         * {@link CaseFolding#SIMPLE} for Unicode simple case folding. Like
+         * {@link #ignoreCase()}, this must be called before calling
+         * addKeyword.
+         *
+         * @param caseFolding The folding applied to keywords and text.
+         * @return This builder.
+         */
+        public PayloadTrieBuilder<T> caseFolding(final CaseFolding caseFolding) {
+            this.trieConfig.setCaseFolding(caseFolding);
+            return this;
+        }
+
+        /**
+         * Configure the Trie to precompute its complete transition function,
+         * with the failure links folded into direct transitions, so that
+         * every character of the text costs exactly one table lookup. The
+         * table takes four bytes for every state and every distinct
+         * character of the keywords; see
+         * {@link PayloadTrie#getDeterministicTableBytes()}. Tries with more
+         * than a million states fall back to following failure links.
+         *
+         * @return This builder.
+         */
+        public PayloadTrieBuilder<T> deterministic() {
+            return deterministic(DEFAULT_DETERMINISTIC_STATE_BUDGET);
+        }
+
+        /**
+         * Configure the Trie to precompute its complete transition function,
+         * see {@link #deterministic()}, unless it has more states than the
+         * given budget, in which case it follows failure links as usual.
+         * Use {@link PayloadTrie#isDeterministic()} to find out which way was
+         * taken.
+         *
+         * @param stateBudget The largest number of states to build a table
+         *                    for; every state takes one slot in the double
+         *                    array, and some slots stay free.
+         * @return This builder.
+         * @throws IllegalArgumentException if the budget is not positive.
+         */
+        public PayloadTrieBuilder<T> deterministic(final int stateBudget) {
+            if (stateBudget <= 0) {
+                throw new IllegalArgumentException("The state budget must be positive: " + stateBudget);
+            }
+            this.trieConfig.setDeterministicStateBudget(stateBudget);
+            return this;
+        }
+
         /**
          * Configure the Trie to ignore overlapping keywords.
          *
@@ -359,6 +781,22 @@ public class PayloadTrie<T> {
             return this;
         }
 
+        /**
+         * Configure how the Trie chooses between overlapping matches. The
+         * left-most kinds report non-overlapping matches only, which they
+         * resolve while scanning instead of removing overlaps afterwards.
+         *
+         * @param matchKind The semantics for overlapping matches.
+         * @return This builder.
+         */
+        public PayloadTrieBuilder<T> matchKind(final MatchKind matchKind) {
+            this.trieConfig.setMatchKind(matchKind);
+            if (matchKind != MatchKind.STANDARD) {
+                this.trieConfig.setAllowOverlaps(false);
+            }
+            return this;
+        }
+
         /**
          * Adds a keyword to the {@link Trie}'s list of text search keywords.
          * No {@link Payload} is supplied.
@@ -368,8 +806,7 @@ public class PayloadTrie<T> {
          * @throws NullPointerException if the keyword is null.
          */
         public PayloadTrieBuilder<T> addKeyword(final String keyword) {
-            this.trie.addKeyword(keyword);
-            return this;
+            return addKeyword(keyword, null);
         }
 
         /**
@@ -382,7 +819,9 @@ public class PayloadTrie<T> {
          * @throws NullPointerException if the keyword is null.
          */
         public PayloadTrieBuilder<T> addKeyword(final String keyword, final T payload) {
-            this.trie.addKeyword(keyword, payload);
+            if (!keyword.isEmpty()) {
+                this.keywords.add(new Payload<>(keyword, payload));
+            }
             return this;
         }
 
@@ -395,7 +834,7 @@ public class PayloadTrie<T> {
          */
         public PayloadTrieBuilder<T> addKeywords(final Collection<Payload<T>> keywords) {
             for (Payload<T> payload : keywords) {
-                this.trie.addKeyword(payload.getKeyword(), payload.getData());
+                addKeyword(payload.getKeyword(), payload.getData());
             }
             return this;
         }
@@ -428,18 +867,154 @@ public class PayloadTrie<T> {
          * @return This builder.
          */
         public PayloadTrieBuilder<T> stopOnHit() {
-            trie.trieConfig.setStopOnHit(true);
+            this.trieConfig.setStopOnHit(true);
             return this;
         }
 
         /**
-         * Configure the PayloadTrie based on the builder settings.
+         * Configure the PayloadTrie based on the builder settings. The keywords
+         * are compiled into a double-array automaton. The trie keeps a copy of
+         * the settings, so the builder can be changed and built again without
+         * affecting the tries it built before.
          *
          * @return The configured PayloadTrie.
          */
         public PayloadTrie<T> build() {
-            this.trie.constructFailureStates();
-            return this.trie;
+            return new PayloadTrie<>(trieConfig.copy(), compile(null));
+        }
+
+        /**
+         * <p>
+         * Configure the PayloadTrie based on the builder settings like
+         * {@link #build()}, building the state graph on the threads of a
+         * fork/join pool. The trie is identical to the one {@link #build()}
+         * returns, keyword ids included.
+         * </p>
+         * <p>
+         * The keywords are grouped by their first character, and every group
+         * is inserted below its own child of the root state by a task of its
+         * own. The failure links are then computed one depth at a time, the
+         * states of each depth split among the tasks. Laying out the double
+         * array takes place on the calling thread, since where a state fits
+         * depends on every state placed before it.
+         * </p>
+         *
+         * @param pool The pool to build on.
+         * @return The configured PayloadTrie.
+         */
+        public PayloadTrie<T> buildParallel(final ForkJoinPool pool) {
+            return new PayloadTrie<>(trieConfig.copy(), compile(pool));
+        }
+
+        /**
+         * Creates a loader that builds a PayloadTrie with the settings of
+         * this builder from keyword files, one keyword per line, through an
+         * external sort that holds the lines in a bounded buffer, see
+         * {@link PayloadTrieLoader}. The keywords added to this builder so
+         * far precede those of every file.
+         *
+         * @param parser Turns a line into a keyword and its payload, or
+         *               returns {@code null} to skip the line.
+         * @param codec  Encodes the payloads while they are sorted.
+         * @return The loader.
+         */
+        public PayloadTrieLoader<T> loader(final Function<? super String, Payload<T>> parser,
+                                           final PayloadCodec<T> codec) {
+            return new PayloadTrieLoader<>(trieConfig.copy(), new ArrayList<>(keywords), parser, codec);
+        }
+
+        /**
+         * Inserts the given keywords into the state graph below a state, which
+         * is reached by the first {@code from} characters of each of them. A
+         * keyword that was added before is left out and keeps its first payload.
+         *
+         * @param state   The state to start from.
+         * @param from    The number of characters that lead to the state.
+         * @param indexes The positions of the keywords in {@link #keywords}.
+         * @param added   Set for every keyword that is inserted.
+         */
+        private void insert(final CompressedState<T> state, final int from, final int[] indexes,
+                            final boolean[] added) {
+            for (final int index : indexes) {
+                added[index] = state.insert(keywords.get(index), from, trieConfig.getCaseFolding());
+            }
+        }
+
+        /**
+         * Compiles the keywords into the automaton used for scanning.
+         *
+         * @param pool The pool to build the state graph on, or {@code null} to
+         *             build it on the calling thread.
+         * @return The automaton.
+         */
+        private DoubleArrayTrie<T> compile(final ForkJoinPool pool) {
+            final CompressedState<T> rootState = new CompressedState<>();
+            final boolean[] added = new boolean[keywords.size()];
+
+            if (pool == null || keywords.size() <= MIN_PARALLEL_KEYWORDS) {
+                final int[] indexes = new int[keywords.size()];
+                for (int i = 0; i < indexes.length; i++) {
+                    indexes[i] = i;
+                }
+                insert(rootState, 0, indexes, added);
+            } else {
+                final List<int[]> groups = groupByFirstCharacter();
+                // The groups only share the root state, so its transitions are
+                // added before the groups are inserted concurrently.
+                final List<CompressedState<T>> states = new ArrayList<>(groups.size());
+                for (final int[] group : groups) {
+                    states.add(rootState.addState(firstCharacter(group[0])));
+                }
+                pool.invoke(new InsertKeywords(states, groups, 0, groups.size(), added));
+            }
+
+            // Keywords are numbered in the order they were added, leaving out
+            // the duplicates, whichever thread inserted them.
+            final Map<Payload<T>, Integer> insertionOrder = new IdentityHashMap<>();
+            for (int i = 0; i < added.length; i++) {
+                if (added[i]) {
+                    insertionOrder.put(keywords.get(i), insertionOrder.size());
+                }
+            }
+
+            final DoubleArrayTrie<T> automaton =
+                    DoubleArrayTrie.compile(rootState, insertionOrder, trieConfig.getCaseFolding(), pool);
+            return trieConfig.isDeterministic()
+                    ? automaton.determinize(trieConfig.getDeterministicStateBudget())
+                    : automaton;
+        }
+
+        /**
+         * Sorts the positions of the keywords by their first folded character,
+         * keeping the order in which they were added within each group.
+         *
+         * @return The positions in {@link #keywords}, one array per character.
+         */
+        private List<int[]> groupByFirstCharacter() {
+            final int[] counts = new int[Character.MAX_VALUE + 1];
+            final char[] firsts = new char[keywords.size()];
+            for (int i = 0; i < firsts.length; i++) {
+                firsts[i] = firstCharacter(i);
+                counts[firsts[i]]++;
+            }
+
+            final int[][] groups = new int[counts.length][];
+            final List<int[]> result = new ArrayList<>();
+            for (int c = 0; c < counts.length; c++) {
+                if (counts[c] > 0) {
+                    groups[c] = new int[counts[c]];
+                    result.add(groups[c]);
+                    counts[c] = 0;
+                }
+            }
+            for (int i = 0; i < firsts.length; i++) {
+                groups[firsts[i]][counts[firsts[i]]++] = i;
+            }
+            return result;
+        }
+
+        private char firstCharacter(final int index) {
+            return trieConfig.getCaseFolding().fold(keywords.get(index).getKeyword().charAt(0));
         }
 
         /**
@@ -459,5 +1034,143 @@ public class PayloadTrie<T> {
         public PayloadTrieBuilder<T> removeOverlaps() {
             return ignoreOverlaps();
         }
+
+        /**
+         * Inserts the keywords of a range of groups, each below its own child of
+         * the root state, see {@link #buildParallel(ForkJoinPool)}.
+         */
+        private final class InsertKeywords extends RecursiveAction {
+
+            private final List<CompressedState<T>> states;
+
+            private final List<int[]> groups;
+
+            private final int from;
+
+            private final int to;
+
+            private final boolean[] added;
+
+            private InsertKeywords(final List<CompressedState<T>> states, final List<int[]> groups, final int from,
+                                   final int to, final boolean[] added) {
+                this.states = states;
+                this.groups = groups;
+                this.from = from;
+                this.to = to;
+                this.added = added;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from == 1) {
+                    insert(states.get(from), 1, groups.get(from), added);
+                    return;
+                }
+
+                final int middle = (from + to) >>> 1;
+                invokeAll(new InsertKeywords(states, groups, from, middle, added),
+                        new InsertKeywords(states, groups, middle, to, added));
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Adds keywords to and removes keywords from a built trie, see
+     * {@link PayloadTrie#edit()}. Every {@link #build()} returns a trie with
+     * the keywords edited so far, which finds exactly the matches a trie
+     * built from scratch with the same keywords would: the keywords that were
+     * kept, in the order they were added, followed by those added by the
+     * editor, in the order of the edits.
+     * </p>
+     * <p>
+     * The tries share the tables of the automaton with each other and with
+     * the editor, which copies a part of a table before it changes it, so
+     * tries built by an editor never change. They follow failure links while
+     * scanning, even if the trie being edited was built deterministic, and
+     * are written by {@link PayloadTrie#writeTo(OutputStream, PayloadCodec)}
+     * exactly as a trie built from their keywords.
+     * </p>
+     *
+     * @param <T> The type of the emitted payload.
+     */
+    public static class PayloadTrieEditor<T> {
+
+        private final TrieConfig trieConfig;
+
+        private final EditableAutomaton<T> automaton;
+
+        private PayloadTrieEditor(final TrieConfig trieConfig, final EditableAutomaton<T> automaton) {
+            this.trieConfig = trieConfig;
+            this.automaton = automaton;
+        }
+
+        /**
+         * Adds a keyword without a payload, see
+         * {@link #addKeyword(String, Object)}.
+         *
+         * @param keyword The keyword to add.
+         * @return This editor.
+         * @throws NullPointerException if the keyword is null.
+         */
+        public PayloadTrieEditor<T> addKeyword(final String keyword) {
+            return addKeyword(keyword, null);
+        }
+
+        /**
+         * Adds a keyword and its payload. Like in a builder, a keyword that
+         * is already in the trie keeps its payload; remove it first to change
+         * the payload.
+         *
+         * @param keyword The keyword to add.
+         * @param payload The payload of the keyword.
+         * @return This editor.
+         * @throws NullPointerException if the keyword is null.
+         */
+        public PayloadTrieEditor<T> addKeyword(final String keyword, final T payload) {
+            if (!keyword.isEmpty()) {
+                automaton.add(keyword, payload);
+            }
+            return this;
+        }
+
+        /**
+         * Adds a list of keywords and payloads.
+         *
+         * @param keywords The keywords to add.
+         * @return This editor.
+         */
+        public PayloadTrieEditor<T> addKeywords(final Collection<Payload<T>> keywords) {
+            for (final Payload<T> payload : keywords) {
+                addKeyword(payload.getKeyword(), payload.getData());
+            }
+            return this;
+        }
+
+        /**
+         * Removes a keyword together with its payload. Keywords that are not
+         * in the trie are ignored.
+         *
+         * @param keyword The keyword to remove, exactly as it was added.
+         * @return This editor.
+         * @throws NullPointerException if the keyword is null.
+         */
+        public PayloadTrieEditor<T> removeKeyword(final String keyword) {
+            if (!keyword.isEmpty()) {
+                automaton.remove(keyword);
+            }
+            return this;
+        }
+
+        /**
+         * Returns a trie with the keywords edited so far and the
+         * configuration of the trie being edited. The editor can go on
+         * editing without affecting the trie.
+         *
+         * @return The edited trie.
+         */
+        public PayloadTrie<T> build() {
+            return new PayloadTrie<>(trieConfig, automaton.copy());
+        }
     }
 }
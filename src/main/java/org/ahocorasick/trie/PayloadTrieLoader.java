@@ -0,0 +1,477 @@
+package org.ahocorasick.trie;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * Builds a {@link PayloadTrie} from a keyword file too large to hold as
+ * {@link Payload} objects, such as a dictionary of tens of millions of
+ * lines. Created by {@link PayloadTrie.PayloadTrieBuilder#loader(Function, PayloadCodec)},
+ * whose settings it builds with.
+ * </p>
+ * <p>
+ * Every line is parsed into a keyword and a payload, and the payload is
+ * encoded with a {@link PayloadCodec} right away. The encoded lines are
+ * sorted by keyword in a buffer of a given size, see
+ * {@link #memoryBudget(long)}; when the buffer is full, it is written to a
+ * temporary file as a sorted run, without its duplicate keywords. The runs
+ * are then merged, duplicates dropped, and the distinct keywords stored
+ * back to back in a single array, from which the automaton is compiled
+ * directly: the sorted keywords are a depth-first walk of the trie, so no
+ * state graph is built. The trie is the one
+ * {@link PayloadTrie.PayloadTrieBuilder#build()} builds from the same
+ * keywords, added in the order of the lines.
+ * </p>
+ * <p>
+ * A loader can load any number of files, one at a time; it is not
+ * thread-safe. After a load, its statistics, such as
+ * {@link #getPeakMemoryBytes()}, describe that load.
+ * </p>
+ *
+ * @param <T> The type of the payloads.
+ */
+public final class PayloadTrieLoader<T> {
+
+    /**
+     * the estimated memory of a line in the sort buffer besides its
+     * characters and its encoded payload: the record, the string and the
+     * arrays with their headers, and the reference in the buffer
+     */
+    private static final int RECORD_OVERHEAD = 96;
+
+    private static final int DEFAULT_MEMORY_BUDGET = 64 << 20;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final TrieConfig trieConfig;
+
+    /**
+     * the keywords added to the builder before the loader was created, which
+     * precede those of every file
+     */
+    private final List<Payload<T>> keywords;
+
+    private final Function<? super String, Payload<T>> parser;
+
+    private final PayloadCodec<T> codec;
+
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+    private Path tempDirectory;
+
+    private long lineCount;
+
+    private int keywordCount;
+
+    private int runCount;
+
+    private long peakMemoryBytes;
+
+    PayloadTrieLoader(final TrieConfig trieConfig, final List<Payload<T>> keywords,
+                      final Function<? super String, Payload<T>> parser, final PayloadCodec<T> codec) {
+        this.trieConfig = trieConfig;
+        this.keywords = keywords;
+        this.parser = parser;
+        this.codec = codec;
+    }
+
+    /**
+     * Sets the size of the sort buffer. Lines are sorted in memory until
+     * their estimated size reaches the budget, and are then written to a
+     * temporary file. The budget does not bound the trie itself, which holds
+     * every distinct keyword.
+     *
+     * @param bytes The estimated number of bytes the buffered lines may take.
+     * @return This loader.
+     * @throws IllegalArgumentException if the budget is not positive.
+     */
+    public PayloadTrieLoader<T> memoryBudget(final long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("The memory budget must be positive: " + bytes);
+        }
+        this.memoryBudget = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the directory of the temporary files that hold the sorted runs,
+     * which are deleted when the load ends.
+     *
+     * @param directory The directory, or {@code null} for the default
+     *                  temporary-file directory.
+     * @return This loader.
+     */
+    public PayloadTrieLoader<T> tempDirectory(final Path directory) {
+        this.tempDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Loads the keywords of a UTF-8 encoded file, one per line.
+     *
+     * @param file The file to read.
+     * @return The trie with the keywords of the builder and of the file.
+     * @throws IOException if the file or a temporary file cannot be read or
+     *                     written.
+     */
+    public PayloadTrie<T> load(final Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * Loads the keywords of a text, one per line. The reader is read up to
+     * its end, but not closed.
+     *
+     * @param reader The text to read.
+     * @return The trie with the keywords of the builder and of the text.
+     * @throws IOException if the text or a temporary file cannot be read or
+     *                     written.
+     */
+    public PayloadTrie<T> load(final Reader reader) throws IOException {
+        lineCount = 0;
+        runCount = 0;
+        peakMemoryBytes = 0;
+
+        final BufferedReader lines = reader instanceof BufferedReader
+                ? (BufferedReader) reader
+                : new BufferedReader(reader, BUFFER_SIZE);
+        final List<Path> runs = new ArrayList<>();
+        final List<Run> cursors = new ArrayList<>();
+        try {
+            final SortBuffer buffer = new SortBuffer();
+            long sequence = 0;
+            for (final Payload<T> payload : keywords) {
+                buffer.add(payload, sequence++);
+            }
+
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineCount++;
+                final Payload<T> payload = parser.apply(line);
+                if (payload == null || payload.getKeyword().isEmpty()) {
+                    continue;
+                }
+                buffer.add(payload, sequence++);
+                if (buffer.bytes >= memoryBudget) {
+                    buffer.spill(runs);
+                }
+            }
+
+            for (final Path run : runs) {
+                cursors.add(new FileRun(run));
+            }
+            cursors.add(buffer.sorted());
+            return compile(cursors);
+        } finally {
+            for (final Run cursor : cursors) {
+                cursor.close();
+            }
+            for (final Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of lines read by the last load.
+     *
+     * @return The number of lines.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the number of distinct keywords of the last load.
+     *
+     * @return The number of keywords in the loaded trie.
+     */
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+
+    /**
+     * Returns the number of sorted runs the last load wrote to temporary
+     * files, zero if all lines fit into the sort buffer.
+     *
+     * @return The number of temporary files.
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Returns an estimate of the largest amount of memory the last load
+     * held at any time: the sort buffer while reading, or the distinct
+     * keywords and the arrays of the automaton while compiling, whichever
+     * is larger. Payload objects are only counted by their encoded size.
+     *
+     * @return The estimated number of bytes.
+     */
+    public long getPeakMemoryBytes() {
+        return peakMemoryBytes;
+    }
+
+    /**
+     * Merges the sorted runs, keeping the first line of every keyword, and
+     * compiles the distinct keywords.
+     */
+    private PayloadTrie<T> compile(final List<Run> runs) throws IOException {
+        final PriorityQueue<Run> queue = new PriorityQueue<>(runs.size(),
+                Comparator.comparing((Run run) -> run.keyword).thenComparingLong(run -> run.sequence));
+        for (final Run run : runs) {
+            if (run.next()) {
+                queue.add(run);
+            }
+        }
+
+        char[] characters = new char[1024];
+        final DoubleArrayTrie.IntList offsets = new DoubleArrayTrie.IntList();
+        final List<T> data = new ArrayList<>();
+        long[] sequences = new long[1024];
+        int count = 0;
+        int length = 0;
+        long dataBytes = 0;
+        String previous = null;
+
+        offsets.add(0);
+        while (!queue.isEmpty()) {
+            final Run run = queue.poll();
+            final String keyword = run.keyword;
+            if (!keyword.equals(previous)) {
+                if (length + keyword.length() > characters.length) {
+                    characters = Arrays.copyOf(characters, Math.max(length + keyword.length(),
+                            characters.length * 2));
+                }
+                keyword.getChars(0, keyword.length(), characters, length);
+                length += keyword.length();
+                offsets.add(length);
+                if (count == sequences.length) {
+                    sequences = Arrays.copyOf(sequences, count * 2);
+                }
+                sequences[count++] = run.sequence;
+                data.add(run.data == null ? null : decode(run.data));
+                dataBytes += run.data == null ? 0 : run.data.length;
+                previous = keyword;
+            }
+            if (run.next()) {
+                queue.add(run);
+            }
+        }
+
+        // The keywords are numbered by the line they were first read from.
+        final long[] sorted = Arrays.copyOf(sequences, count);
+        Arrays.sort(sorted);
+        final int[] priorities = new int[count];
+        for (int i = 0; i < count; i++) {
+            priorities[i] = Arrays.binarySearch(sorted, sequences[i]);
+        }
+
+        @SuppressWarnings("unchecked")
+        final T[] payloads = (T[]) data.toArray();
+        final DoubleArrayTrie<T> automaton = DoubleArrayTrie.compile(
+                Arrays.copyOf(characters, length), offsets.toArray(), payloads, priorities,
+                trieConfig.getCaseFolding());
+
+        keywordCount = count;
+        // The characters and payloads, the sequences and priorities, and the
+        // six arrays of the automaton with the working copies of the compiler.
+        final long compiling = 2L * length + dataBytes + 28L * count + 48L * automaton.size();
+        peakMemoryBytes = Math.max(peakMemoryBytes, compiling);
+
+        return new PayloadTrie<>(trieConfig.copy(), trieConfig.isDeterministic()
+                ? automaton.determinize(trieConfig.getDeterministicStateBudget())
+                : automaton);
+    }
+
+    private T decode(final byte[] bytes) throws IOException {
+        return codec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * The lines read since the last spill, with their payloads encoded.
+     */
+    private final class SortBuffer {
+
+        private List<Record> records = new ArrayList<>();
+
+        private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+
+        private final DataOutputStream encoder = new DataOutputStream(encoded);
+
+        private long bytes;
+
+        private void add(final Payload<T> payload, final long sequence) throws IOException {
+            byte[] data = null;
+            if (payload.getData() != null) {
+                encoded.reset();
+                codec.write(payload.getData(), encoder);
+                encoder.flush();
+                data = encoded.toByteArray();
+            }
+            records.add(new Record(payload.getKeyword(), data, sequence));
+            bytes += RECORD_OVERHEAD + 2L * payload.getKeyword().length() + (data == null ? 0 : data.length);
+            peakMemoryBytes = Math.max(peakMemoryBytes, bytes);
+        }
+
+        /**
+         * Sorts the records and writes them to a temporary file, leaving out
+         * all but the first line of every keyword, and empties the buffer.
+         * The file is added to the runs before it is written, so it is
+         * deleted with them even if writing fails.
+         */
+        private void spill(final List<Path> runs) throws IOException {
+            final Path file = tempDirectory == null
+                    ? Files.createTempFile("trie", ".run")
+                    : Files.createTempFile(tempDirectory, "trie", ".run");
+            runs.add(file);
+            final Run sorted = sorted();
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+                while (sorted.next()) {
+                    out.writeBoolean(true);
+                    out.writeInt(sorted.keyword.length());
+                    out.writeChars(sorted.keyword);
+                    out.writeLong(sorted.sequence);
+                    out.writeInt(sorted.data == null ? -1 : sorted.data.length);
+                    if (sorted.data != null) {
+                        out.write(sorted.data);
+                    }
+                }
+                out.writeBoolean(false);
+            }
+            records = new ArrayList<>();
+            bytes = 0;
+            runCount++;
+        }
+
+        /**
+         * Sorts the records by keyword and returns them, without the lines
+         * of a keyword after its first one.
+         */
+        private Run sorted() {
+            records.sort(Comparator.comparing((Record record) -> record.keyword)
+                    .thenComparingLong(record -> record.sequence));
+            return new MemoryRun(records);
+        }
+    }
+
+    /**
+     * A line with its payload encoded, and its position among the lines.
+     */
+    private static final class Record {
+
+        private final String keyword;
+
+        private final byte[] data;
+
+        private final long sequence;
+
+        private Record(final String keyword, final byte[] data, final long sequence) {
+            this.keyword = keyword;
+            this.data = data;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * The distinct keywords of a sorted run, one at a time.
+     */
+    private abstract static class Run implements Closeable {
+
+        String keyword;
+
+        byte[] data;
+
+        long sequence;
+
+        /**
+         * Advances to the next keyword of the run.
+         *
+         * @return false at the end of the run.
+         */
+        abstract boolean next() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static final class MemoryRun extends Run {
+
+        private final List<Record> records;
+
+        private int index;
+
+        private MemoryRun(final List<Record> records) {
+            this.records = records;
+        }
+
+        @Override
+        boolean next() {
+            while (index < records.size()) {
+                final Record record = records.get(index++);
+                if (!record.keyword.equals(keyword)) {
+                    keyword = record.keyword;
+                    data = record.data;
+                    sequence = record.sequence;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class FileRun extends Run {
+
+        private final DataInputStream in;
+
+        private FileRun(final Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        }
+
+        @Override
+        boolean next() throws IOException {
+            if (!in.readBoolean()) {
+                return false;
+            }
+            final char[] characters = new char[in.readInt()];
+            for (int i = 0; i < characters.length; i++) {
+                characters[i] = in.readChar();
+            }
+            keyword = new String(characters);
+            sequence = in.readLong();
+            final int size = in.readInt();
+            data = size < 0 ? null : new byte[size];
+            if (data != null) {
+                in.readFully(data);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,729 @@
+package org.ahocorasick.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * A dictionary split into several {@link PayloadTrie}s, the shards, which
+ * are built and rebuilt independently of each other. Every keyword belongs
+ * to exactly one shard, chosen by a hash of its folded characters, see
+ * {@link #shardOf(String)}. A dictionary of tens of millions of keywords
+ * can thus be built shard by shard, or on several threads at once with
+ * {@link ShardedTrieBuilder#buildParallel(ForkJoinPool)}, and a change to a
+ * few keywords only rebuilds the shards they belong to, see
+ * {@link #rebuildShard(int, Collection)}.
+ * </p>
+ * <p>
+ * The text is scanned against every shard, one after the other or on the
+ * threads of a pool with {@link #parseTextParallel(CharSequence, ForkJoinPool)},
+ * and the matches of the shards are merged by their position. The result is
+ * that of a single {@link PayloadTrie} with all keywords, for every
+ * configuration: the shards report all of their matches, and overlaps are
+ * removed, and left-most matches chosen, once the matches are merged. The
+ * precedence of the keywords for {@link MatchKind#LEFTMOST_FIRST} is the
+ * order in which they were added to the whole dictionary. Note that the
+ * left-most match kinds buffer every match of the text before resolving
+ * them, unlike a single trie.
+ * </p>
+ * <p>
+ * A sharded trie is immutable like its shards: rebuilding a shard returns a
+ * new sharded trie, which shares the other shards with this one. To replace
+ * a sharded trie while it is being scanned, see {@link LiveTrie}.
+ * </p>
+ *
+ * @param <T> The type of the payloads.
+ */
+public final class ShardedTrie<T> {
+
+    private final TrieConfig trieConfig;
+
+    /**
+     * the configuration of the shards, which report every match
+     */
+    private final TrieConfig shardConfig;
+
+    private final PayloadTrie<T>[] shards;
+
+    /**
+     * the position of every keyword in the order the keywords were added to
+     * the whole dictionary, by shard and by priority within the shard
+     */
+    private final int[][] sequences;
+
+    /**
+     * the position given to the next keyword added to the dictionary
+     */
+    private final int nextSequence;
+
+    private ShardedTrie(final TrieConfig trieConfig, final TrieConfig shardConfig, final PayloadTrie<T>[] shards,
+                        final int[][] sequences, final int nextSequence) {
+        this.trieConfig = trieConfig;
+        this.shardConfig = shardConfig;
+        this.shards = shards;
+        this.sequences = sequences;
+        this.nextSequence = nextSequence;
+    }
+
+    /**
+     * Tokenizes the specified text and returns the emitted outputs, like
+     * {@link PayloadTrie#parseText(CharSequence)} with all keywords in a
+     * single trie.
+     *
+     * @param text The character sequence to tokenize.
+     * @return A collection of emits.
+     */
+    public Collection<PayloadEmit<T>> parseText(final CharSequence text) {
+        final List<List<ShardEmit<T>>> matches = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            matches.add(scan(shard, text));
+        }
+        return resolve(matches);
+    }
+
+    /**
+     * Tokenizes the specified text like {@link #parseText(CharSequence)},
+     * scanning the shards concurrently on the threads of a fork/join pool.
+     * Every shard is scanned by a single task.
+     *
+     * @param text The character sequence to tokenize. It is read from
+     *             several threads, so it must not change during the scan.
+     * @param pool The pool to scan on.
+     * @return A collection of emits.
+     */
+    public Collection<PayloadEmit<T>> parseTextParallel(final CharSequence text, final ForkJoinPool pool) {
+        final List<List<ShardEmit<T>>> matches = new ArrayList<>(Collections.nCopies(shards.length, null));
+        pool.invoke(new ScanShards(text, 0, shards.length, matches));
+        return resolve(matches);
+    }
+
+    /**
+     * Returns true if the text contains one of the keywords of any shard.
+     *
+     * @param text Specified text.
+     * @return true if the text contains one of the search terms. Else, returns
+     *         false.
+     */
+    public boolean containsMatch(final CharSequence text) {
+        for (final PayloadTrie<T> shard : shards) {
+            if (shard.containsMatch(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of shards, which is fixed when the trie is built.
+     *
+     * @return The number of shards.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the number of distinct keywords of all shards.
+     *
+     * @return The number of keywords in this trie.
+     */
+    public int getKeywordCount() {
+        int count = 0;
+        for (final PayloadTrie<T> shard : shards) {
+            count += shard.getKeywordCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the shard a keyword belongs to. Keywords that are equal once
+     * folded, see
+     * {@link PayloadTrie.PayloadTrieBuilder#caseFolding(CaseFolding)}, share
+     * their states and belong to the same shard. The shard only depends on
+     * the folded characters and on the number of shards.
+     *
+     * @param keyword The keyword.
+     * @return The index of the shard, from zero up to, but excluding,
+     *         {@link #getShardCount()}.
+     */
+    public int shardOf(final String keyword) {
+        return shardOf(keyword, trieConfig.getCaseFolding(), shards.length);
+    }
+
+    private static int shardOf(final String keyword, final CaseFolding caseFolding, final int shardCount) {
+        int hash = 0;
+        for (int i = 0; i < keyword.length(); i++) {
+            hash = 31 * hash + caseFolding.fold(keyword.charAt(i));
+        }
+        // The low bits pick the shard, so the high bits are mixed into them.
+        return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+    }
+
+    /**
+     * Returns the keywords and payloads of a shard, in the order in which they
+     * take precedence, see {@link MatchKind#LEFTMOST_FIRST}.
+     *
+     * @param shard The index of the shard.
+     * @return The keywords of the shard.
+     * @throws IndexOutOfBoundsException if there is no such shard.
+     */
+    public List<Payload<T>> getKeywords(final int shard) {
+        final PayloadTrie<T> trie = shards[shard];
+        final Payload<T>[] keywords = newPayloads(trie.getKeywordCount());
+        for (int keywordId = 0; keywordId < keywords.length; keywordId++) {
+            keywords[trie.getPriority(keywordId)] =
+                    new Payload<>(trie.getKeyword(keywordId), trie.getPayload(keywordId));
+        }
+        return Arrays.asList(keywords);
+    }
+
+    /**
+     * <p>
+     * Returns a sharded trie whose given shard is rebuilt with new keywords,
+     * and whose other shards are those of this trie. This trie stays as it
+     * is. Only the keywords of the shard are compiled, so the time this takes
+     * is bounded by the size of the shard rather than of the dictionary.
+     * </p>
+     * <p>
+     * The keywords replace those of the shard: keywords of the shard that
+     * are missing are removed, and the payload of a keyword is the one it is
+     * given here. Keywords that were in the shard before keep their
+     * precedence; the others follow all keywords of the dictionary, in the
+     * order given, as if they had just been added to it.
+     * </p>
+     *
+     * @param shard    The index of the shard.
+     * @param keywords The keywords of the shard, which must all belong to it,
+     *                 see {@link #shardOf(String)}. Empty keywords are
+     *                 ignored, and of keywords added more than once, the
+     *                 first one is kept.
+     * @return The trie with the rebuilt shard.
+     * @throws IndexOutOfBoundsException if there is no such shard.
+     * @throws IllegalArgumentException  if a keyword belongs to another shard.
+     */
+    public ShardedTrie<T> rebuildShard(final int shard, final Collection<Payload<T>> keywords) {
+        final PayloadTrie<T> trie = shards[shard];
+        final Map<String, Integer> kept = new HashMap<>();
+        for (int keywordId = 0; keywordId < trie.getKeywordCount(); keywordId++) {
+            kept.put(trie.getKeyword(keywordId), sequences[shard][trie.getPriority(keywordId)]);
+        }
+
+        final List<Payload<T>> distinct = new ArrayList<>(keywords.size());
+        final int[] added = new int[keywords.size()];
+        final Set<String> seen = new HashSet<>();
+        int next = nextSequence;
+        for (final Payload<T> payload : keywords) {
+            final String keyword = payload.getKeyword();
+            if (keyword.isEmpty() || !seen.add(keyword)) {
+                continue;
+            }
+            if (shardOf(keyword) != shard) {
+                throw new IllegalArgumentException("The keyword '" + keyword + "' belongs to shard "
+                        + shardOf(keyword) + ", not " + shard);
+            }
+            final Integer sequence = kept.get(keyword);
+            added[distinct.size()] = sequence == null ? next++ : sequence;
+            distinct.add(payload);
+        }
+
+        // The shard numbers its keywords by precedence, so they are added in
+        // the order of the dictionary.
+        final Integer[] order = new Integer[distinct.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(added[a], added[b]));
+        final List<Payload<T>> sorted = new ArrayList<>(order.length);
+        final int[] sequence = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted.add(distinct.get(order[i]));
+            sequence[i] = added[order[i]];
+        }
+
+        final PayloadTrie<T>[] rebuilt = shards.clone();
+        final int[][] rebuiltSequences = sequences.clone();
+        rebuilt[shard] = new PayloadTrie.PayloadTrieBuilder<T>(shardConfig.copy()).addKeywords(sorted).build();
+        rebuiltSequences[shard] = sequence;
+        return new ShardedTrie<>(trieConfig, shardConfig, rebuilt, rebuiltSequences, next);
+    }
+
+    /**
+     * Collects every match of a shard, in the order the shard reports them:
+     * by their end, and by keyword among matches that end at the same
+     * position.
+     */
+    private List<ShardEmit<T>> scan(final int shard, final CharSequence text) {
+        final PayloadTrie<T> trie = shards[shard];
+        final int[] sequence = sequences[shard];
+        final List<ShardEmit<T>> matches = new ArrayList<>();
+        trie.parseText(text, (start, end, keywordId) -> {
+            matches.add(new ShardEmit<>(start, end, trie.getKeyword(keywordId), trie.getPayload(keywordId),
+                    sequence[trie.getPriority(keywordId)]));
+            return true;
+        });
+        return matches;
+    }
+
+    /**
+     * Merges the matches of the shards into the order a single trie reports
+     * them in, and applies the configuration to all of them at once.
+     */
+    private List<PayloadEmit<T>> resolve(final List<List<ShardEmit<T>>> matches) {
+        final List<ShardEmit<T>> merged = merge(matches);
+        final MatchKind matchKind = trieConfig.getMatchKind();
+
+        if (matchKind != MatchKind.STANDARD) {
+            matchKind.removeOverlaps(merged, match -> match.sequence);
+            if (trieConfig.isStopOnHit() && merged.size() > 1) {
+                merged.subList(1, merged.size()).clear();
+            }
+        } else if (trieConfig.isStopOnHit() && merged.size() > 1) {
+            // Every shard stopped on its first hit, the first of which wins.
+            merged.subList(1, merged.size()).clear();
+        }
+
+        final List<PayloadEmit<T>> emits = new ArrayList<>(merged);
+        if (matchKind == MatchKind.STANDARD && !trieConfig.isAllowOverlaps()) {
+            PayloadTrie.removeOverlaps(emits);
+        }
+        return emits;
+    }
+
+    /**
+     * Merges lists of matches ordered by their end, and then by keyword, into
+     * a single list in the same order. The keywords of different shards are
+     * never equal, so the order is total.
+     */
+    private static <T> List<ShardEmit<T>> merge(final List<List<ShardEmit<T>>> matches) {
+        int size = 0;
+        final PriorityQueue<Cursor<T>> cursors = new PriorityQueue<>(Math.max(1, matches.size()));
+        for (final List<ShardEmit<T>> shardMatches : matches) {
+            size += shardMatches.size();
+            if (!shardMatches.isEmpty()) {
+                cursors.add(new Cursor<>(shardMatches));
+            }
+        }
+
+        final List<ShardEmit<T>> merged = new ArrayList<>(size);
+        while (!cursors.isEmpty()) {
+            final Cursor<T> cursor = cursors.poll();
+            merged.add(cursor.head());
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Payload<T>[] newPayloads(final int length) {
+        return (Payload<T>[]) new Payload<?>[length];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> PayloadTrie<T>[] newShards(final int length) {
+        return (PayloadTrie<T>[]) new PayloadTrie<?>[length];
+    }
+
+    /**
+     * Provides a fluent interface for constructing sharded tries.
+     *
+     * @param <T> The type of the emitted payload.
+     * @return The builder used to configure its trie.
+     */
+    public static <T> ShardedTrieBuilder<T> builder() {
+        return new ShardedTrieBuilder<>();
+    }
+
+    /**
+     * A match of a shard, with the position of its keyword in the whole
+     * dictionary.
+     */
+    private static final class ShardEmit<T> extends PayloadEmit<T> {
+
+        private final int sequence;
+
+        private ShardEmit(final int start, final int end, final String keyword, final T payload,
+                          final int sequence) {
+            super(start, end, keyword, payload);
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * The next match of a shard that is still to be merged.
+     */
+    private static final class Cursor<T> implements Comparable<Cursor<T>> {
+
+        private final List<ShardEmit<T>> matches;
+
+        private int index;
+
+        private Cursor(final List<ShardEmit<T>> matches) {
+            this.matches = matches;
+        }
+
+        private ShardEmit<T> head() {
+            return matches.get(index);
+        }
+
+        private boolean advance() {
+            return ++index < matches.size();
+        }
+
+        @Override
+        public int compareTo(final Cursor<T> other) {
+            final ShardEmit<T> head = head();
+            final ShardEmit<T> otherHead = other.head();
+            final int byEnd = Integer.compare(head.getEnd(), otherHead.getEnd());
+            return byEnd != 0 ? byEnd : head.getKeyword().compareTo(otherHead.getKeyword());
+        }
+    }
+
+    /**
+     * Scans a range of the shards, splitting it in halves until a single
+     * shard is left.
+     */
+    private final class ScanShards extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+
+        private final int from;
+
+        private final int to;
+
+        private final List<List<ShardEmit<T>>> matches;
+
+        private ScanShards(final CharSequence text, final int from, final int to,
+                           final List<List<ShardEmit<T>>> matches) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+            this.matches = matches;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                matches.set(from, scan(from, text));
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+            invokeAll(new ScanShards(text, from, middle, matches), new ScanShards(text, middle, to, matches));
+        }
+    }
+
+    /**
+     * Builder class to create a ShardedTrie instance. The settings are those
+     * of {@link PayloadTrie.PayloadTrieBuilder}, and apply to every shard.
+     *
+     * @param <T> The type of the emitted payload.
+     */
+    public static final class ShardedTrieBuilder<T> {
+
+        private final TrieConfig trieConfig = new TrieConfig();
+
+        private final List<Payload<T>> keywords = new ArrayList<>();
+
+        private int shardCount = 1;
+
+        private ShardedTrieBuilder() {
+        }
+
+        /**
+         * Configure the number of shards the keywords are split into.
+         *
+         * @param shardCount The number of shards.
+         * @return This builder.
+         * @throws IllegalArgumentException if the number is not positive.
+         */
+        public ShardedTrieBuilder<T> shards(final int shardCount) {
+            if (shardCount <= 0) {
+                throw new IllegalArgumentException("The number of shards must be positive: " + shardCount);
+            }
+            this.shardCount = shardCount;
+            return this;
+        }
+
+        /**
+         * Configure the trie to ignore case, see
+         * {@link PayloadTrie.PayloadTrieBuilder#ignoreCase()}.
+         *
+         * @return This builder.
+         */
+        public ShardedTrieBuilder<T> ignoreCase() {
+            this.trieConfig.setCaseInsensitive(true);
+            return this;
+        }
+
+        /**
+         * Configure which characters the trie treats as equal, see
+         * {@link PayloadTrie.PayloadTrieBuilder#caseFolding(CaseFolding)}.
+         *
+         * @param caseFolding The folding applied to keywords and text.
+         * @return This builder.
+         */
+        public ShardedTrieBuilder<T> caseFolding(final CaseFolding caseFolding) {
+            this.trieConfig.setCaseFolding(caseFolding);
+            return this;
+        }
+
+        /**
+         * Configure every shard to precompute its complete transition
+         * function, see {@link PayloadTrie.PayloadTrieBuilder#deterministic()}.
+         *
+         * @return This builder.
+         */
+        public ShardedTrieBuilder<T> deterministic() {
+            return deterministic(PayloadTrie.DEFAULT_DETERMINISTIC_STATE_BUDGET);
+        }
+
+        /**
+         * Configure every shard to precompute its complete transition
+         * function, within the given budget of states per shard, see
+         * {@link PayloadTrie.PayloadTrieBuilder#deterministic(int)}.
+         *
+         * @param stateBudget The largest number of states of a shard to build
+         *                    a table for.
+         * @return This builder.
+         * @throws IllegalArgumentException if the budget is not positive.
+         */
+        public ShardedTrieBuilder<T> deterministic(final int stateBudget) {
+            if (stateBudget <= 0) {
+                throw new IllegalArgumentException("The state budget must be positive: " + stateBudget);
+            }
+            this.trieConfig.setDeterministicStateBudget(stateBudget);
+            return this;
+        }
+
+        /**
+         * Configure the trie to ignore overlapping keywords.
+         *
+         * @return This builder.
+         */
+        public ShardedTrieBuilder<T> ignoreOverlaps() {
+            this.trieConfig.setAllowOverlaps(false);
+            return this;
+        }
+
+        /**
+         * Configure how the trie chooses between overlapping matches, see
+         * {@link PayloadTrie.PayloadTrieBuilder#matchKind(MatchKind)}.
+         *
+         * @param matchKind The semantics for overlapping matches.
+         * @return This builder.
+         */
+        public ShardedTrieBuilder<T> matchKind(final MatchKind matchKind) {
+            this.trieConfig.setMatchKind(matchKind);
+            if (matchKind != MatchKind.STANDARD) {
+                this.trieConfig.setAllowOverlaps(false);
+            }
+            return this;
+        }
+
+        /**
+         * Configure the trie to match whole keywords in the text.
+         *
+         * @return This builder.
+         */
+        public ShardedTrieBuilder<T> onlyWholeWords() {
+            this.trieConfig.setOnlyWholeWords(true);
+            return this;
+        }
+
+        /**
+         * Configure the trie to match whole keywords that are separated by
+         * whitespace in the text.
+         *
+         * @return This builder.
+         */
+        public ShardedTrieBuilder<T> onlyWholeWordsWhiteSpaceSeparated() {
+            this.trieConfig.setOnlyWholeWordsWhiteSpaceSeparated(true);
+            return this;
+        }
+
+        /**
+         * Configure the trie to stop after the first keyword is found in the
+         * text.
+         *
+         * @return This builder.
+         */
+        public ShardedTrieBuilder<T> stopOnHit() {
+            this.trieConfig.setStopOnHit(true);
+            return this;
+        }
+
+        /**
+         * Adds a keyword without a payload.
+         *
+         * @param keyword The keyword to add to the list.
+         * @return This builder.
+         * @throws NullPointerException if the keyword is null.
+         */
+        public ShardedTrieBuilder<T> addKeyword(final String keyword) {
+            return addKeyword(keyword, null);
+        }
+
+        /**
+         * Adds a keyword and a payload.
+         *
+         * @param keyword The keyword to add to the list.
+         * @param payload the payload to add
+         * @return This builder.
+         * @throws NullPointerException if the keyword is null.
+         */
+        public ShardedTrieBuilder<T> addKeyword(final String keyword, final T payload) {
+            if (!keyword.isEmpty()) {
+                this.keywords.add(new Payload<>(keyword, payload));
+            }
+            return this;
+        }
+
+        /**
+         * Adds a list of keywords and payloads.
+         *
+         * @param keywords The keywords to add to the list.
+         * @return This builder.
+         */
+        public ShardedTrieBuilder<T> addKeywords(final Collection<Payload<T>> keywords) {
+            for (final Payload<T> payload : keywords) {
+                addKeyword(payload.getKeyword(), payload.getData());
+            }
+            return this;
+        }
+
+        /**
+         * Builds the shards one after the other on the calling thread.
+         *
+         * @return The configured ShardedTrie.
+         */
+        public ShardedTrie<T> build() {
+            final Shards shards = new Shards();
+            for (int shard = 0; shard < shardCount; shard++) {
+                shards.build(shard);
+            }
+            return shards.toTrie();
+        }
+
+        /**
+         * Builds the shards concurrently on the threads of a fork/join pool,
+         * each shard by a task of its own. The trie is identical to the one
+         * {@link #build()} returns.
+         *
+         * @param pool The pool to build on.
+         * @return The configured ShardedTrie.
+         */
+        public ShardedTrie<T> buildParallel(final ForkJoinPool pool) {
+            final Shards shards = new Shards();
+            pool.invoke(new BuildShards(shards, 0, shardCount));
+            return shards.toTrie();
+        }
+
+        /**
+         * The shards of a trie being built, with the positions of the
+         * keywords that belong to each of them.
+         */
+        private final class Shards {
+
+            private final TrieConfig config = trieConfig.copy();
+
+            private final TrieConfig shardConfig = config.copy();
+
+            private final PayloadTrie<T>[] tries = newShards(shardCount);
+
+            /**
+             * the positions in {@link #keywords} of the keywords of every
+             * shard, in the order they were added, until the shard is built,
+             * and then those of its distinct keywords, by priority
+             */
+            private final int[][] sequences = new int[shardCount][];
+
+            private Shards() {
+                shardConfig.setMatchKind(MatchKind.STANDARD);
+                shardConfig.setAllowOverlaps(true);
+                shardConfig.setStopOnHit(config.isStopOnHit() && config.getMatchKind() == MatchKind.STANDARD);
+
+                final int[] counts = new int[shardCount];
+                final int[] shardOf = new int[keywords.size()];
+                for (int i = 0; i < shardOf.length; i++) {
+                    shardOf[i] = shardOf(keywords.get(i).getKeyword(), config.getCaseFolding(), shardCount);
+                    counts[shardOf[i]]++;
+                }
+                for (int shard = 0; shard < shardCount; shard++) {
+                    sequences[shard] = new int[counts[shard]];
+                    counts[shard] = 0;
+                }
+                for (int i = 0; i < shardOf.length; i++) {
+                    sequences[shardOf[i]][counts[shardOf[i]]++] = i;
+                }
+            }
+
+            private void build(final int shard) {
+                final int[] positions = sequences[shard];
+                final PayloadTrie.PayloadTrieBuilder<T> builder =
+                        new PayloadTrie.PayloadTrieBuilder<>(shardConfig.copy());
+                final Set<String> seen = new HashSet<>();
+                final int[] distinct = new int[positions.length];
+                int count = 0;
+                for (final int position : positions) {
+                    final Payload<T> payload = keywords.get(position);
+                    if (seen.add(payload.getKeyword())) {
+                        builder.addKeyword(payload.getKeyword(), payload.getData());
+                        distinct[count++] = position;
+                    }
+                }
+                tries[shard] = builder.build();
+                sequences[shard] = Arrays.copyOf(distinct, count);
+            }
+
+            private ShardedTrie<T> toTrie() {
+                return new ShardedTrie<>(config, shardConfig, tries, sequences, keywords.size());
+            }
+        }
+
+        /**
+         * Builds a range of the shards, splitting it in halves until a
+         * single shard is left.
+         */
+        private final class BuildShards extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private final Shards shards;
+
+            private final int from;
+
+            private final int to;
+
+            private BuildShards(final Shards shards, final int from, final int to) {
+                this.shards = shards;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from == 1) {
+                    shards.build(from);
+                    return;
+                }
+
+                final int middle = (from + to) >>> 1;
+                invokeAll(new BuildShards(shards, from, middle), new BuildShards(shards, middle, to));
+            }
+        }
+    }
+}
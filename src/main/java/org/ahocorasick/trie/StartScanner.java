@@ -0,0 +1,59 @@
+package org.ahocorasick.trie;
+
+/**
+ * <p>
+ * Finds the next character of a text that can start a keyword by comparing
+ * many characters at once against the small set of characters that can,
+ * ahead of the automaton. The automaton verifies every candidate from the
+ * root state, so the scanner only decides how far to skip and never changes
+ * the matches.
+ * </p>
+ * <p>
+ * This is the Java 8 version, which has no vector instructions to offer: it
+ * is never available and the scan loops use the scalar search of
+ * {@link DoubleArrayTrie#skipToStart(CharSequence, int, int)}. The
+ * multi-release jar replaces it on Java 17 and later with a version built on
+ * the incubating Vector API, which is used when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}.
+ * </p>
+ */
+abstract class StartScanner {
+
+    /**
+     * The largest number of distinct characters, after expanding case
+     * folding, that a scanner compares against.
+     */
+    static final int MAX_ANCHORS = 8;
+
+    /**
+     * Tells whether this JVM can run a vectorized scanner at all, so that
+     * automata need not collect their anchors otherwise.
+     *
+     * @return {@code false} in this version.
+     */
+    static boolean isAvailable() {
+        return false;
+    }
+
+    /**
+     * Creates a scanner for the characters that can start a keyword.
+     *
+     * @param anchors The characters, as read from the text, or {@code null}
+     *                if there are more than {@link #MAX_ANCHORS}.
+     * @return The scanner, or {@code null} if the scalar search is to be
+     * used.
+     */
+    static StartScanner create(final char[] anchors) {
+        return null;
+    }
+
+    /**
+     * Finds the next anchor.
+     *
+     * @param text The text being scanned.
+     * @param from The offset to search from.
+     * @param to   The offset to stop searching at, exclusive.
+     * @return The offset of the next anchor, or {@code to} if there is none.
+     */
+    abstract int skip(CharSequence text, int from, int to);
+}
@@ -37,7 +37,7 @@ public class State {
      * referred to in the white paper as the 'goto' structure. From a state it is possible to go
      * to other states, depending on the character passed.
      */
-    private final Map<Character, State> success = new HashMap<>();
+    private final CharTransitions<State> success;
 
     /**
      * if no matching states are found, the failure state will be returned
@@ -56,9 +56,10 @@ public class State {
     public State(final int depth) {
         this.depth = depth;
         this.rootState = depth == 0 ? this : null;
+        this.success = new CharTransitions<>(depth == 0);
     }
 
-    private State nextState(final Character character, final boolean ignoreRootState) {
+    private State nextState(final char character, final boolean ignoreRootState) {
         State nextState = this.success.get(character);
 
         if (!ignoreRootState && nextState == null && this.rootState != null) {
@@ -68,25 +69,25 @@ public class State {
         return nextState;
     }
 
-    public State nextState(final Character character) {
+    public State nextState(final char character) {
         return nextState(character, false);
     }
 
-    public State nextStateIgnoreRootState(Character character) {
+    public State nextStateIgnoreRootState(final char character) {
         return nextState(character, true);
     }
 
     public State addState(String keyword) {
         State state = this;
 
-        for (final Character character : keyword.toCharArray()) {
+        for (final char character : keyword.toCharArray()) {
             state = state.addState(character);
         }
 
         return state;
     }
 
-    public State addState(Character character) {
+    public State addState(final char character) {
         State nextState = nextStateIgnoreRootState(character);
         if (nextState == null) {
             nextState = new State(this.depth + 1);
@@ -129,6 +130,10 @@ public class State {
     }
 
     public Collection<Character> getTransitions() {
-        return this.success.keySet();
+        final List<Character> transitions = new ArrayList<>(this.success.size());
+        for (final char transition : this.success.keys()) {
+            transitions.add(transition);
+        }
+        return transitions;
     }
 }
\ No newline at end of file
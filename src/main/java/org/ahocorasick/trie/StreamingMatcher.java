@@ -0,0 +1,314 @@
+package org.ahocorasick.trie;
+
+import static java.lang.Character.isWhitespace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ahocorasick.interval.Intervalable;
+import org.ahocorasick.interval.OverlapResolver;
+import org.ahocorasick.trie.handler.StreamMatchHandler;
+
+/**
+ * <p>
+ * Scans text that arrives in chunks, for example from a {@link Reader} or a
+ * socket. The automaton state and the offset in the stream are carried from
+ * one {@link #feed(char[], int, int)} call to the next, so matches that
+ * straddle a chunk boundary are found and memory stays bounded regardless of
+ * the size of the stream.
+ * </p>
+ * <p>
+ * The matches reported are the same as those of
+ * {@link PayloadTrie#parseText(CharSequence)} on the concatenated text, with
+ * offsets counted from the start of the stream:
+ * </p>
+ * <ul>
+ * <li>whole-word checks need the character after a match, so such matches are
+ * reported once the next character has been fed, or on {@link #finish()};</li>
+ * <li>when overlaps are ignored, matches are held back until no later match
+ * can overlap them anymore, which is at most the length of the longest
+ * keyword;</li>
+ * <li>when the trie stops on the first hit, the hit is the first reported
+ * match the handler accepts.</li>
+ * </ul>
+ * <p>
+ * A streaming matcher is not thread-safe; use one instance per stream.
+ * </p>
+ *
+ * @param <T> The type of the payloads of the trie.
+ */
+public class StreamingMatcher<T> {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private final TrieConfig trieConfig;
+
+    private final Automaton<T> automaton;
+
+    private final StreamMatchHandler matchHandler;
+
+    private final int[] emitBuffer;
+
+    /**
+     * the most recent characters, indexed by offset, to check the character
+     * before a whole-word match
+     */
+    private final char[] history;
+
+    /**
+     * keyword ids of the matches that end at the previous offset and wait for
+     * the next character to be checked
+     */
+    private final int[] pending;
+
+    private int pendingCount;
+
+    /**
+     * matches held back until it is known that no later match overlaps them
+     */
+    private final List<Intervalable> overlapping = new ArrayList<>();
+
+    private long overlappingStart;
+
+    private long overlappingEnd;
+
+    private int currentState = Automaton.ROOT;
+
+    private long position;
+
+    private boolean stopped;
+
+    private boolean finished;
+
+    StreamingMatcher(final TrieConfig trieConfig, final Automaton<T> automaton,
+                     final StreamMatchHandler matchHandler) {
+        this.trieConfig = trieConfig;
+        this.automaton = automaton;
+        this.matchHandler = matchHandler;
+        this.emitBuffer = new int[automaton.maxEmits()];
+
+        if (isWholeWords()) {
+            this.history = new char[Integer.highestOneBit(automaton.maxKeywordLength() + 1) * 2];
+            this.pending = new int[automaton.maxEmits()];
+        } else {
+            this.history = null;
+            this.pending = null;
+        }
+    }
+
+    /**
+     * Scans the next chunk of the stream.
+     *
+     * @param buffer The characters to scan.
+     * @param offset The index of the first character to scan.
+     * @param length The number of characters to scan.
+     * @throws IllegalStateException if {@link #finish()} was called without a
+     *                               {@link #reset()} afterwards.
+     */
+    public void feed(final char[] buffer, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                    + ", array length " + buffer.length);
+        }
+        if (finished) {
+            throw new IllegalStateException("The stream has been finished; reset the matcher first.");
+        }
+
+        for (int i = offset; i < offset + length && !stopped; i++) {
+            final char character = buffer[i];
+
+            if (history != null) {
+                history[(int) position & (history.length - 1)] = character;
+                if (pendingCount > 0) {
+                    processPending(true, character);
+                    if (stopped) {
+                        return;
+                    }
+                }
+            }
+
+            currentState = automaton.nextState(currentState, character);
+            final int emitCount = automaton.collectEmits(currentState, emitBuffer);
+
+            if (emitCount > 0) {
+                if (history != null) {
+                    System.arraycopy(emitBuffer, 0, pending, 0, emitCount);
+                    pendingCount = emitCount;
+                } else {
+                    processEmits(emitCount);
+                }
+            }
+
+            if (!overlapping.isEmpty() && position - automaton.maxKeywordLength() + 1 > overlappingEnd) {
+                flushOverlapping();
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Signals the end of the stream and reports the matches that were held
+     * back. Call {@link #reset()} to scan another stream afterwards.
+     */
+    public void finish() {
+        if (!stopped && pendingCount > 0) {
+            processPending(false, '\0');
+        }
+        pendingCount = 0;
+        if (!stopped && !overlapping.isEmpty()) {
+            flushOverlapping();
+        }
+        finished = true;
+    }
+
+    /**
+     * Prepares the matcher for a new stream, discarding any state of the
+     * previous one.
+     */
+    public void reset() {
+        currentState = Automaton.ROOT;
+        position = 0;
+        pendingCount = 0;
+        overlapping.clear();
+        stopped = false;
+        finished = false;
+    }
+
+    /**
+     * Returns the number of characters fed since the last reset.
+     *
+     * @return The offset of the next character in the stream.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Scans everything a reader returns and finishes the stream. The reader is
+     * not closed.
+     *
+     * @param reader The characters to scan.
+     * @throws IOException if reading fails.
+     */
+    public void scan(final Reader reader) throws IOException {
+        final char[] buffer = new char[READ_BUFFER_SIZE];
+        int read;
+        while (!stopped && (read = reader.read(buffer)) != -1) {
+            feed(buffer, 0, read);
+        }
+        finish();
+    }
+
+    /**
+     * Decodes and scans everything an input stream returns and finishes the
+     * stream. The input stream is not closed.
+     *
+     * @param inputStream The bytes to scan.
+     * @param charset     The encoding of the bytes.
+     * @throws IOException if reading fails.
+     */
+    public void scan(final InputStream inputStream, final Charset charset) throws IOException {
+        scan(new InputStreamReader(inputStream, charset));
+    }
+
+    private boolean isWholeWords() {
+        return trieConfig.isOnlyWholeWords() || trieConfig.isOnlyWholeWordsWhiteSpaceSeparated();
+    }
+
+    private void processEmits(final int emitCount) {
+        boolean emitted = false;
+        for (int i = 0; i < emitCount; i++) {
+            final int keywordId = emitBuffer[i];
+            emitted = deliver(position - keywordLength(keywordId) + 1, position, keywordId) || emitted;
+            if (emitted && trieConfig.isStopOnHit()) {
+                stopped = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks the matches that end at the previous offset, now that the
+     * character after them is known.
+     */
+    private void processPending(final boolean hasNext, final char next) {
+        final long end = position - 1;
+        boolean emitted = false;
+
+        for (int i = 0; i < pendingCount; i++) {
+            final int keywordId = pending[i];
+            final long start = end - keywordLength(keywordId) + 1;
+            if (!isPartialMatch(start, hasNext, next)) {
+                emitted = deliver(start, end, keywordId) || emitted;
+                if (emitted && trieConfig.isStopOnHit()) {
+                    stopped = true;
+                    break;
+                }
+            }
+        }
+        pendingCount = 0;
+    }
+
+    private boolean isPartialMatch(final long start, final boolean hasNext, final char next) {
+        final boolean hasPrevious = start > 0;
+        final char previous = hasPrevious ? history[(int) (start - 1) & (history.length - 1)] : '\0';
+
+        return (trieConfig.isOnlyWholeWords()
+                && ((hasPrevious && Character.isAlphabetic(previous)) || (hasNext && Character.isAlphabetic(next))))
+                || (trieConfig.isOnlyWholeWordsWhiteSpaceSeparated()
+                && ((hasPrevious && !isWhitespace(previous)) || (hasNext && !isWhitespace(next))));
+    }
+
+    /**
+     * Reports a match, or holds it back if overlaps are ignored. A match that
+     * is held back is no hit yet: the first match of a group may lose to a
+     * later one, so only the matches left once the group is resolved count.
+     * With {@link MatchKind#STANDARD}, a scan that stops on the first hit
+     * reports that hit as it is, like {@link PayloadTrie#parseText(CharSequence)}.
+     *
+     * @return Whether the match was reported and accepted by the handler.
+     */
+    private boolean deliver(final long start, final long end, final int keywordId) {
+        if (trieConfig.isAllowOverlaps()
+                || trieConfig.isStopOnHit() && trieConfig.getMatchKind() == MatchKind.STANDARD) {
+            return matchHandler.onMatch(start, end, keywordId);
+        }
+
+        if (overlapping.isEmpty()) {
+            overlappingStart = start;
+            overlappingEnd = end;
+        }
+        overlappingEnd = Math.max(overlappingEnd, end);
+        overlapping.add(new KeywordInterval((int) (start - overlappingStart), (int) (end - overlappingStart),
+                keywordId));
+        return false;
+    }
+
+    private void flushOverlapping() {
+        if (trieConfig.getMatchKind() == MatchKind.STANDARD) {
+            OverlapResolver.<Intervalable>longest().removeOverlaps(overlapping);
+        } else {
+            trieConfig.getMatchKind().removeOverlaps(overlapping,
+                    match -> automaton.priority(((KeywordInterval) match).getKeywordId()));
+        }
+
+        for (final Intervalable interval : overlapping) {
+            final KeywordInterval match = (KeywordInterval) interval;
+            if (matchHandler.onMatch(overlappingStart + match.getStart(), overlappingStart + match.getEnd(),
+                    match.getKeywordId()) && trieConfig.isStopOnHit()) {
+                stopped = true;
+                break;
+            }
+        }
+        overlapping.clear();
+    }
+
+    private int keywordLength(final int keywordId) {
+        return automaton.keywordLength(keywordId);
+    }
+}
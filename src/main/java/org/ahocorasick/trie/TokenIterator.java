@@ -0,0 +1,85 @@
+package org.ahocorasick.trie;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Produces the tokens of {@link PayloadTrie#tokenize(String)} as views into
+ * the text, scanning for the next match only when the next token is asked
+ * for. Nothing but the current token is held in memory.
+ *
+ * @param <T> The type of the emitted payloads.
+ */
+final class TokenIterator<T> implements Iterator<TokenView<T>> {
+
+    private final CharSequence text;
+
+    private final Automaton<T> automaton;
+
+    private final Matcher<T> matcher;
+
+    /**
+     * the offset of the last character covered by a token so far
+     */
+    private int lastCollectedPosition = -1;
+
+    /**
+     * whether the matcher holds a match that has not been returned yet
+     */
+    private boolean hasMatch;
+
+    private boolean scanned;
+
+    private TokenView<T> next;
+
+    TokenIterator(final CharSequence text, final Automaton<T> automaton, final Matcher<T> matcher) {
+        this.text = text;
+        this.automaton = automaton;
+        this.matcher = matcher;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next == null) {
+            this.next = computeNext();
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public TokenView<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final TokenView<T> token = this.next;
+        this.next = null;
+        return token;
+    }
+
+    private TokenView<T> computeNext() {
+        if (!this.hasMatch && !this.scanned) {
+            this.hasMatch = this.matcher.find();
+            this.scanned = !this.hasMatch;
+        }
+
+        final int fragmentEnd;
+        if (this.hasMatch) {
+            final int start = this.matcher.start();
+            if (start - this.lastCollectedPosition <= 1) {
+                this.hasMatch = false;
+                this.lastCollectedPosition = this.matcher.end();
+                return new TokenView<>(this.text, start, this.lastCollectedPosition,
+                        this.automaton.payload(this.matcher.keywordId()));
+            }
+            fragmentEnd = start - 1;
+        } else if (this.text.length() - this.lastCollectedPosition > 1) {
+            fragmentEnd = this.text.length() - 1;
+        } else {
+            return null;
+        }
+
+        final TokenView<T> fragment = new TokenView<>(this.text, this.lastCollectedPosition + 1, fragmentEnd, null);
+        this.lastCollectedPosition = fragmentEnd;
+        return fragment;
+    }
+}
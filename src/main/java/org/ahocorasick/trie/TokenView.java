@@ -0,0 +1,130 @@
+package org.ahocorasick.trie;
+
+/**
+ * <p>
+ * A token of a tokenized text that refers to the text instead of copying it:
+ * a range of offsets plus, for a match, the keyword and payload that matched.
+ * The view is itself a {@link CharSequence} over that range, so it can be
+ * compared, appended or searched without materializing a string; only
+ * {@link #getFragment()} and {@link #toString()} copy the characters.
+ * </p>
+ * <p>
+ * A view is only valid as long as the text it was created from does not
+ * change.
+ * </p>
+ *
+ * @param <T> The type of the emitted payloads.
+ */
+public final class TokenView<T> implements CharSequence {
+
+    private final CharSequence text;
+
+    private final int start;
+
+    private final int end;
+
+    /**
+     * the keyword and payload that matched, or {@code null} for a fragment
+     */
+    private final Payload<T> payload;
+
+    TokenView(final CharSequence text, final int start, final int end, final Payload<T> payload) {
+        this.text = text;
+        this.start = start;
+        this.end = end;
+        this.payload = payload;
+    }
+
+    /**
+     * Returns the offset of the first character of this token in the text.
+     *
+     * @return The start of the token.
+     */
+    public int getStart() {
+        return this.start;
+    }
+
+    /**
+     * Returns the offset of the last character of this token in the text,
+     * like {@link Emit#getEnd()}.
+     *
+     * @return The end of the token, inclusive.
+     */
+    public int getEnd() {
+        return this.end;
+    }
+
+    /**
+     * Return {@code true} if a search term matched.
+     *
+     * @return {@code true} if this is a match
+     */
+    public boolean isMatch() {
+        return this.payload != null;
+    }
+
+    /**
+     * Returns the keyword that matched, as it was added.
+     *
+     * @return The keyword, or {@code null} if this token is not a match.
+     */
+    public String getKeyword() {
+        return this.payload == null ? null : this.payload.getKeyword();
+    }
+
+    /**
+     * Returns the payload of the keyword that matched.
+     *
+     * @return The payload, or {@code null} if this token is not a match or
+     *         the keyword has no payload.
+     */
+    public T getPayload() {
+        return this.payload == null ? null : this.payload.getData();
+    }
+
+    /**
+     * Creates the emit of this token, like {@link PayloadToken#getEmit()}.
+     *
+     * @return A new emit, or {@code null} if this token is not a match.
+     */
+    public PayloadEmit<T> getEmit() {
+        return this.payload == null
+                ? null
+                : new PayloadEmit<>(this.start, this.end, this.payload.getKeyword(), this.payload.getData());
+    }
+
+    /**
+     * Copies the characters of this token out of the text.
+     *
+     * @return The text of this token.
+     */
+    public String getFragment() {
+        return toString();
+    }
+
+    @Override
+    public int length() {
+        return this.end - this.start + 1;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+        }
+        return this.text.charAt(this.start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(final int from, final int to) {
+        if (from < 0 || from > to || to > length()) {
+            throw new IndexOutOfBoundsException("from " + from + ", to " + to + ", length " + length());
+        }
+        return this.text.subSequence(this.start + from, this.start + to);
+    }
+
+    @Override
+    public String toString() {
+        return this.text.subSequence(this.start, this.end + 1).toString();
+    }
+}
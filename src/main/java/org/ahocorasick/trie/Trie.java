@@ -1,17 +1,30 @@
 package org.ahocorasick.trie;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 import org.ahocorasick.trie.PayloadTrie.PayloadTrieBuilder;
+import org.ahocorasick.trie.PayloadTrie.PayloadTrieEditor;
 import org.ahocorasick.trie.handler.EmitHandler;
+import org.ahocorasick.trie.handler.MatchHandler;
 import org.ahocorasick.trie.handler.StatefulPayloadEmitDelegateHandler;
-import org.ahocorasick.trie.handler.PayloadEmitDelegateHandler;
 import org.ahocorasick.trie.handler.StatefulEmitHandler;
+import org.ahocorasick.trie.handler.StreamMatchHandler;
 
 /**
  * Based on the <a href="http://cr.yp.to/bib/1975/aho.pdf">Aho-Corasick white
  * paper</a>, from Bell technologies.
+ * <p>
+ * A built trie is immutable and can be scanned concurrently from any number
+ * of threads, see {@link PayloadTrie}.
+ * </p>
  *
  * @author Robert Bor
  */
@@ -28,8 +41,19 @@ public class Trie {
         return asTokens(tokens);
     }
 
+    /**
+     * Tokenizes the specified text lazily into views that copy no
+     * characters, see {@link PayloadTrie#tokenIterator(CharSequence)}.
+     *
+     * @param text The character sequence to tokenize.
+     * @return An iterator over the tokens.
+     */
+    public Iterator<TokenView<String>> tokenIterator(final CharSequence text) {
+        return this.payloadTrie.tokenIterator(text);
+    }
+
     private static Collection<Token> asTokens(Collection<PayloadToken<String>> tokens) {
-        Collection<Token> result = new ArrayList<>();
+        Collection<Token> result = new ArrayList<>(tokens.size());
         for (PayloadToken<String> payloadToken : tokens) {
             result.add(new DefaultToken(payloadToken));
         }
@@ -37,7 +61,7 @@ public class Trie {
     }
 
     private static Collection<Emit> asEmits(Collection<PayloadEmit<String>> emits) {
-        Collection<Emit> result = new ArrayList<>();
+        Collection<Emit> result = new ArrayList<>(emits.size());
         for (PayloadEmit<String> emit : emits) {
             result.add(asEmit(emit));
         }
@@ -60,12 +84,112 @@ public class Trie {
         return asEmits(parsedText);
     }
 
+    /**
+     * Tokenizes the specified text on the threads of a fork/join pool, see
+     * {@link PayloadTrie#parseTextParallel(CharSequence, ForkJoinPool)}.
+     *
+     * @param text The character sequence to tokenize.
+     * @param pool The pool to scan on.
+     * @return A collection of emits, identical to {@link #parseText(CharSequence)}.
+     */
+    public Collection<Emit> parseTextParallel(final CharSequence text, final ForkJoinPool pool) {
+        Collection<PayloadEmit<String>> parsedText = this.payloadTrie.parseTextParallel(text, pool);
+        return asEmits(parsedText);
+    }
+
+    /**
+     * Returns the emits of the specified text as a lazy stream, see
+     * {@link PayloadTrie#stream(CharSequence)}.
+     *
+     * @param text The character sequence to scan.
+     * @return A sequential stream of emits.
+     */
+    public Stream<Emit> stream(final CharSequence text) {
+        return this.payloadTrie.stream(text).map(Trie::asEmit);
+    }
+
     public boolean containsMatch(final CharSequence text) {
         return firstMatch(text) != null;
     }
 
     public void parseText(final CharSequence text, final EmitHandler emitHandler) {
-        this.payloadTrie.parseText(text, new PayloadEmitDelegateHandler(emitHandler));
+        this.payloadTrie.parseText(text, (start, end, keywordId) -> emitHandler.emit(
+                new Emit(start, end, this.payloadTrie.getKeyword(keywordId))));
+    }
+
+    /**
+     * Scans the specified text and reports every match to the given handler
+     * as primitive values, without allocating an {@link Emit} per match.
+     *
+     * @param text         The character sequence to scan.
+     * @param matchHandler The handler that receives the matches; the keyword
+     *                     of a match is available through
+     *                     {@link #getKeyword(int)}.
+     */
+    public void parseText(final CharSequence text, final MatchHandler matchHandler) {
+        this.payloadTrie.parseText(text, matchHandler);
+    }
+
+    /**
+     * Creates a matcher that finds the matches in the given text one at a
+     * time, see {@link PayloadTrie#matcher(CharSequence)}.
+     *
+     * @param text The character sequence to scan.
+     * @return A new matcher positioned before the first match.
+     */
+    public Matcher<String> matcher(final CharSequence text) {
+        return this.payloadTrie.matcher(text);
+    }
+
+    /**
+     * Creates a matcher for text that arrives in chunks, see
+     * {@link PayloadTrie#streamingMatcher(StreamMatchHandler)}.
+     *
+     * @param matchHandler The handler that receives the matches, with offsets
+     *                     counted from the start of the stream.
+     * @return A new matcher positioned at the start of a stream.
+     */
+    public StreamingMatcher<String> streamingMatcher(final StreamMatchHandler matchHandler) {
+        return this.payloadTrie.streamingMatcher(matchHandler);
+    }
+
+    /**
+     * Tells whether this trie scans with a complete transition table, see
+     * {@link PayloadTrie#isDeterministic()}.
+     *
+     * @return {@code true} if every character costs a single table lookup.
+     */
+    public boolean isDeterministic() {
+        return this.payloadTrie.isDeterministic();
+    }
+
+    /**
+     * Returns the memory a complete transition table takes for this trie,
+     * see {@link PayloadTrie#getDeterministicTableBytes()}.
+     *
+     * @return The size of the transition table in bytes.
+     */
+    public long getDeterministicTableBytes() {
+        return this.payloadTrie.getDeterministicTableBytes();
+    }
+
+    /**
+     * Returns the number of distinct keywords.
+     *
+     * @return The number of keywords in this trie.
+     */
+    public int getKeywordCount() {
+        return this.payloadTrie.getKeywordCount();
+    }
+
+    /**
+     * Returns the keyword with the given id.
+     *
+     * @param keywordId The id reported to a {@link MatchHandler}.
+     * @return The keyword as it was added.
+     */
+    public String getKeyword(final int keywordId) {
+        return this.payloadTrie.getKeyword(keywordId);
     }
 
     /**
@@ -85,6 +209,54 @@ public class Trie {
                       payload.getKeyword() );
     }
 
+    /**
+     * Writes this trie in a compact binary format, see
+     * {@link PayloadTrie#writeTo(OutputStream, PayloadCodec)}.
+     *
+     * @param out The stream to write to; it is flushed but not closed.
+     * @throws IOException if the stream cannot be written.
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        this.payloadTrie.writeTo(out, PayloadCodec.strings());
+    }
+
+    /**
+     * Loads a trie written by {@link #writeTo(OutputStream)}, without
+     * building it again, see {@link PayloadTrie#readFrom(InputStream, PayloadCodec)}.
+     *
+     * @param in The stream to read from; it is read up to the end of the trie.
+     * @return The trie.
+     * @throws IOException if the stream cannot be read or does not hold a
+     *                     trie of this format version.
+     */
+    public static Trie readFrom(final InputStream in) throws IOException {
+        return new Trie(PayloadTrie.readFrom(in, PayloadCodec.strings()));
+    }
+
+    /**
+     * Maps a trie written by {@link #writeTo(OutputStream)} to a file into
+     * memory, so that it takes no heap and is shared with other processes
+     * that map the same file, see {@link PayloadTrie#map(Path, PayloadCodec)}.
+     *
+     * @param file The file to map.
+     * @return The trie.
+     * @throws IOException if the file cannot be read or does not hold a trie
+     *                     of this format version.
+     */
+    public static Trie map(final Path file) throws IOException {
+        return new Trie(PayloadTrie.map(file, PayloadCodec.strings()));
+    }
+
+    /**
+     * Starts editing the keywords of this trie, which is left as it is, see
+     * {@link PayloadTrie#edit()}.
+     *
+     * @return An editor with the keywords and configuration of this trie.
+     */
+    public TrieEditor edit() {
+        return new TrieEditor(this.payloadTrie.edit());
+    }
+
     /**
      * Provides a fluent interface for constructing Trie instances.
      *
@@ -118,6 +290,43 @@ public class Trie {
             return this;
         }
 
+        /**
+         * Configure which characters the Trie treats as equal, see
+         * {@link PayloadTrieBuilder#caseFolding(CaseFolding)}.
+         *
+         * @param caseFolding The folding applied to keywords and text.
+         * @return This builder.
+         */
+        public TrieBuilder caseFolding(final CaseFolding caseFolding) {
+            delegate.caseFolding(caseFolding);
+            return this;
+        }
+
+        /**
+         * Configure the Trie to precompute its complete transition function,
+         * see {@link PayloadTrieBuilder#deterministic()}.
+         *
+         * @return This builder.
+         */
+        public TrieBuilder deterministic() {
+            delegate.deterministic();
+            return this;
+        }
+
+        /**
+         * Configure the Trie to precompute its complete transition function
+         * within a state budget, see
+         * {@link PayloadTrieBuilder#deterministic(int)}.
+         *
+         * @param stateBudget The largest number of states to build a table
+         *                    for.
+         * @return This builder.
+         */
+        public TrieBuilder deterministic(final int stateBudget) {
+            delegate.deterministic(stateBudget);
+            return this;
+        }
+
         /**
          * Configure the Trie to ignore overlapping keywords.
          *
@@ -128,6 +337,18 @@ public class Trie {
             return this;
         }
 
+        /**
+         * Configure how the Trie chooses between overlapping matches, see
+         * {@link PayloadTrieBuilder#matchKind(MatchKind)}.
+         *
+         * @param matchKind The semantics for overlapping matches.
+         * @return This builder.
+         */
+        public TrieBuilder matchKind(final MatchKind matchKind) {
+            delegate.matchKind(matchKind);
+            return this;
+        }
+
         /**
          * Adds a keyword to the Trie's list of text search keywords.
          *
@@ -209,6 +430,18 @@ public class Trie {
             return new Trie(payloadTrie);
         }
 
+        /**
+         * Configure the Trie based on the builder settings, building it on
+         * the threads of a fork/join pool, see
+         * {@link PayloadTrieBuilder#buildParallel(ForkJoinPool)}.
+         *
+         * @param pool The pool to build on.
+         * @return The configured Trie, identical to {@link #build()}.
+         */
+        public Trie buildParallel(final ForkJoinPool pool) {
+            return new Trie(this.delegate.buildParallel(pool));
+        }
+
         /**
          * @return This builder.
          * @deprecated Use ignoreCase()
@@ -225,4 +458,77 @@ public class Trie {
             return ignoreOverlaps();
         }
     }
+
+    /**
+     * Adds keywords to and removes keywords from a built trie, see
+     * {@link PayloadTrieEditor}.
+     */
+    public static class TrieEditor {
+
+        private final PayloadTrieEditor<String> delegate;
+
+        private TrieEditor(final PayloadTrieEditor<String> delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Adds a keyword, unless it is already in the trie.
+         *
+         * @param keyword The keyword to add.
+         * @return This editor.
+         * @throws NullPointerException if the keyword is null.
+         */
+        public TrieEditor addKeyword(final String keyword) {
+            delegate.addKeyword(keyword, null);
+            return this;
+        }
+
+        /**
+         * Adds a list of keywords.
+         *
+         * @param keywords The keywords to add.
+         * @return This editor.
+         */
+        public TrieEditor addKeywords(final String... keywords) {
+            for (String keyword : keywords) {
+                delegate.addKeyword(keyword, null);
+            }
+            return this;
+        }
+
+        /**
+         * Adds a list of keywords.
+         *
+         * @param keywords The keywords to add.
+         * @return This editor.
+         */
+        public TrieEditor addKeywords(final Collection<String> keywords) {
+            for (String keyword : keywords) {
+                delegate.addKeyword(keyword, null);
+            }
+            return this;
+        }
+
+        /**
+         * Removes a keyword, if it is in the trie.
+         *
+         * @param keyword The keyword to remove, exactly as it was added.
+         * @return This editor.
+         * @throws NullPointerException if the keyword is null.
+         */
+        public TrieEditor removeKeyword(final String keyword) {
+            delegate.removeKeyword(keyword);
+            return this;
+        }
+
+        /**
+         * Returns a trie with the keywords edited so far, see
+         * {@link PayloadTrieEditor#build()}.
+         *
+         * @return The edited trie.
+         */
+        public Trie build() {
+            return new Trie(delegate.build());
+        }
+    }
 }
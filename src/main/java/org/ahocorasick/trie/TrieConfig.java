@@ -8,10 +8,14 @@ public class TrieConfig {
 
     private boolean onlyWholeWordsWhiteSpaceSeparated = false;
 
-    private boolean caseInsensitive = false;
+    private CaseFolding caseFolding = CaseFolding.NONE;
 
     private boolean stopOnHit = false;
 
+    private MatchKind matchKind = MatchKind.STANDARD;
+
+    private int deterministicStateBudget = 0;
+
     public boolean isStopOnHit() {
         return stopOnHit;
     }
@@ -45,10 +49,56 @@ public class TrieConfig {
     }
 
     public boolean isCaseInsensitive() {
-        return caseInsensitive;
+        return caseFolding != CaseFolding.NONE;
     }
 
     public void setCaseInsensitive(boolean caseInsensitive) {
-        this.caseInsensitive = caseInsensitive;
+        this.caseFolding = caseInsensitive ? CaseFolding.LOWER_CASE : CaseFolding.NONE;
+    }
+
+    public CaseFolding getCaseFolding() {
+        return caseFolding;
+    }
+
+    public void setCaseFolding(CaseFolding caseFolding) {
+        this.caseFolding = caseFolding;
+    }
+
+    public MatchKind getMatchKind() {
+        return matchKind;
+    }
+
+    public void setMatchKind(MatchKind matchKind) {
+        this.matchKind = matchKind;
+    }
+
+    public boolean isDeterministic() {
+        return deterministicStateBudget > 0;
+    }
+
+    public int getDeterministicStateBudget() {
+        return deterministicStateBudget;
+    }
+
+    public void setDeterministicStateBudget(int deterministicStateBudget) {
+        this.deterministicStateBudget = deterministicStateBudget;
+    }
+
+    /**
+     * Returns a copy of this configuration, which a built trie keeps so that
+     * later changes to the builder do not affect it.
+     *
+     * @return A new configuration with the same settings.
+     */
+    TrieConfig copy() {
+        final TrieConfig copy = new TrieConfig();
+        copy.allowOverlaps = allowOverlaps;
+        copy.onlyWholeWords = onlyWholeWords;
+        copy.onlyWholeWordsWhiteSpaceSeparated = onlyWholeWordsWhiteSpaceSeparated;
+        copy.caseFolding = caseFolding;
+        copy.stopOnHit = stopOnHit;
+        copy.matchKind = matchKind;
+        copy.deterministicStateBudget = deterministicStateBudget;
+        return copy;
     }
 }
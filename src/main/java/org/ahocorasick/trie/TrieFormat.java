@@ -0,0 +1,200 @@
+package org.ahocorasick.trie;
+
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The binary format of a compiled trie, see
+ * {@link PayloadTrie#writeTo(java.io.OutputStream, PayloadCodec)}. All values
+ * are big-endian. A file starts with {@link #MAGIC} and {@link #VERSION},
+ * followed by the configuration and the arrays of the automaton, each one
+ * prefixed by its length.
+ * </p>
+ * <p>
+ * Arrays are converted a block at a time, so loading is a sequence of bulk
+ * reads instead of one call per value, and no byte is read past the end of
+ * the trie. The keywords are stored as one block of characters after their
+ * offsets, so that a {@link MappedInput} can use them where they are.
+ * </p>
+ */
+final class TrieFormat {
+
+    /**
+     * The first four bytes of every file, {@code "ACTR"}.
+     */
+    static final int MAGIC = 0x41435452;
+
+    /**
+     * The version of the layout, incremented on every incompatible change.
+     */
+    static final int VERSION = 2;
+
+    private static final int BLOCK_BYTES = 1 << 16;
+
+    private static final int ALLOW_OVERLAPS = 1;
+
+    private static final int ONLY_WHOLE_WORDS = 1 << 1;
+
+    private static final int ONLY_WHOLE_WORDS_WHITE_SPACE_SEPARATED = 1 << 2;
+
+    private static final int STOP_ON_HIT = 1 << 3;
+
+    private TrieFormat() {
+    }
+
+    static void writeHeader(final DataOutputStream out, final TrieConfig config) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        int flags = 0;
+        flags |= config.isAllowOverlaps() ? ALLOW_OVERLAPS : 0;
+        flags |= config.isOnlyWholeWords() ? ONLY_WHOLE_WORDS : 0;
+        flags |= config.isOnlyWholeWordsWhiteSpaceSeparated() ? ONLY_WHOLE_WORDS_WHITE_SPACE_SEPARATED : 0;
+        flags |= config.isStopOnHit() ? STOP_ON_HIT : 0;
+        out.writeInt(flags);
+        out.writeUTF(config.getCaseFolding().name());
+        out.writeUTF(config.getMatchKind().name());
+        out.writeInt(config.getDeterministicStateBudget());
+    }
+
+    /**
+     * Reads the header written by
+     * {@link #writeHeader(DataOutputStream, TrieConfig)}.
+     *
+     * @param in The stream positioned at the start of a trie.
+     * @return The configuration of the trie.
+     * @throws IOException if the stream does not hold a trie of this version.
+     */
+    static TrieConfig readHeader(final DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("The stream does not hold a serialized trie");
+        }
+        final int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported trie format version " + version + ", expected " + VERSION);
+        }
+
+        final int flags = in.readInt();
+        final TrieConfig config = new TrieConfig();
+        config.setAllowOverlaps((flags & ALLOW_OVERLAPS) != 0);
+        config.setOnlyWholeWords((flags & ONLY_WHOLE_WORDS) != 0);
+        config.setOnlyWholeWordsWhiteSpaceSeparated((flags & ONLY_WHOLE_WORDS_WHITE_SPACE_SEPARATED) != 0);
+        config.setStopOnHit((flags & STOP_ON_HIT) != 0);
+        config.setCaseFolding(valueOf(CaseFolding.class, in.readUTF()));
+        config.setMatchKind(valueOf(MatchKind.class, in.readUTF()));
+        config.setDeterministicStateBudget(in.readInt());
+        return config;
+    }
+
+    private static <E extends Enum<E>> E valueOf(final Class<E> type, final String name) throws IOException {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("Unknown " + type.getSimpleName() + " " + name, e);
+        }
+    }
+
+    static void writeInts(final DataOutputStream out, final IntTable values) throws IOException {
+        out.writeInt(values.length());
+        final byte[] block = new byte[Math.min(BLOCK_BYTES, values.length() * Integer.BYTES)];
+        final ByteBuffer buffer = ByteBuffer.wrap(block);
+        for (int offset = 0; offset < values.length(); ) {
+            final int count = Math.min(block.length / Integer.BYTES, values.length() - offset);
+            buffer.clear();
+            for (int i = 0; i < count; i++) {
+                buffer.putInt(values.get(offset + i));
+            }
+            out.write(block, 0, count * Integer.BYTES);
+            offset += count;
+        }
+    }
+
+    /**
+     * Reads an array written by {@link #writeInts(DataOutputStream, IntTable)}.
+     * The array grows as its values are read, so a corrupt length fails with
+     * an {@link java.io.EOFException} at the end of the data rather than
+     * allocating whatever the length claims.
+     */
+    static int[] readInts(final DataInput in) throws IOException {
+        final int length = readLength(in);
+        int[] values = new int[Math.min(length, BLOCK_BYTES)];
+        final byte[] block = new byte[(int) Math.min(BLOCK_BYTES, (long) length * Integer.BYTES)];
+        final ByteBuffer buffer = ByteBuffer.wrap(block);
+        for (int offset = 0; offset < length; ) {
+            final int count = Math.min(block.length / Integer.BYTES, length - offset);
+            in.readFully(block, 0, count * Integer.BYTES);
+            if (offset + count > values.length) {
+                values = Arrays.copyOf(values, (int) Math.min(length, 2L * values.length));
+            }
+            buffer.clear();
+            buffer.asIntBuffer().get(values, offset, count);
+            offset += count;
+        }
+        return values;
+    }
+
+    static void writeChars(final DataOutputStream out, final char[] values) throws IOException {
+        out.writeInt(values.length);
+        final byte[] block = new byte[Math.min(BLOCK_BYTES, values.length * Character.BYTES)];
+        final ByteBuffer buffer = ByteBuffer.wrap(block);
+        for (int offset = 0; offset < values.length; ) {
+            final int count = Math.min(block.length / Character.BYTES, values.length - offset);
+            buffer.clear();
+            buffer.asCharBuffer().put(values, offset, count);
+            out.write(block, 0, count * Character.BYTES);
+            offset += count;
+        }
+    }
+
+    /**
+     * Reads an array written by {@link #writeChars(DataOutputStream, char[])},
+     * growing it as its values are read like {@link #readInts(DataInput)}.
+     */
+    static char[] readChars(final DataInput in) throws IOException {
+        final int length = readLength(in);
+        char[] values = new char[Math.min(length, BLOCK_BYTES)];
+        final byte[] block = new byte[(int) Math.min(BLOCK_BYTES, (long) length * Character.BYTES)];
+        final ByteBuffer buffer = ByteBuffer.wrap(block);
+        for (int offset = 0; offset < length; ) {
+            final int count = Math.min(block.length / Character.BYTES, length - offset);
+            in.readFully(block, 0, count * Character.BYTES);
+            if (offset + count > values.length) {
+                values = Arrays.copyOf(values, (int) Math.min(length, 2L * values.length));
+            }
+            buffer.clear();
+            buffer.asCharBuffer().get(values, offset, count);
+            offset += count;
+        }
+        return values;
+    }
+
+    /**
+     * Reads a length-prefixed byte array, growing it as its bytes are read
+     * like {@link #readInts(DataInput)}.
+     */
+    static byte[] readBytes(final DataInput in) throws IOException {
+        final int length = readLength(in);
+        byte[] values = new byte[Math.min(length, BLOCK_BYTES)];
+        for (int offset = 0; offset < length; ) {
+            final int count = Math.min(BLOCK_BYTES, length - offset);
+            if (offset + count > values.length) {
+                values = Arrays.copyOf(values, (int) Math.min(length, 2L * values.length));
+            }
+            in.readFully(values, offset, count);
+            offset += count;
+        }
+        return values;
+    }
+
+    static int readLength(final DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt trie: negative array length " + length);
+        }
+        return length;
+    }
+}
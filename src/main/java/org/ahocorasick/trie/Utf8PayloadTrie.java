@@ -0,0 +1,404 @@
+package org.ahocorasick.trie;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ahocorasick.interval.OverlapResolver;
+import org.ahocorasick.trie.handler.DefaultPayloadEmitHandler;
+import org.ahocorasick.trie.handler.PayloadEmitHandler;
+import org.ahocorasick.trie.handler.StatefulPayloadEmitHandler;
+
+/**
+ * <p>
+ * A variant of {@link PayloadTrie} whose automaton reads UTF-8 encoded bytes
+ * instead of characters. Input that arrives as bytes can be scanned as is,
+ * without decoding it into a {@link String} first.
+ * </p>
+ * <p>
+ * Emits report byte offsets relative to the start of the scanned range: the
+ * start is the offset of the first byte of the match and the end the offset
+ * of its last byte. Use {@link #charOffset(byte[], int, int)} or
+ * {@link #toCharOffsets(List, byte[], int)} to translate them into character
+ * offsets of the decoded text.
+ * </p>
+ * <p>
+ * Instances are obtained through {@link PayloadTrie#toUtf8()} and share the
+ * configuration of that trie. Case-insensitive matching only folds ASCII
+ * letters in the input; non-ASCII keywords are case folded when the automaton
+ * is built, but non-ASCII input bytes are compared as they are.
+ * </p>
+ *
+ * @param <T> The type of the emitted payloads.
+ */
+public class Utf8PayloadTrie<T> {
+
+    private static final byte[] IDENTITY = new byte[256];
+
+    private static final byte[] ASCII_LOWER_CASE = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            IDENTITY[i] = (byte) i;
+            ASCII_LOWER_CASE[i] = (byte) (i >= 'A' && i <= 'Z' ? i + ('a' - 'A') : i);
+        }
+    }
+
+    private final TrieConfig trieConfig;
+
+    private final DoubleArrayTrie<T> automaton;
+
+    /**
+     * the length in bytes of every keyword, indexed like the payloads
+     */
+    private final int[] keywordLengths;
+
+    /**
+     * maps every input byte to the byte that is looked up in the automaton
+     */
+    private final byte[] fold;
+
+    Utf8PayloadTrie(final TrieConfig trieConfig, final Automaton<T> charAutomaton) {
+        this.trieConfig = trieConfig;
+        this.fold = trieConfig.isCaseInsensitive() ? ASCII_LOWER_CASE : IDENTITY;
+
+        // Every byte of the encoded keywords becomes the character of the
+        // same value, which ISO-8859-1 decodes them to.
+        final CompressedState<T> rootState = new CompressedState<>();
+        final Map<Payload<T>, Integer> insertionOrder = new IdentityHashMap<>();
+        for (int i = 0; i < charAutomaton.payloadCount(); i++) {
+            final Payload<T> payload = charAutomaton.payload(i);
+            insertionOrder.put(payload, charAutomaton.priority(i));
+            rootState.insert(payload, new String(encode(payload.getKeyword()), ISO_8859_1), 0, CaseFolding.NONE);
+        }
+
+        final DoubleArrayTrie<T> compiled = DoubleArrayTrie.compile(rootState, insertionOrder, CaseFolding.NONE,
+                null);
+        this.automaton = trieConfig.isDeterministic()
+                ? compiled.determinize(trieConfig.getDeterministicStateBudget())
+                : compiled;
+
+        this.keywordLengths = new int[automaton.payloadCount()];
+        for (int i = 0; i < keywordLengths.length; i++) {
+            keywordLengths[i] = encode(automaton.keyword(i)).length;
+        }
+    }
+
+    private byte[] encode(final String keyword) {
+        if (!trieConfig.isCaseInsensitive()) {
+            return keyword.getBytes(UTF_8);
+        }
+
+        final char[] chars = keyword.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = trieConfig.getCaseFolding().fold(chars[i]);
+        }
+        return new String(chars).getBytes(UTF_8);
+    }
+
+    /**
+     * Scans a range of UTF-8 encoded bytes and returns the emits.
+     *
+     * @param bytes  The bytes to scan.
+     * @param offset The index of the first byte to scan.
+     * @param length The number of bytes to scan.
+     * @return The emits, with byte offsets relative to {@code offset}.
+     */
+    public List<PayloadEmit<T>> parseBytes(final byte[] bytes, final int offset, final int length) {
+        final StatefulPayloadEmitHandler<T> emitHandler = new DefaultPayloadEmitHandler<>();
+        parseBytes(bytes, offset, length, emitHandler);
+
+        final List<PayloadEmit<T>> collectedEmits = emitHandler.getEmits();
+        removeOverlaps(collectedEmits);
+        return collectedEmits;
+    }
+
+    /**
+     * Scans a range of UTF-8 encoded bytes and passes every emit to the given
+     * handler, in the order they are found. Overlaps are reported as they are
+     * found, like with {@link PayloadTrie#parseText(CharSequence, PayloadEmitHandler)}:
+     * the left-most match kinds are resolved while scanning, but overlaps
+     * ignored with {@link MatchKind#STANDARD} are only removed from the emits
+     * that {@link #parseBytes(byte[], int, int)} returns.
+     *
+     * @param bytes       The bytes to scan.
+     * @param offset      The index of the first byte to scan.
+     * @param length      The number of bytes to scan.
+     * @param emitHandler Receives the emits, with byte offsets relative to
+     *                    {@code offset}.
+     */
+    public void parseBytes(final byte[] bytes, final int offset, final int length,
+                           final PayloadEmitHandler<T> emitHandler) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                    + ", array length " + bytes.length);
+        }
+
+        scan(ByteBuffer.wrap(bytes, offset, length).slice(), emitHandler);
+    }
+
+    /**
+     * Scans the remaining bytes of a buffer, from its position to its limit,
+     * and returns the emits. The position of the buffer is left unchanged.
+     *
+     * @param buffer The UTF-8 encoded bytes to scan.
+     * @return The emits, with byte offsets relative to the buffer's position.
+     */
+    public List<PayloadEmit<T>> parseBuffer(final ByteBuffer buffer) {
+        final StatefulPayloadEmitHandler<T> emitHandler = new DefaultPayloadEmitHandler<>();
+        parseBuffer(buffer, emitHandler);
+
+        final List<PayloadEmit<T>> collectedEmits = emitHandler.getEmits();
+        removeOverlaps(collectedEmits);
+        return collectedEmits;
+    }
+
+    /**
+     * Scans the remaining bytes of a buffer, from its position to its limit,
+     * and passes every emit to the given handler. The position of the buffer
+     * is left unchanged. Direct buffers are read in place. Overlaps are
+     * handled like with
+     * {@link #parseBytes(byte[], int, int, PayloadEmitHandler)}.
+     *
+     * @param buffer      The UTF-8 encoded bytes to scan.
+     * @param emitHandler Receives the emits, with byte offsets relative to the
+     *                    buffer's position.
+     */
+    public void parseBuffer(final ByteBuffer buffer, final PayloadEmitHandler<T> emitHandler) {
+        scan(buffer.slice(), emitHandler);
+    }
+
+    /**
+     * Removes overlaps like {@link PayloadTrie#removeOverlaps(List)}, with
+     * longer keywords winning by their number of characters rather than by
+     * the number of bytes they are encoded in.
+     */
+    private void removeOverlaps(final List<PayloadEmit<T>> emits) {
+        // The left-most match kinds never report overlaps, see scanLeftmost.
+        if (!trieConfig.isAllowOverlaps() && trieConfig.getMatchKind() == MatchKind.STANDARD) {
+            OverlapResolver.<PayloadEmit<T>>longest(emit -> emit.getKeyword().length()).removeOverlaps(emits);
+        }
+    }
+
+    private void scan(final ByteBuffer bytes, final PayloadEmitHandler<T> emitHandler) {
+        if (trieConfig.getMatchKind() != MatchKind.STANDARD) {
+            scanLeftmost(bytes, trieConfig.getMatchKind(), emitHandler);
+            return;
+        }
+
+        final int[] emitBuffer = new int[automaton.maxEmits()];
+        final int length = bytes.remaining();
+        int currentState = Automaton.ROOT;
+
+        for (int position = 0; position < length; position++) {
+            final char character = (char) (fold[bytes.get(position) & 0xFF] & 0xFF);
+            if (currentState == Automaton.ROOT && !automaton.isStart(character)) {
+                continue;
+            }
+
+            currentState = automaton.nextState(currentState, character);
+
+            if (processEmits(bytes, position, currentState, emitBuffer, emitHandler) && trieConfig.isStopOnHit()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Scans for left-most matches like {@link Matcher} does: the best match
+     * found so far is kept as a candidate until the depth of the current
+     * state shows that no match that starts at or before it can follow, and
+     * the scan then restarts right after the candidate.
+     */
+    private void scanLeftmost(final ByteBuffer bytes, final MatchKind matchKind,
+                              final PayloadEmitHandler<T> emitHandler) {
+        final int[] emitBuffer = new int[automaton.maxEmits()];
+        final int length = bytes.remaining();
+        int currentState = Automaton.ROOT;
+        boolean hasCandidate = false;
+        int candidateStart = 0;
+        int candidateEnd = 0;
+        int candidateKeywordId = 0;
+
+        for (int position = 0; position < length; position++) {
+            final char character = (char) (fold[bytes.get(position) & 0xFF] & 0xFF);
+            if (currentState != Automaton.ROOT || automaton.isStart(character)) {
+                currentState = automaton.nextState(currentState, character);
+
+                final int emitCount = automaton.collectEmits(currentState, emitBuffer);
+                for (int i = 0; i < emitCount; i++) {
+                    final int keywordId = emitBuffer[i];
+                    final int start = position - keywordLengths[keywordId] + 1;
+                    if (isWholeMatch(bytes, start, position) && (!hasCandidate || start < candidateStart
+                            || start == candidateStart && matchKind.prefers(position,
+                            automaton.priority(keywordId), candidateEnd, automaton.priority(candidateKeywordId)))) {
+                        hasCandidate = true;
+                        candidateStart = start;
+                        candidateEnd = position;
+                        candidateKeywordId = keywordId;
+                    }
+                }
+            }
+
+            if (hasCandidate && (position + 1 == length
+                    || position - automaton.depth(currentState) + 1 > candidateStart)) {
+                if (emitHandler.emit(new PayloadEmit<>(candidateStart, candidateEnd,
+                        automaton.keyword(candidateKeywordId), automaton.data(candidateKeywordId)))
+                        && trieConfig.isStopOnHit()) {
+                    return;
+                }
+                hasCandidate = false;
+                position = candidateEnd;
+                currentState = Automaton.ROOT;
+            }
+        }
+    }
+
+    private boolean isWholeMatch(final ByteBuffer bytes, final int start, final int end) {
+        return !(trieConfig.isOnlyWholeWords() && isPartialMatch(bytes, start, end, false))
+                && !(trieConfig.isOnlyWholeWordsWhiteSpaceSeparated() && isPartialMatch(bytes, start, end, true));
+    }
+
+    private boolean processEmits(final ByteBuffer bytes, final int position, final int state, final int[] emitBuffer,
+                                 final PayloadEmitHandler<T> emitHandler) {
+        boolean emitted = false;
+        final int emitCount = automaton.collectEmits(state, emitBuffer);
+        for (int i = 0; i < emitCount; i++) {
+            final int keywordId = emitBuffer[i];
+            final int start = position - keywordLengths[keywordId] + 1;
+            if (isWholeMatch(bytes, start, position)) {
+                emitted = emitHandler.emit(new PayloadEmit<>(start, position, automaton.keyword(keywordId),
+                        automaton.data(keywordId))) || emitted;
+                if (emitted && trieConfig.isStopOnHit()) {
+                    break;
+                }
+            }
+        }
+        return emitted;
+    }
+
+    private static boolean isPartialMatch(final ByteBuffer bytes, final int start, final int end,
+                                          final boolean whiteSpaceSeparated) {
+        if (start > 0) {
+            final int before = codePointBefore(bytes, start);
+            if (whiteSpaceSeparated ? !Character.isWhitespace(before) : Character.isAlphabetic(before)) {
+                return true;
+            }
+        }
+        if (end + 1 < bytes.limit()) {
+            final int after = codePointAt(bytes, end + 1);
+            return whiteSpaceSeparated ? !Character.isWhitespace(after) : Character.isAlphabetic(after);
+        }
+        return false;
+    }
+
+    /**
+     * Decodes the code point that ends right before the given index.
+     */
+    private static int codePointBefore(final ByteBuffer bytes, final int index) {
+        int start = index - 1;
+        while (start > 0 && start > index - 4 && (bytes.get(start) & 0xC0) == 0x80) {
+            start--;
+        }
+        return codePointAt(bytes, start);
+    }
+
+    /**
+     * Decodes the code point that starts at the given index. Malformed input
+     * decodes to the replacement character.
+     */
+    private static int codePointAt(final ByteBuffer bytes, final int index) {
+        final int lead = bytes.get(index) & 0xFF;
+        final int length;
+        int codePoint;
+
+        if (lead < 0x80) {
+            return lead;
+        } else if ((lead & 0xE0) == 0xC0) {
+            length = 2;
+            codePoint = lead & 0x1F;
+        } else if ((lead & 0xF0) == 0xE0) {
+            length = 3;
+            codePoint = lead & 0x0F;
+        } else if ((lead & 0xF8) == 0xF0) {
+            length = 4;
+            codePoint = lead & 0x07;
+        } else {
+            return 0xFFFD;
+        }
+
+        if (index + length > bytes.limit()) {
+            return 0xFFFD;
+        }
+        for (int i = 1; i < length; i++) {
+            final int next = bytes.get(index + i) & 0xFF;
+            if ((next & 0xC0) != 0x80) {
+                return 0xFFFD;
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        return codePoint;
+    }
+
+    /**
+     * Translates a byte offset into the number of UTF-16 characters that
+     * precede it once the bytes are decoded. Supplementary code points count
+     * as two characters, as they do in a {@link String}.
+     *
+     * @param bytes      The UTF-8 encoded bytes.
+     * @param offset     The index of the first byte of the scanned range.
+     * @param byteOffset A byte offset relative to {@code offset}.
+     * @return The corresponding character offset.
+     */
+    public static int charOffset(final byte[] bytes, final int offset, final int byteOffset) {
+        return charOffset(bytes, offset, 0, 0, byteOffset);
+    }
+
+    private static int charOffset(final byte[] bytes, final int offset, int fromByte, int chars, final int toByte) {
+        for (; fromByte < toByte; fromByte++) {
+            final int b = bytes[offset + fromByte] & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                chars += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * Translates the byte offsets of emits into character offsets in a
+     * single pass over the bytes. The emits must be ordered by their start,
+     * as returned by {@link #parseBytes(byte[], int, int)} with overlaps
+     * removed; otherwise every emit is translated from the start.
+     *
+     * @param emits  Emits with byte offsets.
+     * @param bytes  The UTF-8 encoded bytes the emits were found in.
+     * @param offset The index of the first byte of the scanned range.
+     * @param <T>    The type of the emitted payloads.
+     * @return New emits with character offsets.
+     */
+    public static <T> List<PayloadEmit<T>> toCharOffsets(final List<PayloadEmit<T>> emits, final byte[] bytes,
+                                                         final int offset) {
+        final List<PayloadEmit<T>> result = new ArrayList<>(emits.size());
+        int byteOffset = 0;
+        int chars = 0;
+
+        for (final PayloadEmit<T> emit : emits) {
+            if (emit.getStart() < byteOffset) {
+                byteOffset = 0;
+                chars = 0;
+            }
+            chars = charOffset(bytes, offset, byteOffset, chars, emit.getStart());
+            byteOffset = emit.getStart();
+
+            final int end = charOffset(bytes, offset, byteOffset, chars, emit.getEnd() + 1) - 1;
+            result.add(new PayloadEmit<>(chars, end, emit.getKeyword(), emit.getPayload()));
+        }
+
+        return result;
+    }
+}
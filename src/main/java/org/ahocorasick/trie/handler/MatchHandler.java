@@ -0,0 +1,20 @@
+package org.ahocorasick.trie.handler;
+
+/**
+ * Receives matches as primitive values, so scanning does not need to allocate
+ * an emit per match. The keyword and payload that belong to a keyword id can
+ * be looked up on the trie that reported the match.
+ */
+public interface MatchHandler {
+
+    /**
+     * Called for every match, in the order the matches are found.
+     *
+     * @param start     The position of the first character of the match.
+     * @param end       The position of the last character of the match.
+     * @param keywordId The id of the matched keyword.
+     * @return {@code true} if the match was accepted, which counts as a hit
+     *         when the trie stops on the first hit.
+     */
+    boolean onMatch(int start, int end, int keywordId);
+}
@@ -0,0 +1,20 @@
+package org.ahocorasick.trie.handler;
+
+/**
+ * Receives matches found in a stream as primitive values. Offsets are
+ * {@code long} values counted from the start of the stream, so streams larger
+ * than two gigacharacters can be scanned.
+ */
+public interface StreamMatchHandler {
+
+    /**
+     * Called for every match, in the order the matches are reported.
+     *
+     * @param start     The offset of the first character of the match.
+     * @param end       The offset of the last character of the match.
+     * @param keywordId The id of the matched keyword.
+     * @return {@code true} if the match was accepted, which counts as a hit
+     *         when the trie stops on the first hit.
+     */
+    boolean onMatch(long start, long end, int keywordId);
+}
@@ -0,0 +1,64 @@
+package org.ahocorasick.trie;
+
+/**
+ * <p>
+ * Finds the next character of a text that can start a keyword by comparing
+ * many characters at once against the small set of characters that can,
+ * ahead of the automaton. The automaton verifies every candidate from the
+ * root state, so the scanner only decides how far to skip and never changes
+ * the matches.
+ * </p>
+ * <p>
+ * This is the Java 17 version of the multi-release jar. It creates a
+ * {@link VectorStartScanner} if the JVM was started with
+ * {@code --add-modules jdk.incubator.vector} and the CPU compares at least
+ * {@link VectorStartScanner#MIN_LANES} characters at once. The incubating
+ * classes are only loaded in that case.
+ * </p>
+ */
+abstract class StartScanner {
+
+    /**
+     * The largest number of distinct characters, after expanding case
+     * folding, that a scanner compares against.
+     */
+    static final int MAX_ANCHORS = 8;
+
+    private static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && VectorStartScanner.isSupported();
+
+    /**
+     * Tells whether this JVM can run a vectorized scanner at all, so that
+     * automata need not collect their anchors otherwise.
+     *
+     * @return {@code true} if the Vector API is present and fast.
+     */
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Creates a scanner for the characters that can start a keyword.
+     *
+     * @param anchors The characters, as read from the text, or {@code null}
+     *                if there are more than {@link #MAX_ANCHORS}.
+     * @return The scanner, or {@code null} if the scalar search is to be
+     * used.
+     */
+    static StartScanner create(final char[] anchors) {
+        if (!AVAILABLE || anchors == null || anchors.length == 0) {
+            return null;
+        }
+        return new VectorStartScanner(anchors);
+    }
+
+    /**
+     * Finds the next anchor.
+     *
+     * @param text The text being scanned.
+     * @param from The offset to search from.
+     * @param to   The offset to stop searching at, exclusive.
+     * @return The offset of the next anchor, or {@code to} if there is none.
+     */
+    abstract int skip(CharSequence text, int from, int to);
+}
@@ -0,0 +1,110 @@
+package org.ahocorasick.trie;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>
+ * Searches for the anchors with the Vector API: the text is copied into a
+ * buffer in blocks, and every vector of characters from the buffer is
+ * compared against each anchor at once. The offset of the first lane that
+ * equals any anchor is the result.
+ * </p>
+ * <p>
+ * Gaps between anchors are often short in dense dictionaries, so the first
+ * few characters are tested one by one before paying for a block copy.
+ * Other texts than strings and string builders are searched one character
+ * at a time, since they could only be copied that way and may compute their
+ * characters on demand.
+ * </p>
+ */
+final class VectorStartScanner extends StartScanner {
+
+    /**
+     * The fewest characters a vector must hold for the scanner to be worth
+     * its block copies.
+     */
+    static final int MIN_LANES = 8;
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    private static final int SCALAR_PREFIX = 16;
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private static final ThreadLocal<char[]> BLOCKS = ThreadLocal.withInitial(() -> new char[BLOCK_SIZE]);
+
+    private final char[] anchors;
+
+    VectorStartScanner(final char[] anchors) {
+        this.anchors = anchors.clone();
+    }
+
+    static boolean isSupported() {
+        return SPECIES.length() >= MIN_LANES;
+    }
+
+    @Override
+    int skip(final CharSequence text, final int from, final int to) {
+        int position = from;
+        final boolean copyable = text instanceof String || text instanceof StringBuilder;
+        final int prefixEnd = copyable ? Math.min(to, from + SCALAR_PREFIX) : to;
+        while (position < prefixEnd) {
+            if (isAnchor(text.charAt(position))) {
+                return position;
+            }
+            position++;
+        }
+
+        final char[] block = BLOCKS.get();
+        while (position < to) {
+            final int length = Math.min(block.length, to - position);
+            copy(text, position, length, block);
+            final int index = indexOfAnchor(block, length);
+            if (index >= 0) {
+                return position + index;
+            }
+            position += length;
+        }
+        return to;
+    }
+
+    private int indexOfAnchor(final char[] block, final int length) {
+        final int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            final ShortVector vector = ShortVector.fromCharArray(SPECIES, block, i);
+            VectorMask<Short> hits = vector.eq((short) anchors[0]);
+            for (int a = 1; a < anchors.length; a++) {
+                hits = hits.or(vector.eq((short) anchors[a]));
+            }
+            if (hits.anyTrue()) {
+                return i + hits.firstTrue();
+            }
+        }
+        for (; i < length; i++) {
+            if (isAnchor(block[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isAnchor(final char c) {
+        for (final char anchor : anchors) {
+            if (c == anchor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void copy(final CharSequence text, final int from, final int length, final char[] block) {
+        if (text instanceof String) {
+            ((String) text).getChars(from, from + length, block, 0);
+        } else {
+            ((StringBuilder) text).getChars(from, from + length, block, 0);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package org.ahocorasick.interval;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class OverlapResolverTest {
+
+    @Test
+    public void longestWins() {
+        final List<Intervalable> intervals = intervals(0, 2, 4, 5, 2, 10, 6, 13, 9, 15, 12, 16);
+
+        OverlapResolver.<Intervalable>longest().removeOverlaps(intervals);
+
+        assertEquals("[2:10, 12:16]", intervals.toString());
+    }
+
+    @Test
+    public void leftmostWins() {
+        final List<Intervalable> intervals = intervals(2, 10, 0, 2, 0, 1, 4, 5, 6, 13, 12, 16);
+
+        OverlapResolver.<Intervalable>leftmost().removeOverlaps(intervals);
+
+        assertEquals("[0:2, 4:5, 6:13]", intervals.toString());
+    }
+
+    @Test
+    public void highestPriorityWins() {
+        final List<Prioritized> intervals = new ArrayList<>();
+        intervals.add(new Prioritized(0, 5, 1));
+        intervals.add(new Prioritized(3, 4, 7));
+        intervals.add(new Prioritized(5, 9, 2));
+        intervals.add(new Prioritized(6, 6, 2));
+
+        OverlapResolver.<Prioritized>highestPriority(interval -> interval.priority).removeOverlaps(intervals);
+
+        assertEquals("[3:4, 5:9]", intervals.toString());
+    }
+
+    @Test
+    public void highestPriorityWinsWithMixedSigns() {
+        final List<Prioritized> intervals = new ArrayList<>();
+        intervals.add(new Prioritized(0, 5, -1));
+        intervals.add(new Prioritized(3, 8, 0));
+        intervals.add(new Prioritized(10, 15, -5));
+        intervals.add(new Prioritized(12, 13, 7));
+        intervals.add(new Prioritized(20, 25, Integer.MIN_VALUE));
+        intervals.add(new Prioritized(22, 30, Integer.MAX_VALUE));
+
+        OverlapResolver.<Prioritized>highestPriority(interval -> interval.priority).removeOverlaps(intervals);
+
+        assertEquals("[3:8, 12:13, 22:30]", intervals.toString());
+    }
+
+    @Test
+    public void insertionOrderWins() {
+        final List<Prioritized> intervals = new ArrayList<>();
+        intervals.add(new Prioritized(0, 5, 2));
+        intervals.add(new Prioritized(3, 4, 0));
+        intervals.add(new Prioritized(5, 9, 1));
+
+        OverlapResolver.<Prioritized>insertionOrder(interval -> interval.priority).removeOverlaps(intervals);
+
+        assertEquals("[3:4, 5:9]", intervals.toString());
+    }
+
+    @Test
+    public void equalBoundsAreKeptTogether() {
+        final List<Prioritized> intervals = new ArrayList<>();
+        intervals.add(new Prioritized(0, 3, 5));
+        intervals.add(new Prioritized(2, 6, 3));
+        intervals.add(new Prioritized(0, 3, 1));
+        intervals.add(new Prioritized(0, 3, 4));
+
+        OverlapResolver.<Prioritized>highestPriority(interval -> interval.priority).removeOverlaps(intervals);
+
+        assertEquals(3, intervals.size());
+        assertEquals(5, intervals.get(0).priority);
+        assertEquals(1, intervals.get(1).priority);
+        assertEquals(4, intervals.get(2).priority);
+    }
+
+    @Test
+    public void longestRemovesOnlyTheFirstOfRepeatedLosers() {
+        final List<Prioritized> intervals = new ArrayList<>();
+        intervals.add(new Prioritized(0, 0, 1));
+        intervals.add(new Prioritized(0, 0, 2));
+        intervals.add(new Prioritized(0, 1, 3));
+        intervals.add(new Prioritized(0, 0, 4));
+
+        OverlapResolver.<Prioritized>longest().removeOverlaps(intervals);
+
+        assertEquals("[0:1, 0:0, 0:0]", intervals.toString());
+        assertEquals(3, intervals.get(0).priority);
+        assertEquals(2, intervals.get(1).priority);
+        assertEquals(4, intervals.get(2).priority);
+    }
+
+    @Test
+    public void emptyAndSingle() {
+        final List<Intervalable> intervals = new ArrayList<>();
+        assertTrue(OverlapResolver.<Intervalable>longest().removeOverlaps(intervals).isEmpty());
+
+        intervals.add(new Interval(3, 4));
+        assertEquals(1, OverlapResolver.<Intervalable>longest().removeOverlaps(intervals).size());
+    }
+
+    @Test
+    public void negativeOffsets() {
+        final List<Intervalable> intervals = intervals(-5, -1, -2, 3, 4, 4);
+
+        OverlapResolver.<Intervalable>longest().removeOverlaps(intervals);
+
+        assertEquals("[-2:3, 4:4]", intervals.toString());
+    }
+
+    @Test
+    public void farApartIntervals() {
+        final List<Intervalable> intervals = intervals(Integer.MAX_VALUE - 3, Integer.MAX_VALUE,
+                0, 2, Integer.MAX_VALUE - 1, Integer.MAX_VALUE, 1, 1, Integer.MIN_VALUE, Integer.MIN_VALUE + 4);
+
+        OverlapResolver.<Intervalable>longest().removeOverlaps(intervals);
+
+        assertEquals("[" + Integer.MIN_VALUE + ":" + (Integer.MIN_VALUE + 4) + ", 0:2, "
+                + (Integer.MAX_VALUE - 3) + ":" + Integer.MAX_VALUE + "]", intervals.toString());
+    }
+
+    @Test
+    public void randomizedAgainstGreedy() {
+        final Random random = new Random(3);
+        for (int round = 0; round < 500; round++) {
+            final List<Prioritized> intervals = new ArrayList<>();
+            for (int i = 0; i < random.nextInt(40); i++) {
+                final int start = random.nextInt(50);
+                intervals.add(new Prioritized(start, start + random.nextInt(6), random.nextInt(7) - 3));
+            }
+
+            final Comparator<Prioritized> bySize = Comparator
+                    .comparingInt((Prioritized interval) -> -interval.size())
+                    .thenComparingInt(Interval::getStart);
+            assertSameAsIntervalTree(intervals);
+            assertGreedy(intervals, Comparator.comparingInt((Prioritized interval) -> interval.getStart())
+                            .thenComparing(bySize),
+                    OverlapResolver.leftmost());
+            assertGreedy(intervals, Comparator.comparingInt((Prioritized interval) -> -interval.priority)
+                    .thenComparing(bySize), OverlapResolver.highestPriority(interval -> interval.priority));
+            assertGreedy(intervals, Comparator.comparingInt((Prioritized interval) -> interval.priority)
+                    .thenComparing(bySize), OverlapResolver.insertionOrder(interval -> interval.priority));
+        }
+    }
+
+    /**
+     * Compares the resolver with a straightforward greedy pass over the
+     * intervals in the order of the policy.
+     */
+    private static void assertGreedy(final List<Prioritized> intervals, final Comparator<Prioritized> order,
+                                     final OverlapResolver<Prioritized> resolver) {
+        final List<Prioritized> sorted = new ArrayList<>(intervals);
+        sorted.sort(order);
+        final List<Prioritized> expected = new ArrayList<>();
+        for (final Prioritized interval : sorted) {
+            boolean conflict = false;
+            for (final Prioritized kept : expected) {
+                conflict |= kept.overlapsWith(interval) && !kept.equals(interval);
+            }
+            if (!conflict) {
+                expected.add(interval);
+            }
+        }
+        expected.sort(Comparator.comparingInt((Prioritized interval) -> interval.getStart())
+                .thenComparingInt(interval -> -interval.size())
+                .thenComparingInt(interval -> indexOf(intervals, interval)));
+
+        final List<Prioritized> actual = resolver.removeOverlaps(new ArrayList<>(intervals));
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+
+    /**
+     * Compares {@link OverlapResolver#longest()} with the algorithm that
+     * {@link IntervalTree#removeOverlaps(List)} used before it delegated to
+     * the resolver, which removed only one of several losing intervals with
+     * the same bounds.
+     */
+    private static void assertSameAsIntervalTree(final List<Prioritized> intervals) {
+        final List<Intervalable> expected = new ArrayList<>(intervals);
+        if (!expected.isEmpty()) {
+            final IntervalNode tree = new IntervalNode(expected);
+            expected.sort(new IntervalableComparatorBySize());
+            final Set<Intervalable> removeIntervals = new TreeSet<>();
+            for (final Intervalable interval : expected) {
+                if (!removeIntervals.contains(interval)) {
+                    removeIntervals.addAll(tree.findOverlaps(interval));
+                }
+            }
+            for (final Intervalable removeInterval : removeIntervals) {
+                expected.remove(removeInterval);
+            }
+            expected.sort(new IntervalableComparatorByPosition());
+        }
+
+        final List<Prioritized> actual =
+                OverlapResolver.<Prioritized>longest().removeOverlaps(new ArrayList<>(intervals));
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static int indexOf(final List<Prioritized> intervals, final Prioritized interval) {
+        for (int i = 0; i < intervals.size(); i++) {
+            if (intervals.get(i) == interval) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Intervalable> intervals(final int... bounds) {
+        final List<Intervalable> intervals = new ArrayList<>();
+        for (int i = 0; i < bounds.length; i += 2) {
+            intervals.add(new Interval(bounds[i], bounds[i + 1]));
+        }
+        Collections.shuffle(intervals, new Random(bounds.length));
+        return intervals;
+    }
+
+    private static final class Prioritized extends Interval {
+
+        private final int priority;
+
+        private Prioritized(final int start, final int end, final int priority) {
+            super(start, end);
+            this.priority = priority;
+        }
+    }
+}
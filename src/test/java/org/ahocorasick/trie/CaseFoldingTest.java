@@ -0,0 +1,92 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CaseFoldingTest {
+
+    @Test
+    public void test_foldedCharacters() {
+        assertEquals('a', CaseFolding.NONE.fold('a'));
+        assertEquals('A', CaseFolding.NONE.fold('A'));
+        assertEquals('a', CaseFolding.LOWER_CASE.fold('A'));
+        assertEquals('i', CaseFolding.LOWER_CASE.fold('İ'));
+        assertEquals('s', CaseFolding.SIMPLE.fold('ſ'));
+        assertEquals('σ', CaseFolding.SIMPLE.fold('ς'));
+        assertEquals('k', CaseFolding.SIMPLE.fold('K'));
+        assertEquals('İ', CaseFolding.SIMPLE.fold('İ'));
+        assertEquals('ı', CaseFolding.SIMPLE.fold('ı'));
+    }
+
+    @Test
+    public void test_ignoreCaseUsesLowerCase() {
+        final Trie trie = Trie.builder().ignoreCase().addKeyword("Hello").build();
+
+        final Collection<Emit> emits = trie.parseText("say HELLO and hello");
+
+        assertEquals(2, emits.size());
+    }
+
+    @Test
+    public void test_simpleFoldingMatchesCaseVariants() {
+        final Trie trie = Trie.builder()
+                .caseFolding(CaseFolding.SIMPLE)
+                .addKeyword("οδος")
+                .addKeyword("kiss")
+                .build();
+
+        final List<String> keywords = new ArrayList<>();
+        for (final Emit emit : trie.parseText("ΟΔΟΣ KiſS")) {
+            keywords.add(emit.getKeyword());
+        }
+
+        assertEquals(2, keywords.size());
+    }
+
+    @Test
+    public void test_simpleFoldingKeepsTurkishI() {
+        final Trie simple = Trie.builder().caseFolding(CaseFolding.SIMPLE).addKeyword("istanbul").build();
+        final Trie lowerCase = Trie.builder().ignoreCase().addKeyword("istanbul").build();
+
+        assertFalse(simple.containsMatch("İstanbul"));
+        assertTrue(simple.containsMatch("ISTANBUL"));
+        assertTrue(lowerCase.containsMatch("İstanbul"));
+    }
+
+    @Test
+    public void test_allScansFold() {
+        final PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .caseFolding(CaseFolding.SIMPLE)
+                .addKeyword("he")
+                .addKeyword("She")
+                .build();
+        final String text = "uSHErs";
+
+        assertEquals(2, trie.parseText(text).size());
+        assertNotNull(trie.firstMatch(text));
+        assertEquals(2, trie.stream(text).count());
+
+        final List<Long> starts = new ArrayList<>();
+        final StreamingMatcher<String> matcher = trie.streamingMatcher((start, end, keywordId) -> starts.add(start));
+        matcher.feed(text.toCharArray(), 0, text.length());
+        matcher.finish();
+        assertEquals(2, starts.size());
+    }
+
+    @Test
+    public void test_configReportsCaseInsensitivity() {
+        final TrieConfig config = new TrieConfig();
+        assertFalse(config.isCaseInsensitive());
+
+        config.setCaseFolding(CaseFolding.SIMPLE);
+        assertTrue(config.isCaseInsensitive());
+
+        config.setCaseInsensitive(true);
+        assertEquals(CaseFolding.LOWER_CASE, config.getCaseFolding());
+    }
+}
@@ -0,0 +1,67 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+public class CharClassesTest {
+
+    @Test
+    public void test_classesFollowTheOrderOfTheCharacters() {
+        final CharClasses classes = CharClasses.of(characters("zaé"), CaseFolding.NONE);
+
+        assertEquals(4, classes.size());
+        assertEquals(1, classes.classOf('a'));
+        assertEquals(2, classes.classOf('z'));
+        assertEquals(3, classes.classOf('é'));
+        assertEquals(CharClasses.OTHER, classes.classOf('b'));
+        assertEquals(CharClasses.OTHER, classes.classOf('A'));
+        assertEquals(CharClasses.OTHER, classes.classOf('\uFFFF'));
+    }
+
+    @Test
+    public void test_foldedCharactersShareTheirClass() {
+        final CharClasses classes = CharClasses.of(characters("ks"), CaseFolding.SIMPLE);
+
+        assertEquals(classes.classOf('k'), classes.classOf('K'));
+        assertEquals(classes.classOf('k'), classes.classOf('\u212A'));
+        assertEquals(classes.classOf('s'), classes.classOf('ſ'));
+        assertNotEquals(classes.classOf('k'), classes.classOf('s'));
+    }
+
+    @Test
+    public void test_everyCharacterInUse() {
+        final BitSet all = new BitSet();
+        all.set(0, Character.MAX_VALUE);
+
+        final CharClasses classes = CharClasses.of(all, CaseFolding.NONE);
+
+        assertEquals(Character.MAX_VALUE + 1, classes.size());
+        assertEquals(Character.MAX_VALUE, classes.classOf('\uFFFE'));
+        assertEquals(CharClasses.OTHER, classes.classOf('\uFFFF'));
+    }
+
+    @Test
+    public void test_charactersOfClassesIncludeFoldedCharacters() {
+        final CharClasses classes = CharClasses.of(characters("ksé中"), CaseFolding.SIMPLE);
+        final boolean[] selected = new boolean[classes.size()];
+        selected[classes.classOf('k')] = true;
+        selected[classes.classOf('中')] = true;
+
+        assertArrayEquals("Kk\u212A中".toCharArray(), classes.charactersOf(selected, 8));
+        assertNull(classes.charactersOf(selected, 3));
+        assertEquals(-1, classes.onlyCharacterOf(classes.classOf('k')));
+        assertEquals('中', classes.onlyCharacterOf(classes.classOf('中')));
+        assertEquals('é', CharClasses.of(characters("é"), CaseFolding.NONE).onlyCharacterOf((char) 1));
+    }
+
+    private static BitSet characters(final String characters) {
+        final BitSet result = new BitSet();
+        for (final char c : characters.toCharArray()) {
+            result.set(c);
+        }
+        return result;
+    }
+}
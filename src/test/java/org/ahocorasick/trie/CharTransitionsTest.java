@@ -0,0 +1,81 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CharTransitionsTest {
+
+    @Test
+    public void test_empty() {
+        final CharTransitions<String> transitions = new CharTransitions<>(false);
+
+        assertEquals(0, transitions.size());
+        assertNull(transitions.get('a'));
+        assertEquals(0, transitions.keys().length);
+        assertTrue(transitions.values().isEmpty());
+    }
+
+    @Test
+    public void test_singleTransition() {
+        final CharTransitions<String> transitions = new CharTransitions<>(false);
+        transitions.put('x', "x");
+
+        assertEquals("x", transitions.get('x'));
+        assertNull(transitions.get('y'));
+        assertArrayEquals(new char[]{'x'}, transitions.keys());
+    }
+
+    @Test
+    public void test_sortedTransitions() {
+        final CharTransitions<String> transitions = fill(new CharTransitions<String>(false), "dbca");
+
+        assertEquals(4, transitions.size());
+        assertEquals("c", transitions.get('c'));
+        assertNull(transitions.get('e'));
+        assertArrayEquals("abcd".toCharArray(), transitions.keys());
+    }
+
+    @Test
+    public void test_hashedTransitions() {
+        final String keys = "the quick brown fox jumps over lazy dog THE QUICK BROWN FOX JUMPS OVER LAZY DOG 0123456789";
+        final CharTransitions<String> transitions = fill(new CharTransitions<String>(false), keys);
+
+        for (final char key : keys.toCharArray()) {
+            assertEquals(String.valueOf(key), transitions.get(key));
+        }
+        assertNull(transitions.get('!'));
+        assertNull(transitions.get('￿'));
+
+        final char[] sorted = transitions.keys();
+        assertEquals(transitions.size(), sorted.length);
+        for (int i = 1; i < sorted.length; i++) {
+            assertTrue(sorted[i - 1] < sorted[i]);
+        }
+    }
+
+    @Test
+    public void test_directTransitions() {
+        final CharTransitions<String> transitions = fill(new CharTransitions<String>(true), "zyxwvutsrqp￿\u0000");
+
+        assertEquals(13, transitions.size());
+        assertEquals("￿", transitions.get('￿'));
+        assertEquals("\u0000", transitions.get('\u0000'));
+        assertNull(transitions.get('a'));
+
+        final List<String> values = transitions.values();
+        assertEquals("\u0000", values.get(0));
+        assertEquals("￿", values.get(values.size() - 1));
+    }
+
+    private static CharTransitions<String> fill(final CharTransitions<String> transitions, final String keys) {
+        for (final char key : keys.toCharArray()) {
+            if (transitions.get(key) == null) {
+                transitions.put(key, String.valueOf(key));
+            }
+        }
+        return transitions;
+    }
+}
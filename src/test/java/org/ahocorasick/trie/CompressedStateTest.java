@@ -0,0 +1,128 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.ahocorasick.trie.TestHelper.compile;
+import static org.junit.Assert.*;
+
+public class CompressedStateTest {
+
+    @Test
+    public void test_chainIsOneNode() {
+        final CompressedState<String> root = new CompressedState<>();
+        assertTrue(root.insert(new Payload<>("http://example.com/index.html", null), 0, CaseFolding.NONE));
+        assertEquals(2, root.countNodes());
+
+        assertTrue(root.insert(new Payload<>("http://example.com/about", null), 0, CaseFolding.NONE));
+        assertEquals(4, root.countNodes());
+        final CompressedState<String> shared = root.getStates().get(0);
+        assertEquals("http://example.com/", new String(shared.getSegment()));
+        assertEquals("about", new String(shared.getStates().get(0).getSegment()));
+        assertEquals("index.html", new String(shared.getStates().get(1).getSegment()));
+    }
+
+    @Test
+    public void test_keywordEndingInSegmentSplitsIt() {
+        final CompressedState<String> root = new CompressedState<>();
+        root.insert(new Payload<>("hers", null), 0, CaseFolding.NONE);
+        assertTrue(root.insert(new Payload<>("he", "first"), 0, CaseFolding.NONE));
+        assertFalse(root.insert(new Payload<>("he", "second"), 0, CaseFolding.NONE));
+
+        final CompressedState<String> he = root.getStates().get(0);
+        assertEquals("he", new String(he.getSegment()));
+        assertEquals("first", he.emit().iterator().next().getData());
+        assertEquals("rs", new String(he.getStates().get(0).getSegment()));
+        assertEquals(3, root.countNodes());
+    }
+
+    @Test
+    public void test_failureInTheMiddleOfASegment() {
+        final DoubleArrayTrie<String> automaton = compile(CaseFolding.NONE, "abcdefgh", "cdx", "d");
+        final int[] buffer = new int[automaton.maxEmits()];
+
+        int state = DoubleArrayTrie.ROOT;
+        for (final char c : "abcd".toCharArray()) {
+            state = automaton.nextState(state, c);
+        }
+        assertEquals(1, automaton.collectEmits(state, buffer));
+        assertEquals("d", automaton.payload(buffer[0]).getKeyword());
+
+        // "abcd" fails to "cd", which continues with 'x'
+        state = automaton.nextState(state, 'x');
+        assertEquals(1, automaton.collectEmits(state, buffer));
+        assertEquals("cdx", automaton.payload(buffer[0]).getKeyword());
+    }
+
+    @Test
+    public void test_sameAutomatonAsSortedKeywords() throws IOException {
+        final Random random = new Random(25);
+        for (final CaseFolding caseFolding : CaseFolding.values()) {
+            for (int round = 0; round < 20; round++) {
+                final String[] keywords = new String[200];
+                for (int i = 0; i < keywords.length; i++) {
+                    keywords[i] = randomPath(random);
+                }
+
+                assertArrayEquals(serialize(sorted(caseFolding, keywords)),
+                        serialize(compile(caseFolding, keywords)));
+            }
+        }
+    }
+
+    /**
+     * Compiles the keywords without a state graph, the way a loader does:
+     * distinct keywords sorted by keyword, with the position each was first
+     * added at as its priority.
+     */
+    private static DoubleArrayTrie<String> sorted(final CaseFolding caseFolding, final String... keywords) {
+        final Map<String, Integer> insertionOrder = new TreeMap<>();
+        for (final String keyword : keywords) {
+            insertionOrder.putIfAbsent(keyword, insertionOrder.size());
+        }
+
+        final StringBuilder characters = new StringBuilder();
+        final int[] offsets = new int[insertionOrder.size() + 1];
+        final String[] data = new String[insertionOrder.size()];
+        final int[] priorities = new int[insertionOrder.size()];
+        int index = 0;
+        for (final Map.Entry<String, Integer> entry : insertionOrder.entrySet()) {
+            offsets[index] = characters.length();
+            characters.append(entry.getKey());
+            data[index] = entry.getKey();
+            priorities[index++] = entry.getValue();
+        }
+        offsets[index] = characters.length();
+        return DoubleArrayTrie.compile(characters.toString().toCharArray(), offsets, data, priorities, caseFolding);
+    }
+
+    private static byte[] serialize(final DoubleArrayTrie<String> automaton) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            automaton.writeTo(out, PayloadCodec.strings());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns a path of a few segments from a small set, so that the paths
+     * share long prefixes and contain each other's segments.
+     */
+    private static String randomPath(final Random random) {
+        final String[] segments = {"/usr", "/Lib", "/lib64", "/share", "/l", "/s"};
+        final List<String> parts = new ArrayList<>();
+        final int count = 1 + random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            parts.add(segments[random.nextInt(segments.length)]);
+        }
+        return String.join("", parts);
+    }
+}
@@ -0,0 +1,107 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+
+import static org.ahocorasick.trie.TestHelper.compile;
+import static org.junit.Assert.*;
+
+public class DeterministicTest {
+
+    @Test
+    public void test_deterministicTrieFindsTheSameMatches() {
+        final Random random = new Random(7);
+
+        for (int round = 0; round < 50; round++) {
+            final List<String> keywords = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                keywords.add(randomText(random, 1 + random.nextInt(6)));
+            }
+            final String text = randomText(random, 400);
+
+            assertSameMatches(keywords, text, builder -> builder);
+            assertSameMatches(keywords, text, builder -> builder.ignoreCase().onlyWholeWords());
+            assertSameMatches(keywords, text, PayloadTrie.PayloadTrieBuilder::ignoreOverlaps);
+            assertSameMatches(keywords, text, builder -> builder.matchKind(MatchKind.LEFTMOST_LONGEST));
+        }
+    }
+
+    @Test
+    public void test_failureChainsAreFolded() {
+        final DoubleArrayTrie<String> automaton = compile(CaseFolding.NONE, "aaaab", "aab", "c");
+        final DoubleArrayTrie<String> deterministic = automaton.determinize(Integer.MAX_VALUE);
+        assertTrue(deterministic.isDeterministic());
+
+        int expected = DoubleArrayTrie.ROOT;
+        int actual = DoubleArrayTrie.ROOT;
+        for (final char c : "aaaaacaabxaaaab".toCharArray()) {
+            expected = automaton.nextState(expected, c);
+            actual = deterministic.nextState(actual, c);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void test_fallsBackAboveTheBudget() {
+        final Trie small = Trie.builder().deterministic(1000).addKeyword("he").addKeyword("she").build();
+        final Trie large = Trie.builder().deterministic(2).addKeyword("he").addKeyword("she").build();
+
+        assertTrue(small.isDeterministic());
+        assertFalse(large.isDeterministic());
+        assertFalse(Trie.builder().addKeyword("he").build().isDeterministic());
+        assertEquals(small.parseText("ushers").toString(), large.parseText("ushers").toString());
+    }
+
+    @Test
+    public void test_tableBytesAreReported() {
+        final PayloadTrie<String> trie = PayloadTrie.<String>builder().deterministic()
+                .addKeyword("he")
+                .addKeyword("she")
+                .build();
+        final DoubleArrayTrie<String> automaton = compile(CaseFolding.NONE, "he", "she");
+
+        // three classes for 'e', 'h' and 's' plus the one for other characters
+        assertEquals((long) automaton.size() * 4 * Integer.BYTES, trie.getDeterministicTableBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_budgetMustBePositive() {
+        Trie.builder().deterministic(0);
+    }
+
+    private static void assertSameMatches(final List<String> keywords, final String text,
+                                          final UnaryOperator<PayloadTrie.PayloadTrieBuilder<String>> config) {
+        final PayloadTrie<String> trie = build(config.apply(PayloadTrie.builder()), keywords);
+        final PayloadTrie<String> deterministic = build(config.apply(PayloadTrie.<String>builder().deterministic()),
+                keywords);
+        assertTrue(deterministic.isDeterministic());
+
+        assertEquals(trie.parseText(text).toString(), deterministic.parseText(text).toString());
+        assertEquals(String.valueOf(trie.firstMatch(text)), String.valueOf(deterministic.firstMatch(text)));
+
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        assertEquals(trie.toUtf8().parseBytes(bytes, 0, bytes.length).toString(),
+                deterministic.toUtf8().parseBytes(bytes, 0, bytes.length).toString());
+    }
+
+    private static PayloadTrie<String> build(final PayloadTrie.PayloadTrieBuilder<String> builder,
+                                             final List<String> keywords) {
+        for (final String keyword : keywords) {
+            builder.addKeyword(keyword);
+        }
+        return builder.build();
+    }
+
+    private static String randomText(final Random random, final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append("aAbc d".charAt(random.nextInt(6)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,176 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.ahocorasick.trie.TestHelper.compile;
+import static org.junit.Assert.*;
+
+public class DoubleArrayTrieTest {
+
+    @Test
+    public void test_transitionsFollowGotoFunction() {
+        final DoubleArrayTrie<String> automaton = compile(CaseFolding.NONE, "he", "she", "his", "hers");
+
+        final int h = automaton.nextState(DoubleArrayTrie.ROOT, 'h');
+        assertNotEquals(DoubleArrayTrie.ROOT, h);
+        final int he = automaton.nextState(h, 'e');
+        final int[] buffer = new int[automaton.maxEmits()];
+        assertEquals(1, automaton.collectEmits(he, buffer));
+        assertEquals("he", automaton.payload(buffer[0]).getKeyword());
+        assertEquals(DoubleArrayTrie.ROOT, automaton.nextState(DoubleArrayTrie.ROOT, 'x'));
+    }
+
+    @Test
+    public void test_outputLinkCarriesSuffixEmits() {
+        final DoubleArrayTrie<String> automaton = compile(CaseFolding.NONE, "he", "she", "his", "hers");
+        final int[] buffer = new int[automaton.maxEmits()];
+
+        int state = DoubleArrayTrie.ROOT;
+        for (final char c : "she".toCharArray()) {
+            state = automaton.nextState(state, c);
+        }
+
+        assertEquals(2, automaton.collectEmits(state, buffer));
+        assertEquals("he", automaton.payload(buffer[0]).getKeyword());
+        assertEquals("she", automaton.payload(buffer[1]).getKeyword());
+
+        // "she" fails to "he", which continues with 'r'
+        state = automaton.nextState(state, 'r');
+        state = automaton.nextState(state, 's');
+        assertEquals(1, automaton.collectEmits(state, buffer));
+        assertEquals("hers", automaton.payload(buffer[0]).getKeyword());
+    }
+
+    @Test
+    public void test_outputChainIsOrderedByKeyword() {
+        final DoubleArrayTrie<String> automaton = compile(CaseFolding.NONE, "abcd", "bcd", "cd", "d", "xbcd");
+        final int[] buffer = new int[automaton.maxEmits()];
+
+        int state = DoubleArrayTrie.ROOT;
+        for (final char c : "abcd".toCharArray()) {
+            state = automaton.nextState(state, c);
+        }
+
+        assertEquals(4, automaton.maxEmits());
+        assertEquals(4, automaton.collectEmits(state, buffer));
+        assertEquals("abcd", automaton.payload(buffer[0]).getKeyword());
+        assertEquals("bcd", automaton.payload(buffer[1]).getKeyword());
+        assertEquals("cd", automaton.payload(buffer[2]).getKeyword());
+        assertEquals("d", automaton.payload(buffer[3]).getKeyword());
+    }
+
+    @Test
+    public void test_sparseAlphabet() {
+        final DoubleArrayTrie<String> automaton = compile(CaseFolding.NONE, "\u0001", "￿\u0001", "中文");
+
+        int state = automaton.nextState(DoubleArrayTrie.ROOT, '￿');
+        state = automaton.nextState(state, '\u0001');
+        assertEquals(2, automaton.collectEmits(state, new int[automaton.maxEmits()]));
+    }
+
+    @Test
+    public void test_alphabetIsCompressedIntoClasses() {
+        final DoubleArrayTrie<String> automaton = compile(CaseFolding.NONE, "中文", "中国", "文");
+
+        assertEquals(4, automaton.alphabetSize());
+        assertTrue("size " + automaton.size(), automaton.size() < 16);
+
+        final int zhong = automaton.nextState(DoubleArrayTrie.ROOT, '中');
+        final int zhongWen = automaton.nextState(zhong, '文');
+        assertEquals(2, automaton.collectEmits(zhongWen, new int[automaton.maxEmits()]));
+        assertEquals(DoubleArrayTrie.ROOT, automaton.nextState(zhong, '\u0003'));
+    }
+
+    @Test
+    public void test_skipToStart() {
+        final DoubleArrayTrie<String> single = compile(CaseFolding.NONE, "xyz", "xa");
+        assertEquals(5, single.skipToStart("aaaaaxyz", 0, 8));
+        assertEquals(5, single.skipToStart(new StringBuilder("aaaaaxyz"), 0, 8));
+        assertEquals(4, single.skipToStart("aaaaaxyz", 0, 4));
+        assertEquals(8, single.skipToStart("aaaaaxyz", 6, 8));
+
+        final DoubleArrayTrie<String> several = compile(CaseFolding.NONE, "xyz", "yes");
+        assertEquals(2, several.skipToStart("abyxz", 0, 5));
+        assertTrue(several.isStart('y'));
+        assertFalse(several.isStart('z'));
+    }
+
+    @Test
+    public void test_sparseDictionaryMatchesBruteForce() {
+        final Random random = new Random(43);
+
+        for (int round = 0; round < 50; round++) {
+            final List<String> keywords = new ArrayList<>();
+            final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.builder();
+            for (int i = 0; i < 1 + round % 3; i++) {
+                final String keyword = (char) ('c' + i) + randomText(random, random.nextInt(3));
+                keywords.add(keyword);
+                builder.addKeyword(keyword, keyword);
+            }
+            final PayloadTrie<String> trie = builder.build();
+            final String text = randomText(random, 100) + "cdeab" + randomText(random, 100);
+
+            assertEquals(bruteForce(keywords, text), asStrings(trie.parseText(text)));
+            assertEquals(bruteForce(keywords, text), asStrings(trie.parseText(new StringBuilder(text))));
+            assertEquals(bruteForce(keywords, text), asStrings(trie.stream(text).collect(Collectors.toList())));
+        }
+    }
+
+    @Test
+    public void test_randomDictionaryMatchesBruteForce() {
+        final Random random = new Random(42);
+
+        for (int round = 0; round < 50; round++) {
+            final List<String> keywords = new ArrayList<>();
+            final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.builder();
+            for (int i = 0; i < 30; i++) {
+                final String keyword = randomText(random, 1 + random.nextInt(5));
+                keywords.add(keyword);
+                builder.addKeyword(keyword, keyword);
+            }
+            final PayloadTrie<String> trie = builder.build();
+            final String text = randomText(random, 500);
+
+            assertEquals(bruteForce(keywords, text), asStrings(trie.parseText(text)));
+        }
+    }
+
+    private static String randomText(final Random random, final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+
+    private static List<String> bruteForce(final List<String> keywords, final String text) {
+        final List<String> result = new ArrayList<>();
+        for (int end = 0; end < text.length(); end++) {
+            final List<String> found = new ArrayList<>();
+            for (final String keyword : keywords) {
+                final int start = end - keyword.length() + 1;
+                if (start >= 0 && text.startsWith(keyword, start) && !found.contains(keyword)) {
+                    found.add(keyword);
+                }
+            }
+            found.sort(null);
+            for (final String keyword : found) {
+                result.add((end - keyword.length() + 1) + ":" + end + "=" + keyword);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> asStrings(final Iterable<PayloadEmit<String>> emits) {
+        final List<String> result = new ArrayList<>();
+        for (final PayloadEmit<String> emit : emits) {
+            result.add(emit.getStart() + ":" + emit.getEnd() + "=" + emit.getKeyword());
+        }
+        return result;
+    }
+}
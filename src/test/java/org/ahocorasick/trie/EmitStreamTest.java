@@ -0,0 +1,95 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class EmitStreamTest {
+
+    @Test
+    public void test_streamHasTheEmitsOfParseText() {
+        final PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .ignoreOverlaps()
+                .addKeyword("he")
+                .addKeyword("she")
+                .addKeyword("hers")
+                .addKeyword("his")
+                .build();
+        final String text = "ushers say: hers is his, she said.";
+
+        final List<String> expected = new ArrayList<>();
+        trie.parseText(text).forEach(emit -> expected.add(emit.toString()));
+
+        assertEquals(expected, trie.stream(text).map(PayloadEmit::toString).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void test_trieStream() {
+        final Trie trie = Trie.builder().addKeyword("he").addKeyword("she").build();
+
+        final List<Emit> emits = trie.stream("ushers").collect(Collectors.toList());
+
+        assertEquals(2, emits.size());
+        assertEquals("he", emits.get(0).getKeyword());
+        assertEquals("she", emits.get(1).getKeyword());
+    }
+
+    @Test
+    public void test_limitStopsTheScan() {
+        final Trie trie = Trie.builder().addKeyword("ab").build();
+        final CountingSequence text = new CountingSequence("xxabxxabxxabxxabxxab");
+
+        final List<Emit> emits = trie.stream(text).limit(2).collect(Collectors.toList());
+
+        assertEquals(2, emits.size());
+        assertEquals(6, emits.get(1).getStart());
+        // the first character of every match is read twice, by the skip loop and the transition
+        assertTrue("scanned " + text.reads + " characters", text.reads <= 10);
+    }
+
+    @Test
+    public void test_findFirstOnEmptyResult() {
+        final Trie trie = Trie.builder().addKeyword("zz").build();
+
+        assertFalse(trie.stream("abc").findFirst().isPresent());
+    }
+
+    /**
+     * Counts how many characters are read.
+     */
+    private static final class CountingSequence implements CharSequence {
+
+        private final String text;
+
+        private int reads;
+
+        private CountingSequence(final String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(final int index) {
+            reads++;
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class LiveTrieTest {
+
+    @Test
+    public void test_getReturnsTheFirstVersion() {
+        final Trie trie = trie("he");
+        final LiveTrie<Trie> live = new LiveTrie<>(trie);
+
+        assertSame(trie, live.get());
+        assertEquals(0, live.version());
+    }
+
+    @Test
+    public void test_setReplacesTheTrie() {
+        final LiveTrie<Trie> live = new LiveTrie<>(trie("he"));
+
+        live.set(trie("she"));
+
+        assertEquals("[1:3=she]", live.get().parseText("ushers").toString());
+        assertEquals(1, live.version());
+    }
+
+    @Test
+    public void test_rebuildPublishesInTheBackground() throws Exception {
+        final LiveTrie<Trie> live = new LiveTrie<>(trie("he"));
+
+        final Trie rebuilt = live.rebuild(() -> trie("hers")).get(10, TimeUnit.SECONDS);
+
+        assertSame(rebuilt, live.get());
+        assertEquals("[2:5=hers]", live.get().parseText("ushers").toString());
+    }
+
+    @Test
+    public void test_oldVersionIsScannedUntilTheRebuildIsDone() throws Exception {
+        final Trie first = trie("he");
+        final LiveTrie<Trie> live = new LiveTrie<>(first);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final CompletableFuture<Trie> rebuild = live.rebuild(() -> {
+            await(release);
+            return trie("she");
+        });
+
+        assertSame(first, live.get());
+        release.countDown();
+        assertSame(rebuild.get(10, TimeUnit.SECONDS), live.get());
+    }
+
+    @Test
+    public void test_laterVersionWinsOverSlowerRebuild() throws Exception {
+        final LiveTrie<Trie> live = new LiveTrie<>(trie("he"));
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final CompletableFuture<Trie> slow = live.rebuild(() -> {
+            await(release);
+            return trie("slow");
+        });
+        final Trie fast = trie("fast");
+        live.set(fast);
+        release.countDown();
+        slow.get(10, TimeUnit.SECONDS);
+
+        assertSame(fast, live.get());
+        assertEquals(2, live.version());
+    }
+
+    @Test
+    public void test_failedRebuildKeepsTheCurrentVersion() throws InterruptedException {
+        final Trie first = trie("he");
+        final LiveTrie<Trie> live = new LiveTrie<>(first);
+
+        try {
+            live.rebuild(() -> {
+                throw new IllegalStateException("no keywords");
+            }).get();
+            fail();
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        assertSame(first, live.get());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void test_rejectsNull() {
+        new LiveTrie<Trie>(trie("he")).set(null);
+    }
+
+    @Test
+    public void test_scansSeeWholeVersionsWhileSwapping() throws Exception {
+        // Version i matches "v" followed by i in every scan, and nothing else.
+        final String text = "v0 v1 v2 v3 v4 v5 v6 v7 v8 v9 ";
+        final LiveTrie<Trie> live = new LiveTrie<>(trie("v0"));
+        final AtomicBoolean done = new AtomicBoolean();
+        final ExecutorService scanners = Executors.newFixedThreadPool(4);
+
+        try {
+            final List<Future<Integer>> scans = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                scans.add(scanners.submit(() -> {
+                    int count = 0;
+                    while (!done.get() || count == 0) {
+                        final Trie trie = live.get();
+                        final Collection<Emit> emits = trie.parseText(text);
+                        assertEquals(1, emits.size());
+                        assertEquals(emits, trie.parseText(text));
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+
+            for (int i = 1; i < 200; i++) {
+                final String keyword = "v" + i % 10;
+                if (i % 2 == 0) {
+                    live.set(trie(keyword));
+                } else {
+                    live.rebuild(() -> trie(keyword)).get(10, TimeUnit.SECONDS);
+                }
+            }
+            done.set(true);
+
+            for (final Future<Integer> scan : scans) {
+                assertTrue(scan.get(10, TimeUnit.SECONDS) > 0);
+            }
+            assertEquals("v9", live.get().parseText(text).iterator().next().getKeyword());
+        } finally {
+            scanners.shutdownNow();
+        }
+    }
+
+    private static Trie trie(final String keyword) {
+        return Trie.builder().addKeyword(keyword).build();
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MatchKindTest {
+
+    @Test
+    public void test_leftmostLongest() {
+        final Trie trie = Trie.builder()
+                .matchKind(MatchKind.LEFTMOST_LONGEST)
+                .addKeyword("Sam")
+                .addKeyword("Samwise")
+                .addKeyword("wise")
+                .build();
+
+        final List<Emit> emits = new ArrayList<>(trie.parseText("Samwise wise"));
+
+        assertEquals(2, emits.size());
+        assertEquals("Samwise", emits.get(0).getKeyword());
+        assertEquals("wise", emits.get(1).getKeyword());
+        assertEquals(8, emits.get(1).getStart());
+    }
+
+    @Test
+    public void test_leftmostFirst() {
+        final Trie trie = Trie.builder()
+                .matchKind(MatchKind.LEFTMOST_FIRST)
+                .addKeyword("Sam")
+                .addKeyword("Samwise")
+                .addKeyword("wise")
+                .build();
+
+        final List<Emit> emits = new ArrayList<>(trie.parseText("Samwise"));
+
+        assertEquals(2, emits.size());
+        assertEquals("Sam", emits.get(0).getKeyword());
+        assertEquals("wise", emits.get(1).getKeyword());
+    }
+
+    @Test
+    public void test_leftmostBeatsLonger() {
+        final Trie trie = Trie.builder()
+                .matchKind(MatchKind.LEFTMOST_LONGEST)
+                .addKeyword("ab")
+                .addKeyword("bcdef")
+                .build();
+
+        final List<Emit> emits = new ArrayList<>(trie.parseText("abcdef"));
+
+        assertEquals(1, emits.size());
+        assertEquals("ab", emits.get(0).getKeyword());
+    }
+
+    @Test
+    public void test_firstMatch() {
+        final PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .matchKind(MatchKind.LEFTMOST_FIRST)
+                .addKeyword("bcd")
+                .addKeyword("bc")
+                .build();
+
+        final PayloadEmit<String> emit = trie.firstMatch("abcde");
+
+        assertEquals("bcd", emit.getKeyword());
+        assertEquals(1, emit.getStart());
+    }
+
+    @Test
+    public void test_firstMatchIgnoreOverlapsStopsEarly() {
+        final PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .ignoreOverlaps()
+                .addKeyword("abc")
+                .addKeyword("bcdef")
+                .build();
+
+        final PayloadEmit<String> emit = trie.firstMatch("abcdefxxxxabc");
+
+        assertEquals("bcdef", emit.getKeyword());
+    }
+
+    @Test
+    public void test_randomizedAgainstSweep() {
+        final Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            final List<String> keywords = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(12); i++) {
+                keywords.add(randomText(random, 1 + random.nextInt(5), "abc"));
+            }
+            final String text = randomText(random, random.nextInt(60), "abc ");
+
+            for (final MatchKind kind : new MatchKind[]{MatchKind.LEFTMOST_LONGEST, MatchKind.LEFTMOST_FIRST}) {
+                assertMatchesSweep(keywords, text, kind, false);
+                assertMatchesSweep(keywords, text, kind, true);
+            }
+        }
+    }
+
+    /**
+     * Compares the matches resolved while scanning with all matches that are
+     * filtered afterwards, for every way of reaching them.
+     */
+    private static void assertMatchesSweep(final List<String> keywords, final String text, final MatchKind kind,
+                                           final boolean onlyWholeWords) {
+        final PayloadTrie.PayloadTrieBuilder<String> allBuilder = PayloadTrie.builder();
+        final PayloadTrie.PayloadTrieBuilder<String> kindBuilder = PayloadTrie.<String>builder().matchKind(kind);
+        if (onlyWholeWords) {
+            allBuilder.onlyWholeWords();
+            kindBuilder.onlyWholeWords();
+        }
+        final List<String> order = new ArrayList<>();
+        for (final String keyword : keywords) {
+            allBuilder.addKeyword(keyword);
+            kindBuilder.addKeyword(keyword);
+            if (!order.contains(keyword)) {
+                order.add(keyword);
+            }
+        }
+        final PayloadTrie<String> trie = kindBuilder.build();
+
+        final List<PayloadEmit<String>> all = new ArrayList<>(allBuilder.build().parseText(text));
+        kind.removeOverlaps(all, emit -> order.indexOf(emit.getKeyword()));
+        final List<String> expected = asStrings(all);
+        final String message = kind + " " + keywords + " in '" + text + "'";
+
+        assertEquals(message, expected, asStrings(trie.parseText(text)));
+
+        final List<String> streamed = new ArrayList<>();
+        final char[] chars = text.toCharArray();
+        final StreamingMatcher<String> matcher = trie.streamingMatcher((start, end, keywordId) ->
+                streamed.add(new PayloadEmit<String>((int) start, (int) end, trie.getKeyword(keywordId), null)
+                        .toString()));
+        matcher.feed(chars, 0, chars.length / 2);
+        matcher.feed(chars, chars.length / 2, chars.length - chars.length / 2);
+        matcher.finish();
+        assertEquals(message, expected, streamed);
+
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        assertEquals(message, expected, asStrings(trie.toUtf8().parseBytes(bytes, 0, bytes.length)));
+
+        final PayloadEmit<String> first = trie.firstMatch(text);
+        assertEquals(message, expected.isEmpty() ? null : expected.get(0), first == null ? null : first.toString());
+    }
+
+    private static String randomText(final Random random, final int length, final String alphabet) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    private static List<String> asStrings(final Collection<PayloadEmit<String>> emits) {
+        final List<String> result = new ArrayList<>();
+        for (final PayloadEmit<String> emit : emits) {
+            result.add(emit.toString());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MatcherTest {
+
+    private static final String TEXT = "ushers say: hers is his, she said. he,hershe he";
+
+    @Test
+    public void test_findReportsMatchesInOrder() {
+        final PayloadTrie<Integer> trie = PayloadTrie.<Integer>builder()
+                .addKeyword("hers", 9)
+                .addKeyword("his", 12)
+                .addKeyword("she", 4)
+                .addKeyword("he", 20)
+                .build();
+        final Matcher<Integer> matcher = trie.matcher("ushers");
+
+        assertTrue(matcher.find());
+        checkMatch(matcher, 2, 3, "he", 20);
+        assertTrue(matcher.find());
+        checkMatch(matcher, 1, 3, "she", 4);
+        assertTrue(matcher.find());
+        checkMatch(matcher, 2, 5, "hers", 9);
+        assertFalse(matcher.find());
+        assertFalse(matcher.find());
+    }
+
+    @Test
+    public void test_resetReusesTheMatcher() {
+        final Trie trie = Trie.builder().addKeyword("abc").build();
+        final Matcher<String> matcher = trie.matcher("xabc");
+
+        assertTrue(matcher.find());
+        assertEquals(1, matcher.start());
+
+        matcher.reset("abcabc");
+        assertTrue(matcher.find());
+        assertEquals(0, matcher.start());
+        assertTrue(matcher.find());
+        assertEquals(3, matcher.start());
+        assertFalse(matcher.find());
+
+        matcher.reset();
+        assertTrue(matcher.find());
+        assertEquals(0, matcher.start());
+        assertEquals(2, matcher.end());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_noMatchAvailable() {
+        final Matcher<String> matcher = Trie.builder().addKeyword("abc").build().matcher("xyz");
+        assertFalse(matcher.find());
+        matcher.start();
+    }
+
+    @Test
+    public void test_sameAsParseText() {
+        assertSameAsParseText(builder());
+    }
+
+    @Test
+    public void test_sameAsParseTextOnlyWholeWords() {
+        assertSameAsParseText(builder().onlyWholeWords());
+    }
+
+    @Test
+    public void test_sameAsParseTextWhiteSpaceSeparated() {
+        assertSameAsParseText(builder().onlyWholeWordsWhiteSpaceSeparated());
+    }
+
+    @Test
+    public void test_sameAsParseTextIgnoreOverlaps() {
+        assertSameAsParseText(builder().ignoreOverlaps());
+        assertSameAsParseText(builder().ignoreOverlaps().onlyWholeWords());
+    }
+
+    @Test
+    public void test_sameAsParseTextStopOnHit() {
+        assertSameAsParseText(builder().stopOnHit());
+        assertSameAsParseText(builder().stopOnHit().ignoreOverlaps());
+    }
+
+    @Test
+    public void test_sameAsParseTextIgnoreCase() {
+        assertSameAsParseText(builder().ignoreCase());
+    }
+
+    private static PayloadTrie.PayloadTrieBuilder<String> builder() {
+        return PayloadTrie.<String>builder()
+                .addKeyword("he")
+                .addKeyword("she")
+                .addKeyword("hers")
+                .addKeyword("his")
+                .addKeyword("said")
+                .addKeyword("HERSHE");
+    }
+
+    private static void assertSameAsParseText(final PayloadTrie.PayloadTrieBuilder<String> builder) {
+        final PayloadTrie<String> trie = builder.build();
+        final List<String> expected = new ArrayList<>();
+        final Collection<PayloadEmit<String>> emits = trie.parseText(TEXT);
+        for (final PayloadEmit<String> emit : emits) {
+            expected.add(emit.toString());
+        }
+
+        final List<String> actual = new ArrayList<>();
+        final Matcher<String> matcher = trie.matcher(TEXT);
+        while (matcher.find()) {
+            actual.add(new PayloadEmit<>(matcher.start(), matcher.end(), matcher.keyword(), matcher.payload())
+                    .toString());
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    private static <T> void checkMatch(final Matcher<T> matcher, final int expectedStart, final int expectedEnd,
+                                       final String expectedKeyword, final T expectedPayload) {
+        assertEquals(expectedStart, matcher.start());
+        assertEquals(expectedEnd, matcher.end());
+        assertEquals(expectedKeyword, matcher.keyword());
+        assertEquals(expectedPayload, matcher.payload());
+    }
+}
@@ -0,0 +1,110 @@
+package org.ahocorasick.trie;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class ParallelBuildTest {
+
+    private static final String ALPHABET = "abcdeABſ ";
+
+    private static ForkJoinPool pool;
+
+    private static List<String> keywords;
+
+    @BeforeClass
+    public static void setUp() {
+        pool = new ForkJoinPool(4);
+        final Random random = new Random(20);
+        keywords = new ArrayList<>();
+        for (int i = 0; i < 30_000; i++) {
+            keywords.add(randomText(random, 1 + random.nextInt(9)));
+        }
+        // Duplicates keep the position they were first added at.
+        keywords.addAll(keywords.subList(0, 5_000));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void test_sameAsBuild() throws IOException {
+        assertSameAsBuild(PayloadTrie::builder);
+    }
+
+    @Test
+    public void test_sameAsBuildWithCaseFolding() throws IOException {
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().ignoreCase());
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().caseFolding(CaseFolding.SIMPLE));
+    }
+
+    @Test
+    public void test_sameAsBuildLeftmostFirst() throws IOException {
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().matchKind(MatchKind.LEFTMOST_FIRST));
+    }
+
+    @Test
+    public void test_sameAsBuildDeterministic() throws IOException {
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().deterministic());
+    }
+
+    @Test
+    public void test_smallTrieIsBuiltSequentially() {
+        final Trie trie = Trie.builder().addKeyword("he").addKeyword("she").addKeyword("he").buildParallel(pool);
+
+        assertEquals(2, trie.parseText("ushers").size());
+    }
+
+    @Test
+    public void test_findsTheSameMatches() {
+        final Random random = new Random(21);
+        final String text = randomText(random, 10_000);
+        final Trie.TrieBuilder sequential = Trie.builder();
+        final Trie.TrieBuilder parallel = Trie.builder();
+        for (final String keyword : keywords) {
+            sequential.addKeyword(keyword);
+            parallel.addKeyword(keyword);
+        }
+
+        assertEquals(sequential.build().parseText(text), parallel.buildParallel(pool).parseText(text));
+    }
+
+    private static void assertSameAsBuild(final Supplier<PayloadTrie.PayloadTrieBuilder<String>> config)
+            throws IOException {
+        final PayloadTrie.PayloadTrieBuilder<String> sequential = config.get();
+        final PayloadTrie.PayloadTrieBuilder<String> parallel = config.get();
+        for (int i = 0; i < keywords.size(); i++) {
+            final String payload = i % 3 == 0 ? null : String.valueOf(i % 7);
+            sequential.addKeyword(keywords.get(i), payload);
+            parallel.addKeyword(keywords.get(i), payload);
+        }
+
+        assertArrayEquals(serialize(sequential.build()), serialize(parallel.buildParallel(pool)));
+    }
+
+    private static byte[] serialize(final PayloadTrie<String> trie) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.writeTo(out, PayloadCodec.strings());
+        return out.toByteArray();
+    }
+
+    private static String randomText(final Random random, final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}
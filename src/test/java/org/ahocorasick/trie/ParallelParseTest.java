@@ -0,0 +1,104 @@
+package org.ahocorasick.trie;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ParallelParseTest {
+
+    private static final String ALPHABET = "abcd ";
+
+    private static ForkJoinPool pool;
+
+    private static String text;
+
+    @BeforeClass
+    public static void setUp() {
+        pool = new ForkJoinPool(4);
+        text = randomText(new Random(42), 200_000);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void test_sameAsParseText() {
+        assertSameAsParseText(builder());
+    }
+
+    @Test
+    public void test_sameAsParseTextOnlyWholeWords() {
+        assertSameAsParseText(builder().onlyWholeWords());
+        assertSameAsParseText(builder().onlyWholeWordsWhiteSpaceSeparated());
+    }
+
+    @Test
+    public void test_sameAsParseTextIgnoreOverlaps() {
+        assertSameAsParseText(builder().ignoreOverlaps());
+    }
+
+    @Test
+    public void test_sameAsParseTextStopOnHit() {
+        assertSameAsParseText(builder().stopOnHit());
+        assertSameAsParseText(PayloadTrie.<String>builder().stopOnHit().addKeyword("xyz"), text + "xyz");
+    }
+
+    @Test
+    public void test_shortTextIsScannedSequentially() {
+        final Trie trie = Trie.builder().addKeyword("he").addKeyword("she").build();
+
+        final Collection<Emit> emits = trie.parseTextParallel("ushers", pool);
+
+        assertEquals(2, emits.size());
+    }
+
+    private static PayloadTrie.PayloadTrieBuilder<String> builder() {
+        final Random random = new Random(7);
+        final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.builder();
+        for (int i = 0; i < 200; i++) {
+            builder.addKeyword(randomText(random, 5 + random.nextInt(6)).replace(" ", ""));
+        }
+        return builder;
+    }
+
+    private static void assertSameAsParseText(final PayloadTrie.PayloadTrieBuilder<String> builder) {
+        assertSameAsParseText(builder, text);
+    }
+
+    private static void assertSameAsParseText(final PayloadTrie.PayloadTrieBuilder<String> builder,
+                                              final String text) {
+        final PayloadTrie<String> trie = builder.build();
+
+        final List<String> expected = asStrings(trie.parseText(text));
+        final List<String> actual = asStrings(trie.parseTextParallel(text, pool));
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    private static String randomText(final Random random, final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+
+    private static List<String> asStrings(final Collection<PayloadEmit<String>> emits) {
+        final List<String> result = new ArrayList<>(emits.size());
+        for (final PayloadEmit<String> emit : emits) {
+            result.add(emit.toString());
+        }
+        return result;
+    }
+}
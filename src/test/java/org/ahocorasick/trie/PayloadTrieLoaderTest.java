@@ -0,0 +1,182 @@
+package org.ahocorasick.trie;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class PayloadTrieLoaderTest {
+
+    private static final String ALPHABET = "abcdeABſ ";
+
+    private static final Function<String, Payload<String>> TAB_SEPARATED = line -> {
+        final int tab = line.indexOf('\t');
+        if (tab < 0) {
+            return null;
+        }
+        final String payload = line.substring(tab + 1);
+        return new Payload<>(line.substring(0, tab), payload.isEmpty() ? null : payload);
+    };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> lines;
+
+    private static String text;
+
+    @BeforeClass
+    public static void setUp() {
+        final Random random = new Random(24);
+        lines = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            final String keyword = randomText(random, 1 + random.nextInt(7));
+            lines.add(keyword + '\t' + (random.nextInt(4) == 0 ? "" : String.valueOf(i)));
+        }
+        text = randomText(random, 20_000);
+    }
+
+    @Test
+    public void test_load() throws IOException {
+        final PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .loader(TAB_SEPARATED, PayloadCodec.strings())
+                .load(new StringReader("he\tpronoun\nshe\t\nhis\nhers\tpossessive\nhe\tduplicate\n"));
+
+        assertEquals("[2:3=he->pronoun, 1:3=she, 2:5=hers->possessive]", trie.parseText("ushers").toString());
+        assertEquals(3, trie.getKeywordCount());
+    }
+
+    @Test
+    public void test_sameAsBuild() throws IOException {
+        assertSameAsBuild(PayloadTrie::builder);
+    }
+
+    @Test
+    public void test_sameAsBuildWithCaseFolding() throws IOException {
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().ignoreCase());
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().caseFolding(CaseFolding.SIMPLE));
+    }
+
+    @Test
+    public void test_sameAsBuildLeftmost() throws IOException {
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().matchKind(MatchKind.LEFTMOST_FIRST));
+    }
+
+    @Test
+    public void test_sameAsBuildDeterministic() throws IOException {
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().deterministic());
+    }
+
+    @Test
+    public void test_builderKeywordsComeFirst() throws IOException {
+        final PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .matchKind(MatchKind.LEFTMOST_FIRST)
+                .addKeyword("sam", "builder")
+                .loader(TAB_SEPARATED, PayloadCodec.strings())
+                .load(new StringReader("samwise\tfile\nsam\tfile\n"));
+
+        assertEquals("[0:2=sam->builder]", trie.parseText("samwise").toString());
+    }
+
+    @Test
+    public void test_spillsRunsToTemporaryFiles() throws IOException {
+        final File directory = folder.newFolder();
+        final PayloadTrieLoader<String> loader = PayloadTrie.<String>builder()
+                .loader(TAB_SEPARATED, PayloadCodec.strings())
+                .memoryBudget(8_192)
+                .tempDirectory(directory.toPath());
+
+        final PayloadTrie<String> trie = loader.load(new StringReader(String.join("\n", lines)));
+
+        assertTrue(loader.getRunCount() > 10);
+        assertEquals(lines.size(), loader.getLineCount());
+        assertEquals(trie.getKeywordCount(), loader.getKeywordCount());
+        assertTrue(loader.getPeakMemoryBytes() > 0);
+        assertEquals(0, directory.list().length);
+        assertEquals(build(PayloadTrie.builder()).parseText(text).toString(), trie.parseText(text).toString());
+    }
+
+    @Test
+    public void test_loadFile() throws IOException {
+        final File file = folder.newFile();
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        final PayloadTrieLoader<String> loader = PayloadTrie.<String>builder()
+                .loader(TAB_SEPARATED, PayloadCodec.strings());
+
+        final PayloadTrie<String> trie = loader.load(file.toPath());
+
+        assertEquals(0, loader.getRunCount());
+        assertArrayEquals(serialize(build(PayloadTrie.builder())), serialize(trie));
+    }
+
+    @Test
+    public void test_loadNothing() throws IOException {
+        final PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .loader(TAB_SEPARATED, PayloadCodec.strings())
+                .load(new StringReader("no tab\n\tempty keyword\n"));
+
+        assertEquals(0, trie.getKeywordCount());
+        assertTrue(trie.parseText("no tab").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_memoryBudgetMustBePositive() {
+        PayloadTrie.<String>builder().loader(TAB_SEPARATED, PayloadCodec.strings()).memoryBudget(0);
+    }
+
+    /**
+     * Loads the lines, spilling to temporary files and not, and compares the
+     * tries with one built from the same keywords: their matches, and their
+     * serialized form, which holds the whole automaton.
+     */
+    private void assertSameAsBuild(final Supplier<PayloadTrie.PayloadTrieBuilder<String>> config)
+            throws IOException {
+        final PayloadTrie<String> built = build(config.get());
+        for (final long budget : new long[]{1 << 12, 1 << 30}) {
+            final PayloadTrie<String> loaded = config.get()
+                    .loader(TAB_SEPARATED, PayloadCodec.strings())
+                    .memoryBudget(budget)
+                    .tempDirectory(folder.getRoot().toPath())
+                    .load(new StringReader(String.join("\n", lines)));
+
+            assertEquals(built.parseText(text).toString(), loaded.parseText(text).toString());
+            assertArrayEquals(serialize(built), serialize(loaded));
+        }
+    }
+
+    private static PayloadTrie<String> build(final PayloadTrie.PayloadTrieBuilder<String> builder) {
+        for (final String line : lines) {
+            final Payload<String> payload = TAB_SEPARATED.apply(line);
+            builder.addKeyword(payload.getKeyword(), payload.getData());
+        }
+        return builder.build();
+    }
+
+    private static byte[] serialize(final PayloadTrie<String> trie) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.writeTo(out, PayloadCodec.strings());
+        return out.toByteArray();
+    }
+
+    private static String randomText(final Random random, final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -5,10 +5,14 @@ import org.ahocorasick.trie.handler.PayloadEmitHandler;
 import org.ahocorasick.trie.handler.StatefulPayloadEmitHandler;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static java.util.Arrays.asList;
 import static org.ahocorasick.trie.TestHelper.injectKeyword;
@@ -484,6 +488,100 @@ public class PayloadTrieTest {
         assertEquals(result1, result2);
     }
 
+    @Test
+    public void test_matchHandlerReportsKeywordIds() {
+        PayloadTrie<Integer> trie = PayloadTrie.<Integer>builder().addKeywords(PRONOUNS_WITH_PAYLOADS).build();
+        final List<String> matches = new ArrayList<>();
+
+        trie.parseText("ushers", (start, end, keywordId) ->
+                matches.add(start + ":" + end + "=" + trie.getKeyword(keywordId) + "->" + trie.getPayload(keywordId)));
+
+        assertEquals(asList("2:3=he->20", "1:3=she->4", "2:5=hers->9"), matches);
+    }
+
+    @Test
+    public void test_keywordIdsAreDenseAndOrdered() {
+        PayloadTrie<Integer> trie = PayloadTrie.<Integer>builder().addKeywords(PRONOUNS_WITH_PAYLOADS).build();
+
+        assertEquals(4, trie.getKeywordCount());
+        assertEquals("he", trie.getKeyword(0));
+        assertEquals("hers", trie.getKeyword(1));
+        assertEquals("his", trie.getKeyword(2));
+        assertEquals("she", trie.getKeyword(3));
+        assertEquals(Integer.valueOf(4), trie.getPayload(3));
+    }
+
+    @Test
+    public void test_matchHandlerStopOnHitSkipsRejectedMatches() {
+        PayloadTrie<Integer> trie = PayloadTrie.<Integer>builder().addKeywords(PRONOUNS_WITH_PAYLOADS).stopOnHit().build();
+        final List<String> matches = new ArrayList<>();
+
+        trie.parseText("ushers", (start, end, keywordId) -> {
+            if (trie.getKeyword(keywordId).equals("he")) {
+                return false;
+            }
+            return matches.add(trie.getKeyword(keywordId));
+        });
+
+        assertEquals(asList("she"), matches);
+    }
+
+    @Test
+    public void test_matchHandlerHonoursWholeWords() {
+        PayloadTrie<String> trie = PayloadTrie.<String>builder().onlyWholeWords().addKeyword("sugar").build();
+        final List<Integer> starts = new ArrayList<>();
+
+        trie.parseText("sugarcane sugar canesugar", (start, end, keywordId) -> starts.add(start));
+
+        assertEquals(asList(10), starts);
+    }
+
+    @Test
+    public void test_builtTrieCanBeScannedConcurrently() throws Exception {
+        final PayloadTrie<Integer> trie = PayloadTrie.<Integer>builder()
+                .addKeywords(PRONOUNS_WITH_PAYLOADS)
+                .build();
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("ushers his ").append(i).append(' ');
+        }
+        final String expected = trie.parseText(text).toString();
+        final int expectedTokens = trie.tokenize(text.toString()).size();
+        final long expectedCount = trie.stream(text).count();
+        final String expectedFirst = trie.firstMatch(text).toString();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> scans = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                scans.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        assertEquals(expected, trie.parseText(text).toString());
+                        assertEquals(expectedTokens, trie.tokenize(text.toString()).size());
+                        assertEquals(expectedCount, trie.stream(text).count());
+                        assertEquals(expectedFirst, trie.firstMatch(text).toString());
+                    }
+                }));
+            }
+            for (final Future<?> scan : scans) {
+                scan.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_builderChangesDoNotAffectBuiltTrie() {
+        final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.<String>builder().addKeyword("he");
+        final PayloadTrie<String> first = builder.build();
+
+        final PayloadTrie<String> second = builder.ignoreCase().addKeyword("she").build();
+
+        assertEquals(0, first.parseText("uSHErs").size());
+        assertEquals(2, second.parseText("uSHErs").size());
+    }
+
     private void checkEmit(
             final PayloadEmit<Food> next,
             final int expectedStart,
@@ -0,0 +1,364 @@
+package org.ahocorasick.trie;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+
+import static org.junit.Assert.*;
+
+public class SerializationTest {
+
+    private static final PayloadCodec<Integer> INTEGERS = new PayloadCodec<Integer>() {
+        @Override
+        public void write(final Integer payload, final DataOutput out) throws IOException {
+            out.writeInt(payload);
+        }
+
+        @Override
+        public Integer read(final DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_roundTripFindsTheSameMatches() throws IOException {
+        final Random random = new Random(18);
+
+        for (int round = 0; round < 20; round++) {
+            final List<String> keywords = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                keywords.add(randomText(random, 1 + random.nextInt(6)));
+            }
+            final String text = randomText(random, 500);
+
+            assertSameMatches(keywords, text, builder -> builder);
+            assertSameMatches(keywords, text, builder -> builder.ignoreCase().onlyWholeWords());
+            assertSameMatches(keywords, text, builder -> builder.caseFolding(CaseFolding.SIMPLE).ignoreOverlaps());
+            assertSameMatches(keywords, text, builder -> builder.matchKind(MatchKind.LEFTMOST_FIRST));
+            assertSameMatches(keywords, text, builder -> builder.deterministic().onlyWholeWordsWhiteSpaceSeparated());
+            assertSameMatches(keywords, text, PayloadTrie.PayloadTrieBuilder::stopOnHit);
+        }
+    }
+
+    @Test
+    public void test_payloadsAndKeywordIdsSurvive() throws IOException {
+        final PayloadTrie<Integer> trie = PayloadTrie.<Integer>builder()
+                .addKeyword("hers", 1)
+                .addKeyword("his")
+                .addKeyword("she", -7)
+                .addKeyword("he", Integer.MAX_VALUE)
+                .build();
+
+        final PayloadTrie<Integer> copy = roundTrip(trie, INTEGERS);
+
+        assertEquals(trie.getKeywordCount(), copy.getKeywordCount());
+        for (int id = 0; id < trie.getKeywordCount(); id++) {
+            assertEquals(trie.getKeyword(id), copy.getKeyword(id));
+            assertEquals(trie.getPayload(id), copy.getPayload(id));
+        }
+        assertNull(copy.getPayload(Arrays.asList("he", "hers", "his", "she").indexOf("his")));
+        assertEquals(trie.parseText("ushers his").toString(), copy.parseText("ushers his").toString());
+    }
+
+    @Test
+    public void test_deterministicTrieStaysDeterministic() throws IOException {
+        final Trie trie = Trie.builder().deterministic().addKeyword("he").addKeyword("she").build();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.writeTo(out);
+        final Trie copy = Trie.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertTrue(copy.isDeterministic());
+        assertEquals(trie.getDeterministicTableBytes(), copy.getDeterministicTableBytes());
+        assertEquals(trie.parseText("ushers").toString(), copy.parseText("ushers").toString());
+    }
+
+    @Test
+    public void test_readStopsAtTheEndOfTheTrie() throws IOException {
+        final Trie first = Trie.builder().addKeyword("one").build();
+        final Trie second = Trie.builder().ignoreCase().addKeyword("two").build();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        first.writeTo(out);
+        second.writeTo(out);
+        out.write(42);
+        final InputStream in = new ByteArrayInputStream(out.toByteArray());
+
+        assertTrue(Trie.readFrom(in).containsMatch("one"));
+        assertTrue(Trie.readFrom(in).containsMatch("TWO"));
+        assertEquals(42, in.read());
+    }
+
+    @Test
+    public void test_emptyTrieRoundTrips() throws IOException {
+        final PayloadTrie<String> copy = roundTrip(PayloadTrie.<String>builder().build(), PayloadCodec.strings());
+
+        assertEquals(0, copy.getKeywordCount());
+        assertTrue(copy.parseText("anything").isEmpty());
+    }
+
+    @Test
+    public void test_rejectsOtherData() {
+        final byte[] bytes = "not a trie at all".getBytes();
+        try {
+            Trie.readFrom(new ByteArrayInputStream(bytes));
+            fail();
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().contains("serialized trie"));
+        }
+    }
+
+    @Test
+    public void test_rejectsOtherVersions() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Trie.builder().addKeyword("one").build().writeTo(out);
+        final byte[] bytes = out.toByteArray();
+        bytes[7] = (byte) (TrieFormat.VERSION + 1);
+
+        try {
+            Trie.readFrom(new ByteArrayInputStream(bytes));
+            fail();
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().contains("version"));
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void test_rejectsTruncatedData() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Trie.builder().addKeyword("one").addKeyword("two").build().writeTo(out);
+
+        Trie.readFrom(new ByteArrayInputStream(Arrays.copyOf(out.toByteArray(), out.size() - 10)));
+    }
+
+    @Test
+    public void test_corruptDataFailsToLoadOrScansSafely() throws IOException {
+        final byte[] bytes = serialized(corruptible(), PayloadCodec.strings());
+        final Random random = new Random(20);
+
+        for (int round = 0; round < 5000; round++) {
+            final byte[] corrupt = corrupt(bytes, random);
+            final PayloadTrie<String> trie;
+            try {
+                trie = PayloadTrie.readFrom(new ByteArrayInputStream(corrupt), PayloadCodec.strings());
+            } catch (final IOException e) {
+                continue;
+            }
+            scanAll(trie);
+        }
+    }
+
+    @Test
+    public void test_mappedTrieFindsTheSameMatches() throws IOException {
+        final Random random = new Random(19);
+        final List<String> keywords = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            keywords.add(randomText(random, 1 + random.nextInt(6)));
+        }
+        final String text = randomText(random, 2000);
+
+        for (final UnaryOperator<PayloadTrie.PayloadTrieBuilder<String>> config : Arrays.<UnaryOperator<
+                PayloadTrie.PayloadTrieBuilder<String>>>asList(
+                builder -> builder,
+                builder -> builder.caseFolding(CaseFolding.SIMPLE).onlyWholeWords(),
+                builder -> builder.matchKind(MatchKind.LEFTMOST_LONGEST),
+                builder -> builder.deterministic().ignoreOverlaps())) {
+            final PayloadTrie.PayloadTrieBuilder<String> builder = config.apply(PayloadTrie.builder());
+            for (final String keyword : keywords) {
+                builder.addKeyword(keyword, keyword.length() % 2 == 0 ? keyword.toUpperCase() : null);
+            }
+            final PayloadTrie<String> trie = builder.build();
+            final PayloadTrie<String> mapped = PayloadTrie.map(write(trie, PayloadCodec.strings()),
+                    PayloadCodec.strings());
+
+            assertFalse(mapped.isDeterministic());
+            assertEquals(describe(trie.parseText(text)), describe(mapped.parseText(text)));
+            assertEquals(String.valueOf(trie.firstMatch(text)), String.valueOf(mapped.firstMatch(text)));
+            assertEquals(trie.tokenize(text).size(), mapped.tokenize(text).size());
+            final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            assertEquals(trie.toUtf8().parseBytes(bytes, 0, bytes.length).toString(),
+                    mapped.toUtf8().parseBytes(bytes, 0, bytes.length).toString());
+        }
+    }
+
+    @Test
+    public void test_corruptFileFailsToMapOrScansSafely() throws IOException {
+        final byte[] bytes = serialized(corruptible(), PayloadCodec.strings());
+        final Random random = new Random(21);
+
+        for (int round = 0; round < 2000; round++) {
+            final Path file = folder.newFile().toPath();
+            Files.write(file, corrupt(bytes, random));
+            final PayloadTrie<String> trie;
+            try {
+                trie = PayloadTrie.map(file, PayloadCodec.strings());
+            } catch (final IOException e) {
+                continue;
+            }
+            scanAll(trie);
+        }
+    }
+
+    @Test
+    public void test_mappedTrieKeepsPayloadsAndWritesItselfAgain() throws IOException {
+        final PayloadTrie<Integer> trie = PayloadTrie.<Integer>builder()
+                .addKeyword("hers", 1)
+                .addKeyword("his")
+                .addKeyword("she", -7)
+                .build();
+
+        final PayloadTrie<Integer> mapped = PayloadTrie.map(write(trie, INTEGERS), INTEGERS);
+        final PayloadTrie<Integer> copy = roundTrip(mapped, INTEGERS);
+
+        for (int id = 0; id < trie.getKeywordCount(); id++) {
+            assertEquals(trie.getKeyword(id), mapped.getKeyword(id));
+            assertEquals(trie.getPayload(id), mapped.getPayload(id));
+            assertEquals(trie.getKeyword(id), copy.getKeyword(id));
+            assertEquals(trie.getPayload(id), copy.getPayload(id));
+        }
+    }
+
+    @Test
+    public void test_mappedTrieOutlivesItsChannel() throws IOException {
+        final Trie trie = Trie.builder().ignoreCase().addKeyword("he").addKeyword("she").build();
+
+        final Trie mapped = Trie.map(write(trie).toPath());
+        System.gc();
+
+        assertEquals(trie.parseText("uSHErs").toString(), mapped.parseText("uSHErs").toString());
+        assertEquals(2, mapped.parseText("uSHErs").size());
+    }
+
+    @Test(expected = EOFException.class)
+    public void test_mappingRejectsTruncatedFiles() throws IOException {
+        final File file = write(Trie.builder().addKeyword("one").addKeyword("two").build());
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 10));
+
+        Trie.map(file.toPath());
+    }
+
+    /**
+     * A trie with shared prefixes, suffixes and payloads, so that corrupting
+     * it hits every kind of array.
+     */
+    private static PayloadTrie<String> corruptible() {
+        return PayloadTrie.<String>builder()
+                .ignoreCase()
+                .addKeyword("he", "x")
+                .addKeyword("she")
+                .addKeyword("hers", "y")
+                .addKeyword("his")
+                .addKeyword("ushers", "z")
+                .addKeyword("s")
+                .build();
+    }
+
+    /**
+     * Overwrites one to three random bytes.
+     */
+    private static byte[] corrupt(final byte[] bytes, final Random random) {
+        final byte[] corrupt = bytes.clone();
+        for (int i = 0, count = 1 + random.nextInt(3); i < count; i++) {
+            corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt(256);
+        }
+        return corrupt;
+    }
+
+    private static void scanAll(final PayloadTrie<String> trie) {
+        final String text = "ushers say: HERS is his, she said. he,hershe he";
+        trie.parseText(text);
+        trie.firstMatch(text);
+        trie.stream(text).count();
+        trie.parseText(text, (int start, int end, int keywordId) -> {
+            trie.getKeyword(keywordId);
+            return true;
+        });
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        trie.toUtf8().parseBytes(bytes, 0, bytes.length);
+    }
+
+    private static <T> byte[] serialized(final PayloadTrie<T> trie, final PayloadCodec<T> codec)
+            throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.writeTo(out, codec);
+        return out.toByteArray();
+    }
+
+    private <T> Path write(final PayloadTrie<T> trie, final PayloadCodec<T> codec) throws IOException {
+        final File file = folder.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            trie.writeTo(out, codec);
+        }
+        return file.toPath();
+    }
+
+    private File write(final Trie trie) throws IOException {
+        final File file = folder.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            trie.writeTo(out);
+        }
+        return file;
+    }
+
+    private static void assertSameMatches(final List<String> keywords, final String text,
+                                          final UnaryOperator<PayloadTrie.PayloadTrieBuilder<String>> config)
+            throws IOException {
+        final PayloadTrie.PayloadTrieBuilder<String> builder = config.apply(PayloadTrie.builder());
+        for (final String keyword : keywords) {
+            builder.addKeyword(keyword, keyword.length() % 2 == 0 ? keyword.toUpperCase() : null);
+        }
+        final PayloadTrie<String> trie = builder.build();
+        final PayloadTrie<String> copy = roundTrip(trie, PayloadCodec.strings());
+
+        assertEquals(trie.isDeterministic(), copy.isDeterministic());
+        assertEquals(describe(trie.parseText(text)), describe(copy.parseText(text)));
+        assertEquals(String.valueOf(trie.firstMatch(text)), String.valueOf(copy.firstMatch(text)));
+        assertEquals(trie.stream(text).count(), copy.stream(text).count());
+    }
+
+    private static <T> PayloadTrie<T> roundTrip(final PayloadTrie<T> trie, final PayloadCodec<T> codec)
+            throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.writeTo(out, codec);
+        return PayloadTrie.readFrom(new ByteArrayInputStream(out.toByteArray()), codec);
+    }
+
+    private static String describe(final Iterable<PayloadEmit<String>> emits) {
+        final StringBuilder sb = new StringBuilder();
+        for (final PayloadEmit<String> emit : emits) {
+            sb.append(emit).append('=').append(emit.getPayload()).append(' ');
+        }
+        return sb.toString();
+    }
+
+    private static String randomText(final Random random, final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append("aAbc dſ".charAt(random.nextInt(7)));
+        }
+        return sb.toString();
+    }
+}
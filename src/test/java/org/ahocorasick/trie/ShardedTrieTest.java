@@ -0,0 +1,221 @@
+package org.ahocorasick.trie;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class ShardedTrieTest {
+
+    private static final String ALPHABET = "abcdeABſ ";
+
+    private static List<Payload<String>> keywords;
+
+    private static String text;
+
+    @BeforeClass
+    public static void setUp() {
+        final Random random = new Random(23);
+        keywords = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            final String keyword = randomText(random, 1 + random.nextInt(7));
+            keywords.add(new Payload<>(keyword, String.valueOf(i)));
+        }
+        text = randomText(random, 20_000);
+    }
+
+    @Test
+    public void test_parseText() {
+        final ShardedTrie<String> trie = ShardedTrie.<String>builder().shards(4)
+                .addKeyword("he").addKeyword("she").addKeyword("his").addKeyword("hers").build();
+
+        assertEquals("[2:3=he, 1:3=she, 2:5=hers]", trie.parseText("ushers").toString());
+        assertEquals(4, trie.getShardCount());
+        assertEquals(4, trie.getKeywordCount());
+        assertTrue(trie.containsMatch("this"));
+        assertFalse(trie.containsMatch("thus"));
+    }
+
+    @Test
+    public void test_leftmostFirstFollowsTheOrderOfTheDictionary() {
+        final ShardedTrie<String> trie = ShardedTrie.<String>builder().shards(8)
+                .matchKind(MatchKind.LEFTMOST_FIRST)
+                .addKeyword("sam").addKeyword("samwise").build();
+
+        assertNotEquals(trie.shardOf("sam"), trie.shardOf("samwise"));
+        assertEquals("[0:2=sam]", trie.parseText("samwise").toString());
+    }
+
+    @Test
+    public void test_caseVariantsShareAShard() {
+        final ShardedTrie<String> trie = ShardedTrie.<String>builder().shards(16).ignoreCase().build();
+
+        assertEquals(trie.shardOf("Hers"), trie.shardOf("hERS"));
+    }
+
+    @Test
+    public void test_sameAsSingleTrie() {
+        assertSameAsSingleTrie(PayloadTrie::builder, ShardedTrie::builder);
+    }
+
+    @Test
+    public void test_sameAsSingleTrieWithCaseFolding() {
+        assertSameAsSingleTrie(() -> PayloadTrie.<String>builder().ignoreCase(),
+                () -> ShardedTrie.<String>builder().ignoreCase());
+        assertSameAsSingleTrie(() -> PayloadTrie.<String>builder().caseFolding(CaseFolding.SIMPLE),
+                () -> ShardedTrie.<String>builder().caseFolding(CaseFolding.SIMPLE));
+    }
+
+    @Test
+    public void test_sameAsSingleTrieWithoutOverlaps() {
+        assertSameAsSingleTrie(() -> PayloadTrie.<String>builder().ignoreOverlaps(),
+                () -> ShardedTrie.<String>builder().ignoreOverlaps());
+        assertSameAsSingleTrie(() -> PayloadTrie.<String>builder().ignoreOverlaps().onlyWholeWords(),
+                () -> ShardedTrie.<String>builder().ignoreOverlaps().onlyWholeWords());
+    }
+
+    @Test
+    public void test_sameAsSingleTrieLeftmost() {
+        assertSameAsSingleTrie(() -> PayloadTrie.<String>builder().matchKind(MatchKind.LEFTMOST_FIRST),
+                () -> ShardedTrie.<String>builder().matchKind(MatchKind.LEFTMOST_FIRST));
+        assertSameAsSingleTrie(() -> PayloadTrie.<String>builder().matchKind(MatchKind.LEFTMOST_LONGEST)
+                        .onlyWholeWordsWhiteSpaceSeparated(),
+                () -> ShardedTrie.<String>builder().matchKind(MatchKind.LEFTMOST_LONGEST)
+                        .onlyWholeWordsWhiteSpaceSeparated());
+    }
+
+    @Test
+    public void test_sameAsSingleTrieStopOnHit() {
+        assertSameAsSingleTrie(() -> PayloadTrie.<String>builder().stopOnHit(),
+                () -> ShardedTrie.<String>builder().stopOnHit());
+        assertSameAsSingleTrie(() -> PayloadTrie.<String>builder().matchKind(MatchKind.LEFTMOST_FIRST).stopOnHit(),
+                () -> ShardedTrie.<String>builder().matchKind(MatchKind.LEFTMOST_FIRST).stopOnHit());
+    }
+
+    @Test
+    public void test_buildParallel() {
+        final ShardedTrie.ShardedTrieBuilder<String> builder = ShardedTrie.<String>builder().shards(7)
+                .addKeywords(keywords);
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            final ShardedTrie<String> sequential = builder.build();
+            final ShardedTrie<String> parallel = builder.buildParallel(pool);
+
+            assertEquals(sequential.parseText(text), new ArrayList<>(parallel.parseText(text)));
+            assertEquals(sequential.parseText(text).toString(), parallel.parseTextParallel(text, pool).toString());
+            for (int shard = 0; shard < 7; shard++) {
+                assertEquals(sequential.getKeywords(shard).size(), parallel.getKeywords(shard).size());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void test_getKeywords() {
+        final ShardedTrie<String> trie = ShardedTrie.<String>builder().shards(5).addKeywords(keywords).build();
+
+        int count = 0;
+        for (int shard = 0; shard < trie.getShardCount(); shard++) {
+            int previous = -1;
+            for (final Payload<String> payload : trie.getKeywords(shard)) {
+                assertEquals(shard, trie.shardOf(payload.getKeyword()));
+                // Duplicates keep the payload they were added with first.
+                final int position = Integer.parseInt(payload.getData());
+                assertEquals(payload.getKeyword(), keywords.get(position).getKeyword());
+                assertTrue(position > previous);
+                previous = position;
+                count++;
+            }
+        }
+        assertEquals(trie.getKeywordCount(), count);
+    }
+
+    @Test
+    public void test_rebuildShard() {
+        final ShardedTrie<String> trie = ShardedTrie.<String>builder().shards(6)
+                .matchKind(MatchKind.LEFTMOST_FIRST).addKeywords(keywords.subList(0, 2_000)).build();
+        final int shard = trie.shardOf(keywords.get(0).getKeyword());
+
+        // Drop every other keyword of the shard and add the keywords that
+        // belong to it and are new to it.
+        final List<Payload<String>> shardKeywords = new ArrayList<>();
+        final List<Payload<String>> removed = new ArrayList<>();
+        final List<Payload<String>> current = trie.getKeywords(shard);
+        for (int i = 0; i < current.size(); i++) {
+            (i % 2 == 0 ? shardKeywords : removed).add(current.get(i));
+        }
+        Collections.reverse(shardKeywords);
+        final List<Payload<String>> added = new ArrayList<>();
+        for (final Payload<String> payload : keywords.subList(2_000, 3_000)) {
+            if (trie.shardOf(payload.getKeyword()) == shard && !containsKeyword(current, payload.getKeyword())) {
+                shardKeywords.add(payload);
+                added.add(payload);
+            }
+        }
+
+        final ShardedTrie<String> rebuilt = trie.rebuildShard(shard, shardKeywords);
+
+        final PayloadTrie.PayloadTrieBuilder<String> expected = PayloadTrie.<String>builder()
+                .matchKind(MatchKind.LEFTMOST_FIRST);
+        for (final Payload<String> payload : keywords.subList(0, 2_000)) {
+            if (!containsKeyword(removed, payload.getKeyword())) {
+                expected.addKeyword(payload.getKeyword(), payload.getData());
+            }
+        }
+        expected.addKeywords(added);
+        assertEquals(expected.build().parseText(text).toString(), rebuilt.parseText(text).toString());
+        for (int other = 0; other < trie.getShardCount(); other++) {
+            if (other != shard) {
+                assertEquals(trie.getKeywords(other).size(), rebuilt.getKeywords(other).size());
+            }
+        }
+        assertEquals(current.size(), trie.getKeywords(shard).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_rebuildShardWithForeignKeyword() {
+        final ShardedTrie<String> trie = ShardedTrie.<String>builder().shards(2).build();
+        final String keyword = "she";
+
+        trie.rebuildShard(1 - trie.shardOf(keyword), Collections.singletonList(new Payload<>(keyword, null)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_noShards() {
+        ShardedTrie.builder().shards(0);
+    }
+
+    private static void assertSameAsSingleTrie(final Supplier<PayloadTrie.PayloadTrieBuilder<String>> single,
+                                               final Supplier<ShardedTrie.ShardedTrieBuilder<String>> sharded) {
+        final String expected = single.get().addKeywords(keywords).build().parseText(text).toString();
+        for (final int shardCount : new int[]{1, 3, 8}) {
+            final ShardedTrie<String> trie = sharded.get().shards(shardCount).addKeywords(keywords).build();
+            assertEquals(expected, trie.parseText(text).toString());
+        }
+    }
+
+    private static boolean containsKeyword(final List<Payload<String>> payloads, final String keyword) {
+        for (final Payload<String> payload : payloads) {
+            if (payload.getKeyword().equals(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String randomText(final Random random, final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.ahocorasick.trie.TestHelper.compile;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs on whatever search this JVM offers: the scalar one from the classes
+ * directory, the vectorized one when the multi-release jar is tested with
+ * the Vector API.
+ */
+public class StartScannerTest {
+
+    @Test
+    public void test_vectorScannerIsUsedWhenExpected() {
+        assumeTrue(Boolean.getBoolean("ahocorasick.expectVector"));
+
+        assertTrue(StartScanner.isAvailable());
+        assertNotNull(StartScanner.create(new char[]{'q', 'Q'}));
+        assertNull(StartScanner.create(null));
+    }
+
+    @Test
+    public void test_skipFindsTheSameStartsAsACharacterLoop() {
+        final Random random = new Random(17);
+
+        for (int round = 0; round < 30; round++) {
+            final List<String> keywords = new ArrayList<>();
+            for (int i = 0; i < 1 + round % 6; i++) {
+                keywords.add((char) ('p' + i) + randomText(random, 1 + random.nextInt(3), 0.0));
+            }
+            final CaseFolding caseFolding = round % 2 == 0 ? CaseFolding.NONE : CaseFolding.LOWER_CASE;
+            final DoubleArrayTrie<String> automaton = compile(caseFolding, keywords.toArray(new String[0]));
+            final String text = randomText(random, 1000 + random.nextInt(3000), 0.002);
+
+            for (int test = 0; test < 20; test++) {
+                final int from = random.nextInt(text.length());
+                final int to = from + random.nextInt(text.length() - from + 1);
+                final int expected = loop(automaton, text, from, to);
+
+                assertEquals(expected, automaton.skipToStart(text, from, to));
+                assertEquals(expected, automaton.skipToStart(new StringBuilder(text), from, to));
+                assertEquals(expected, automaton.skipToStart(CharBuffer.wrap(text), from, to));
+            }
+        }
+    }
+
+    @Test
+    public void test_matchesAreTheSameAcrossBlocks() {
+        final Random random = new Random(18);
+        final String text = randomText(random, 10_000, 0.001);
+
+        final Trie trie = Trie.builder().ignoreCase().addKeyword("qa").addKeyword("rb").addKeyword("sc").build();
+        final Collection<Emit> emits = trie.parseText(text);
+        final Collection<Emit> buffered = trie.parseText(CharBuffer.wrap(text));
+
+        assertFalse(emits.isEmpty());
+        assertEquals(buffered.toString(), emits.toString());
+        assertEquals(emits.iterator().next().toString(), String.valueOf(trie.firstMatch(text)));
+    }
+
+    private static int loop(final DoubleArrayTrie<String> automaton, final String text, final int from,
+                            final int to) {
+        int position = from;
+        while (position < to && !automaton.isStart(text.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Random text over {@code a} to {@code e}, with characters that can start
+     * the keywords of the tests, in both cases, at the given rate.
+     */
+    private static String randomText(final Random random, final int length, final double anchorRate) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            if (random.nextDouble() < anchorRate) {
+                sb.append("pqrsPQRSa".charAt(random.nextInt(9)));
+            } else {
+                sb.append((char) ('a' + random.nextInt(5)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,176 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class StreamingMatcherTest {
+
+    private static final String TEXT = "ushers say: hers is his, she said. he,hershe he";
+
+    @Test
+    public void test_matchesAcrossChunkBoundaries() {
+        assertSameAsParseText(builder());
+    }
+
+    @Test
+    public void test_onlyWholeWordsAcrossChunkBoundaries() {
+        assertSameAsParseText(builder().onlyWholeWords());
+    }
+
+    @Test
+    public void test_onlyWholeWordsWhiteSpaceSeparatedAcrossChunkBoundaries() {
+        assertSameAsParseText(builder().onlyWholeWordsWhiteSpaceSeparated());
+    }
+
+    @Test
+    public void test_ignoreOverlapsAcrossChunkBoundaries() {
+        assertSameAsParseText(builder().ignoreOverlaps());
+    }
+
+    @Test
+    public void test_stopOnHitAcrossChunkBoundaries() {
+        assertSameAsParseText(builder().stopOnHit().onlyWholeWords());
+    }
+
+    @Test
+    public void test_stopOnHitWithEveryMatchKind() {
+        assertSameAsParseText(builder().ignoreOverlaps().stopOnHit(), TEXT);
+        for (final MatchKind matchKind : MatchKind.values()) {
+            assertSameAsParseText(builder().matchKind(matchKind).stopOnHit(), TEXT);
+            assertSameAsParseText(builder().matchKind(matchKind).stopOnHit().onlyWholeWords(), TEXT);
+            assertSameAsParseText(PayloadTrie.<String>builder()
+                    .addKeyword("BcA").addKeyword(" a. b").addKeyword("Aa").addKeyword("BAA")
+                    .addKeyword("b a").addKeyword("aa").addKeyword("..b ")
+                    .ignoreCase()
+                    .matchKind(matchKind)
+                    .stopOnHit(), "bbaaAcBcAcBb");
+        }
+    }
+
+    @Test
+    public void test_stopOnHitCountsAcceptedMatchesOnly() {
+        for (final MatchKind matchKind : MatchKind.values()) {
+            final PayloadTrie<String> trie = builder().matchKind(matchKind).ignoreOverlaps().stopOnHit().build();
+
+            final List<String> expected = new ArrayList<>();
+            trie.parseText(TEXT, (int start, int end, int keywordId) ->
+                    expected.add(start + ":" + end) && expected.size() > 1);
+            final List<String> actual = new ArrayList<>();
+            final StreamingMatcher<String> matcher = trie.streamingMatcher((start, end, keywordId) ->
+                    actual.add(start + ":" + end) && actual.size() > 1);
+            matcher.feed(TEXT.toCharArray(), 0, TEXT.length());
+            matcher.finish();
+
+            assertEquals(matchKind.toString(), 2, expected.size());
+            assertEquals(matchKind.toString(), expected, actual);
+        }
+    }
+
+    @Test
+    public void test_ignoreCase() {
+        assertSameAsParseText(builder().ignoreCase());
+    }
+
+    @Test
+    public void test_scanInputStream() throws IOException {
+        final Trie trie = Trie.builder().addKeyword("börk").addKeyword("😀").build();
+        final List<String> matches = new ArrayList<>();
+        final StreamingMatcher<String> matcher = trie.streamingMatcher((start, end, keywordId) ->
+                matches.add(start + ":" + end + "=" + trie.getKeyword(keywordId)));
+
+        matcher.scan(new ByteArrayInputStream("x börk 😀".getBytes(UTF_8)), UTF_8);
+
+        assertEquals(2, matches.size());
+        assertEquals("2:5=börk", matches.get(0));
+        assertEquals("7:8=😀", matches.get(1));
+        assertEquals(9, matcher.getPosition());
+    }
+
+    @Test
+    public void test_resetStartsANewStream() throws IOException {
+        final Trie trie = Trie.builder().onlyWholeWords().addKeyword("he").build();
+        final List<Long> starts = new ArrayList<>();
+        final StreamingMatcher<String> matcher = trie.streamingMatcher((start, end, keywordId) -> starts.add(start));
+
+        matcher.scan(new StringReader("x he"));
+        matcher.reset();
+        matcher.scan(new StringReader("he"));
+
+        assertEquals(2, starts.size());
+        assertEquals(2L, (long) starts.get(0));
+        assertEquals(0L, (long) starts.get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_feedAfterFinish() {
+        final StreamingMatcher<String> matcher = Trie.builder().addKeyword("he").build()
+                .streamingMatcher((start, end, keywordId) -> true);
+        matcher.finish();
+        matcher.feed(new char[1], 0, 1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void test_invalidRange() {
+        Trie.builder().addKeyword("he").build()
+                .streamingMatcher((start, end, keywordId) -> true)
+                .feed(new char[2], 1, 2);
+    }
+
+    private static PayloadTrie.PayloadTrieBuilder<String> builder() {
+        return PayloadTrie.<String>builder()
+                .addKeyword("he")
+                .addKeyword("she")
+                .addKeyword("hers")
+                .addKeyword("his")
+                .addKeyword("said")
+                .addKeyword("HERSHE");
+    }
+
+    /**
+     * Feeds the text split at every pair of offsets and expects the emits of
+     * a single call to parseText.
+     */
+    private static void assertSameAsParseText(final PayloadTrie.PayloadTrieBuilder<String> builder) {
+        assertSameAsParseText(builder, TEXT);
+    }
+
+    private static void assertSameAsParseText(final PayloadTrie.PayloadTrieBuilder<String> builder,
+                                              final String text) {
+        final PayloadTrie<String> trie = builder.build();
+        final List<String> expected = asStrings(trie.parseText(text));
+        final char[] chars = text.toCharArray();
+
+        for (int first = 0; first <= chars.length; first++) {
+            for (int second = first; second <= chars.length; second++) {
+                final List<String> actual = new ArrayList<>();
+                final StreamingMatcher<String> matcher = trie.streamingMatcher((start, end, keywordId) ->
+                        actual.add(new PayloadEmit<>((int) start, (int) end, trie.getKeyword(keywordId), null)
+                                .toString()));
+
+                matcher.feed(chars, 0, first);
+                matcher.feed(chars, first, second - first);
+                matcher.feed(chars, second, chars.length - second);
+                matcher.finish();
+
+                assertEquals("split at " + first + " and " + second, expected, actual);
+            }
+        }
+    }
+
+    private static List<String> asStrings(final Collection<PayloadEmit<String>> emits) {
+        final List<String> result = new ArrayList<>();
+        for (final PayloadEmit<String> emit : emits) {
+            result.add(emit.toString());
+        }
+        return result;
+    }
+}
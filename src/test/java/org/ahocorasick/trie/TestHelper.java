@@ -1,5 +1,8 @@
 package org.ahocorasick.trie;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import static java.util.concurrent.ThreadLocalRandom.current;
 
 /**
@@ -41,4 +44,28 @@ public class TestHelper {
 
     return sb;
   }
+
+  /**
+   * Compiles keywords into a double-array trie the way the builders do,
+   * with each keyword as its own payload and the keywords ranked in the
+   * order they are given.
+   *
+   * @param caseFolding The folding to add the keywords and scan the text
+   *                    with.
+   * @param keywords    The keywords; repeated ones are left out.
+   * @return The compiled automaton.
+   */
+  static DoubleArrayTrie<String> compile(
+    final CaseFolding caseFolding,
+    final String... keywords ) {
+    final CompressedState<String> root = new CompressedState<>();
+    final Map<Payload<String>, Integer> insertionOrder = new IdentityHashMap<>();
+    for( final String keyword : keywords ) {
+      final Payload<String> payload = new Payload<>( keyword, keyword );
+      if( root.insert( payload, 0, caseFolding ) ) {
+        insertionOrder.put( payload, insertionOrder.size() );
+      }
+    }
+    return DoubleArrayTrie.compile( root, insertionOrder, caseFolding, null );
+  }
 }
@@ -0,0 +1,157 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+public class TokenViewTest {
+
+    private static final String TEXT = "ushers say: hers is his, she said. He hissed at Hershey.";
+
+    @Test
+    public void test_tokenIteratorMatchesTokenize() {
+        assertSameTokens(builder().build());
+        assertSameTokens(builder().ignoreOverlaps().build());
+        assertSameTokens(builder().ignoreCase().onlyWholeWords().build());
+        assertSameTokens(builder().onlyWholeWordsWhiteSpaceSeparated().build());
+        assertSameTokens(builder().stopOnHit().build());
+        assertSameTokens(builder().matchKind(MatchKind.LEFTMOST_LONGEST).build());
+    }
+
+    @Test
+    public void test_viewsReferToTheText() {
+        final PayloadTrie<Integer> trie = PayloadTrie.<Integer>builder()
+                .addKeyword("sh", 1)
+                .addKeyword("she", 2)
+                .build();
+        final StringBuilder text = new StringBuilder("ushe!");
+
+        final Iterator<TokenView<Integer>> tokens = trie.tokenIterator(text);
+
+        final TokenView<Integer> fragment = tokens.next();
+        assertFalse(fragment.isMatch());
+        assertEquals(0, fragment.getStart());
+        assertEquals(0, fragment.getEnd());
+        assertNull(fragment.getEmit());
+        assertNull(fragment.getKeyword());
+
+        final TokenView<Integer> overlapped = tokens.next();
+        assertEquals("sh", overlapped.toString());
+
+        final TokenView<Integer> match = tokens.next();
+        assertTrue(match.isMatch());
+        assertEquals("she", match.getKeyword());
+        assertEquals(Integer.valueOf(2), match.getPayload());
+        assertEquals("1:3=she->2", match.getEmit().toString());
+        assertEquals(3, match.length());
+        assertEquals('h', match.charAt(1));
+        assertEquals("he", match.subSequence(1, 3).toString());
+
+        text.setCharAt(1, 'S');
+        assertEquals("She", match.getFragment());
+
+        assertEquals("!", tokens.next().toString());
+        assertFalse(tokens.hasNext());
+    }
+
+    @Test
+    public void test_tokensAreScannedLazily() {
+        final Trie trie = Trie.builder().addKeyword("ab").build();
+        final CountingSequence text = new CountingSequence("xxabxxabxxabxxabxxab");
+
+        final Iterator<TokenView<String>> tokens = trie.tokenIterator(text);
+        assertEquals(0, tokens.next().getStart());
+        assertEquals(2, tokens.next().getStart());
+
+        // the first character of every match is read twice, by the skip loop and the transition
+        assertTrue("scanned " + text.reads + " characters", text.reads <= 5);
+    }
+
+    @Test
+    public void test_emptyText() {
+        final Iterator<TokenView<String>> tokens = Trie.builder().addKeyword("ab").build().tokenIterator("");
+
+        assertFalse(tokens.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void test_nextAfterLastToken() {
+        final Iterator<TokenView<String>> tokens = Trie.builder().addKeyword("ab").build().tokenIterator("ab");
+
+        tokens.next();
+        tokens.next();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void test_charAtOutsideTheView() {
+        final Iterator<TokenView<String>> tokens = Trie.builder().addKeyword("ab").build().tokenIterator("xabx");
+
+        tokens.next().charAt(1);
+    }
+
+    private static PayloadTrie.PayloadTrieBuilder<String> builder() {
+        return PayloadTrie.<String>builder()
+                .addKeyword("he", "pronoun")
+                .addKeyword("she", "pronoun")
+                .addKeyword("his", "pronoun")
+                .addKeyword("hers", "pronoun")
+                .addKeyword("hershey", "candy")
+                .addKeyword("hiss");
+    }
+
+    private static void assertSameTokens(final PayloadTrie<String> trie) {
+        final List<String> expected = new ArrayList<>();
+        for (final PayloadToken<String> token : trie.tokenize(TEXT)) {
+            expected.add(token.getFragment() + "|" + token.isMatch() + "|" + token.getEmit());
+        }
+
+        final List<String> actual = new ArrayList<>();
+        final Iterator<TokenView<String>> tokens = trie.tokenIterator(TEXT);
+        while (tokens.hasNext()) {
+            final TokenView<String> token = tokens.next();
+            actual.add(token.getFragment() + "|" + token.isMatch() + "|" + token.getEmit());
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Counts how many characters are read.
+     */
+    private static final class CountingSequence implements CharSequence {
+
+        private final String text;
+
+        private int reads;
+
+        private CountingSequence(final String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(final int index) {
+            reads++;
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
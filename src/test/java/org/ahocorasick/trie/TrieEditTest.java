@@ -0,0 +1,247 @@
+package org.ahocorasick.trie;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class TrieEditTest {
+
+    private static final String ALPHABET = "abcdeABſ ";
+
+    private static List<String> keywords;
+
+    private static String text;
+
+    @BeforeClass
+    public static void setUp() {
+        final Random random = new Random(22);
+        keywords = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            keywords.add(randomText(random, 1 + random.nextInt(7)));
+        }
+        text = randomText(random, 20_000);
+    }
+
+    @Test
+    public void test_addKeyword() {
+        final Trie trie = Trie.builder().addKeyword("he").addKeyword("hers").build();
+
+        final Trie edited = trie.edit().addKeyword("she").addKeyword("his").build();
+
+        assertEquals("[2:3=he, 1:3=she, 2:5=hers]", edited.parseText("ushers").toString());
+        assertEquals("[1:2=hi, 1:3=his]", Trie.builder().addKeyword("hi").build().edit().addKeyword("his")
+                .build().parseText("this").toString());
+    }
+
+    @Test
+    public void test_removeKeyword() {
+        final Trie trie = Trie.builder().addKeywords("he", "she", "his", "hers").build();
+
+        final Trie edited = trie.edit().removeKeyword("he").removeKeyword("hers").build();
+
+        assertEquals("[1:3=she]", edited.parseText("ushers").toString());
+        assertEquals(2, edited.getKeywordCount());
+    }
+
+    @Test
+    public void test_editingLeavesTheTrieAsItIs() {
+        final Trie trie = Trie.builder().addKeywords("he", "she").build();
+        final Trie.TrieEditor editor = trie.edit().addKeyword("hers");
+        final Trie first = editor.build();
+
+        final Trie second = editor.removeKeyword("she").build();
+
+        assertEquals("[2:3=he, 1:3=she]", trie.parseText("ushers").toString());
+        assertEquals("[2:3=he, 1:3=she, 2:5=hers]", first.parseText("ushers").toString());
+        assertEquals("[2:3=he, 2:5=hers]", second.parseText("ushers").toString());
+        assertEquals("[2:3=he, 1:3=she]", first.edit().removeKeyword("hers").build().parseText("ushers").toString());
+        assertEquals("[2:3=he, 1:3=she, 2:5=hers]", first.parseText("ushers").toString());
+    }
+
+    @Test
+    public void test_existingKeywordKeepsItsPayload() {
+        final PayloadTrie<String> trie = PayloadTrie.<String>builder().addKeyword("he", "first").build();
+
+        final PayloadTrie<String> kept = trie.edit().addKeyword("he", "second").build();
+        final PayloadTrie<String> replaced = trie.edit().removeKeyword("he").addKeyword("he", "second").build();
+
+        assertEquals("first", kept.parseText("he").iterator().next().getPayload());
+        assertEquals("second", replaced.parseText("he").iterator().next().getPayload());
+        assertEquals(1, replaced.getKeywordCount());
+    }
+
+    @Test
+    public void test_removeUnknownKeyword() {
+        final Trie trie = Trie.builder().addKeywords("he", "hers").build();
+
+        final Trie edited = trie.edit().removeKeyword("her").removeKeyword("x").removeKeyword("").build();
+
+        assertEquals("[2:3=he, 2:5=hers]", edited.parseText("ushers").toString());
+    }
+
+    @Test
+    public void test_removeAllKeywords() {
+        final Trie trie = Trie.builder().addKeywords("he", "she").build();
+
+        final Trie edited = trie.edit().removeKeyword("he").removeKeyword("she").build();
+
+        assertTrue(edited.parseText("ushers").isEmpty());
+        assertEquals(0, edited.getKeywordCount());
+        assertEquals("[2:3=he]", edited.edit().addKeyword("he").build().parseText("ushers").toString());
+    }
+
+    @Test
+    public void test_keywordIdsStayDense() {
+        final Trie edited = Trie.builder().addKeywords("a", "b", "c").build().edit()
+                .removeKeyword("a").addKeyword("d").build();
+
+        assertEquals(3, edited.getKeywordCount());
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < edited.getKeywordCount(); i++) {
+            ids.add(edited.getKeyword(i));
+        }
+        assertEquals(3, ids.size());
+        assertTrue(ids.containsAll(Arrays.asList("b", "c", "d")));
+    }
+
+    @Test
+    public void test_sameAsBuild() throws IOException {
+        assertSameAsBuild(PayloadTrie::builder);
+    }
+
+    @Test
+    public void test_sameAsBuildWithCaseFolding() throws IOException {
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().ignoreCase());
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().caseFolding(CaseFolding.SIMPLE));
+    }
+
+    @Test
+    public void test_sameAsBuildLeftmost() throws IOException {
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().matchKind(MatchKind.LEFTMOST_FIRST));
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().matchKind(MatchKind.LEFTMOST_LONGEST));
+    }
+
+    @Test
+    public void test_sameAsBuildWithoutOverlaps() throws IOException {
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().ignoreOverlaps().onlyWholeWords());
+    }
+
+    @Test
+    public void test_sameAsBuildDeterministic() throws IOException {
+        assertSameAsBuild(() -> PayloadTrie.<String>builder().deterministic());
+    }
+
+    @Test
+    public void test_editReadTrie() throws IOException {
+        final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.builder();
+        final List<String> expected = new ArrayList<>();
+        for (final String keyword : keywords.subList(0, 500)) {
+            builder.addKeyword(keyword, keyword);
+            if (!expected.contains(keyword)) {
+                expected.add(keyword);
+            }
+        }
+        final PayloadTrie<String> read = PayloadTrie.readFrom(
+                new ByteArrayInputStream(serialize(builder.build())), PayloadCodec.strings());
+
+        final PayloadTrie.PayloadTrieEditor<String> editor = read.edit();
+        for (int i = 0; i < 250; i++) {
+            editor.removeKeyword(keywords.get(i));
+            expected.remove(keywords.get(i));
+            editor.addKeyword(keywords.get(500 + i), keywords.get(500 + i));
+            if (!expected.contains(keywords.get(500 + i))) {
+                expected.add(keywords.get(500 + i));
+            }
+        }
+
+        final PayloadTrie.PayloadTrieBuilder<String> built = PayloadTrie.builder();
+        for (final String keyword : expected) {
+            built.addKeyword(keyword, keyword);
+        }
+        assertEquals(built.build().parseText(text).toString(), editor.build().parseText(text).toString());
+    }
+
+    /**
+     * Edits a trie in several rounds of random additions and removals, and
+     * compares every round with a trie built from the keywords it should
+     * have: their matches, and their serialized form, which lays out the
+     * keywords anew.
+     */
+    private static void assertSameAsBuild(final Supplier<PayloadTrie.PayloadTrieBuilder<String>> config)
+            throws IOException {
+        final Random random = new Random(23);
+        final List<String> expected = new ArrayList<>();
+        final PayloadTrie.PayloadTrieBuilder<String> initial = config.get();
+        for (final String keyword : keywords.subList(0, 1_000)) {
+            initial.addKeyword(keyword, payloadOf(keyword));
+            if (!expected.contains(keyword)) {
+                expected.add(keyword);
+            }
+        }
+
+        PayloadTrie<String> trie = initial.build();
+        for (int round = 0; round < 5; round++) {
+            final PayloadTrie.PayloadTrieEditor<String> editor = trie.edit();
+            for (int i = 0; i < 200; i++) {
+                if (random.nextInt(3) == 0 && !expected.isEmpty()) {
+                    final String keyword = expected.remove(random.nextInt(expected.size()));
+                    editor.removeKeyword(keyword);
+                } else {
+                    final String keyword = keywords.get(random.nextInt(keywords.size()));
+                    editor.addKeyword(keyword, payloadOf(keyword));
+                    if (!expected.contains(keyword)) {
+                        expected.add(keyword);
+                    }
+                }
+            }
+            trie = editor.build();
+
+            final PayloadTrie.PayloadTrieBuilder<String> built = config.get();
+            for (final String keyword : expected) {
+                built.addKeyword(keyword, payloadOf(keyword));
+            }
+            final PayloadTrie<String> fresh = built.build();
+            assertEquals(fresh.parseText(text).toString(), trie.parseText(text).toString());
+            assertEquals(toString(fresh.tokenIterator(text)), toString(trie.tokenIterator(text)));
+            assertArrayEquals(serialize(fresh), serialize(trie));
+        }
+    }
+
+    private static String payloadOf(final String keyword) {
+        return keyword.hashCode() % 3 == 0 ? null : String.valueOf(keyword.length());
+    }
+
+    private static String toString(final Iterator<TokenView<String>> tokens) {
+        final StringBuilder sb = new StringBuilder();
+        while (tokens.hasNext()) {
+            final TokenView<String> token = tokens.next();
+            sb.append(token.getStart()).append(token.isMatch() ? token.getPayload() : "").append(',');
+        }
+        return sb.toString();
+    }
+
+    private static byte[] serialize(final PayloadTrie<String> trie) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trie.writeTo(out, PayloadCodec.strings());
+        return out.toByteArray();
+    }
+
+    private static String randomText(final Random random, final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}
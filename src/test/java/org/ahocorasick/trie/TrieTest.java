@@ -267,6 +267,22 @@ public class TrieTest {
     checkEmit( iterator.next(), 6, 7, "ab" );
   }
 
+  @Test
+  public void test_NonOverlappingRepeatedLosers() {
+    final Trie trie = Trie.builder()
+                          .ignoreCase()
+                          .ignoreOverlaps()
+                          .addKeyword( "B" )
+                          .addKeyword( "b" )
+                          .addKeyword( "ba" )
+                          .build();
+    // Of the matches of "B" and "b" that lose to "ba", only the first is
+    // removed, as the interval tree always did.
+    assertEquals( "[0:1=ba, 0:0=b]", trie.parseText( "ba" ).toString() );
+    assertEquals( "[1:2=ba, 1:1=b, 3:3=B, 3:3=b, 5:5=B, 5:5=b, 6:7=ba, 6:6=b]",
+                  trie.parseText( "xbab bba" ).toString() );
+  }
+
   @Test
   public void test_NonOverlappingFirstMatch() {
     final Trie trie = Trie.builder()
@@ -0,0 +1,250 @@
+package org.ahocorasick.trie;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class Utf8PayloadTrieTest {
+
+    @Test
+    public void test_asciiBytes() {
+        final Utf8PayloadTrie<Integer> trie = PayloadTrie.<Integer>builder()
+                .addKeyword("hers", 9)
+                .addKeyword("his", 12)
+                .addKeyword("she", 4)
+                .addKeyword("he", 20)
+                .build()
+                .toUtf8();
+
+        final List<PayloadEmit<Integer>> emits = trie.parseBytes(bytes("ushers"), 0, 6);
+
+        assertEquals(3, emits.size());
+        final Iterator<PayloadEmit<Integer>> iterator = emits.iterator();
+        checkEmit(iterator.next(), 2, 3, "he", 20);
+        checkEmit(iterator.next(), 1, 3, "she", 4);
+        checkEmit(iterator.next(), 2, 5, "hers", 9);
+    }
+
+    @Test
+    public void test_multiByteOffsets() {
+        final Utf8PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .addKeyword("börkü", "uni")
+                .addKeyword("😀", "emoji")
+                .build()
+                .toUtf8();
+        final String text = "è börkü 😀!";
+        final byte[] bytes = bytes(text);
+
+        final List<PayloadEmit<String>> emits = trie.parseBytes(bytes, 0, bytes.length);
+
+        assertEquals(2, emits.size());
+        checkEmit(emits.get(0), 3, 9, "börkü", "uni");
+        checkEmit(emits.get(1), 11, 14, "😀", "emoji");
+
+        final List<PayloadEmit<String>> charEmits = Utf8PayloadTrie.toCharOffsets(emits, bytes, 0);
+        checkEmit(charEmits.get(0), 2, 6, "börkü", "uni");
+        checkEmit(charEmits.get(1), 8, 9, "😀", "emoji");
+        assertEquals("börkü", text.substring(charEmits.get(0).getStart(), charEmits.get(0).getEnd() + 1));
+        assertEquals(text.length(), Utf8PayloadTrie.charOffset(bytes, 0, bytes.length));
+    }
+
+    @Test
+    public void test_offsetAndLengthBoundTheScan() {
+        final Utf8PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .addKeyword("abc")
+                .build()
+                .toUtf8();
+        final byte[] bytes = bytes("abcabcabc");
+
+        final List<PayloadEmit<String>> emits = trie.parseBytes(bytes, 2, 5);
+
+        assertEquals(1, emits.size());
+        checkEmit(emits.get(0), 1, 3, "abc", null);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void test_invalidRange() {
+        PayloadTrie.<String>builder().addKeyword("abc").build().toUtf8().parseBytes(new byte[2], 1, 2);
+    }
+
+    @Test
+    public void test_ignoreCaseAscii() {
+        final Utf8PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .ignoreCase()
+                .addKeyword("CaSiNg")
+                .build()
+                .toUtf8();
+
+        final List<PayloadEmit<String>> emits = trie.parseBytes(bytes("xcAsInG"), 0, 7);
+
+        assertEquals(1, emits.size());
+        checkEmit(emits.get(0), 1, 6, "CaSiNg", null);
+    }
+
+    @Test
+    public void test_onlyWholeWordsDecodesNeighbours() {
+        final Utf8PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .onlyWholeWords()
+                .addKeyword("sugar")
+                .build()
+                .toUtf8();
+        final byte[] bytes = bytes("ésugar sugar sugarü");
+
+        final List<PayloadEmit<String>> emits = trie.parseBytes(bytes, 0, bytes.length);
+
+        assertEquals(1, emits.size());
+        checkEmit(emits.get(0), 8, 12, "sugar", null);
+    }
+
+    @Test
+    public void test_ignoreOverlapsAndBuffer() {
+        final Utf8PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .ignoreOverlaps()
+                .addKeyword("ab")
+                .addKeyword("cba")
+                .addKeyword("ababc")
+                .build()
+                .toUtf8();
+        final byte[] bytes = bytes("xxababcbab");
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.position(2);
+
+        final List<PayloadEmit<String>> emits = trie.parseBuffer(buffer);
+
+        assertEquals(2, buffer.position());
+        assertEquals(2, emits.size());
+        checkEmit(emits.get(0), 0, 4, "ababc", null);
+        checkEmit(emits.get(1), 6, 7, "ab", null);
+    }
+
+    @Test
+    public void test_sameResultsAsCharacters() {
+        final PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .addKeyword("ü")
+                .addKeyword("üb")
+                .addKeyword("bü")
+                .addKeyword("b")
+                .build();
+        final String text = "übübbüüb";
+        final byte[] bytes = bytes(text);
+
+        final Collection<PayloadEmit<String>> expected = trie.parseText(text);
+        final List<PayloadEmit<String>> actual = Utf8PayloadTrie.toCharOffsets(
+                trie.toUtf8().parseBytes(bytes, 0, bytes.length), bytes, 0);
+
+        assertEquals(asStrings(expected), asStrings(actual));
+    }
+
+    @Test
+    public void test_matchKindsSameResultsAsCharacters() {
+        for (final MatchKind matchKind : MatchKind.values()) {
+            for (final boolean stopOnHit : new boolean[]{false, true}) {
+                final PayloadTrie.PayloadTrieBuilder<String> ascii = PayloadTrie.<String>builder()
+                        .addKeyword("BcA").addKeyword(" a. b").addKeyword("Aa").addKeyword("BAA")
+                        .addKeyword("b a").addKeyword("aa").addKeyword("..b ")
+                        .ignoreCase()
+                        .ignoreOverlaps()
+                        .matchKind(matchKind);
+                final PayloadTrie.PayloadTrieBuilder<String> unicode = PayloadTrie.<String>builder()
+                        .addKeyword("üb").addKeyword("übü").addKeyword("b").addKeyword("bü").addKeyword("ü")
+                        .ignoreOverlaps()
+                        .matchKind(matchKind);
+                if (stopOnHit) {
+                    ascii.stopOnHit();
+                    unicode.stopOnHit();
+                }
+
+                assertSameAsCharacters(ascii.build(), "bbaaAcBcAcBb");
+                assertSameAsCharacters(unicode.build(), "übübbüübü");
+            }
+        }
+    }
+
+    @Test
+    public void test_ignoreOverlapsComparesCharacterLengths() {
+        final PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                .addKeyword("bb")
+                .addKeyword("aΩa")
+                .addKeyword("bΩ")
+                .ignoreOverlaps()
+                .build();
+
+        assertSameAsCharacters(trie, "bbΩΩΩ");
+        assertEquals("[0:1=bb]", asStrings(trie.parseText("bbΩΩΩ")).toString());
+
+        final Random random = new Random(4);
+        for (int round = 0; round < 100; round++) {
+            final PayloadTrie.PayloadTrieBuilder<String> builder = PayloadTrie.<String>builder().ignoreOverlaps();
+            for (int i = 0; i < 10; i++) {
+                builder.addKeyword(randomText(random, 1 + random.nextInt(4)));
+            }
+            assertSameAsCharacters(builder.build(), randomText(random, 300));
+        }
+    }
+
+    @Test
+    public void test_leftmostHandlerReceivesNoOverlaps() {
+        for (final MatchKind matchKind : new MatchKind[]{MatchKind.LEFTMOST_LONGEST, MatchKind.LEFTMOST_FIRST}) {
+            final Utf8PayloadTrie<String> trie = PayloadTrie.<String>builder()
+                    .addKeyword("üb").addKeyword("übü").addKeyword("b").addKeyword("bü").addKeyword("ü")
+                    .matchKind(matchKind)
+                    .build()
+                    .toUtf8();
+            final byte[] bytes = bytes("übübbüübü");
+
+            final List<PayloadEmit<String>> handled = new ArrayList<>();
+            trie.parseBytes(bytes, 0, bytes.length, handled::add);
+
+            assertEquals(asStrings(trie.parseBytes(bytes, 0, bytes.length)), asStrings(handled));
+        }
+    }
+
+    private static void assertSameAsCharacters(final PayloadTrie<String> trie, final String text) {
+        final byte[] bytes = bytes(text);
+        final List<PayloadEmit<String>> actual = Utf8PayloadTrie.toCharOffsets(
+                trie.toUtf8().parseBytes(bytes, 0, bytes.length), bytes, 0);
+
+        assertEquals(asStrings(trie.parseText(text)), asStrings(actual));
+    }
+
+    /**
+     * Random text over characters of one, two, three and four bytes.
+     */
+    private static String randomText(final Random random, final int length) {
+        final String[] characters = {"a", "b", "Ω", "€", "😀"};
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(characters[random.nextInt(characters.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static byte[] bytes(final String text) {
+        return text.getBytes(UTF_8);
+    }
+
+    private static List<String> asStrings(final Collection<PayloadEmit<String>> emits) {
+        final List<String> result = new ArrayList<>();
+        for (final PayloadEmit<String> emit : emits) {
+            result.add(emit.toString());
+        }
+        return result;
+    }
+
+    private static <T> void checkEmit(final PayloadEmit<T> next, final int expectedStart, final int expectedEnd,
+                                      final String expectedKeyword, final T expectedPayload) {
+        assertEquals("Start of emit should have been " + expectedStart, expectedStart, next.getStart());
+        assertEquals("End of emit should have been " + expectedEnd, expectedEnd, next.getEnd());
+        assertEquals(expectedKeyword, next.getKeyword());
+        assertEquals(expectedPayload, next.getPayload());
+    }
+}